@@ -0,0 +1,27 @@
+package com.viridial.common.config;
+
+/**
+ * Names of the second-level cache regions, each configured in {@code caffeine-jcache.conf}
+ * (a region missing there fails the startup, see {@code hibernate.javax.cache.missing_cache_strategy}).
+ *
+ * <p>Entity regions hold the small, read-mostly tables resolved on nearly every mapping or lazy
+ * association ({@code getTimezone()}, {@code getRegion()}, {@code getType()}...). Search regions hold
+ * the ids returned by the cacheable searches of those entities, per query shape and bound values;
+ * Hibernate drops them whenever their table is written.</p>
+ */
+public final class CacheRegions {
+
+    public static final String TIMEZONE = "timezone";
+    public static final String COUNTRY = "country";
+    public static final String REFERENTIAL = "referential";
+    public static final String FEATURE_TYPE = "featureType";
+    public static final String ROLE = "role";
+
+    public static final String TIMEZONE_SEARCH = "timezoneSearch";
+    public static final String COUNTRY_SEARCH = "countrySearch";
+    public static final String REFERENTIAL_SEARCH = "referentialSearch";
+    public static final String ROLE_SEARCH = "roleSearch";
+
+    private CacheRegions() {
+    }
+}
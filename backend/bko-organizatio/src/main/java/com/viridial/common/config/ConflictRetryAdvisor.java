@@ -0,0 +1,132 @@
+package com.viridial.common.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies {@link RetryOnConflict}: calls the method again when it throws a
+ * {@link ConcurrencyFailureException} (Spring's translation of optimistic lock failures,
+ * deadlocks, lock timeouts and serialization failures) or a JPA {@link OptimisticLockException},
+ * up to {@code app.retry.max-attempts} attempts in all. Before each new attempt it waits between
+ * half and all of {@code app.retry.backoff}, doubled at each attempt up to {@code app.retry.max-backoff},
+ * so that the writers that collided do not collide again.
+ *
+ * <p>Ordered before the transaction advisor: each attempt runs in its own transaction, the failed
+ * one having been rolled back. A method joining a transaction that was already running is not
+ * retried, since that whole transaction is bound to roll back. Retries are counted in
+ * {@code viridial.conflict.retries}, by method and outcome.</p>
+ */
+@Component
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+public class ConflictRetryAdvisor extends AbstractPointcutAdvisor
+        implements MethodInterceptor, EnvironmentAware, BeanFactoryAware {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflictRetryAdvisor.class);
+
+    private final transient Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(RetryOnConflict.class, true))
+        .union(AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class));
+
+    private int maxAttempts;
+    private Duration backoff;
+    private Duration maxBackoff;
+    private transient ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ConflictRetryAdvisor() {
+        // Outside of the transaction interceptor (lowest precedence)
+        setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        // Bound here: advisors are created before @Value fields can be injected
+        maxAttempts = Math.max(1, environment.getProperty("app.retry.max-attempts", Integer.class, 4));
+        backoff = Binder.get(environment).bind("app.retry.backoff", Duration.class).orElse(Duration.ofMillis(20));
+        maxBackoff = Binder.get(environment).bind("app.retry.max-backoff", Duration.class).orElse(Duration.ofSeconds(1));
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        meterRegistry = beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return this;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+        long pause = backoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Each attempt goes through the interceptors below, the transaction included
+                return invocation instanceof ProxyMethodInvocation proxyInvocation
+                    ? proxyInvocation.invocableClone().proceed() : invocation.proceed();
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    count(method, "exhausted");
+                    throw e;
+                }
+                count(method, "retried");
+                logger.debug("{} failed on a concurrent write (attempt {} of {}), retrying in up to {} ms: {}",
+                    method, attempt, maxAttempts, pause, e.getMessage());
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(pause / 2, pause + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                pause = Math.min(pause * 2, maxBackoff.toMillis());
+            }
+        }
+    }
+
+    private void count(String method, String outcome) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder("viridial.conflict.retries")
+                .description("Service calls run again after failing on a concurrent write")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+        }
+    }
+}
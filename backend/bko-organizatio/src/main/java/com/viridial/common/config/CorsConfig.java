@@ -1,5 +1,6 @@
 package com.viridial.common.config;
 
+import com.viridial.common.forms.PaginatedResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -35,6 +36,9 @@ public class CorsConfig {
         // Expose headers
         config.addExposedHeader("Authorization");
         config.addExposedHeader("Content-Type");
+        config.addExposedHeader(PaginatedResponse.TOTAL_COUNT_HEADER);
+        config.addExposedHeader(PaginatedResponse.HAS_NEXT_HEADER);
+        config.addExposedHeader(PaginatedResponse.COUNT_MODE_HEADER);
         
         // Apply CORS configuration to all paths
         source.registerCorsConfiguration("/**", config);
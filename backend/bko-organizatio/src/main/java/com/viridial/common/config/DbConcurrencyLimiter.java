@@ -0,0 +1,233 @@
+package com.viridial.common.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Bounds the number of threads using the database at once, in front of the connection pool.
+ *
+ * <p>With virtual threads ({@code spring.threads.virtual.enabled}) every request gets its own
+ * thread, so thousands of requests can want a connection at the same time. Waiting threads queue
+ * on a fair semaphore (FIFO, cheap for virtual threads) rather than in Hikari: at most
+ * {@code app.db.max-concurrency} connections are requested from the pool, at most
+ * {@code app.db.max-waiting} threads wait, each at most {@code app.db.acquire-timeout}. Beyond
+ * that, the request fails at once with a 503 instead of waiting for the pool's connection timeout.</p>
+ *
+ * <p>A permit is taken when a connection is obtained from the data source and released when it is
+ * closed, so it covers a whole transaction, a stateless session or a COPY stream. A thread already
+ * holding a connection is not queued again for another one (such as a cache load inside a
+ * transaction): it would wait for itself.</p>
+ */
+@Component
+public class DbConcurrencyLimiter implements BeanPostProcessor, EnvironmentAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbConcurrencyLimiter.class);
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof LimitedDataSource
+                || !environment.getProperty("app.db.limiter-enabled", Boolean.class, true)) {
+            return bean;
+        }
+        // Bound here: @Value fields of a BeanPostProcessor are not injected
+        int maxConcurrency = environment.getProperty("app.db.max-concurrency", Integer.class, 20);
+        int maxWaiting = environment.getProperty("app.db.max-waiting", Integer.class, 10_000);
+        Duration acquireTimeout = Binder.get(environment).bind("app.db.acquire-timeout", Duration.class)
+            .orElse(Duration.ofSeconds(10));
+        logger.info("Database concurrency limited to {} connections, {} waiting threads, {} wait",
+            maxConcurrency, maxWaiting, acquireTimeout);
+        return new LimitedDataSource(dataSource, maxConcurrency, maxWaiting, acquireTimeout);
+    }
+
+    /**
+     * Data source handing out connections under a permit, released when the connection is closed.
+     */
+    public static class LimitedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+        private static final ThreadLocal<int[]> HELD = ThreadLocal.withInitial(() -> new int[1]);
+
+        private final Semaphore permits;
+        private final int maxConcurrency;
+        private final int maxWaiting;
+        private final long acquireTimeoutNanos;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile LongConsumer waitRecorder = nanos -> {
+        };
+
+        public LimitedDataSource(DataSource target, int maxConcurrency, int maxWaiting, Duration acquireTimeout) {
+            super(target);
+            this.permits = new Semaphore(maxConcurrency, true);
+            this.maxConcurrency = maxConcurrency;
+            this.maxWaiting = maxWaiting;
+            this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return limit(true, null, null);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return limit(false, username, password);
+        }
+
+        /**
+         * Returns the number of threads waiting for a permit.
+         */
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        /**
+         * Returns the number of permits in use.
+         */
+        public int getActive() {
+            return maxConcurrency - permits.availablePermits();
+        }
+
+        /**
+         * Sets the recorder of the time each permit was waited for, in nanoseconds (0 when one was free).
+         */
+        public void setWaitRecorder(LongConsumer waitRecorder) {
+            this.waitRecorder = waitRecorder;
+        }
+
+        /**
+         * Closes the pool behind: the destroy method of the data source bean is inferred from this class.
+         */
+        @Override
+        public void close() throws Exception {
+            if (obtainTargetDataSource() instanceof AutoCloseable target) {
+                target.close();
+            }
+        }
+
+        private Connection limit(boolean pooled, String username, String password) throws SQLException {
+            int[] held = HELD.get();
+            if (held[0] > 0) {
+                // Nested connection of a thread already holding a permit
+                return track(open(pooled, username, password), held, false);
+            }
+            acquire();
+            try {
+                return track(open(pooled, username, password), held, true);
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private Connection open(boolean pooled, String username, String password) throws SQLException {
+            return pooled ? obtainTargetDataSource().getConnection()
+                : obtainTargetDataSource().getConnection(username, password);
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                // Timed, unlike tryAcquire(), so that a free permit is not taken ahead of the waiting threads
+                if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                    waitRecorder.accept(0);
+                    return;
+                }
+                if (waiting.incrementAndGet() > maxWaiting) {
+                    waiting.decrementAndGet();
+                    throw new DatabaseOverloadedException("Too many requests waiting for the database");
+                }
+                long start = System.nanoTime();
+                try {
+                    if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                        throw new DatabaseOverloadedException("Timed out waiting for the database");
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                    waitRecorder.accept(System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseOverloadedException("Interrupted while waiting for the database");
+            }
+        }
+
+        /**
+         * Wraps the connection so that closing it gives the permit back, once.
+         */
+        private Connection track(Connection connection, int[] held, boolean permit) {
+            held[0]++;
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTargetConnection":
+                            return connection;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                held[0]--;
+                                try {
+                                    connection.close();
+                                } finally {
+                                    if (permit) {
+                                        permits.release();
+                                    }
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed.get() || connection.isClosed();
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+        }
+    }
+
+    /**
+     * No database permit could be obtained: the service is overloaded, the client should retry later.
+     * Reaches the web layer as the cause of the transaction or JDBC exception.
+     */
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Database overloaded, retry later")
+    public static class DatabaseOverloadedException extends SQLTransientConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        public DatabaseOverloadedException(String message) {
+            super(message);
+        }
+    }
+}
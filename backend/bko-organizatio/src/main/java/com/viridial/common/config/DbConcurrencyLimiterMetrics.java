@@ -0,0 +1,43 @@
+package com.viridial.common.config;
+
+import com.viridial.common.config.DbConcurrencyLimiter.LimitedDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the {@link DbConcurrencyLimiter}, where requests wait for the database before the
+ * connection pool: {@code viridial.db.limiter.wait} (histogram of the wait for a permit, timeouts
+ * included), {@code viridial.db.limiter.active} and {@code viridial.db.limiter.waiting}. The wait in
+ * the pool itself is Hikari's {@code hikaricp.connections.acquire}.
+ */
+@Component
+public class DbConcurrencyLimiterMetrics implements MeterBinder {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(dataSource instanceof LimitedDataSource limited)) {
+            return;
+        }
+        Gauge.builder("viridial.db.limiter.active", limited, LimitedDataSource::getActive)
+            .description("Threads holding a database permit")
+            .register(registry);
+        Gauge.builder("viridial.db.limiter.waiting", limited, LimitedDataSource::getWaiting)
+            .description("Threads waiting for a database permit")
+            .register(registry);
+        Timer wait = Timer.builder("viridial.db.limiter.wait")
+            .description("Wait for a database permit")
+            .publishPercentileHistogram()
+            .register(registry);
+        limited.setWaitRecorder(nanos -> wait.record(nanos, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,33 @@
+package com.viridial.common.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Makes the earthdistance distance filter available in HQL:
+ * {@code within_radius(latitude, longitude, centerLatitude, centerLongitude, radiusMeters)}, true when
+ * the point (in degrees) is within the radius of the center on the earth sphere. The bounding cube
+ * {@code earth_box(...) @> ll_to_earth(latitude, longitude)} is served by the GiST indexes of
+ * {@code db/geo-indexes.sql} when the point is the indexed expression; the exact distance then
+ * discards the corners of the cube.
+ *
+ * <p>Registered through {@code META-INF/services/org.hibernate.boot.model.FunctionContributor};
+ * nothing is registered for other databases.</p>
+ */
+public class GeoFunctionContributor implements FunctionContributor {
+
+    public static final String WITHIN_RADIUS = "within_radius";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        if (!(functionContributions.getDialect() instanceof PostgreSQLDialect)) {
+            return;
+        }
+        functionContributions.getFunctionRegistry().registerPattern(WITHIN_RADIUS,
+            "(earth_box(ll_to_earth(?3, ?4), ?5) @> ll_to_earth(?1, ?2)"
+                + " and earth_distance(ll_to_earth(?3, ?4), ll_to_earth(?1, ?2)) <= ?5)",
+            functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
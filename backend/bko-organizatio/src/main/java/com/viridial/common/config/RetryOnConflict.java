@@ -0,0 +1,18 @@
+package com.viridial.common.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the method (or every public method of the class) again when it fails on a concurrent
+ * write: optimistic lock failure, deadlock, lock timeout or serialization failure. Each attempt
+ * gets its own transaction; see {@link ConflictRetryAdvisor}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,50 @@
+package com.viridial.common.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs the schema scripts that need the tables created by Hibernate (ddl-auto), such as
+ * triggers and backfills: {@code app.schema.post-ddl-locations}, once the entity manager
+ * factory is up and before the data seeder.
+ *
+ * <p>spring.sql.init scripts run before Hibernate and cannot refer to its tables. Each script
+ * is sent as one multi-statement string, so dollar-quoted function bodies are kept whole;
+ * like spring.sql.init, nothing runs when {@code spring.sql.init.mode} is {@code never}.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaScriptRunner implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaScriptRunner.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.schema.post-ddl-locations:}")
+    private Resource[] scripts;
+
+    @Value("${spring.sql.init.mode:embedded}")
+    private String mode;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (scripts.length == 0 || "never".equalsIgnoreCase(mode)) {
+            return;
+        }
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(scripts);
+        populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+        populator.execute(dataSource);
+        logger.info("Ran {} post-DDL schema script(s)", scripts.length);
+    }
+}
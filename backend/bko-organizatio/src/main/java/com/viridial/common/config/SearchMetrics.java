@@ -0,0 +1,86 @@
+package com.viridial.common.config;
+
+import com.viridial.common.form.SearchForm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers of the searches, by phase: {@code predicate} (plan lookup and parameter values),
+ * {@code count}, {@code data}, {@code mapping} (entities to forms, lazy loads included) and
+ * {@code export}. Published as {@code viridial.search}, tagged by resource and by search shape.
+ *
+ * <p>The shape is the hash of the search plan: which filters apply, the sort, the cursor, without
+ * the values, so its number of values stays bounded, and beyond {@code app.metrics.search.max-shapes}
+ * new shapes are not published. The slow query log (see {@link SlowQueryLog}) writes the same hash
+ * next to the HQL of the shape.</p>
+ */
+@Component
+public class SearchMetrics {
+
+    public static final String SEARCH_TIMER = "viridial.search";
+
+    private final MeterRegistry meterRegistry;
+    private final SlowQueryLog slowQueryLog;
+    private final int maxTimers;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public SearchMetrics(MeterRegistry meterRegistry, SlowQueryLog slowQueryLog,
+                         @Value("${app.metrics.search.max-shapes:500}") int maxShapes) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryLog = slowQueryLog;
+        // Timers kept at hand, the others are looked up in the registry
+        this.maxTimers = maxShapes * 5;
+        meterRegistry.config().meterFilter(
+            MeterFilter.maximumAllowableTags(SEARCH_TIMER, "shape", maxShapes, MeterFilter.deny()));
+    }
+
+    /**
+     * Returns the resource tag of an entity: its class name without the Entity suffix.
+     */
+    public static String resource(Class<?> entityClass) {
+        String name = entityClass.getSimpleName();
+        return name.endsWith("Entity") ? name.substring(0, name.length() - "Entity".length()) : name;
+    }
+
+    /**
+     * Records a phase that ran no statement, started at {@code startNanos} ({@link System#nanoTime()}).
+     */
+    public void record(Class<?> entityClass, String shape, String phase, long startNanos) {
+        timer(entityClass, shape, phase).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a phase running a statement, which is also logged if slow.
+     *
+     * @see SlowQueryLog#record
+     */
+    public void record(Class<?> entityClass, String shape, String phase, SearchForm searchForm, String statement,
+                       String hql, long rows, long startNanos) {
+        record(entityClass, shape, phase, startNanos);
+        slowQueryLog.record(entityClass, shape, searchForm, statement, hql, rows, startNanos);
+    }
+
+    private Timer timer(Class<?> entityClass, String shape, String phase) {
+        String key = entityClass.getName() + '|' + shape + '|' + phase;
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = Timer.builder(SEARCH_TIMER)
+                .description("Search phases by resource and search shape")
+                .tag("resource", resource(entityClass))
+                .tag("shape", shape)
+                .tag("phase", phase)
+                .register(meterRegistry);
+            if (timers.size() < maxTimers) {
+                timers.put(key, timer);
+            }
+        }
+        return timer;
+    }
+}
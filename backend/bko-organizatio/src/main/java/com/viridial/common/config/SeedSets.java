@@ -0,0 +1,183 @@
+package com.viridial.common.config;
+
+import com.viridial.common.utils.SeedSet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The seed sets of the service, in dependency order, read from {@code classpath:seed/}.
+ *
+ * <p>Referentials are keyed by (dataType, code) and referenced by code, the data type following
+ * from the referencing column (a region id refers to a REGION). Rows are created by "system".
+ * To change seed data, edit the CSV file: the set is applied again at the next startup.</p>
+ */
+public final class SeedSets {
+
+    public static final String TIMEZONES = "timezones";
+    public static final String REFERENTIALS = "referentials";
+    public static final String COUNTRIES = "countries";
+    public static final String CITIES = "cities";
+    public static final String TEAMS = "teams";
+    public static final String TEAM_ADDRESSES = "team-addresses";
+    public static final String TEAM_PHONES = "team-phones";
+
+    private static final List<SeedSet> ALL = List.of(
+        new SeedSet(TIMEZONES, 1, "seed/timezones.csv", "com_timezone", List.of("code"),
+            List.of("code", "name", "abbreviation", "utc_offset", "dst_offset", "uses_dst", "description", "active"),
+            (row, references) -> new Object[]{
+                required(row, "code"), required(row, "name"), row.get("abbreviation"), row.get("utcOffset"),
+                row.get("dstOffset"), bool(row, "usesDst", false), row.get("description"), bool(row, "active", true)}),
+
+        new SeedSet(REFERENTIALS, 1, "seed/referentials.csv", "com_referential", List.of("data_type", "code"),
+            List.of("data_type", "code", "label", "description", "external_code", "icon_url", "type_id", "parent_id",
+                "active", "locale", "display_order"),
+            (row, references) -> new Object[]{
+                required(row, "dataType"), required(row, "code"), required(row, "label"), row.get("description"),
+                row.get("externalCode"), row.get("iconUrl"),
+                references.id(REFERENTIALS, "REFERENTIAL_TYPE", required(row, "typeCode")),
+                row.get("parentCode") == null ? null
+                    : references.id(REFERENTIALS, required(row, "parentDataType"), row.get("parentCode")),
+                bool(row, "active", true), row.get("locale"), integer(row, "displayOrder")}),
+
+        new SeedSet(COUNTRIES, 1, "seed/countries.csv", "com_countries", List.of("iso2"),
+            List.of("name", "native_name", "iso2", "iso3", "numeric_code", "phone_code", "currency_code", "domain",
+                "region_id", "sub_region_id", "language_id", "timezone_id", "enabled", "active"),
+            (row, references) -> new Object[]{
+                required(row, "name"), required(row, "nativeName"), required(row, "iso2"), required(row, "iso3"),
+                required(row, "numericCode"), row.get("phoneCode"), row.get("currencyCode"), row.get("domain"),
+                referential(references, "REGION", row.get("regionCode")),
+                referential(references, "SUB_REGION", row.get("subRegionCode")),
+                references.id(REFERENTIALS, "LANGUAGE", required(row, "languageCode")),
+                timezone(references, row.get("timezoneCode")),
+                bool(row, "enabled", true), bool(row, "active", true)}),
+
+        new SeedSet(CITIES, 1, "seed/cities.csv", "com_cities", List.of("country_id", "name", "state"),
+            List.of("country_id", "name", "state", "native_name", "timezone_id", "latitude", "longitude", "capital",
+                "metropolitan", "active"),
+            (row, references) -> new Object[]{
+                references.id(COUNTRIES, required(row, "countryCode")), required(row, "name"), row.get("state"),
+                row.get("nativeName"), timezone(references, row.get("timezoneCode")),
+                decimal(row, "latitude"), decimal(row, "longitude"),
+                bool(row, "capital", false), bool(row, "metropolitan", false), bool(row, "active", true)}),
+
+        new SeedSet(TEAMS, 1, "seed/teams.csv", "org_team", List.of("internal_code"),
+            List.of("internal_code", "external_code", "name", "description", "email", "website", "tax_id",
+                "vat_number", "logo_url", "founded_date", "employee_count", "notes", "team_type_id", "industry_id",
+                "parent_id", "active"),
+            (row, references) -> new Object[]{
+                required(row, "internalCode"), row.get("externalCode"), required(row, "name"), row.get("description"),
+                row.get("email"), row.get("website"), row.get("taxId"), row.get("vatNumber"), row.get("logoUrl"),
+                date(row, "foundedDate"), integer(row, "employeeCount"), row.get("notes"),
+                referential(references, "TEAM_TYPE", row.get("teamTypeCode")),
+                referential(references, "INDUSTRY", row.get("industryCode")),
+                row.get("parentCode") == null ? null : references.id(TEAMS, row.get("parentCode")),
+                bool(row, "active", true)}),
+
+        // Addresses have no natural key: one per team and street
+        new SeedSet(TEAM_ADDRESSES, 1, "seed/team-addresses.csv", "org_team_address", List.of("team_id", "street"),
+            List.of("team_id", "street", "street2", "street3", "building", "floor", "unit", "postal_code", "state",
+                "latitude", "longitude", "city_id", "country_id", "address_type_id", "is_primary", "validated", "notes"),
+            (row, references) -> {
+                Long countryId = references.id(COUNTRIES, required(row, "countryCode"));
+                return new Object[]{
+                    references.id(TEAMS, required(row, "teamCode")), required(row, "street"), row.get("street2"),
+                    row.get("street3"), row.get("building"), row.get("floor"), row.get("unit"), row.get("postalCode"),
+                    row.get("state"), decimal(row, "latitude"), decimal(row, "longitude"),
+                    row.get("cityName") == null ? null : references.id(CITIES, countryId, row.get("cityName"), null),
+                    countryId, references.id(REFERENTIALS, "ADDRESS_TYPE", required(row, "addressTypeCode")),
+                    bool(row, "primary", false), bool(row, "validated", false), row.get("notes")};
+            }),
+
+        new SeedSet(TEAM_PHONES, 1, "seed/team-phones.csv", "org_team_phone",
+            List.of("team_id", "country_code", "number"),
+            List.of("team_id", "country_code", "number", "extension", "formatted_number", "type_id", "primary_phone",
+                "active", "verified", "last_verified_at", "notes"),
+            (row, references) -> new Object[]{
+                references.id(TEAMS, required(row, "teamCode")), required(row, "countryCode"), required(row, "number"),
+                row.get("extension"), row.get("formattedNumber"),
+                references.id(REFERENTIALS, "PHONE_TYPE", required(row, "typeCode")),
+                bool(row, "primaryPhone", false), bool(row, "active", true), bool(row, "verified", false),
+                dateTime(row, "lastVerifiedAt"), row.get("notes")}));
+
+    private SeedSets() {
+    }
+
+    /**
+     * Returns the seed sets, each after the sets it references.
+     */
+    public static List<SeedSet> all() {
+        return ALL;
+    }
+
+    private static Long referential(SeedSet.References references, String dataType, String code) {
+        return code == null ? null : references.id(REFERENTIALS, dataType, code);
+    }
+
+    private static Long timezone(SeedSet.References references, String code) {
+        return code == null ? null : references.id(TIMEZONES, code);
+    }
+
+    private static String required(Map<String, String> row, String field) {
+        String value = row.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static Boolean bool(Map<String, String> row, String field, boolean defaultValue) {
+        String value = row.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+                return true;
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException(field + " is not a boolean: " + value);
+        }
+    }
+
+    private static Integer integer(Map<String, String> row, String field) {
+        String value = row.get(field);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not an integer: " + value);
+        }
+    }
+
+    private static Double decimal(Map<String, String> row, String field) {
+        String value = row.get(field);
+        try {
+            return value == null ? null : Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static LocalDate date(Map<String, String> row, String field) {
+        String value = row.get(field);
+        try {
+            return value == null ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not a date (yyyy-MM-dd): " + value);
+        }
+    }
+
+    private static LocalDateTime dateTime(Map<String, String> row, String field) {
+        String value = row.get(field);
+        try {
+            return value == null ? null : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not a date-time (yyyy-MM-ddTHH:mm:ss): " + value);
+        }
+    }
+}
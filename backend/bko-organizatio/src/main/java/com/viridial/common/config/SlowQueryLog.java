@@ -0,0 +1,64 @@
+package com.viridial.common.config;
+
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.utils.SearchFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log of the search statements slower than {@code app.slow-query.threshold-ms}, one line per
+ * statement on the {@code com.viridial.SLOW_QUERY} logger (its own file, see logback-spring.xml).
+ *
+ * <p>Lines carry key-value pairs rather than the bound values: the entity, the statement (data,
+ * count-exact, count-estimated, count-cached or export), the search shape (see {@link SearchMetrics}),
+ * the {@link SearchFingerprint} of the filters, so that the slow executions of the same search can
+ * be grouped, the rows returned and the duration. Other slow statements are logged by Hibernate ({@code hibernate.log_slow_query})
+ * on {@code org.hibernate.SQL_SLOW}, in the same file.</p>
+ *
+ * <p>A fast statement costs one {@link System#nanoTime()}: the fingerprint is only computed for the
+ * slow ones.</p>
+ */
+@Component
+public class SlowQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.viridial.SLOW_QUERY");
+
+    private final long thresholdNanos;
+
+    public SlowQueryLog(@Value("${app.slow-query.threshold-ms:500}") long thresholdMs) {
+        // 0 disables the log, as for hibernate.log_slow_query
+        this.thresholdNanos = thresholdMs > 0 ? TimeUnit.MILLISECONDS.toNanos(thresholdMs) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Logs a search statement started at {@code startNanos} ({@link System#nanoTime()}) if it was slow.
+     *
+     * @param entityClass the searched entity
+     * @param shape the hash of the search plan
+     * @param searchForm the search form
+     * @param statement what was run: data, count-&lt;count mode&gt; or export
+     * @param hql the statement, without its bound values
+     * @param rows the rows returned, or counted
+     * @param startNanos when the statement started
+     */
+    public void record(Class<?> entityClass, String shape, SearchForm searchForm, String statement, String hql,
+                       long rows, long startNanos) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (durationNanos < thresholdNanos || !logger.isInfoEnabled()) {
+            return;
+        }
+        logger.atInfo()
+            .addKeyValue("entity", entityClass.getSimpleName())
+            .addKeyValue("statement", statement)
+            .addKeyValue("shape", shape)
+            .addKeyValue("fingerprint", SearchFingerprint.of(entityClass, searchForm))
+            .addKeyValue("rows", rows)
+            .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMillis(durationNanos))
+            .addKeyValue("hql", hql)
+            .log("Slow search");
+    }
+}
@@ -0,0 +1,65 @@
+package com.viridial.common.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logback turbo filter logging one SQL statement out of {@code rate} on average, with its bindings.
+ *
+ * <p>A statement is sampled when it is logged on {@code org.hibernate.SQL}: the statements left
+ * out are dropped before an event is created (they are still formatted before, unless
+ * {@code hibernate.format_sql} is off). The bindings that follow ({@code org.hibernate.orm.jdbc.bind})
+ * are logged only with a sampled statement of the same thread, and are not even formatted
+ * otherwise. Events at INFO and above always pass. With a rate of 1 (the default) the filter
+ * lets everything through.</p>
+ *
+ * <p>Declared in logback-spring.xml with the rate of {@code logging.sql.sample-rate}.</p>
+ */
+public class SqlLogSampler extends TurboFilter {
+
+    private static final String STATEMENT_LOGGER = "org.hibernate.SQL";
+    private static final String BINDING_LOGGER = "org.hibernate.orm.jdbc.bind";
+
+    private static final ThreadLocal<Boolean> SAMPLED = new ThreadLocal<>();
+
+    private int rate = 1;
+
+    public void setRate(int rate) {
+        this.rate = Math.max(rate, 1);
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (rate == 1 || logger == null || level == null || level.isGreaterOrEqual(Level.INFO)) {
+            return FilterReply.NEUTRAL;
+        }
+        String name = logger.getName();
+        if (name.equals(STATEMENT_LOGGER)) {
+            // A null format is an isDebugEnabled() check, made more than once per statement
+            if (format == null) {
+                return FilterReply.NEUTRAL;
+            }
+            // At random rather than every rate-th: requests run their statements in a fixed order
+            SAMPLED.set(ThreadLocalRandom.current().nextInt(rate) == 0);
+            return sampled();
+        }
+        if (name.startsWith(BINDING_LOGGER)) {
+            return sampled();
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    private static FilterReply sampled() {
+        return Boolean.TRUE.equals(SAMPLED.get()) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,20 @@
+package com.viridial.common.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector counting every statement for the current request,
+ * see {@link StatementCountFilter}. The SQL is left as is.
+ *
+ * <p>Registered with {@code hibernate.session_factory.statement_inspector}.</p>
+ */
+public class StatementCountInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        StatementCountFilter.statementPrepared();
+        return sql;
+    }
+}
@@ -0,0 +1,33 @@
+package com.viridial.common.config;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.QualifiedName;
+import org.hibernate.boot.model.relational.QualifiedNameParser;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.StandardNamingStrategy;
+import org.hibernate.service.ServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * Names the implicit id sequence of an entity after its table: {@code com_cities_seq}
+ * for {@code com_cities}, instead of Hibernate's default {@code CityEntity_SEQ}.
+ *
+ * <p>Registered with {@code hibernate.id.db_structure_naming_strategy}; used by the
+ * {@code SEQUENCE} id generation of {@link com.viridial.common.entities.BaseEntity}.</p>
+ */
+public class TableSequenceNamingStrategy extends StandardNamingStrategy {
+
+    public static final String SEQUENCE_SUFFIX = "_seq";
+
+    @Override
+    public QualifiedName determineSequenceName(Identifier catalogName, Identifier schemaName,
+                                               Map<?, ?> configValues, ServiceRegistry serviceRegistry) {
+        Object table = configValues.get(PersistentIdentifierGenerator.TABLE);
+        if (table == null) {
+            return super.determineSequenceName(catalogName, schemaName, configValues, serviceRegistry);
+        }
+        return new QualifiedNameParser.NameParts(catalogName, schemaName,
+            Identifier.toIdentifier(table + SEQUENCE_SUFFIX));
+    }
+}
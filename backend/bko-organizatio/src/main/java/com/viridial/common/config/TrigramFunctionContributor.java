@@ -0,0 +1,38 @@
+package com.viridial.common.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.sqm.function.SqmFunctionRegistry;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Makes the pg_trgm word similarity available in HQL:
+ * <ul>
+ *     <li>{@code word_similar(value, text)}: the {@code value <% text} operator, true when the
+ *     value is similar to a word (or part of a word) of the text, above
+ *     {@code pg_trgm.word_similarity_threshold} (0.6 by default). Served by the trigram GIN indexes
+ *     of {@code db/trigram-indexes.sql} when the text is the indexed expression.</li>
+ *     <li>{@code word_similarity(value, text)}: the similarity itself, between 0 and 1, for ranking.</li>
+ * </ul>
+ *
+ * <p>Registered through {@code META-INF/services/org.hibernate.boot.model.FunctionContributor};
+ * nothing is registered for other databases.</p>
+ */
+public class TrigramFunctionContributor implements FunctionContributor {
+
+    public static final String WORD_SIMILAR = "word_similar";
+    public static final String WORD_SIMILARITY = "word_similarity";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        if (!(functionContributions.getDialect() instanceof PostgreSQLDialect)) {
+            return;
+        }
+        SqmFunctionRegistry functions = functionContributions.getFunctionRegistry();
+        BasicTypeRegistry types = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+        functions.registerPattern(WORD_SIMILAR, "(?1 <% ?2)", types.resolve(StandardBasicTypes.BOOLEAN));
+        functions.registerPattern(WORD_SIMILARITY, "word_similarity(?1, ?2)", types.resolve(StandardBasicTypes.DOUBLE));
+    }
+}
@@ -6,8 +6,12 @@ import java.time.LocalDateTime;
 @MappedSuperclass
 public abstract class BaseEntity {
 
+    /**
+     * Drawn from a per-table sequence ({@code <table>_seq}, see TableSequenceNamingStrategy)
+     * in blocks of 50 with the pooled-lo optimizer, so that inserts can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     @Column(name = "id")
     private Long id;
 
@@ -26,10 +30,14 @@ public abstract class BaseEntity {
     @Column(name = "deleted_by", nullable = true)
     private String deletedBy;
 
-    
+    /**
+     * Optimistic lock: every update through the entity checks and increments it, and fails with
+     * an OptimisticLockException when another transaction changed the row since it was read.
+     * Set-based writes (BulkMutationRepository, imports) increment it themselves.
+     */
+    @Version
     @Column(name = "version", nullable = false)
     private long version;
-    
 
 
     @PrePersist
@@ -1,5 +1,7 @@
 package com.viridial.common.form;
 
+import com.viridial.common.utils.InvalidRequestException;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,6 +48,28 @@ public class SearchForm {
      */
     private Boolean includeDeleted = false;
 
+    /**
+     * Pagination strategy: OFFSET (page/size, default) or KEYSET (cursor based).
+     */
+    private PaginationMode paginationMode;
+
+    /**
+     * Opaque keyset cursor taken from the nextCursor of a previous response.
+     * When present the search switches to KEYSET mode and page is ignored.
+     */
+    private String after;
+
+    /**
+     * How the total is computed: EXACT (default), NONE, ESTIMATED or CACHED.
+     */
+    private CountMode countMode;
+
+    /**
+     * Sparse fieldset: the properties of the items to return, when the search reads them
+     * straight from the columns. Absent, the list properties of the entity are returned.
+     */
+    private List<String> fields;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -148,6 +172,48 @@ public class SearchForm {
         this.includeDeleted = includeDeleted;
     }
 
+    public PaginationMode getPaginationMode() {
+        if (after != null && !after.isEmpty()) {
+            return PaginationMode.KEYSET;
+        }
+        return paginationMode != null ? paginationMode : PaginationMode.OFFSET;
+    }
+
+    public void setPaginationMode(PaginationMode paginationMode) {
+        this.paginationMode = paginationMode;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public CountMode getCountMode() {
+        return countMode != null ? countMode : CountMode.EXACT;
+    }
+
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Checks if the search pages with a keyset cursor instead of an offset.
+     */
+    public boolean isKeyset() {
+        return getPaginationMode() == PaginationMode.KEYSET;
+    }
+
     /**
      * Adds a filter criteria.
      */
@@ -278,6 +344,67 @@ public class SearchForm {
         }
     }
 
+    /**
+     * Circle on the earth for distance filters: center in degrees, radius in kilometers.
+     * Format: {"latitude": 48.85, "longitude": 2.35, "radiusKm": 10}
+     */
+    public static class GeoRadius {
+        private Double latitude;
+        private Double longitude;
+        private Double radiusKm;
+
+        public GeoRadius() {
+        }
+
+        public GeoRadius(Double latitude, Double longitude, Double radiusKm) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusKm = radiusKm;
+        }
+
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        public void setLatitude(Double latitude) {
+            this.latitude = latitude;
+        }
+
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        public void setLongitude(Double longitude) {
+            this.longitude = longitude;
+        }
+
+        public Double getRadiusKm() {
+            return radiusKm;
+        }
+
+        public void setRadiusKm(Double radiusKm) {
+            this.radiusKm = radiusKm;
+        }
+
+        /**
+         * Checks the values present: a latitude within [-90, 90], a longitude within [-180, 180]
+         * and a radius of at least 0, none of them NaN.
+         *
+         * @throws InvalidRequestException if one of them is out of range
+         */
+        public void validate() {
+            if (latitude != null && !(latitude >= -90 && latitude <= 90)) {
+                throw new InvalidRequestException("Invalid latitude: " + latitude);
+            }
+            if (longitude != null && !(longitude >= -180 && longitude <= 180)) {
+                throw new InvalidRequestException("Invalid longitude: " + longitude);
+            }
+            if (radiusKm != null && !(radiusKm >= 0)) {
+                throw new InvalidRequestException("Invalid radius: " + radiusKm);
+            }
+        }
+    }
+
     /**
      * Filter operators for dynamic queries.
      */
@@ -298,6 +425,25 @@ public class SearchForm {
         IS_NOT_NULL,         // field IS NOT NULL
         BETWEEN,             // field BETWEEN value1 AND value2
         IS_TRUE,             // field = true
-        IS_FALSE             // field = false
+        IS_FALSE,            // field = false
+        FUZZY                // field word-similar to value (pg_trgm), ranked by similarity
+    }
+
+    /**
+     * Pagination strategies.
+     */
+    public enum PaginationMode {
+        OFFSET,              // LIMIT size OFFSET page * size
+        KEYSET               // WHERE (sort keys, id) > cursor LIMIT size
+    }
+
+    /**
+     * Strategies for computing the total of a search.
+     */
+    public enum CountMode {
+        EXACT,               // SELECT count(*) with the search predicates
+        NONE,                // no count, only hasNext (size + 1 rows fetched)
+        ESTIMATED,           // PostgreSQL planner estimate of the rows the count would read
+        CACHED               // EXACT, memoized per predicate fingerprint for a short TTL
     }
 }
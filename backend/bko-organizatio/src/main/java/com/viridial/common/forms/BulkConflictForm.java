@@ -0,0 +1,45 @@
+package com.viridial.common.forms;
+
+/**
+ * A row a bulk operation skipped because its version is not the one the client expected:
+ * it was changed (or deleted for good) since the client read it.
+ */
+public class BulkConflictForm {
+    private Long id;
+    private long expectedVersion;
+    // Null when the row no longer exists
+    private Long currentVersion;
+
+    public BulkConflictForm() {
+    }
+
+    public BulkConflictForm(Long id, long expectedVersion, Long currentVersion) {
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public void setExpectedVersion(long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public void setCurrentVersion(Long currentVersion) {
+        this.currentVersion = currentVersion;
+    }
+}
@@ -2,6 +2,7 @@ package com.viridial.common.forms;
 
 import jakarta.validation.constraints.NotEmpty;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Generic form for bulk delete operations.
@@ -9,6 +10,8 @@ import java.util.List;
 public class BulkDeleteForm {
     @NotEmpty(message = "{validation.ids.notEmpty}")
     private List<Long> ids;
+    // Expected version by id, optional: see BulkUpdateActiveForm
+    private Map<Long, Long> versions;
 
     public BulkDeleteForm() {
     }
@@ -24,5 +27,13 @@ public class BulkDeleteForm {
     public void setIds(List<Long> ids) {
         this.ids = ids;
     }
+
+    public Map<Long, Long> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(Map<Long, Long> versions) {
+        this.versions = versions;
+    }
 }
 
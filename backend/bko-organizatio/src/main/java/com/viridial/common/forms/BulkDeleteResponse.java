@@ -1,10 +1,13 @@
 package com.viridial.common.forms;
 
+import java.util.List;
+
 /**
  * Generic response DTO for bulk delete operation.
  */
 public class BulkDeleteResponse {
     private int deletedCount;
+    private List<BulkConflictForm> conflicts = List.of();
 
     public BulkDeleteResponse() {
     }
@@ -13,6 +16,11 @@ public class BulkDeleteResponse {
         this.deletedCount = deletedCount;
     }
 
+    public BulkDeleteResponse(int deletedCount, List<BulkConflictForm> conflicts) {
+        this.deletedCount = deletedCount;
+        this.conflicts = conflicts;
+    }
+
     public int getDeletedCount() {
         return deletedCount;
     }
@@ -20,5 +28,13 @@ public class BulkDeleteResponse {
     public void setDeletedCount(int deletedCount) {
         this.deletedCount = deletedCount;
     }
+
+    public List<BulkConflictForm> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<BulkConflictForm> conflicts) {
+        this.conflicts = conflicts;
+    }
 }
 
@@ -2,6 +2,7 @@ package com.viridial.common.forms;
 
 import jakarta.validation.constraints.NotEmpty;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Generic form for bulk updating active status.
@@ -9,6 +10,12 @@ import java.util.List;
 public class BulkUpdateActiveForm {
     @NotEmpty(message = "{validation.ids.notEmpty}")
     private List<Long> ids;
+    /**
+     * Expected version of some or all of the ids, as read by the client: a row whose version
+     * differs is skipped and reported as a conflict. Ids without one are written regardless.
+     * Format: {"12": 3, "15": 0}
+     */
+    private Map<Long, Long> versions;
     private boolean active;
 
     public BulkUpdateActiveForm() {
@@ -27,6 +34,14 @@ public class BulkUpdateActiveForm {
         this.ids = ids;
     }
 
+    public Map<Long, Long> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(Map<Long, Long> versions) {
+        this.versions = versions;
+    }
+
     public boolean isActive() {
         return active;
     }
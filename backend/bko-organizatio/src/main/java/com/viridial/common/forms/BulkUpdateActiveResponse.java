@@ -1,11 +1,14 @@
 package com.viridial.common.forms;
 
+import java.util.List;
+
 /**
  * Generic response DTO for bulk update active operation.
  */
 public class BulkUpdateActiveResponse {
     private int updatedCount;
     private boolean active;
+    private List<BulkConflictForm> conflicts = List.of();
 
     public BulkUpdateActiveResponse() {
     }
@@ -15,6 +18,12 @@ public class BulkUpdateActiveResponse {
         this.active = active;
     }
 
+    public BulkUpdateActiveResponse(int updatedCount, boolean active, List<BulkConflictForm> conflicts) {
+        this.updatedCount = updatedCount;
+        this.active = active;
+        this.conflicts = conflicts;
+    }
+
     public int getUpdatedCount() {
         return updatedCount;
     }
@@ -30,5 +39,13 @@ public class BulkUpdateActiveResponse {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    public List<BulkConflictForm> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<BulkConflictForm> conflicts) {
+        this.conflicts = conflicts;
+    }
 }
 
@@ -0,0 +1,33 @@
+package com.viridial.common.forms;
+
+/**
+ * A row rejected by an import, with its line in the imported file.
+ */
+public class ImportRejectForm {
+    private long line;
+    private String reason;
+
+    public ImportRejectForm() {
+    }
+
+    public ImportRejectForm(long line, String reason) {
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
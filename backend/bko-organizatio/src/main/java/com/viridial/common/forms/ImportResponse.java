@@ -0,0 +1,92 @@
+package com.viridial.common.forms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generic response DTO for a bulk import: row counts, rejected rows and, when the
+ * import stopped early, the error. Chunks committed before an error stay imported.
+ */
+public class ImportResponse {
+    private long received;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private int chunks;
+    private long durationMs;
+    private List<ImportRejectForm> rejects = new ArrayList<>();
+    private boolean rejectsTruncated;
+    private String error;
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public List<ImportRejectForm> getRejects() {
+        return rejects;
+    }
+
+    public void setRejects(List<ImportRejectForm> rejects) {
+        this.rejects = rejects;
+    }
+
+    public boolean isRejectsTruncated() {
+        return rejectsTruncated;
+    }
+
+    public void setRejectsTruncated(boolean rejectsTruncated) {
+        this.rejectsTruncated = rejectsTruncated;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
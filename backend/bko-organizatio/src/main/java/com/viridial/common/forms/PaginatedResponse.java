@@ -1,15 +1,28 @@
 package com.viridial.common.forms;
 
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.form.SearchForm.CountMode;
+import com.viridial.common.utils.SearchPage;
+import org.springframework.http.ResponseEntity;
+
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Generic paginated response wrapper.
  */
 public class PaginatedResponse<T> {
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String HAS_NEXT_HEADER = "X-Has-Next";
+    public static final String COUNT_MODE_HEADER = "X-Count-Mode";
+
     private List<T> items;
-    private long total;
+    private Long total;
     private int page;
     private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private CountMode countMode;
 
     public PaginatedResponse() {
     }
@@ -21,6 +34,60 @@ public class PaginatedResponse<T> {
         this.size = size;
     }
 
+    public PaginatedResponse(List<T> items, Long total, int page, int size, boolean hasNext,
+                             String nextCursor, CountMode countMode) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+        this.countMode = countMode;
+    }
+
+    /**
+     * Builds a response from a search page, mapping each entity with the given mapper.
+     * The total is omitted when the search ran without a count. The mapping is timed as a
+     * phase of the search.
+     */
+    public static <E, T> PaginatedResponse<T> of(SearchPage<E> page, Function<E, T> mapper) {
+        long start = System.nanoTime();
+        List<T> items = page.getContent().stream().map(mapper).toList();
+        page.recordMapping(start);
+        Long total = page.getCountMode() == CountMode.NONE ? null : page.getTotalElements();
+        return new PaginatedResponse<>(items, total, page.getNumber(), page.getSize(), page.hasNext(),
+            page.getNextCursor(), page.getCountMode());
+    }
+
+    /**
+     * Builds a response from a search page of forms, such as the page of a projected search.
+     */
+    public static <T> PaginatedResponse<T> of(SearchPage<T> page) {
+        Long total = page.getCountMode() == CountMode.NONE ? null : page.getTotalElements();
+        return new PaginatedResponse<>(page.getContent(), total, page.getNumber(), page.getSize(), page.hasNext(),
+            page.getNextCursor(), page.getCountMode());
+    }
+
+    /**
+     * The response of a search endpoint that returned a plain list before keyset pagination: in OFFSET mode,
+     * the list of items, with X-Has-Next, X-Count-Mode and, when counted, the total in X-Total-Count (only
+     * exact in EXACT mode); in KEYSET mode, this envelope, with the cursor of the next page.
+     */
+    public ResponseEntity<?> toResponse(SearchForm search) {
+        if (search.isKeyset()) {
+            return ResponseEntity.ok(this);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HAS_NEXT_HEADER, Boolean.toString(hasNext));
+        if (countMode != null) {
+            response.header(COUNT_MODE_HEADER, countMode.name());
+        }
+        if (total != null) {
+            response.header(TOTAL_COUNT_HEADER, total.toString());
+        }
+        return response.body(items);
+    }
+
     public List<T> getItems() {
         return items;
     }
@@ -29,11 +96,11 @@ public class PaginatedResponse<T> {
         this.items = items;
     }
 
-    public long getTotal() {
+    public Long getTotal() {
         return total;
     }
 
-    public void setTotal(long total) {
+    public void setTotal(Long total) {
         this.total = total;
     }
 
@@ -52,4 +119,28 @@ public class PaginatedResponse<T> {
     public void setSize(int size) {
         this.size = size;
     }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
 }
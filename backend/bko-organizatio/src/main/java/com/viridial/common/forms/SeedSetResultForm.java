@@ -0,0 +1,73 @@
+package com.viridial.common.forms;
+
+/**
+ * Outcome of one seed set at startup: applied (rows inserted or updated) or already up to date.
+ */
+public class SeedSetResultForm {
+    private String name;
+    private boolean applied;
+    private int rows;
+    private int inserted;
+    private int updated;
+    private long durationMs;
+
+    public SeedSetResultForm() {
+    }
+
+    public SeedSetResultForm(String name, boolean applied, int rows, int inserted, int updated, long durationMs) {
+        this.name = name;
+        this.applied = applied;
+        this.rows = rows;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.durationMs = durationMs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,267 @@
+package com.viridial.common.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.forms.BulkConflictForm;
+import com.viridial.common.forms.BulkJobForm;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the bulk jobs of com_bulk_job (db/bulk-jobs.sql) with native statements; the
+ * caller provides the transaction. Times are taken from the database clock, shared by all instances.
+ *
+ * <p>An instance claims a job by writing its id in {@code claimed_by}, then runs it one chunk per
+ * transaction: the job row is locked while the chunk is written, and the progress recorded in the
+ * same transaction, so that a chunk is never written twice. The time of the last chunk is the
+ * lease of the job: another instance takes over a running job whose last chunk is older than it.</p>
+ */
+@Repository
+public class BulkJobRepository {
+
+    private static final String COLUMNS = "id, resource, operation, active, status, cancel_requested, total,"
+        + " processed, changed, conflict_count, CAST(conflicts AS text), error, requested_by, created_at,"
+        + " started_at, finished_at";
+
+    private static final TypeReference<List<BulkConflictForm>> CONFLICTS = new TypeReference<>() {
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Records a new PENDING job over the given distinct ids.
+     *
+     * @param versions the expected version of each id, null elements for none; null for no versions
+     * @return the id of the job
+     */
+    public long insert(String resource, BulkJobForm.Operation operation, Boolean active, String requestedBy,
+                       Long[] ids, Long[] versions) {
+        // Typed parameters: the null ones need a type
+        NativeQuery<?> query = entityManager.createNativeQuery("INSERT INTO com_bulk_job (resource, operation,"
+                + " active, requested_by, ids, versions, total, status, created_at) VALUES (:resource, :operation,"
+                + " :active, :requestedBy, :ids, :versions, :total, 'PENDING', localtimestamp) RETURNING id")
+            .unwrap(NativeQuery.class);
+        Object id = query
+            .setParameter("resource", resource)
+            .setParameter("operation", operation.name())
+            .setParameter("active", active, Boolean.class)
+            .setParameter("requestedBy", requestedBy, String.class)
+            .setParameter("ids", ids, Long[].class)
+            .setParameter("versions", versions, Long[].class)
+            .setParameter("total", ids.length)
+            .getSingleResult();
+        return ((Number) id).longValue();
+    }
+
+    /**
+     * Returns the job, or null when it does not exist.
+     */
+    public BulkJobForm find(long id) {
+        List<?> rows = entityManager.createNativeQuery("SELECT " + COLUMNS + " FROM com_bulk_job WHERE id = :id")
+            .setParameter("id", id)
+            .getResultList();
+        return rows.isEmpty() ? null : mapRow((Object[]) rows.get(0));
+    }
+
+    /**
+     * Locks the job while a chunk of it is written, if this instance still holds it; null otherwise.
+     */
+    public BulkJobForm lock(long id, String owner) {
+        List<?> rows = entityManager.createNativeQuery("SELECT " + COLUMNS + " FROM com_bulk_job"
+                + " WHERE id = :id AND claimed_by = :owner FOR UPDATE")
+            .setParameter("id", id)
+            .setParameter("owner", owner)
+            .getResultList();
+        return rows.isEmpty() ? null : mapRow((Object[]) rows.get(0));
+    }
+
+    /**
+     * Claims up to {@code limit} jobs for this instance, oldest first: the pending ones and the running
+     * ones whose last chunk is older than the lease. Jobs locked by a chunk in progress are skipped.
+     *
+     * @return the ids of the jobs claimed
+     */
+    public List<Long> claim(String owner, int limit, Duration lease) {
+        List<?> ids = entityManager.createNativeQuery("UPDATE com_bulk_job SET status = 'RUNNING',"
+                + " claimed_by = :owner, heartbeat_at = localtimestamp, started_at = COALESCE(started_at, localtimestamp)"
+                + " WHERE id IN (SELECT id FROM com_bulk_job WHERE status = 'PENDING' OR (status = 'RUNNING'"
+                + " AND heartbeat_at < localtimestamp - make_interval(secs => :leaseSeconds))"
+                + " ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING id")
+            .setParameter("owner", owner)
+            .setParameter("leaseSeconds", lease.toMillis() / 1000.0)
+            .setParameter("limit", limit)
+            .getResultList();
+        return ids.stream().map(id -> ((Number) id).longValue()).toList();
+    }
+
+    /**
+     * Returns the ids of the job from position {@code from} (0-based), at most {@code count} of them,
+     * with their expected versions.
+     */
+    public Chunk chunk(long id, int from, int count) {
+        List<?> rows = entityManager.createNativeQuery("SELECT u.id, u.version FROM com_bulk_job j"
+                + " CROSS JOIN LATERAL unnest(j.ids, j.versions) WITH ORDINALITY AS u(id, version, position)"
+                + " WHERE j.id = :id AND u.position > :from AND u.position <= :to ORDER BY u.position")
+            .setParameter("id", id)
+            .setParameter("from", from)
+            .setParameter("to", from + count)
+            .getResultList();
+        List<Long> ids = new ArrayList<>(rows.size());
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            Long entityId = ((Number) columns[0]).longValue();
+            ids.add(entityId);
+            if (columns[1] != null) {
+                versions.put(entityId, ((Number) columns[1]).longValue());
+            }
+        }
+        return new Chunk(ids, versions);
+    }
+
+    /**
+     * Records the outcome of a chunk, and renews the lease.
+     *
+     * @param processed the ids handled so far, this chunk included
+     * @param conflicts the conflicts of the chunk to report, at most as many as {@code conflictCount}
+     */
+    public void recordChunk(long id, int processed, int changed, int conflictCount, List<BulkConflictForm> conflicts) {
+        entityManager.createNativeQuery("UPDATE com_bulk_job SET processed = :processed, changed = changed + :changed,"
+                + " conflict_count = conflict_count + :conflictCount,"
+                + " conflicts = conflicts || CAST(:conflicts AS jsonb), heartbeat_at = localtimestamp WHERE id = :id")
+            .setParameter("id", id)
+            .setParameter("processed", processed)
+            .setParameter("changed", changed)
+            .setParameter("conflictCount", conflictCount)
+            .setParameter("conflicts", toJson(conflicts))
+            .executeUpdate();
+    }
+
+    /**
+     * Ends the job with the given status.
+     */
+    public void finish(long id, BulkJobForm.Status status, String error) {
+        NativeQuery<?> query = entityManager.createNativeQuery("UPDATE com_bulk_job SET status = :status,"
+                + " error = :error, claimed_by = NULL, finished_at = localtimestamp WHERE id = :id")
+            .unwrap(NativeQuery.class);
+        query.setParameter("id", id)
+            .setParameter("status", status.name())
+            .setParameter("error", error, String.class)
+            .executeUpdate();
+    }
+
+    /**
+     * Puts a running job of this instance back to PENDING, for any instance to resume at once.
+     */
+    public void release(long id, String owner) {
+        entityManager.createNativeQuery("UPDATE com_bulk_job SET status = 'PENDING', claimed_by = NULL"
+                + " WHERE id = :id AND status = 'RUNNING' AND claimed_by = :owner")
+            .setParameter("id", id)
+            .setParameter("owner", owner)
+            .executeUpdate();
+    }
+
+    /**
+     * Asks an unfinished job to stop: a pending job is cancelled at once, a running one before its next chunk.
+     *
+     * @return whether the job was unfinished
+     */
+    public boolean requestCancel(long id) {
+        return entityManager.createNativeQuery("UPDATE com_bulk_job SET cancel_requested = true,"
+                + " status = CASE WHEN status = 'PENDING' THEN 'CANCELLED' ELSE status END,"
+                + " finished_at = CASE WHEN status = 'PENDING' THEN localtimestamp END"
+                + " WHERE id = :id AND status IN ('PENDING', 'RUNNING')")
+            .setParameter("id", id)
+            .executeUpdate() > 0;
+    }
+
+    /**
+     * Puts a failed or cancelled job back to PENDING: it goes on from the ids it had not handled.
+     *
+     * @return whether the job was failed or cancelled
+     */
+    public boolean resume(long id) {
+        return entityManager.createNativeQuery("UPDATE com_bulk_job SET status = 'PENDING', cancel_requested = false,"
+                + " error = NULL, finished_at = NULL WHERE id = :id AND status IN ('FAILED', 'CANCELLED')")
+            .setParameter("id", id)
+            .executeUpdate() > 0;
+    }
+
+    private BulkJobForm mapRow(Object[] row) {
+        BulkJobForm job = new BulkJobForm();
+        job.setId(((Number) row[0]).longValue());
+        job.setResource((String) row[1]);
+        job.setOperation(BulkJobForm.Operation.valueOf((String) row[2]));
+        job.setActive((Boolean) row[3]);
+        job.setStatus(BulkJobForm.Status.valueOf((String) row[4]));
+        job.setCancelRequested((Boolean) row[5]);
+        job.setTotal(((Number) row[6]).intValue());
+        job.setProcessed(((Number) row[7]).intValue());
+        job.setChanged(((Number) row[8]).intValue());
+        job.setConflictCount(((Number) row[9]).intValue());
+        job.setConflicts(fromJson((String) row[10]));
+        job.setError((String) row[11]);
+        job.setRequestedBy((String) row[12]);
+        job.setCreatedAt(toLocalDateTime(row[13]));
+        job.setStartedAt(toLocalDateTime(row[14]));
+        job.setFinishedAt(toLocalDateTime(row[15]));
+        return job;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private String toJson(List<BulkConflictForm> conflicts) {
+        try {
+            return objectMapper.writeValueAsString(conflicts);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<BulkConflictForm> fromJson(String conflicts) {
+        try {
+            return objectMapper.readValue(conflicts, CONFLICTS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ids of a job to handle in one transaction, with the expected version of those that have one.
+     */
+    public static final class Chunk {
+        private final List<Long> ids;
+        private final Map<Long, Long> versions;
+
+        private Chunk(List<Long> ids, Map<Long, Long> versions) {
+            this.ids = ids;
+            this.versions = versions;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public Map<Long, Long> getVersions() {
+            return versions;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.viridial.common.repositories;
+
+import com.viridial.common.config.SearchMetrics;
+import com.viridial.common.entities.BaseEntity;
+import com.viridial.common.forms.BulkConflictForm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Table;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Set-based bulk mutations shared by the services: one UPDATE per chunk of ids
+ * instead of loading, mutating and flushing every entity.
+ *
+ * <p>The statements bypass the persistence context and the entity callbacks, so they
+ * maintain the audit columns and the version themselves. Entities of the same type
+ * already loaded in the current persistence context are not refreshed.</p>
+ *
+ * <p>The client may pass the version it read of each id: rows whose version has changed since
+ * are skipped and returned as conflicts, the others are written. The rows of a chunk with an
+ * expected version are locked (in id order) while their version is checked; the update that
+ * follows would lock them until commit anyway.</p>
+ *
+ * <p>The rows changed are counted in {@code viridial.bulk.rows}, by resource and operation.</p>
+ */
+@Repository
+public class BulkMutationRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.bulk.chunk-size:10000}")
+    private int chunkSize;
+
+    /**
+     * Sets the active flag of the given rows, soft-deleted ones included.
+     * Rows already in the requested state are left untouched.
+     *
+     * @param entityClass the entity whose table is updated
+     * @param ids the ids to update
+     * @param active the new active flag
+     * @param updatedBy the user recorded in updated_by, or null to keep the current value
+     * @return the number of rows whose flag changed
+     */
+    public int updateActive(Class<? extends BaseEntity> entityClass, List<Long> ids, boolean active, String updatedBy) {
+        return updateActive(entityClass, ids, null, active, updatedBy).getChanged();
+    }
+
+    /**
+     * Sets the active flag of the given rows whose version is the expected one.
+     *
+     * @param expectedVersions the expected version by id, null or partial for ids written regardless
+     * @see #updateActive(Class, List, boolean, String)
+     */
+    public Result updateActive(Class<? extends BaseEntity> entityClass, List<Long> ids,
+                               Map<Long, Long> expectedVersions, boolean active, String updatedBy) {
+        String sql = "UPDATE " + tableName(entityClass)
+            + " SET active = :active, updated_at = :now, updated_by = COALESCE(:updatedBy, updated_by),"
+            + " version = version + 1"
+            + " WHERE id = ANY(:ids) AND active <> :active";
+        LocalDateTime now = LocalDateTime.now();
+        Result result = executeInChunks(entityClass, sql, ids, expectedVersions, query -> query
+            .setParameter("active", active)
+            .setParameter("now", now)
+            .setParameter("updatedBy", updatedBy, String.class));
+        countRows(entityClass, "update-active", result);
+        return result;
+    }
+
+    /**
+     * Soft-deletes the given rows. Rows already deleted keep their original deleted_at and deleted_by.
+     *
+     * @param entityClass the entity whose table is updated
+     * @param ids the ids to delete
+     * @param deletedBy the user recorded in deleted_by and updated_by (optional)
+     * @return the number of rows deleted
+     */
+    public int softDelete(Class<? extends BaseEntity> entityClass, List<Long> ids, String deletedBy) {
+        return softDelete(entityClass, ids, null, deletedBy).getChanged();
+    }
+
+    /**
+     * Soft-deletes the given rows whose version is the expected one.
+     *
+     * @param expectedVersions the expected version by id, null or partial for ids written regardless
+     * @see #softDelete(Class, List, String)
+     */
+    public Result softDelete(Class<? extends BaseEntity> entityClass, List<Long> ids,
+                             Map<Long, Long> expectedVersions, String deletedBy) {
+        String sql = "UPDATE " + tableName(entityClass)
+            + " SET deleted_at = :now, deleted_by = :deletedBy, updated_at = :now,"
+            + " updated_by = COALESCE(:deletedBy, updated_by), version = version + 1"
+            + " WHERE id = ANY(:ids) AND deleted_at IS NULL";
+        LocalDateTime now = LocalDateTime.now();
+        Result result = executeInChunks(entityClass, sql, ids, expectedVersions, query -> query
+            .setParameter("now", now)
+            .setParameter("deletedBy", deletedBy, String.class));
+        countRows(entityClass, "delete", result);
+        return result;
+    }
+
+    /**
+     * Runs the statement once per chunk of distinct ids, each bound as a single array parameter
+     * so that every chunk reuses the same prepared statement. The ids of a chunk whose version
+     * is not the expected one are left out of it.
+     */
+    private Result executeInChunks(Class<? extends BaseEntity> entityClass, String sql, List<Long> ids,
+                                   Map<Long, Long> expectedVersions, Consumer<NativeQuery<?>> binder) {
+        if (ids == null || ids.isEmpty()) {
+            return new Result(0, List.of());
+        }
+        Long[] distinctIds = new LinkedHashSet<>(ids).stream()
+            .filter(Objects::nonNull)
+            .toArray(Long[]::new);
+        int updated = 0;
+        List<BulkConflictForm> conflicts = new ArrayList<>();
+        for (int from = 0; from < distinctIds.length; from += chunkSize) {
+            int to = Math.min(from + chunkSize, distinctIds.length);
+            Long[] chunk = Arrays.copyOfRange(distinctIds, from, to);
+            if (expectedVersions != null && !expectedVersions.isEmpty()) {
+                chunk = withoutConflicts(entityClass, chunk, expectedVersions, conflicts);
+                if (chunk.length == 0) {
+                    continue;
+                }
+            }
+            NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+            // Lets Hibernate flush pending changes and invalidate cached data of this entity only
+            query.addSynchronizedEntityClass(entityClass);
+            binder.accept(query);
+            query.setParameter("ids", chunk, Long[].class);
+            updated += query.executeUpdate();
+        }
+        return new Result(updated, conflicts);
+    }
+
+    /**
+     * Locks the rows of the chunk that have an expected version and adds those whose version
+     * differs (or that no longer exist) to the conflicts. Returns the ids of the chunk to write.
+     */
+    private Long[] withoutConflicts(Class<? extends BaseEntity> entityClass, Long[] chunk,
+                                    Map<Long, Long> expectedVersions, List<BulkConflictForm> conflicts) {
+        Long[] checked = Arrays.stream(chunk).filter(expectedVersions::containsKey).toArray(Long[]::new);
+        if (checked.length == 0) {
+            return chunk;
+        }
+        NativeQuery<?> query = entityManager.createNativeQuery("SELECT id, version FROM " + tableName(entityClass)
+                + " WHERE id = ANY(:ids) ORDER BY id FOR NO KEY UPDATE")
+            .unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(entityClass);
+        query.setParameter("ids", checked, Long[].class);
+        Map<Long, Long> currentVersions = new HashMap<>();
+        for (Object row : query.getResultList()) {
+            Object[] columns = (Object[]) row;
+            currentVersions.put(((Number) columns[0]).longValue(), ((Number) columns[1]).longValue());
+        }
+        List<Long> written = new ArrayList<>(chunk.length);
+        for (Long id : chunk) {
+            Long expected = expectedVersions.get(id);
+            Long current = currentVersions.get(id);
+            if (expected != null && !expected.equals(current)) {
+                conflicts.add(new BulkConflictForm(id, expected, current));
+            } else {
+                written.add(id);
+            }
+        }
+        return written.toArray(Long[]::new);
+    }
+
+    private void countRows(Class<? extends BaseEntity> entityClass, String operation, Result result) {
+        Counter.builder("viridial.bulk.rows")
+            .description("Rows changed by the bulk operations")
+            .tag("resource", SearchMetrics.resource(entityClass))
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .increment(result.getChanged());
+        if (!result.getConflicts().isEmpty()) {
+            Counter.builder("viridial.bulk.conflicts")
+                .description("Rows skipped by the bulk operations because their version changed")
+                .tag("resource", SearchMetrics.resource(entityClass))
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment(result.getConflicts().size());
+        }
+    }
+
+    private static String tableName(Class<?> entityClass) {
+        return entityClass.getAnnotation(Table.class).name();
+    }
+
+    /**
+     * Outcome of a bulk mutation: the number of rows changed and the rows skipped on a version conflict.
+     */
+    public static final class Result {
+        private final int changed;
+        private final List<BulkConflictForm> conflicts;
+
+        private Result(int changed, List<BulkConflictForm> conflicts) {
+            this.changed = changed;
+            this.conflicts = conflicts;
+        }
+
+        public int getChanged() {
+            return changed;
+        }
+
+        public List<BulkConflictForm> getConflicts() {
+            return conflicts;
+        }
+    }
+}
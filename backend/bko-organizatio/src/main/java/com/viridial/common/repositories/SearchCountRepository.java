@@ -0,0 +1,103 @@
+package com.viridial.common.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.viridial.common.config.StatementCountInspector;
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.utils.SearchFingerprint;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the total of a search according to its {@link SearchForm.CountMode}.
+ * Shared by the search repositories so that the count strategy lives in one place.
+ */
+@Repository
+public class SearchCountRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.search.count-cache.ttl:PT30S}")
+    private Duration cacheTtl;
+
+    @Value("${app.search.count-cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    // The session of the EXPLAIN replaces the inspector of the session factory, so it chains it
+    private static final StatementInspector STATEMENT_COUNT = new StatementCountInspector();
+
+    private Cache<String, Long> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(cacheMaxEntries)
+            .expireAfterWrite(cacheTtl)
+            .build();
+    }
+
+    /**
+     * Counts the rows matched by a search.
+     *
+     * @param countQuery creates the count query with the search parameters bound
+     * @param rowsQuery creates, in the given entity manager, the query of the rows counted by
+     *                  {@code countQuery} with the same parameters, selecting a single string column
+     * @param entityClass the searched entity
+     * @param searchForm the search form, giving the count mode
+     * @return the total, or null when the count mode is NONE
+     */
+    public Long count(Supplier<TypedQuery<Long>> countQuery, Function<EntityManager, TypedQuery<String>> rowsQuery,
+                      Class<?> entityClass, SearchForm searchForm) {
+        switch (searchForm.getCountMode()) {
+            case NONE:
+                return null;
+            case ESTIMATED:
+                return estimate(countQuery, rowsQuery);
+            case CACHED:
+                return cache.get(SearchFingerprint.of(entityClass, searchForm), key -> exact(countQuery));
+            default:
+                return exact(countQuery);
+        }
+    }
+
+    private long exact(Supplier<TypedQuery<Long>> countQuery) {
+        return countQuery.get().getSingleResult();
+    }
+
+    /**
+     * Asks the planner how many rows the count would read: the rows query runs as {@code EXPLAIN}
+     * in a session of its own on the same connection, so Hibernate binds its parameters as usual
+     * and returns the lines of the plan in place of the rows. The first line is the top node:
+     * "... (cost=a..b rows=N width=w)". Falls back to an exact count if it cannot be read.
+     */
+    private long estimate(Supplier<TypedQuery<Long>> countQuery,
+                          Function<EntityManager, TypedQuery<String>> rowsQuery) {
+        Session session = entityManager.unwrap(Session.class);
+        Connection connection = session.doReturningWork(current -> current);
+        List<String> plan;
+        try (Session explaining = session.sessionWithOptions()
+                .connection(connection)
+                .statementInspector(sql -> STATEMENT_COUNT.inspect("EXPLAIN " + sql))
+                .openSession()) {
+            plan = rowsQuery.apply(explaining).getResultList();
+        }
+        Matcher matcher = plan.isEmpty() ? null : PLAN_ROWS.matcher(plan.get(0));
+        return matcher != null && matcher.find() ? Long.parseLong(matcher.group(1)) : exact(countQuery);
+    }
+}
@@ -0,0 +1,253 @@
+package com.viridial.common.repositories;
+
+import com.viridial.common.config.TableSequenceNamingStrategy;
+import com.viridial.common.utils.CopyRowEncoder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Applies seed rows with set-based statements: the rows of a set are copied into a temporary
+ * staging table, then the missing ones are inserted and the ones whose values differ are updated,
+ * by id. Ids of new rows are drawn beforehand from the table sequence, in whole blocks as
+ * Hibernate's pooled-lo optimizer does, so that rows can reference rows of the same set.
+ *
+ * <p>The applied sets are recorded in com_seed_set (db/seed-sets.sql). Each set is applied in
+ * its own transaction, under a transaction-level advisory lock, so that instances starting
+ * together apply it once.</p>
+ */
+@Repository
+public class SeedRepository {
+
+    // Arbitrary application-wide key of the advisory lock serializing the seeders
+    private static final long SEED_LOCK = 0x5EED5E75L;
+
+    private static final String FIND_APPLIED = "SELECT name, version, checksum FROM com_seed_set";
+
+    private static final String RECORD = "INSERT INTO com_seed_set (name, version, checksum, row_count, inserted,"
+        + " updated, applied_at, duration_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (name) DO UPDATE SET"
+        + " version = EXCLUDED.version, checksum = EXCLUDED.checksum, row_count = EXCLUDED.row_count,"
+        + " inserted = EXCLUDED.inserted, updated = EXCLUDED.updated, applied_at = EXCLUDED.applied_at,"
+        + " duration_ms = EXCLUDED.duration_ms";
+
+    private static final char KEY_SEPARATOR = '\u001f';
+    private static final String NULL_KEY = "\u0000";
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Opens a dedicated connection; each set is committed on its own.
+     */
+    public Session open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            return new Session(connection);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the key of a row, made of its key column values (null included), to look up its id.
+     */
+    public static String key(Object... values) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                key.append(KEY_SEPARATOR);
+            }
+            key.append(values[i] == null ? NULL_KEY : values[i].toString());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Version and checksum of a seed set when it was last applied.
+     */
+    public record Applied(int version, String checksum) {
+    }
+
+    /**
+     * Rows inserted and updated by one set.
+     */
+    public record MergeResult(int inserted, int updated) {
+    }
+
+    /**
+     * Connection applying the seed sets, one transaction per set.
+     */
+    public static final class Session implements AutoCloseable {
+        private final Connection connection;
+        private final CopyManager copyManager;
+
+        private Session(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        }
+
+        /**
+         * Returns the applied sets by name.
+         */
+        public Map<String, Applied> findApplied() throws SQLException {
+            Map<String, Applied> applied = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(FIND_APPLIED)) {
+                while (resultSet.next()) {
+                    applied.put(resultSet.getString(1), new Applied(resultSet.getInt(2), resultSet.getString(3)));
+                }
+            }
+            return applied;
+        }
+
+        /**
+         * Waits for the other seeders until the end of the current transaction.
+         */
+        public void lock() throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+                statement.setLong(1, SEED_LOCK);
+                statement.execute();
+            }
+        }
+
+        /**
+         * Returns the ids of all the rows of a table (soft-deleted ones included) by {@link #key key}.
+         */
+        public Map<String, Long> findIds(String table, List<String> keyColumns) throws SQLException {
+            Map<String, Long> ids = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id, " + String.join(", ", keyColumns)
+                     + " FROM " + table)) {
+                Object[] values = new Object[keyColumns.size()];
+                while (resultSet.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = resultSet.getString(i + 2);
+                    }
+                    ids.put(key(values), resultSet.getLong(1));
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * Reserves a block of ids of a table: the ids from the returned one to it plus {@link #idBlockSize} - 1.
+         */
+        public long nextIdBlock(String table) throws SQLException {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT nextval('" + sequence(table) + "')")) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+
+        /**
+         * Returns the number of ids reserved by {@link #nextIdBlock}: the sequence increment.
+         */
+        public int idBlockSize(String table) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT increment_by FROM pg_sequences"
+                     + " WHERE schemaname = current_schema() AND sequencename = ?")) {
+                statement.setString(1, sequence(table));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 1;
+                }
+            }
+        }
+
+        /**
+         * Copies the rows (id then the columns, in order) into the staging table, inserts the
+         * missing ones and updates the others where a value differs.
+         */
+        public MergeResult merge(String table, List<String> columns, CopyRowEncoder rows, LocalDateTime now,
+                                 String by) throws SQLException, IOException {
+            String columnList = String.join(", ", columns);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE seed_stage ON COMMIT DROP AS SELECT id, " + columnList
+                    + " FROM " + table + " WITH NO DATA");
+            }
+            copyManager.copyIn("COPY seed_stage (id, " + columnList + ") FROM STDIN",
+                new ByteArrayInputStream(rows.toByteArray()));
+
+            // Inserted first: updated rows may reference new ones
+            int inserted;
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table + " (id, "
+                    + columnList + ", created_at, updated_at, created_by, updated_by, version) SELECT s.id, "
+                    + columns.stream().map(column -> "s." + column).collect(Collectors.joining(", "))
+                    + ", ?, ?, ?, ?, 0 FROM seed_stage s WHERE NOT EXISTS (SELECT 1 FROM " + table
+                    + " t WHERE t.id = s.id)")) {
+                statement.setObject(1, now);
+                statement.setObject(2, now);
+                statement.setString(3, by);
+                statement.setString(4, by);
+                inserted = statement.executeUpdate();
+            }
+            int updated;
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE " + table + " t SET "
+                    + columns.stream().map(column -> column + " = s." + column).collect(Collectors.joining(", "))
+                    + ", updated_at = ?, updated_by = ?, version = t.version + 1 FROM seed_stage s WHERE t.id = s.id"
+                    + " AND (" + columns.stream().map(column -> "t." + column).collect(Collectors.joining(", "))
+                    + ") IS DISTINCT FROM (" + columns.stream().map(column -> "s." + column)
+                    .collect(Collectors.joining(", ")) + ")")) {
+                statement.setObject(1, now);
+                statement.setString(2, by);
+                updated = statement.executeUpdate();
+            }
+            return new MergeResult(inserted, updated);
+        }
+
+        /**
+         * Records a set as applied, in the current transaction.
+         */
+        public void record(String name, int version, String checksum, int rowCount, MergeResult result,
+                           LocalDateTime appliedAt, long durationMs) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(RECORD)) {
+                statement.setString(1, name);
+                statement.setInt(2, version);
+                statement.setString(3, checksum);
+                statement.setInt(4, rowCount);
+                statement.setInt(5, result.inserted());
+                statement.setInt(6, result.updated());
+                statement.setObject(7, appliedAt);
+                statement.setLong(8, durationMs);
+                statement.executeUpdate();
+            }
+        }
+
+        public void commit() throws SQLException {
+            connection.commit();
+        }
+
+        public void rollback() throws SQLException {
+            connection.rollback();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+        }
+
+        private static String sequence(String table) {
+            return table + TableSequenceNamingStrategy.SEQUENCE_SUFFIX;
+        }
+    }
+}
@@ -2,16 +2,18 @@ package com.viridial.common.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.countries.entities.TimezoneEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for TimezoneEntity.
  */
 public interface TimezoneRepositoryCustom {
-    Page<TimezoneEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<TimezoneEntity> search(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<TimezoneEntity> action);
     List<TimezoneEntity> findAllById(List<Long> ids);
     void saveAll(List<TimezoneEntity> entities);
 }
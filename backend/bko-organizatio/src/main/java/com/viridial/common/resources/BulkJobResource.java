@@ -0,0 +1,59 @@
+package com.viridial.common.resources;
+
+import com.viridial.common.forms.BulkJobForm;
+import com.viridial.common.services.BulkJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+/**
+ * Bulk jobs, submitted by the {@code /{resource}/bulk-update-active/jobs} and
+ * {@code /{resource}/bulk-delete/jobs} endpoints.
+ */
+@RestController
+@RequestMapping("/jobs")
+public class BulkJobResource {
+    @Autowired
+    private BulkJobService bulkJobService;
+
+    /**
+     * Returns the status, progress and counts of a job.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<BulkJobForm> get(@PathVariable Long id) {
+        return orNotFound(bulkJobService.get(id));
+    }
+
+    /**
+     * Stops a pending or running job; the chunks already committed stay written.
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<BulkJobForm> cancel(@PathVariable Long id) {
+        return orNotFound(bulkJobService.cancel(id));
+    }
+
+    /**
+     * Runs a failed or cancelled job again from where it stopped.
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<BulkJobForm> resume(@PathVariable Long id) {
+        return orNotFound(bulkJobService.resume(id));
+    }
+
+    /**
+     * The response of a submitted job: 202 Accepted, with the job and its location.
+     */
+    public static ResponseEntity<BulkJobForm> accepted(BulkJobForm job) {
+        return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
+    }
+
+    private static ResponseEntity<BulkJobForm> orNotFound(BulkJobForm job) {
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
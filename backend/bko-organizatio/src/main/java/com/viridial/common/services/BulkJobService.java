@@ -0,0 +1,46 @@
+package com.viridial.common.services;
+
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkJobForm;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.utils.InvalidRequestException;
+
+/**
+ * Service interface running the bulk operations of the resources in the background, for
+ * requests too large for one HTTP request and one transaction.
+ */
+public interface BulkJobService {
+
+    /**
+     * Records a job setting the active flag of the ids of the form, to be run as soon as a worker is free.
+     *
+     * @param resource the resource path of the bulk endpoints, such as cities
+     * @throws InvalidRequestException for no ids or too many ids
+     * @throws IllegalArgumentException for an unknown resource
+     */
+    BulkJobForm submitUpdateActive(String resource, BulkUpdateActiveForm form);
+
+    /**
+     * Records a job soft-deleting the ids of the form.
+     *
+     * @see #submitUpdateActive(String, BulkUpdateActiveForm)
+     */
+    BulkJobForm submitDelete(String resource, BulkDeleteForm form, String deletedBy);
+
+    /**
+     * Returns the job, or null when it does not exist.
+     */
+    BulkJobForm get(Long id);
+
+    /**
+     * Stops the job before its next chunk; the chunks already written stay written.
+     * Returns the job, or null when it does not exist.
+     */
+    BulkJobForm cancel(Long id);
+
+    /**
+     * Runs a failed or cancelled job again from the first id it had not handled.
+     * Returns the job, or null when it does not exist.
+     */
+    BulkJobForm resume(Long id);
+}
@@ -0,0 +1,226 @@
+package com.viridial.common.services;
+
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkJobForm;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.repositories.BulkJobRepository;
+import com.viridial.common.utils.InvalidRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the bulk jobs recorded in com_bulk_job on {@code app.jobs.concurrency} threads of its own,
+ * one committed chunk at a time (see {@link BulkJobWorker}), so that a job holds a connection only
+ * for the duration of a chunk.
+ *
+ * <p>The table is the queue: a dispatcher thread claims jobs for the free threads when a job is
+ * submitted or ends, and every {@code app.jobs.poll-interval}. A job submitted while every thread
+ * is busy waits as PENDING. On shutdown the running jobs are put back to PENDING after their
+ * current chunk, and resumed at the next startup (or by another instance); the jobs of an instance
+ * that stopped without doing so are taken over once their last chunk is older than {@code app.jobs.lease}.</p>
+ */
+@Service
+public class BulkJobServiceImpl implements BulkJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobServiceImpl.class);
+
+    @Autowired
+    private BulkJobRepository bulkJobRepository;
+
+    @Autowired
+    private BulkJobWorker bulkJobWorker;
+
+    @Value("${app.jobs.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.jobs.poll-interval:PT5S}")
+    private Duration pollInterval;
+
+    @Value("${app.jobs.lease:PT1M}")
+    private Duration lease;
+
+    @Value("${app.jobs.max-ids:1000000}")
+    private int maxIds;
+
+    // Identifies the jobs claimed by this instance
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicInteger running = new AtomicInteger();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-job-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService workers;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-job-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    @Transactional
+    public BulkJobForm submitUpdateActive(String resource, BulkUpdateActiveForm form) {
+        return submit(resource, BulkJobForm.Operation.UPDATE_ACTIVE, form.isActive(), null, form.getIds(),
+            form.getVersions());
+    }
+
+    @Override
+    @Transactional
+    public BulkJobForm submitDelete(String resource, BulkDeleteForm form, String deletedBy) {
+        return submit(resource, BulkJobForm.Operation.DELETE, null, deletedBy, form.getIds(), form.getVersions());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BulkJobForm get(Long id) {
+        return bulkJobRepository.find(id);
+    }
+
+    @Override
+    @Transactional
+    public BulkJobForm cancel(Long id) {
+        bulkJobRepository.requestCancel(id);
+        return bulkJobRepository.find(id);
+    }
+
+    @Override
+    @Transactional
+    public BulkJobForm resume(Long id) {
+        if (bulkJobRepository.resume(id)) {
+            dispatchAfterCommit();
+        }
+        return bulkJobRepository.find(id);
+    }
+
+    private BulkJobForm submit(String resource, BulkJobForm.Operation operation, Boolean active, String requestedBy,
+                               List<Long> ids, Map<Long, Long> versions) {
+        if (!bulkJobWorker.supports(resource)) {
+            throw new IllegalArgumentException("No bulk operations for resource " + resource);
+        }
+        Long[] distinctIds = ids == null ? new Long[0] : new LinkedHashSet<>(ids).stream()
+            .filter(Objects::nonNull)
+            .toArray(Long[]::new);
+        if (distinctIds.length == 0) {
+            throw new InvalidRequestException("ids is required");
+        }
+        if (distinctIds.length > maxIds) {
+            throw new InvalidRequestException("At most " + maxIds + " ids per job, got " + distinctIds.length);
+        }
+        Long[] expectedVersions = null;
+        if (versions != null && !versions.isEmpty()) {
+            expectedVersions = new Long[distinctIds.length];
+            for (int i = 0; i < distinctIds.length; i++) {
+                expectedVersions[i] = versions.get(distinctIds[i]);
+            }
+        }
+        long id = bulkJobRepository.insert(resource, operation, active, requestedBy, distinctIds, expectedVersions);
+        dispatchAfterCommit();
+        return bulkJobRepository.find(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        // Picks up the jobs left pending, or running by a stopped instance, then polls
+        dispatcher.scheduleWithFixedDelay(this::dispatch, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        dispatcher.shutdownNow();
+        workers.shutdown();
+        // Each job stops after its current chunk
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void dispatchAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestDispatch();
+            }
+        });
+    }
+
+    private void requestDispatch() {
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Claims jobs for the free threads. Runs on the dispatcher thread only.
+     */
+    private void dispatch() {
+        int free = concurrency - running.get();
+        if (stopping || free <= 0) {
+            return;
+        }
+        List<Long> claimed;
+        try {
+            claimed = bulkJobWorker.claim(owner, free, lease);
+        } catch (RuntimeException e) {
+            logger.warn("Could not claim bulk jobs, retrying in {}", pollInterval, e);
+            return;
+        }
+        for (Long id : claimed) {
+            running.incrementAndGet();
+            workers.execute(() -> run(id));
+        }
+    }
+
+    private void run(long id) {
+        try {
+            while (!stopping && bulkJobWorker.runChunk(id, owner)) {
+                // One chunk per transaction
+            }
+            if (stopping) {
+                bulkJobWorker.release(id, owner);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Bulk job {} failed", id, e);
+            try {
+                bulkJobWorker.fail(id, owner, e.toString());
+            } catch (RuntimeException failure) {
+                // Taken over by another instance once its lease expires
+                logger.warn("Could not record the failure of bulk job {}", id, failure);
+            }
+        } finally {
+            running.decrementAndGet();
+            requestDispatch();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.viridial.common.services;
+
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkConflictForm;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.repositories.BulkJobRepository;
+import com.viridial.countries.services.CityService;
+import com.viridial.countries.services.CountryService;
+import com.viridial.countries.services.TimezoneService;
+import com.viridial.organization.services.TeamService;
+import com.viridial.referentiel.services.ReferentialUpdateService;
+import com.viridial.roles.services.RoleService;
+import com.viridial.users.services.UserService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The transactions of the bulk jobs, run by {@link BulkJobServiceImpl} on its own threads.
+ *
+ * <p>A chunk of {@code app.jobs.chunk-size} ids goes through the same service method as the
+ * synchronous bulk endpoints, so that the caches and indexes of the resource are kept up to date
+ * the same way, and in the same transaction as the progress of the job.</p>
+ */
+@Component
+public class BulkJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobWorker.class);
+
+    @Autowired
+    private BulkJobRepository bulkJobRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReferentialUpdateService referentialUpdateService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private TimezoneService timezoneService;
+
+    @Autowired
+    private CountryService countryService;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Value("${app.jobs.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${app.jobs.max-reported-conflicts:1000}")
+    private int maxReportedConflicts;
+
+    // By resource path of the bulk endpoints
+    private Map<String, BulkService> services;
+
+    @PostConstruct
+    void init() {
+        services = Map.of(
+            "users", userService,
+            "referentiels", referentialUpdateService,
+            "roles", roleService,
+            "timezones", timezoneService,
+            "countries", countryService,
+            "cities", cityService,
+            "teams", teamService);
+    }
+
+    public boolean supports(String resource) {
+        return services.containsKey(resource);
+    }
+
+    @Transactional
+    public List<Long> claim(String owner, int limit, Duration lease) {
+        return bulkJobRepository.claim(owner, limit, lease);
+    }
+
+    /**
+     * Writes the next chunk of the job, or ends the job when it is complete or cancelled.
+     *
+     * @return false once the job is over for this instance: ended, or taken over by another one
+     */
+    @Transactional
+    @RetryOnConflict
+    public boolean runChunk(long jobId, String owner) {
+        BulkJobForm job = bulkJobRepository.lock(jobId, owner);
+        if (job == null || job.getStatus() != BulkJobForm.Status.RUNNING) {
+            return false;
+        }
+        if (job.isCancelRequested()) {
+            finish(job, BulkJobForm.Status.CANCELLED);
+            return false;
+        }
+        BulkJobRepository.Chunk chunk = bulkJobRepository.chunk(jobId, job.getProcessed(), chunkSize);
+        if (chunk.getIds().isEmpty()) {
+            finish(job, BulkJobForm.Status.SUCCEEDED);
+            return false;
+        }
+        BulkService service = services.get(job.getResource());
+        if (service == null) {
+            throw new IllegalStateException("No bulk operations for resource " + job.getResource());
+        }
+        int changed;
+        List<BulkConflictForm> conflicts;
+        if (job.getOperation() == BulkJobForm.Operation.UPDATE_ACTIVE) {
+            BulkUpdateActiveForm form = new BulkUpdateActiveForm(chunk.getIds(), Boolean.TRUE.equals(job.getActive()));
+            form.setVersions(chunk.getVersions());
+            BulkUpdateActiveResponse response = service.bulkUpdateActive(form);
+            changed = response.getUpdatedCount();
+            conflicts = response.getConflicts();
+        } else {
+            BulkDeleteForm form = new BulkDeleteForm(chunk.getIds());
+            form.setVersions(chunk.getVersions());
+            BulkDeleteResponse response = service.bulkDelete(form, job.getRequestedBy());
+            changed = response.getDeletedCount();
+            conflicts = response.getConflicts();
+        }
+        int reported = Math.max(0, Math.min(conflicts.size(), maxReportedConflicts - job.getConflictCount()));
+        bulkJobRepository.recordChunk(jobId, job.getProcessed() + chunk.getIds().size(), changed, conflicts.size(),
+            conflicts.subList(0, reported));
+        return true;
+    }
+
+    @Transactional
+    public void fail(long jobId, String owner, String error) {
+        if (bulkJobRepository.lock(jobId, owner) != null) {
+            bulkJobRepository.finish(jobId, BulkJobForm.Status.FAILED, error);
+        }
+    }
+
+    @Transactional
+    public void release(long jobId, String owner) {
+        bulkJobRepository.release(jobId, owner);
+    }
+
+    private void finish(BulkJobForm job, BulkJobForm.Status status) {
+        bulkJobRepository.finish(job.getId(), status, null);
+        logger.info("Bulk job {} ({} {}) {}: {} of {} ids handled, {} rows changed, {} conflicts", job.getId(),
+            job.getResource(), job.getOperation(), status, job.getProcessed(), job.getTotal(), job.getChanged(),
+            job.getConflictCount());
+    }
+}
@@ -0,0 +1,15 @@
+package com.viridial.common.services;
+
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+
+/**
+ * Bulk operations of a resource, called by its bulk endpoints and, one chunk of ids at a time,
+ * by the bulk jobs (see {@link BulkJobService}).
+ */
+public interface BulkService {
+    BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form);
+    BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy);
+}
@@ -0,0 +1,19 @@
+package com.viridial.common.services;
+
+import com.viridial.common.forms.SeedSetResultForm;
+import com.viridial.common.utils.SeedSet;
+
+import java.util.List;
+
+/**
+ * Service interface applying the seed sets to the database.
+ */
+public interface SeedService {
+
+    /**
+     * Applies, in order, the sets whose version or file checksum differ from the ones last applied.
+     *
+     * @throws IllegalStateException when a set cannot be applied; the sets before it stay applied
+     */
+    List<SeedSetResultForm> apply(List<SeedSet> sets);
+}
@@ -0,0 +1,282 @@
+package com.viridial.common.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.forms.SeedSetResultForm;
+import com.viridial.common.repositories.SeedRepository;
+import com.viridial.common.utils.CopyRowEncoder;
+import com.viridial.common.utils.ImportRowReader;
+import com.viridial.common.utils.SeedSet;
+import com.viridial.countries.services.CitySuggestIndex;
+import com.viridial.countries.services.CountrySuggestIndex;
+import com.viridial.countries.services.ReverseGeocoder;
+import com.viridial.referentiel.services.ReferentialCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the seed sets through {@link SeedRepository}, outside the entities: when a set changed
+ * rows, the second-level cache and the in-memory indexes are dropped afterwards.
+ *
+ * <p>The check of up-to-date sets costs one query plus hashing the packaged files. A set that
+ * fails rolls back alone and stops the seeding: the sets after it may reference its rows.</p>
+ */
+@Service
+public class SeedServiceImpl implements SeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedServiceImpl.class);
+
+    private static final String SEEDED_BY = "system";
+
+    @Autowired
+    private SeedRepository seedRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ReferentialCache referentialCache;
+
+    @Autowired
+    private CountrySuggestIndex countrySuggestIndex;
+
+    @Autowired
+    private CitySuggestIndex citySuggestIndex;
+
+    @Autowired
+    private ReverseGeocoder reverseGeocoder;
+
+    @Override
+    public List<SeedSetResultForm> apply(List<SeedSet> sets) {
+        List<SeedSetResultForm> results = new ArrayList<>();
+        boolean changed = false;
+        try (SeedRepository.Session session = seedRepository.open()) {
+            Map<String, SeedRepository.Applied> applied = session.findApplied();
+            session.commit();
+            References references = new References(session, sets);
+            for (SeedSet set : sets) {
+                long start = System.currentTimeMillis();
+                byte[] content = read(set);
+                String checksum = checksum(content);
+                SeedSetResultForm result = isApplied(applied.get(set.getName()), set, checksum)
+                    ? new SeedSetResultForm(set.getName(), false, 0, 0, 0, 0)
+                    : apply(session, references, set, content, checksum, start);
+                results.add(result);
+                changed |= result.getInserted() + result.getUpdated() > 0;
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Seeding failed: " + e.getMessage(), e);
+        } finally {
+            if (changed) {
+                evictCaches();
+            }
+        }
+        return results;
+    }
+
+    private SeedSetResultForm apply(SeedRepository.Session session, References references, SeedSet set,
+                                    byte[] content, String checksum, long start) throws SQLException, IOException {
+        try {
+            session.lock();
+            // Another instance may have applied it meanwhile
+            if (isApplied(session.findApplied().get(set.getName()), set, checksum)) {
+                session.commit();
+                return new SeedSetResultForm(set.getName(), false, 0, 0, 0, System.currentTimeMillis() - start);
+            }
+            references.begin(set);
+            CopyRowEncoder rows = new CopyRowEncoder(content.length * 2);
+            try (ImportRowReader reader = ImportRowReader.of(ImportRowReader.Format.CSV,
+                    new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8), objectMapper)) {
+                for (Map<String, String> row = reader.next(); row != null; row = reader.next()) {
+                    try {
+                        Object[] values = set.getMapper().map(row, references);
+                        rows.add(references.define(values));
+                        for (Object value : values) {
+                            rows.add(value);
+                        }
+                        rows.endRow();
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalStateException(set.getResource() + " line " + reader.getLine() + ": "
+                            + e.getMessage(), e);
+                    }
+                }
+            }
+            references.end();
+
+            LocalDateTime now = LocalDateTime.now();
+            SeedRepository.MergeResult merged = session.merge(set.getTable(), set.getColumns(), rows, now, SEEDED_BY);
+            long durationMs = System.currentTimeMillis() - start;
+            session.record(set.getName(), set.getVersion(), checksum, rows.getRows(), merged, now, durationMs);
+            session.commit();
+            logger.info("Seed set {} applied: {} rows, {} inserted, {} updated in {} ms", set.getName(),
+                rows.getRows(), merged.inserted(), merged.updated(), durationMs);
+            return new SeedSetResultForm(set.getName(), true, rows.getRows(), merged.inserted(), merged.updated(),
+                durationMs);
+        } catch (SQLException | IOException | RuntimeException e) {
+            session.rollback();
+            references.discard(set);
+            throw e;
+        }
+    }
+
+    private static boolean isApplied(SeedRepository.Applied applied, SeedSet set, String checksum) {
+        return applied != null && applied.version() == set.getVersion() && applied.checksum().equals(checksum);
+    }
+
+    private static byte[] read(SeedSet set) throws IOException {
+        try (InputStream input = new ClassPathResource(set.getResource()).getInputStream()) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static String checksum(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void evictCaches() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        referentialCache.invalidate();
+        countrySuggestIndex.invalidate();
+        citySuggestIndex.refresh();
+        reverseGeocoder.refresh();
+    }
+
+    /**
+     * Ids of the rows of the seed sets by key, loaded per table on first use. Ids of the rows of
+     * the set being applied that do not exist yet are reserved as they are met, whether as a row
+     * or as a reference; a reference to a key that no row of the set defines fails the set.
+     */
+    private static final class References implements SeedSet.References {
+        private final SeedRepository.Session session;
+        private final Map<String, SeedSet> setsByName = new HashMap<>();
+        private final Map<String, Map<String, Long>> idsBySet = new HashMap<>();
+        private SeedSet current;
+        private final Set<String> reserved = new HashSet<>();
+        private final Set<String> defined = new HashSet<>();
+        private long nextId;
+        private long blockEnd;
+        private int blockSize;
+
+        private References(SeedRepository.Session session, List<SeedSet> sets) {
+            this.session = session;
+            for (SeedSet set : sets) {
+                setsByName.put(set.getName(), set);
+            }
+        }
+
+        @Override
+        public Long id(String set, Object... key) {
+            String rowKey = SeedRepository.key(key);
+            Long id = ids(set).get(rowKey);
+            if (id != null) {
+                return id;
+            }
+            if (current == null || !current.getName().equals(set)) {
+                throw new IllegalArgumentException("unknown " + set + " row " + Arrays.toString(key));
+            }
+            id = reserve();
+            ids(set).put(rowKey, id);
+            reserved.add(rowKey);
+            return id;
+        }
+
+        private void begin(SeedSet set) throws SQLException {
+            current = set;
+            reserved.clear();
+            defined.clear();
+            blockSize = session.idBlockSize(set.getTable());
+            nextId = blockEnd = 0;
+            // Loaded again under the lock
+            idsBySet.remove(set.getName());
+        }
+
+        /**
+         * Returns the id of the row of the current set with these values.
+         */
+        private Long define(Object[] values) {
+            Object[] key = new Object[current.getKeyColumns().size()];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = values[current.getColumns().indexOf(current.getKeyColumns().get(i))];
+            }
+            if (!defined.add(SeedRepository.key(key))) {
+                throw new IllegalArgumentException("duplicate key " + Arrays.toString(key));
+            }
+            return id(current.getName(), key);
+        }
+
+        private void end() {
+            reserved.removeAll(defined);
+            if (!reserved.isEmpty()) {
+                throw new IllegalStateException(current.getResource() + ": unknown " + current.getName()
+                    + " rows referenced " + reserved);
+            }
+            current = null;
+        }
+
+        /**
+         * Forgets the reserved ids of a set that was rolled back.
+         */
+        private void discard(SeedSet set) {
+            idsBySet.remove(set.getName());
+            current = null;
+        }
+
+        private Map<String, Long> ids(String set) {
+            Map<String, Long> ids = idsBySet.get(set);
+            if (ids == null) {
+                SeedSet seedSet = setsByName.get(set);
+                if (seedSet == null) {
+                    throw new IllegalArgumentException("unknown seed set " + set);
+                }
+                try {
+                    ids = session.findIds(seedSet.getTable(), seedSet.getKeyColumns());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                idsBySet.put(set, ids);
+            }
+            return ids;
+        }
+
+        private long reserve() {
+            if (nextId == blockEnd) {
+                try {
+                    nextId = session.nextIdBlock(current.getTable());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                blockEnd = nextId + blockSize;
+            }
+            return nextId++;
+        }
+    }
+}
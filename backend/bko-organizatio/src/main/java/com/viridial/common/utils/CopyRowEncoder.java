@@ -0,0 +1,87 @@
+package com.viridial.common.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes rows in the PostgreSQL COPY text format (tab separated, {@code \N} for null,
+ * backslash escapes) into a reusable buffer, to be sent with {@code COPY ... FROM STDIN}.
+ *
+ * <p>Values are appended column by column; {@link #endRow()} terminates the row.
+ * The buffer is meant to hold one chunk of rows and be {@link #reset()} between chunks.</p>
+ */
+public class CopyRowEncoder {
+
+    private final ByteArrayOutputStream buffer;
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean firstColumn = true;
+    private int rows;
+
+    public CopyRowEncoder(int initialCapacity) {
+        this.buffer = new ByteArrayOutputStream(initialCapacity);
+    }
+
+    public CopyRowEncoder add(String value) {
+        separator();
+        if (value == null) {
+            row.append("\\N");
+            return this;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+        return this;
+    }
+
+    public CopyRowEncoder add(Object value) {
+        return add(value != null ? value.toString() : null);
+    }
+
+    public void endRow() {
+        row.append('\n');
+        buffer.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+        row.setLength(0);
+        firstColumn = true;
+        rows++;
+    }
+
+    /**
+     * Drops a row whose values were appended but which must not be sent.
+     */
+    public void discardRow() {
+        row.setLength(0);
+        firstColumn = true;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+
+    public void reset() {
+        buffer.reset();
+        discardRow();
+        rows = 0;
+    }
+
+    private void separator() {
+        if (!firstColumn) {
+            row.append('\t');
+        }
+        firstColumn = false;
+    }
+}
@@ -0,0 +1,234 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes exported forms to an output stream one at a time, as NDJSON or CSV,
+ * with the same JSON representation as the search responses.
+ *
+ * <p>Nothing is buffered beyond the writer's own buffer, so an export of any size
+ * streams to the client while rows are read. Closing the writer writes out its buffer but
+ * neither flushes nor closes the output stream: a search that fails before its first row
+ * leaves the response uncommitted, free to answer with an error status.</p>
+ */
+public abstract class ExportWriter implements AutoCloseable {
+
+    /**
+     * Export file formats.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Writes an export into an output stream.
+     */
+    @FunctionalInterface
+    public interface Export {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    protected long rows;
+
+    /**
+     * Streams an export into the response, as an attachment named after the resource. If the export fails
+     * before the response is committed, such as a search with an invalid cursor, the response is reset: the
+     * error is answered with its own status and content type, not as an attachment.
+     */
+    public static void attach(HttpServletResponse response, Format format, String name, Export export)
+            throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+        try {
+            export.writeTo(response.getOutputStream());
+        } catch (RuntimeException | IOException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    public static ExportWriter of(Format format, OutputStream output, Class<?> formClass, ObjectMapper objectMapper) {
+        OutputStream unflushed = new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                // Left to the owner of the output stream
+            }
+        };
+        try {
+            return format == Format.CSV
+                ? new CsvExportWriter(unflushed, formClass, objectMapper)
+                : new NdjsonExportWriter(unflushed, formClass, objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one form.
+     *
+     * @throws UncheckedIOException when the output fails, typically because the client went away
+     */
+    public abstract void write(Object form);
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+
+    private static final class NdjsonExportWriter extends ExportWriter {
+        private final JsonGenerator generator;
+        private final SequenceWriter sequence;
+
+        private NdjsonExportWriter(OutputStream output, Class<?> formClass, ObjectMapper objectMapper)
+                throws IOException {
+            generator = objectMapper.getFactory().createGenerator(output);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            sequence = objectMapper.writerFor(formClass).withRootValueSeparator("\n").writeValues(generator);
+        }
+
+        @Override
+        public void write(Object form) {
+            try {
+                sequence.write(form);
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rows > 0) {
+                // The separator only goes between values: terminates the last line
+                generator.writeRaw('\n');
+            }
+            sequence.close();
+            // The sequence does not own the generator; closing it writes out its buffer but keeps the output open
+            generator.close();
+        }
+    }
+
+    private static final class CsvExportWriter extends ExportWriter {
+        private final Writer writer;
+        private final ObjectMapper objectMapper;
+        private final List<String> columns = new ArrayList<>();
+
+        private CsvExportWriter(OutputStream output, Class<?> formClass, ObjectMapper objectMapper) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+            this.objectMapper = objectMapper;
+            // Columns are the JSON properties of the form, in serialization order
+            JsonSerializer<Object> serializer = objectMapper.getSerializerProviderInstance()
+                .findTypedValueSerializer(formClass, true, null);
+            Iterator<PropertyWriter> properties = serializer.properties();
+            while (properties.hasNext()) {
+                columns.add(properties.next().getName());
+            }
+            if (columns.isEmpty()) {
+                throw JsonMappingException.from(objectMapper.getSerializerProviderInstance(),
+                    "No exportable properties in " + formClass.getName());
+            }
+            writeLine(columns);
+        }
+
+        @Override
+        public void write(Object form) {
+            JsonNode node = objectMapper.valueToTree(form);
+            List<String> values = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                JsonNode value = node.get(column);
+                if (value == null || value.isNull()) {
+                    values.add("");
+                } else {
+                    values.add(value.isContainerNode() ? value.toString() : value.asText());
+                }
+            }
+            try {
+                writeLine(values);
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values.get(i));
+            }
+            writer.write("\r\n");
+        }
+
+        /**
+         * Writes a field, quoted when it contains a separator, a quote or a line break (RFC 4180).
+         */
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.viridial.common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable in-memory index of points on the earth for nearest neighbour lookups.
+ *
+ * <p>Items (numbered 0..n-1 by the caller) are placed on the unit sphere and kept in a balanced
+ * k-d tree laid out implicitly in arrays: the node of a range is its middle position, its left
+ * subtree the positions before, its right subtree those after. Each node splits on the axis where
+ * its range spreads the most. Straight-line (chord) distances between points of the sphere rank
+ * them as great-circle distances do, without special cases at the poles or the antimeridian.
+ * Coordinates are stored as floats, about a meter apart at most: the caller computes the exact
+ * distances of the results with {@link #distanceKm}.</p>
+ *
+ * <p>A lookup descends to the leaf of the point, then visits the other side of a node only when
+ * its splitting plane is closer than the k-th best point found: O(k + log n) nodes for points
+ * spread like cities.</p>
+ *
+ * <p>The arrays can be written to and read back from a buffer (such as a mapped file) as they
+ * are, without rebuilding the tree.</p>
+ */
+public final class GeoIndex {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int[] NO_ITEMS = new int[0];
+
+    // Three coordinates, the item and the axis of each node
+    private static final int BYTES_PER_ITEM = 3 * Float.BYTES + Integer.BYTES + 1;
+
+    // Coordinates of the node at each tree position, on the unit sphere
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+    private final byte[] axes;
+    private final int[] items;
+
+    private GeoIndex(float[] xs, float[] ys, float[] zs, byte[] axes, int[] items) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.axes = axes;
+        this.items = items;
+    }
+
+    /**
+     * Indexes the items by their coordinates in degrees; items with a NaN coordinate are left out.
+     */
+    public static GeoIndex of(double[] latitudes, double[] longitudes) {
+        int count = 0;
+        int[] positions = new int[latitudes.length];
+        for (int item = 0; item < latitudes.length; item++) {
+            if (!Double.isNaN(latitudes[item]) && !Double.isNaN(longitudes[item])) {
+                positions[count++] = item;
+            }
+        }
+        int[] items = Arrays.copyOf(positions, count);
+        float[][] points = new float[3][count];
+        for (int i = 0; i < count; i++) {
+            double[] point = unitVector(latitudes[items[i]], longitudes[items[i]]);
+            points[0][i] = (float) point[0];
+            points[1][i] = (float) point[1];
+            points[2][i] = (float) point[2];
+        }
+        byte[] axes = new byte[count];
+        new TreeBuilder(points, items, axes).build(0, count);
+        return new GeoIndex(points[0], points[1], points[2], axes, items);
+    }
+
+    /**
+     * Reads an index written by {@link #write}, from the position of the buffer.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold a consistent index
+     */
+    public static GeoIndex read(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0 || (long) size * BYTES_PER_ITEM > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated geo index of " + size + " items");
+        }
+        float[] xs = new float[size];
+        float[] ys = new float[size];
+        float[] zs = new float[size];
+        int[] items = new int[size];
+        byte[] axes = new byte[size];
+        // Bulk copies through views, then past them
+        buffer.asFloatBuffer().get(xs);
+        buffer.position(buffer.position() + size * Float.BYTES);
+        buffer.asFloatBuffer().get(ys);
+        buffer.position(buffer.position() + size * Float.BYTES);
+        buffer.asFloatBuffer().get(zs);
+        buffer.position(buffer.position() + size * Float.BYTES);
+        buffer.asIntBuffer().get(items);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        buffer.get(axes);
+        return new GeoIndex(xs, ys, zs, axes, items);
+    }
+
+    /**
+     * Returns the number of bytes {@link #write} takes.
+     */
+    public long byteSize() {
+        return Integer.BYTES + (long) items.length * BYTES_PER_ITEM;
+    }
+
+    /**
+     * Writes the index at the position of the buffer, in the buffer's byte order.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(items.length);
+        buffer.asFloatBuffer().put(xs);
+        buffer.position(buffer.position() + xs.length * Float.BYTES);
+        buffer.asFloatBuffer().put(ys);
+        buffer.position(buffer.position() + ys.length * Float.BYTES);
+        buffer.asFloatBuffer().put(zs);
+        buffer.position(buffer.position() + zs.length * Float.BYTES);
+        buffer.asIntBuffer().put(items);
+        buffer.position(buffer.position() + items.length * Integer.BYTES);
+        buffer.put(axes);
+    }
+
+    /**
+     * Returns the number of indexed items.
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Returns the items nearest to a point, nearest first.
+     *
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param limit the maximum number of items
+     * @param maxDistanceKm the distance beyond which items are ignored, infinite for none
+     * @param skip the items not to return, such as those of another partition
+     */
+    public int[] nearest(double latitude, double longitude, int limit, double maxDistanceKm, IntPredicate skip) {
+        if (limit <= 0 || items.length == 0) {
+            return NO_ITEMS;
+        }
+        double[] point = unitVector(latitude, longitude);
+        // Beyond half the circumference every point is within reach
+        double chord = maxDistanceKm >= Math.PI * EARTH_RADIUS_KM
+            ? Double.POSITIVE_INFINITY : 2 * Math.sin(maxDistanceKm / (2 * EARTH_RADIUS_KM));
+        Search search = new Search(point, Math.min(limit, items.length), chord * chord, skip);
+        search.visit(0, items.length);
+        return search.result();
+    }
+
+    /**
+     * Great-circle distance between two points in degrees (haversine formula).
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinLatitude * sinLatitude
+            + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double[] unitVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    /**
+     * One lookup: the best items found so far in a max-heap on their squared chord distance.
+     */
+    private final class Search {
+        private final double x;
+        private final double y;
+        private final double z;
+        private final IntPredicate skip;
+        private final int[] heapItems;
+        private final double[] heapDistances;
+        private double maxDistance;
+        private int size;
+
+        private Search(double[] point, int limit, double maxDistance, IntPredicate skip) {
+            this.x = point[0];
+            this.y = point[1];
+            this.z = point[2];
+            this.skip = skip;
+            this.heapItems = new int[limit];
+            this.heapDistances = new double[limit];
+            this.maxDistance = maxDistance;
+        }
+
+        private void visit(int from, int to) {
+            while (from < to) {
+                int node = (from + to) >>> 1;
+                double dx = xs[node] - x;
+                double dy = ys[node] - y;
+                double dz = zs[node] - z;
+                double distance = dx * dx + dy * dy + dz * dz;
+                if (distance <= maxDistance && !skip.test(items[node])) {
+                    offer(items[node], distance);
+                }
+                double split = axes[node] == 0 ? -dx : axes[node] == 1 ? -dy : -dz;
+                // The side of the point first, then the other if its plane is within reach
+                if (split < 0) {
+                    visit(from, node);
+                    if (split * split > maxDistance) {
+                        return;
+                    }
+                    from = node + 1;
+                } else {
+                    visit(node + 1, to);
+                    if (split * split > maxDistance) {
+                        return;
+                    }
+                    to = node;
+                }
+            }
+        }
+
+        private void offer(int item, double distance) {
+            if (size < heapItems.length) {
+                int i = size++;
+                while (i > 0 && heapDistances[(i - 1) / 2] < distance) {
+                    heapItems[i] = heapItems[(i - 1) / 2];
+                    heapDistances[i] = heapDistances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heapItems[i] = item;
+                heapDistances[i] = distance;
+            } else {
+                // Replaces the farthest, which sifts down
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && heapDistances[child + 1] > heapDistances[child]) {
+                        child++;
+                    }
+                    if (heapDistances[child] <= distance) {
+                        break;
+                    }
+                    heapItems[i] = heapItems[child];
+                    heapDistances[i] = heapDistances[child];
+                    i = child;
+                }
+                heapItems[i] = item;
+                heapDistances[i] = distance;
+            }
+            if (size == heapItems.length) {
+                maxDistance = heapDistances[0];
+            }
+        }
+
+        private int[] result() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(heapDistances[a], heapDistances[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = heapItems[order[i]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Orders the points into the tree: each range is partitioned around its middle position
+     * on the axis of its largest spread.
+     */
+    private static final class TreeBuilder {
+        private final float[][] points;
+        private final int[] items;
+        private final byte[] axes;
+
+        private TreeBuilder(float[][] points, int[] items, byte[] axes) {
+            this.points = points;
+            this.items = items;
+            this.axes = axes;
+        }
+
+        private void build(int from, int to) {
+            while (to - from > 1) {
+                int node = (from + to) >>> 1;
+                int axis = widestAxis(from, to);
+                select(points[axis], from, to - 1, node);
+                axes[node] = (byte) axis;
+                build(from, node);
+                from = node + 1;
+            }
+        }
+
+        private int widestAxis(int from, int to) {
+            int widest = 0;
+            float widestSpread = -1;
+            for (int axis = 0; axis < 3; axis++) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                float[] values = points[axis];
+                for (int i = from; i < to; i++) {
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                }
+                if (max - min > widestSpread) {
+                    widestSpread = max - min;
+                    widest = axis;
+                }
+            }
+            return widest;
+        }
+
+        /**
+         * Quickselect: puts at {@code k} the point that belongs there in the order of the values,
+         * smaller or equal ones before, greater or equal ones after.
+         */
+        private void select(float[] values, int left, int right, int k) {
+            while (left < right) {
+                float pivot = values[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (values[i] < pivot) {
+                        i++;
+                    }
+                    while (values[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            for (float[] values : points) {
+                float value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+            }
+            int item = items[i];
+            items[i] = items[j];
+            items[j] = item;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the rows of an import file one at a time, as field name to text value maps,
+ * so that an import never holds more than the current row of its input.
+ *
+ * <p>Two formats are supported: CSV with a header line (RFC 4180 quoting, comma separator)
+ * and NDJSON (one flat JSON object per line). Empty CSV fields and JSON nulls are absent from the map.</p>
+ */
+public abstract class ImportRowReader implements AutoCloseable {
+
+    /**
+     * Import file formats.
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    protected final Reader reader;
+    protected long line;
+
+    protected ImportRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static ImportRowReader of(Format format, Reader reader, ObjectMapper objectMapper) throws IOException {
+        return format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader, objectMapper);
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return the row, or null at the end of the input
+     * @throws MalformedRowException when the row cannot be parsed; reading can go on with the next row
+     * @throws IOException when the input cannot be read
+     */
+    public abstract Map<String, String> next() throws IOException;
+
+    /**
+     * Returns the line (CSV: the first physical line) of the last row read, counting from 1.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A row that cannot be parsed. Carries its line so that it can be reported as rejected.
+     */
+    public static class MalformedRowException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public MalformedRowException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class CsvRowReader extends ImportRowReader {
+        private final List<String> header;
+        private long physicalLine;
+        private int pending = -2;
+
+        private CsvRowReader(Reader reader) throws IOException {
+            super(reader);
+            List<String> names = readRecord();
+            if (names == null) {
+                throw new MalformedRowException("Missing CSV header");
+            }
+            header = new ArrayList<>(names.size());
+            for (String name : names) {
+                header.add(name.trim());
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty());
+
+            if (values.size() != header.size()) {
+                throw new MalformedRowException("Expected " + header.size() + " fields, found " + values.size());
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    row.put(header.get(i), values.get(i));
+                }
+            }
+            return row;
+        }
+
+        /**
+         * Reads one record, which may span several physical lines inside quotes.
+         */
+        private List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            line = ++physicalLine;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean afterQuote = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new MalformedRowException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int nextChar = read();
+                        if (nextChar == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            afterQuote = true;
+                            c = nextChar;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            physicalLine++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    afterQuote = false;
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int nextChar = read();
+                    if (nextChar != '\n') {
+                        unread(nextChar);
+                    }
+                    break;
+                } else if (c == '"' && field.length() == 0 && !afterQuote) {
+                    quoted = true;
+                } else if (afterQuote) {
+                    skipLine();
+                    throw new MalformedRowException("Unexpected character after a quoted field");
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != '\n' && c != -1);
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private void unread(int c) {
+            pending = c;
+        }
+    }
+
+    private static final class NdjsonRowReader extends ImportRowReader {
+        private final BufferedReader lines;
+        private final ObjectMapper objectMapper;
+
+        private NdjsonRowReader(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String text;
+            do {
+                text = lines.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new MalformedRowException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new MalformedRowException("Expected a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                JsonNode value = field.getValue();
+                if (value.isContainerNode()) {
+                    throw new MalformedRowException("Field " + field.getKey() + " must be a scalar");
+                }
+                if (!value.isNull()) {
+                    row.put(field.getKey(), value.asText());
+                }
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.viridial.common.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable in-memory prefix index for typeahead lookups.
+ *
+ * <p>Items (numbered 0..n-1 by the caller) are indexed by normalized texts: lower case,
+ * without diacritics, runs of other characters than letters and digits collapsed to one space
+ * (see {@link #normalize}). A text can also be indexed from each of its word starts, so that
+ * "york" finds "New York". Each key belongs to a partition (such as a country id); all keys point
+ * into a single shared char array, nothing is allocated per key.</p>
+ *
+ * <p>The keys are kept in two orders: by partition then text, and by text alone. A lookup
+ * binary-searches the range of keys starting with the prefix, in one partition or across all,
+ * then takes the best weighted items through a max segment tree over the key weights: the cost
+ * is O(k log n) for k results, however many keys match.</p>
+ */
+public final class PrefixIndex {
+
+    private static final int[] NO_ITEMS = new int[0];
+
+    private final char[] chars;
+    private final long[] weights;
+    private final long[] partitions;
+    private final int[] partitionStart;
+    // Sorted by partition, then text: one range per searched partition
+    private final Keys byPartition;
+    // Sorted by text only: one range when all partitions are searched
+    private final Keys all;
+
+    private PrefixIndex(char[] chars, long[] weights, long[] partitions, int[] partitionStart, int[][] byPartition,
+                        int[][] all) {
+        this.chars = chars;
+        this.weights = weights;
+        this.partitions = partitions;
+        this.partitionStart = partitionStart;
+        this.byPartition = new Keys(byPartition[0], byPartition[1], byPartition[2]);
+        this.all = new Keys(all[0], all[1], all[2]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Normalizes a text or a prefix: decomposed and stripped of combining marks, lower case,
+     * with any run of characters other than letters and digits turned into one space, trimmed.
+     */
+    public static String normalize(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                separator = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    public int size() {
+        return all.size;
+    }
+
+    /**
+     * Returns the best weighted items having a key that starts with the prefix, highest weight first
+     * (ties in key order), each item once.
+     *
+     * @param prefix the prefix, already {@linkplain #normalize normalized}; empty matches every key
+     * @param partition the only partition searched, or null for all
+     * @param limit the maximum number of items
+     * @param excluded items to skip, or null
+     */
+    public int[] top(String prefix, Long partition, int limit, IntPredicate excluded) {
+        if (limit <= 0 || all.size == 0) {
+            return NO_ITEMS;
+        }
+        Keys keys = all;
+        int from = 0;
+        int to = all.size;
+        if (partition != null) {
+            int p = Arrays.binarySearch(partitions, partition);
+            if (p < 0) {
+                return NO_ITEMS;
+            }
+            keys = byPartition;
+            from = partitionStart[p];
+            to = partitionStart[p + 1];
+        }
+        int first = keys.bound(prefix, from, to, false);
+        return keys.top(first, keys.bound(prefix, first, to, true), limit, excluded);
+    }
+
+    /**
+     * Keys in one order, over the shared chars, with a max segment tree over their weights.
+     */
+    private final class Keys {
+        private final int[] start;
+        private final int[] end;
+        private final int[] item;
+        private final int size;
+        private final int[] tree;
+
+        private Keys(int[] start, int[] end, int[] item) {
+            this.start = start;
+            this.end = end;
+            this.item = item;
+            this.size = item.length;
+            // Leaves at [size, 2 * size), each inner node holds the best key of its children
+            tree = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                tree[size + i] = i;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        /**
+         * Returns the best weighted items of the keys [from, to): repeatedly takes the best key
+         * of the best remaining range and splits that range around it.
+         */
+        private int[] top(int from, int to, int limit, IntPredicate excluded) {
+            PriorityQueue<Range> ranges = new PriorityQueue<>();
+            addRange(ranges, from, to);
+            int[] items = new int[limit];
+            int count = 0;
+            while (count < limit && !ranges.isEmpty()) {
+                Range range = ranges.poll();
+                int best = item[range.best];
+                if (!contains(items, count, best) && (excluded == null || !excluded.test(best))) {
+                    items[count++] = best;
+                }
+                addRange(ranges, range.from, range.best);
+                addRange(ranges, range.best + 1, range.to);
+            }
+            return count == limit ? items : Arrays.copyOf(items, count);
+        }
+
+        private void addRange(PriorityQueue<Range> ranges, int from, int to) {
+            if (from < to) {
+                ranges.add(new Range(this, from, to, best(from, to)));
+            }
+        }
+
+        /**
+         * Returns the first key of [from, to) that does not sort before the prefix (lower bound)
+         * or, when {@code after}, the first key that sorts after every key starting with it.
+         */
+        private int bound(String prefix, int from, int to, boolean after) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compareToPrefix(middle, prefix);
+                if (comparison < 0 || (after && comparison == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Compares a key with a prefix: 0 when the key starts with it.
+         */
+        private int compareToPrefix(int key, String prefix) {
+            int keyStart = start[key];
+            int length = end[key] - keyStart;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (i == length) {
+                    return -1;
+                }
+                int difference = chars[keyStart + i] - prefix.charAt(i);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the best key of [from, to).
+         */
+        private int best(int from, int to) {
+            int best = -1;
+            for (int low = from + size, high = to + size; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) {
+                    best = better(best, tree[low++]);
+                }
+                if ((high & 1) == 1) {
+                    best = better(best, tree[--high]);
+                }
+            }
+            return best;
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            long weightA = weights[item[a]];
+            long weightB = weights[item[b]];
+            return weightA > weightB || (weightA == weightB && a < b) ? a : b;
+        }
+    }
+
+    private static boolean contains(int[] items, int count, int item) {
+        for (int i = 0; i < count; i++) {
+            if (items[i] == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Range of matching keys, ordered by its best key.
+     */
+    private static final class Range implements Comparable<Range> {
+        private final Keys keys;
+        private final int from;
+        private final int to;
+        private final int best;
+
+        private Range(Keys keys, int from, int to, int best) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.best = best;
+        }
+
+        @Override
+        public int compareTo(Range other) {
+            return best == other.best ? 0 : keys.better(best, other.best) == best ? -1 : 1;
+        }
+    }
+
+    /**
+     * Collects the keys of an index. Not thread-safe.
+     */
+    public static final class Builder {
+        private char[] chars = new char[1 << 12];
+        private int charCount;
+        private int[] keyStart = new int[1 << 10];
+        private int[] keyEnd = new int[1 << 10];
+        private int[] keyItem = new int[1 << 10];
+        private long[] keyPartition = new long[1 << 10];
+        private int keyCount;
+
+        private Builder() {
+        }
+
+        /**
+         * Indexes an item by a text, as a whole, or also from each of its word starts.
+         * Blank texts are ignored.
+         */
+        public Builder add(int item, long partition, String text, boolean words) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                return this;
+            }
+            if (charCount + normalized.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + normalized.length()));
+            }
+            int start = charCount;
+            normalized.getChars(0, normalized.length(), chars, start);
+            charCount += normalized.length();
+
+            addKey(item, partition, start);
+            if (words) {
+                for (int i = start + 1; i < charCount; i++) {
+                    if (chars[i - 1] == ' ') {
+                        addKey(item, partition, i);
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Sorts the keys and builds the index.
+         *
+         * @param weights the weight of each item, by item number
+         */
+        public PrefixIndex build(long[] weights) {
+            int[] order = sorted(true);
+            long[] distinctPartitions = new long[keyCount];
+            int[] partitionStart = new int[keyCount + 1];
+            int partitionCount = 0;
+            for (int i = 0; i < keyCount; i++) {
+                long partition = keyPartition[order[i]];
+                if (i == 0 || partition != distinctPartitions[partitionCount - 1]) {
+                    distinctPartitions[partitionCount] = partition;
+                    partitionStart[partitionCount++] = i;
+                }
+            }
+            partitionStart[partitionCount] = keyCount;
+            return new PrefixIndex(Arrays.copyOf(chars, charCount), weights,
+                Arrays.copyOf(distinctPartitions, partitionCount), Arrays.copyOf(partitionStart, partitionCount + 1),
+                keys(order), keys(sorted(false)));
+        }
+
+        /**
+         * Returns the key numbers sorted by partition (or not), then key text, then item.
+         */
+        private int[] sorted(boolean byPartition) {
+            int[] order = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[keyCount], 0, keyCount, byPartition);
+            return order;
+        }
+
+        /**
+         * Returns the start, end and item of the keys, in the given order.
+         */
+        private int[][] keys(int[] order) {
+            int[][] keys = new int[3][keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                keys[0][i] = keyStart[order[i]];
+                keys[1][i] = keyEnd[order[i]];
+                keys[2][i] = keyItem[order[i]];
+            }
+            return keys;
+        }
+
+        private void addKey(int item, long partition, int start) {
+            if (keyCount == keyItem.length) {
+                int capacity = keyCount * 2;
+                keyStart = Arrays.copyOf(keyStart, capacity);
+                keyEnd = Arrays.copyOf(keyEnd, capacity);
+                keyItem = Arrays.copyOf(keyItem, capacity);
+                keyPartition = Arrays.copyOf(keyPartition, capacity);
+            }
+            keyStart[keyCount] = start;
+            keyEnd[keyCount] = charCount;
+            keyItem[keyCount] = item;
+            keyPartition[keyCount] = partition;
+            keyCount++;
+        }
+
+        /**
+         * Merge sort of key numbers, without boxing.
+         */
+        private void sort(int[] keys, int[] buffer, int from, int to, boolean byPartition) {
+            if (to - from < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(keys, buffer, from, middle, byPartition);
+            sort(keys, buffer, middle, to, byPartition);
+            if (compare(keys[middle - 1], keys[middle], byPartition) <= 0) {
+                return;
+            }
+            System.arraycopy(keys, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < middle && compare(buffer[left], buffer[right], byPartition) <= 0)) {
+                    keys[i] = buffer[left++];
+                } else {
+                    keys[i] = buffer[right++];
+                }
+            }
+        }
+
+        private int compare(int a, int b, boolean byPartition) {
+            int comparison = byPartition ? Long.compare(keyPartition[a], keyPartition[b]) : 0;
+            if (comparison != 0) {
+                return comparison;
+            }
+            int lengthA = keyEnd[a] - keyStart[a];
+            int lengthB = keyEnd[b] - keyStart[b];
+            for (int i = 0, length = Math.min(lengthA, lengthB); i < length; i++) {
+                int difference = chars[keyStart[a] + i] - chars[keyStart[b] + i];
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            comparison = Integer.compare(lengthA, lengthB);
+            return comparison != 0 ? comparison : Integer.compare(keyItem[a], keyItem[b]);
+        }
+    }
+}
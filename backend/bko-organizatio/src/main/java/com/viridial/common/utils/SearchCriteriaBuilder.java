@@ -9,7 +9,8 @@ import java.util.List;
 
 /**
  * Utility class for building JPA Criteria API predicates, filters, and orders
- * from SearchForm. Can be reused across all repositories.
+ * from SearchForm. Repository searches go through {@link SearchEngine}, which
+ * compiles the same SearchForm semantics into cached HQL plans.
  * 
  * @param <T> The entity type that extends BaseEntity
  */
@@ -0,0 +1,117 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset cursor: the sort key fields of a search and the values of the
+ * last row returned for them. Serialized as URL-safe Base64 JSON so clients can
+ * pass it back verbatim as {@code SearchForm.after}.
+ */
+public class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private List<String> fields;
+    private List<Object> values;
+
+    public SearchCursor() {
+    }
+
+    public SearchCursor(List<String> fields, List<Object> values) {
+        this.fields = fields;
+        this.values = values;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public void setValues(List<Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * Encodes the cursor into its opaque token form.
+     * Temporal values are written as ISO strings and converted back on decode.
+     */
+    public String encode() {
+        List<Object> raw = new ArrayList<>(values.size());
+        for (Object value : values) {
+            raw.add(value instanceof LocalDateTime || value instanceof LocalDate || value instanceof Enum<?>
+                ? value.toString() : value);
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new SearchCursor(fields, raw));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode search cursor", e);
+        }
+    }
+
+    /**
+     * Decodes an opaque token produced by {@link #encode()}.
+     *
+     * @throws InvalidRequestException if the token is malformed
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII));
+            SearchCursor cursor = MAPPER.readValue(json, SearchCursor.class);
+            if (cursor.getFields() == null || cursor.getValues() == null
+                    || cursor.getFields().size() != cursor.getValues().size()) {
+                throw new InvalidRequestException("Invalid search cursor");
+            }
+            return cursor;
+        } catch (IllegalArgumentException | java.io.IOException e) {
+            throw new InvalidRequestException("Invalid search cursor", e);
+        }
+    }
+
+    /**
+     * Converts a decoded JSON value back to the Java type of the sort attribute.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        String text = value.toString();
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(text);
+        } else if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(text);
+        } else if (type == Double.class || type == double.class) {
+            return Double.valueOf(text);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        } else if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(text);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, text);
+        } else if (type == String.class) {
+            return text;
+        }
+        throw new IllegalArgumentException("Unsupported cursor value type: " + type.getName());
+    }
+}
@@ -0,0 +1,1125 @@
+package com.viridial.common.utils;
+
+import com.viridial.common.config.SearchMetrics;
+import com.viridial.common.config.TrigramFunctionContributor;
+import com.viridial.common.entities.BaseEntity;
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.repositories.SearchCountRepository;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Statement;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Search engine shared by the entity repositories.
+ *
+ * <p>A {@link SearchForm} is compiled into a plan made of a data and a count HQL
+ * string with named bind parameters. Plans are cached by the shape of the search
+ * (which filters apply, the sort, which cursor values are null), so two searches
+ * that only differ by their values reuse the same plan and send the same HQL to
+ * Hibernate, whose query plan cache then hits as well.</p>
+ *
+ * <p>Attributes are resolved once from the JPA metamodel. Unknown fields in
+ * filters, ranges and sorts are skipped, as with {@link SearchCriteriaBuilder}.
+ * Repositories only declare their entity-specific field handlers through
+ * {@link #builder(Class, Class)}; handler conditions are JPQL on the alias {@code e}.</p>
+ *
+ * <p>Text filters (CONTAINS, STARTS_WITH, ENDS_WITH and {@link #contains}) compare
+ * {@code lower(e.field)}, the expression of the trigram GIN indexes created by
+ * {@code db/trigram-indexes.sql}, so leading wildcards do not scan the table. FUZZY filters
+ * match by word similarity through the same indexes; unless the search requests a sort or
+ * pages by keyset, their rows come most similar first. Searches with such filters are planned
+ * for their actual pattern (see {@link #forceCustomPlans}).</p>
+ *
+ * <p>List searches may select the columns of a {@link Projection} instead of the entity: the rows
+ * go straight into the forms, narrowed to the search's fieldset.</p>
+ *
+ * @param <T> the entity type
+ */
+public class SearchEngine<T extends BaseEntity> {
+
+    private static final int MAX_PLANS = 1024;
+
+    /**
+     * Rows fetched per round trip by {@link #export}, and rows between two persistence context clears.
+     */
+    static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String DATA_SELECT = "select e ";
+
+    private static final Condition NOT_DELETED = new Condition("d", "e.deletedAt is null");
+    private static final Condition ID = new Condition("i", "e.id = ?");
+    private static final Condition IDS = new Condition("I", "e.id in ?");
+
+    private final EntityManager entityManager;
+    private final SearchCountRepository searchCountRepository;
+    private final SearchMetrics searchMetrics;
+    private final Class<T> entityClass;
+    private final Class<? extends SearchForm> formClass;
+    private final String entityName;
+    private final Map<String, Class<?>> attributes;
+    private final String defaultSortField;
+    private final EntityGraph<?> fetchGraph;
+    private final String cacheRegion;
+    private final List<FieldHandler<SearchForm>> fieldHandlers;
+    private final Map<String, Condition> conditions = new ConcurrentHashMap<>();
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    private SearchEngine(Builder<T, ?> builder, EntityManager entityManager,
+                         SearchCountRepository searchCountRepository, SearchMetrics searchMetrics) {
+        this.entityManager = entityManager;
+        this.searchCountRepository = searchCountRepository;
+        this.searchMetrics = searchMetrics;
+        this.entityClass = builder.entityClass;
+        this.formClass = builder.formClass;
+        this.defaultSortField = builder.defaultSortField;
+        this.fetchGraph = builder.fetchGraph != null ? entityManager.getEntityGraph(builder.fetchGraph) : null;
+        this.cacheRegion = builder.cacheRegion;
+
+        EntityType<T> entityType = entityManager.getMetamodel().entity(entityClass);
+        this.entityName = entityType.getName();
+        Map<String, Class<?>> basicAttributes = new HashMap<>();
+        for (Attribute<? super T, ?> attribute : entityType.getAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                basicAttributes.put(attribute.getName(), attribute.getJavaType());
+            }
+        }
+        this.attributes = Collections.unmodifiableMap(basicAttributes);
+
+        for (String attribute : builder.referencedAttributes) {
+            if (!attributes.containsKey(attribute)) {
+                throw new IllegalArgumentException("Unknown attribute " + attribute + " on " + entityName);
+            }
+        }
+        List<FieldHandler<SearchForm>> handlers = new ArrayList<>(builder.fieldHandlers.size());
+        for (int i = 0; i < builder.fieldHandlers.size(); i++) {
+            @SuppressWarnings("unchecked")
+            FieldHandler<SearchForm> handler = (FieldHandler<SearchForm>) (FieldHandler<?>) builder.fieldHandlers.get(i);
+            handlers.add(handler.indexed(i));
+        }
+        this.fieldHandlers = Collections.unmodifiableList(handlers);
+    }
+
+    /**
+     * Starts the declaration of the search engine of an entity.
+     *
+     * @param entityClass the searched entity
+     * @param formClass the search form subclass read by the field handlers
+     */
+    public static <T extends BaseEntity, F extends SearchForm> Builder<T, F> builder(Class<T> entityClass,
+                                                                                   Class<F> formClass) {
+        return new Builder<>(entityClass, formClass);
+    }
+
+    /**
+     * Runs a search: the count according to the form's count mode, then one page of data.
+     *
+     * @param searchForm the search form with filters, sorts, and pagination
+     * @param pageable the requested page
+     * @return the page of entities
+     */
+    public SearchPage<T> search(SearchForm searchForm, Pageable pageable) {
+        long start = System.nanoTime();
+        Execution execution = prepare(searchForm);
+        record(execution, "predicate", start);
+        Long total = count(searchForm, execution);
+
+        TypedQuery<T> dataQuery = cacheable(createDataQuery(execution));
+        List<T> rows = fetch(searchForm, pageable, execution, dataQuery, execution.plan.dataHql);
+        SearchPage<T> page = SearchPage.of(rows, pageable, total, searchForm, execution.plan.sortFields);
+        if (searchMetrics != null) {
+            page.setMappingRecorder(mappingStart -> searchMetrics.record(entityClass, execution.plan.shape, "mapping",
+                mappingStart));
+        }
+        return page;
+    }
+
+    /**
+     * Runs a search that reads the columns of a projection straight into its form, without loading
+     * the entities: no persistence context, no snapshot, and only the columns the fieldset asks for.
+     * The mapping to the forms is timed as a phase of the search.
+     *
+     * @param searchForm the search form, whose {@code fields} select the columns
+     * @param pageable the requested page
+     * @param projection the projection of the entity, see {@link #projection}
+     * @return the page of forms
+     */
+    public <D> SearchPage<D> search(SearchForm searchForm, Pageable pageable, Projection<D> projection) {
+        long start = System.nanoTime();
+        Execution execution = prepare(searchForm);
+        Projection<D>.Selection selection = projection.select(searchForm.getFields(), execution.plan.sortFields);
+        record(execution, "predicate", start);
+        Long total = count(searchForm, execution);
+
+        String dataHql = "select " + selection.columns + " " + execution.plan.dataBody;
+        TypedQuery<Object[]> dataQuery = cacheable(bindDataValues(entityManager.createQuery(dataHql, Object[].class),
+            execution));
+        List<Object[]> rows = fetch(searchForm, pageable, execution, dataQuery, dataHql);
+        SearchPage<Object[]> tuples = SearchPage.of(rows, pageable, total, searchForm, execution.plan.sortFields,
+            selection::sortValues);
+
+        start = System.nanoTime();
+        List<D> forms = new ArrayList<>(tuples.getNumberOfElements());
+        for (Object[] row : tuples.getContent()) {
+            forms.add(selection.map(row));
+        }
+        record(execution, "mapping", start);
+        return new SearchPage<>(forms, pageable, tuples.getTotalElements(), tuples.hasNext(), tuples.getNextCursor(),
+            tuples.getCountMode());
+    }
+
+    /**
+     * Declares a projection of the entity into a form: each writable property of the form named after
+     * a basic attribute is read from its column. Other properties are left unset.
+     *
+     * @param formClass the form, with a public no-argument constructor
+     * @param unlisted attributes only read when a fieldset asks for them, such as long texts that lists
+     *                 do not display
+     * @throws IllegalArgumentException if a property and its attribute have different types, or an
+     *                                  unlisted attribute is not a property of the form
+     */
+    public <D> Projection<D> projection(Class<D> formClass, String... unlisted) {
+        return new Projection<>(formClass, List.of(unlisted));
+    }
+
+    private Long count(SearchForm searchForm, Execution execution) {
+        forceCustomPlans(execution);
+        long start = System.nanoTime();
+        Long total = searchCountRepository.count(() -> cacheable(createCountQuery(execution)),
+            session -> createRowsQuery(session, execution), entityClass, searchForm);
+        if (total != null) {
+            record(execution, "count", searchForm,
+                "count-" + searchForm.getCountMode().name().toLowerCase(Locale.ROOT), execution.plan.countHql,
+                total, start);
+        }
+        return total;
+    }
+
+    /**
+     * Fetches the rows of the page, plus one telling whether a next page exists.
+     */
+    private <R> List<R> fetch(SearchForm searchForm, Pageable pageable, Execution execution, TypedQuery<R> dataQuery,
+                              String dataHql) {
+        if (!searchForm.isKeyset()) {
+            dataQuery.setFirstResult((int) pageable.getOffset());
+        }
+        // One extra row tells whether a next page exists
+        dataQuery.setMaxResults(pageable.getPageSize() + 1);
+
+        long start = System.nanoTime();
+        List<R> rows = dataQuery.getResultList();
+        record(execution, "data", searchForm, "data", dataHql, rows.size(), start);
+        return rows;
+    }
+
+    /**
+     * Streams every row matching a search, in the search order, without pagination or count.
+     * Rows are read through a forward-only cursor {@link #EXPORT_FETCH_SIZE} at a time, and the
+     * persistence context is cleared as often, so memory does not grow with the result size.
+     * Must run inside a transaction, which PostgreSQL needs to keep the cursor open.
+     *
+     * @param searchForm the search form; page and size are ignored, a keyset cursor is honored
+     * @param action receives each entity, detached soon after: it must not keep it
+     * @return the number of rows exported
+     */
+    public long export(SearchForm searchForm, Consumer<T> action) {
+        Execution execution = prepare(searchForm);
+        forceCustomPlans(execution);
+        TypedQuery<T> dataQuery = createDataQuery(execution);
+        dataQuery.setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE);
+        dataQuery.setHint(HibernateHints.HINT_READ_ONLY, true);
+
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Stream<T> stream = dataQuery.getResultStream()) {
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                if (++rows % EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        record(execution, "export", searchForm, "export", execution.plan.dataHql, rows, start);
+        return rows;
+    }
+
+    /**
+     * Resolves the plan of a search and extracts its parameter values.
+     *
+     * @throws InvalidRequestException if the cursor is malformed or was built for another sort
+     */
+    Execution prepare(SearchForm searchForm) {
+        StringBuilder shape = new StringBuilder(64);
+        List<Condition> where = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+
+        if (!searchForm.getIncludeDeleted()) {
+            add(NOT_DELETED, where, shape);
+        }
+        if (searchForm.getId() != null) {
+            add(ID, where, shape);
+            values.add(searchForm.getId());
+        }
+        if (searchForm.getIds() != null && !searchForm.getIds().isEmpty()) {
+            add(IDS, where, shape);
+            values.add(searchForm.getIds());
+        }
+        if (formClass.isInstance(searchForm)) {
+            for (FieldHandler<SearchForm> handler : fieldHandlers) {
+                Object[] handlerValues = handler.values(searchForm);
+                if (handlerValues != null) {
+                    add(handler.condition, where, shape);
+                    Collections.addAll(values, handlerValues);
+                }
+            }
+        }
+        List<String> fuzzyFields = new ArrayList<>(0);
+        List<Object> fuzzyValues = new ArrayList<>(0);
+        addFilters(searchForm, where, values, shape, fuzzyFields, fuzzyValues);
+        addRanges(searchForm, where, values, shape);
+
+        List<SortKey> sortKeys = resolveSortKeys(searchForm);
+        shape.append("|s");
+        for (SortKey key : sortKeys) {
+            shape.append(key.field).append(key.descending ? '-' : '+');
+        }
+        // The keyset cursor only holds sort key values, so keyset pages are not ranked
+        List<String> rankFields = searchForm.getSorts().isEmpty() && !searchForm.isKeyset()
+            ? fuzzyFields : List.of();
+        if (!rankFields.isEmpty()) {
+            shape.append("|r");
+            for (String field : rankFields) {
+                shape.append(field).append(';');
+            }
+        }
+
+        Object[] cursorValues = null;
+        if (searchForm.getAfter() != null && !searchForm.getAfter().isEmpty()) {
+            cursorValues = decodeCursor(searchForm.getAfter(), sortKeys);
+            shape.append("|k");
+            for (Object value : cursorValues) {
+                shape.append(value == null ? '0' : '1');
+            }
+        }
+
+        String key = shape.toString();
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            if (plans.size() >= MAX_PLANS) {
+                plans.clear();
+            }
+            plan = compile(where, sortKeys, cursorValues, rankFields);
+            plans.put(key, plan);
+        }
+        if (!rankFields.isEmpty()) {
+            values.addAll(fuzzyValues);
+        }
+        return new Execution(plan, values.toArray(), cursorValues);
+    }
+
+    /**
+     * Makes PostgreSQL plan the statements of a pattern-matching search for each execution.
+     *
+     * <p>After five executions of a prepared statement, PostgreSQL may switch to a generic plan
+     * that ignores the bound values. For {@code lower(e.name) like ?} that plan assumes a fixed
+     * share of matching rows and, with an ORDER BY ... LIMIT, walks the sort index filtering
+     * every row instead of using the trigram index: seconds instead of milliseconds on a
+     * selective pattern. The setting is transaction-local, so other statements keep their
+     * cached plans.</p>
+     */
+    private void forceCustomPlans(Execution execution) {
+        if (!execution.plan.patternMatch) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL plan_cache_mode = force_custom_plan");
+            }
+        });
+    }
+
+    TypedQuery<Long> createCountQuery(Execution execution) {
+        TypedQuery<Long> query = entityManager.createQuery(execution.plan.countHql, Long.class);
+        bindFilterValues(query, execution, execution.plan.countParameters);
+        return query;
+    }
+
+    /**
+     * Creates the query of the rows the count query counts, selecting their id as text, for
+     * {@link SearchCountRepository} to estimate their number from the plan of the query.
+     */
+    TypedQuery<String> createRowsQuery(EntityManager session, Execution execution) {
+        TypedQuery<String> query = session.createQuery(execution.plan.rowsHql, String.class);
+        bindFilterValues(query, execution, execution.plan.countParameters);
+        return query;
+    }
+
+    TypedQuery<T> createDataQuery(Execution execution) {
+        TypedQuery<T> query = entityManager.createQuery(execution.plan.dataHql, entityClass);
+        if (fetchGraph != null) {
+            query.setHint("jakarta.persistence.fetchgraph", fetchGraph);
+        }
+        return bindDataValues(query, execution);
+    }
+
+    private <Q extends TypedQuery<?>> Q bindDataValues(Q query, Execution execution) {
+        bindFilterValues(query, execution, execution.values.length);
+        if (execution.cursorValues != null) {
+            for (int i = 0; i < execution.cursorValues.length; i++) {
+                if (execution.cursorValues[i] != null) {
+                    query.setParameter("k" + i, execution.cursorValues[i]);
+                }
+            }
+        }
+        return query;
+    }
+
+    private void record(Execution execution, String phase, long start) {
+        if (searchMetrics != null) {
+            searchMetrics.record(entityClass, execution.plan.shape, phase, start);
+        }
+    }
+
+    private void record(Execution execution, String phase, SearchForm searchForm, String statement, String hql,
+                        long rows, long start) {
+        if (searchMetrics != null) {
+            searchMetrics.record(entityClass, execution.plan.shape, phase, searchForm, statement, hql, rows, start);
+        }
+    }
+
+    /**
+     * Puts the query in the query cache region of the engine, if any.
+     */
+    private <Q extends TypedQuery<?>> Q cacheable(Q query) {
+        if (cacheRegion != null) {
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+            query.setHint(HibernateHints.HINT_CACHE_REGION, cacheRegion);
+        }
+        return query;
+    }
+
+    private void bindFilterValues(TypedQuery<?> query, Execution execution, int count) {
+        for (int i = 0; i < count; i++) {
+            query.setParameter("p" + i, execution.values[i]);
+        }
+    }
+
+    private static void add(Condition condition, List<Condition> where, StringBuilder shape) {
+        where.add(condition);
+        shape.append(condition.shape).append(';');
+    }
+
+    /**
+     * Adds the generic filters, grouped with the form's logical operator.
+     * The fields and values of the FUZZY filters are also collected for ranking.
+     */
+    private void addFilters(SearchForm searchForm, List<Condition> where, List<Object> values, StringBuilder shape,
+                            List<String> fuzzyFields, List<Object> fuzzyValues) {
+        if (searchForm.getFilters().isEmpty()) {
+            return;
+        }
+        List<Condition> group = new ArrayList<>();
+        for (SearchForm.FilterCriteria filter : searchForm.getFilters()) {
+            Class<?> type = filter.getField() != null ? attributes.get(filter.getField()) : null;
+            if (type == null || filter.getOperator() == null) {
+                // Field doesn't exist, skip this filter
+                continue;
+            }
+            Object[] filterValues = filterValues(filter.getOperator(), type, filter.getValue());
+            if (filterValues != null) {
+                group.add(conditions.computeIfAbsent("f" + filter.getOperator().ordinal() + filter.getField(),
+                    shapeKey -> new Condition(shapeKey, filterCondition(filter.getOperator(), filter.getField()),
+                        isPatternMatch(filter.getOperator()))));
+                Collections.addAll(values, filterValues);
+                if (filter.getOperator() == SearchForm.FilterOperator.FUZZY) {
+                    fuzzyFields.add(filter.getField());
+                    fuzzyValues.add(filterValues[0]);
+                }
+            }
+        }
+        if (group.size() > 1 && "OR".equalsIgnoreCase(searchForm.getLogicalOperator())) {
+            StringBuilder groupShape = new StringBuilder("or(");
+            List<String> disjuncts = new ArrayList<>(group.size());
+            for (Condition condition : group) {
+                groupShape.append(condition.shape).append(';');
+                disjuncts.add(condition.jpql);
+            }
+            add(new Condition(groupShape.append(')').toString(), "(" + String.join(" or ", disjuncts) + ")",
+                group.stream().anyMatch(condition -> condition.patternMatch)), where, shape);
+        } else {
+            for (Condition condition : group) {
+                add(condition, where, shape);
+            }
+        }
+    }
+
+    /**
+     * Returns the parameter values of a filter, or null when the filter does not
+     * apply to the attribute type or value (it is then skipped).
+     */
+    private static Object[] filterValues(SearchForm.FilterOperator operator, Class<?> type, Object value) {
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return new Object[0];
+            case IS_TRUE:
+            case IS_FALSE:
+                return type == Boolean.class || type == boolean.class ? new Object[0] : null;
+            case CONTAINS:
+            case NOT_CONTAINS:
+                return type == String.class && value instanceof String
+                    ? new Object[]{"%" + ((String) value).toLowerCase() + "%"} : null;
+            case STARTS_WITH:
+                return type == String.class && value instanceof String
+                    ? new Object[]{((String) value).toLowerCase() + "%"} : null;
+            case ENDS_WITH:
+                return type == String.class && value instanceof String
+                    ? new Object[]{"%" + ((String) value).toLowerCase()} : null;
+            case FUZZY:
+                return type == String.class && value instanceof String && !((String) value).isBlank()
+                    ? new Object[]{((String) value).strip().toLowerCase()} : null;
+            case IN:
+            case NOT_IN:
+                if (value instanceof List && !((List<?>) value).isEmpty()) {
+                    List<Object> converted = new ArrayList<>(((List<?>) value).size());
+                    for (Object element : (List<?>) value) {
+                        converted.add(SearchCursor.convert(element, type));
+                    }
+                    return new Object[]{converted};
+                }
+                return null;
+            case BETWEEN:
+                if (value instanceof List && ((List<?>) value).size() == 2
+                        && ((List<?>) value).get(0) != null && ((List<?>) value).get(1) != null) {
+                    List<?> bounds = (List<?>) value;
+                    return new Object[]{SearchCursor.convert(bounds.get(0), type),
+                        SearchCursor.convert(bounds.get(1), type)};
+                }
+                return null;
+            default:
+                return value != null ? new Object[]{SearchCursor.convert(value, type)} : null;
+        }
+    }
+
+    /**
+     * Whether an operator is served by the trigram indexes, whose use depends on the pattern.
+     */
+    private static boolean isPatternMatch(SearchForm.FilterOperator operator) {
+        return operator == SearchForm.FilterOperator.CONTAINS || operator == SearchForm.FilterOperator.STARTS_WITH
+            || operator == SearchForm.FilterOperator.ENDS_WITH || operator == SearchForm.FilterOperator.FUZZY;
+    }
+
+    private static String filterCondition(SearchForm.FilterOperator operator, String field) {
+        String path = "e." + field;
+        switch (operator) {
+            case EQUALS:
+                return path + " = ?";
+            case NOT_EQUALS:
+                return path + " <> ?";
+            case CONTAINS:
+            case STARTS_WITH:
+            case ENDS_WITH:
+                return "lower(" + path + ") like ?";
+            case NOT_CONTAINS:
+                return "lower(" + path + ") not like ?";
+            case FUZZY:
+                return TrigramFunctionContributor.WORD_SIMILAR + "(?, lower(" + path + "))";
+            case GREATER_THAN:
+                return path + " > ?";
+            case GREATER_THAN_OR_EQUAL:
+                return path + " >= ?";
+            case LESS_THAN:
+                return path + " < ?";
+            case LESS_THAN_OR_EQUAL:
+                return path + " <= ?";
+            case IN:
+                return path + " in ?";
+            case NOT_IN:
+                return path + " not in ?";
+            case IS_NULL:
+                return path + " is null";
+            case IS_NOT_NULL:
+                return path + " is not null";
+            case IS_TRUE:
+                return path + " = true";
+            case IS_FALSE:
+                return path + " = false";
+            case BETWEEN:
+                return path + " between ? and ?";
+            default:
+                throw new IllegalStateException("Unsupported filter operator " + operator);
+        }
+    }
+
+    private void addRanges(SearchForm searchForm, List<Condition> where, List<Object> values, StringBuilder shape) {
+        Map<String, SearchForm.RangeValue> ranges = searchForm.getRanges();
+        if (ranges.isEmpty()) {
+            return;
+        }
+        // Sorted so that the same ranges always give the same shape
+        for (Map.Entry<String, SearchForm.RangeValue> entry : new TreeMap<>(ranges).entrySet()) {
+            String field = entry.getKey();
+            Class<?> type = attributes.get(field);
+            SearchForm.RangeValue range = entry.getValue();
+            if (type == null || range == null) {
+                // Field doesn't exist, skip this range filter
+                continue;
+            }
+            if (range.getMin() != null && range.getMax() != null) {
+                add(conditions.computeIfAbsent("r<>" + field,
+                    shapeKey -> new Condition(shapeKey, "e." + field + " between ? and ?")), where, shape);
+                values.add(SearchCursor.convert(range.getMin(), type));
+                values.add(SearchCursor.convert(range.getMax(), type));
+            } else if (range.getMin() != null) {
+                add(conditions.computeIfAbsent("r>" + field,
+                    shapeKey -> new Condition(shapeKey, "e." + field + " >= ?")), where, shape);
+                values.add(SearchCursor.convert(range.getMin(), type));
+            } else if (range.getMax() != null) {
+                add(conditions.computeIfAbsent("r<" + field,
+                    shapeKey -> new Condition(shapeKey, "e." + field + " <= ?")), where, shape);
+                values.add(SearchCursor.convert(range.getMax(), type));
+            }
+        }
+    }
+
+    /**
+     * Resolves the sort keys: the requested sorts (or the default field) followed by
+     * id as a unique tie-breaker, so that the ordering is total and usable for keyset pagination.
+     */
+    private List<SortKey> resolveSortKeys(SearchForm searchForm) {
+        List<SortKey> keys = new ArrayList<>(3);
+        for (SearchForm.SortCriteria sort : searchForm.getSorts()) {
+            addSortKey(keys, sort.getField(), "DESC".equalsIgnoreCase(sort.getDirection()));
+        }
+        if (keys.isEmpty()) {
+            addSortKey(keys, defaultSortField, false);
+        }
+        if (keys.stream().noneMatch(key -> "id".equals(key.field))) {
+            boolean descending = !keys.isEmpty() && keys.get(keys.size() - 1).descending;
+            addSortKey(keys, "id", descending);
+        }
+        return keys;
+    }
+
+    private void addSortKey(List<SortKey> keys, String field, boolean descending) {
+        if (field == null || !attributes.containsKey(field)
+                || keys.stream().anyMatch(key -> key.field.equals(field))) {
+            // Field doesn't exist or is already sorted on, skip this sort
+            return;
+        }
+        keys.add(new SortKey(field, descending));
+    }
+
+    private Object[] decodeCursor(String after, List<SortKey> sortKeys) {
+        SearchCursor cursor = SearchCursor.decode(after);
+        List<String> fields = sortKeys.stream().map(key -> key.field).toList();
+        if (!fields.equals(cursor.getFields())) {
+            throw new InvalidRequestException("Search cursor does not match the requested sort " + fields);
+        }
+        Object[] values = new Object[sortKeys.size()];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                values[i] = SearchCursor.convert(cursor.getValues().get(i), attributes.get(sortKeys.get(i).field));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new InvalidRequestException("Invalid search cursor value for " + sortKeys.get(i).field, e);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Compiles a search shape into its HQL strings. Filter parameters are named
+     * p0, p1, ... in order of appearance, followed by the rank values of the data query;
+     * cursor values are named k{sort key index}.
+     */
+    private Plan compile(List<Condition> where, List<SortKey> sortKeys, Object[] cursorValues,
+                         List<String> rankFields) {
+        StringBuilder filter = new StringBuilder();
+        int parameter = 0;
+        for (Condition condition : where) {
+            if (filter.length() > 0) {
+                filter.append(" and ");
+            }
+            for (int i = 0; i < condition.jpql.length(); i++) {
+                char c = condition.jpql.charAt(i);
+                if (c == '?') {
+                    filter.append(":p").append(parameter++);
+                } else {
+                    filter.append(c);
+                }
+            }
+        }
+
+        int countParameters = parameter;
+        String from = "from " + entityName + " e";
+        String countBody = from + (filter.length() > 0 ? " where " + filter : "");
+
+        if (cursorValues != null) {
+            if (filter.length() > 0) {
+                filter.append(" and ");
+            }
+            filter.append(keysetCondition(sortKeys, cursorValues));
+        }
+        StringBuilder dataHql = new StringBuilder(DATA_SELECT).append(from);
+        if (filter.length() > 0) {
+            dataHql.append(" where ").append(filter);
+        }
+        dataHql.append(" order by ");
+        if (!rankFields.isEmpty()) {
+            for (int i = 0; i < rankFields.size(); i++) {
+                dataHql.append(i > 0 ? " + " : "").append(TrigramFunctionContributor.WORD_SIMILARITY)
+                    .append("(:p").append(parameter++).append(", lower(e.").append(rankFields.get(i)).append("))");
+            }
+            dataHql.append(" desc, ");
+        }
+        for (int i = 0; i < sortKeys.size(); i++) {
+            SortKey key = sortKeys.get(i);
+            dataHql.append(i > 0 ? ", " : "").append("e.").append(key.field).append(key.descending ? " desc" : " asc");
+        }
+
+        boolean patternMatch = where.stream().anyMatch(condition -> condition.patternMatch);
+        List<String> sortFields = sortKeys.stream().map(key -> key.field).toList();
+        return new Plan(dataHql.toString(), countBody, countParameters, patternMatch, sortFields);
+    }
+
+    /**
+     * Returns the short hash of a data HQL, which identifies the search shape in the metrics.
+     */
+    private static String shapeHash(String dataHql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(dataHql.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Builds the keyset condition selecting rows strictly after the cursor.
+     * The tuple comparison (k1, k2, ..., id) > (v1, v2, ..., vId) is expanded to
+     * k1 > v1 OR (k1 = v1 AND k2 > v2) OR ... so mixed directions are supported.
+     * Null handling follows PostgreSQL defaults (NULLS LAST for ASC, NULLS FIRST for DESC).
+     */
+    private static String keysetCondition(List<SortKey> sortKeys, Object[] cursorValues) {
+        List<String> branches = new ArrayList<>();
+        List<String> equalities = new ArrayList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            SortKey key = sortKeys.get(i);
+            String path = "e." + key.field;
+            String parameter = ":k" + i;
+            boolean isNull = cursorValues[i] == null;
+
+            String afterKey;
+            if (key.descending) {
+                // DESC NULLS FIRST: after a null come all non-null values
+                afterKey = isNull ? path + " is not null" : path + " < " + parameter;
+            } else {
+                // ASC NULLS LAST: nothing comes after a null
+                afterKey = isNull ? null : "(" + path + " > " + parameter + " or " + path + " is null)";
+            }
+            if (afterKey != null) {
+                List<String> branch = new ArrayList<>(equalities);
+                branch.add(afterKey);
+                branches.add("(" + String.join(" and ", branch) + ")");
+            }
+            equalities.add(isNull ? path + " is null" : path + " = " + parameter);
+        }
+        return branches.isEmpty() ? "1 = 0" : "(" + String.join(" or ", branches) + ")";
+    }
+
+    /**
+     * Projection of the entity into a form, declared once by a repository with {@link #projection}.
+     * The columns read for a fieldset and a sort are resolved on first use, like the plans.
+     *
+     * @param <D> the form type
+     */
+    public final class Projection<D> {
+        private final Class<D> formClass;
+        private final MethodHandle constructor;
+        private final Map<String, MethodHandle> setters = new LinkedHashMap<>();
+        private final Set<String> primitives = new HashSet<>();
+        private final List<String> unlisted;
+        private final Map<String, Selection> selections = new ConcurrentHashMap<>();
+
+        private Projection(Class<D> formClass, List<String> unlisted) {
+            this.formClass = formClass;
+            this.unlisted = unlisted;
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                this.constructor = lookup.findConstructor(formClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+                for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(formClass)) {
+                    Class<?> type = attributes.get(property.getName());
+                    if (type == null || property.getWriteMethod() == null) {
+                        continue;
+                    }
+                    if (!ClassUtils.isAssignable(property.getPropertyType(), type)) {
+                        throw new IllegalArgumentException("Property " + property.getName() + " of "
+                            + formClass.getSimpleName() + " is not a " + type.getSimpleName());
+                    }
+                    setters.put(property.getName(), lookup.unreflect(property.getWriteMethod())
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                    if (property.getPropertyType().isPrimitive()) {
+                        primitives.add(property.getName());
+                    }
+                }
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot project " + entityName + " into " + formClass.getName(), e);
+            }
+            for (String attribute : unlisted) {
+                if (!setters.containsKey(attribute)) {
+                    throw new IllegalArgumentException("Unknown property " + attribute + " on "
+                        + formClass.getSimpleName());
+                }
+            }
+        }
+
+        private Selection select(List<String> fields, List<String> sortFields) {
+            String key = (fields != null ? String.join(",", fields) : "*") + "|" + String.join(",", sortFields);
+            Selection selection = selections.get(key);
+            if (selection == null) {
+                if (selections.size() >= MAX_PLANS) {
+                    selections.clear();
+                }
+                selection = new Selection(fields, sortFields);
+                selections.put(key, selection);
+            }
+            return selection;
+        }
+
+        /**
+         * The columns read by one search: the id, the requested properties (the listed ones without
+         * fieldset), the primitive ones, whose default value must not stand for an unread column, and
+         * the sort keys, from which the cursor is built.
+         */
+        private final class Selection {
+            private final String columns;
+            private final MethodHandle[] columnSetters;
+            private final int[] sortIndexes;
+
+            private Selection(List<String> fields, List<String> sortFields) {
+                Set<String> read = new LinkedHashSet<>();
+                read.add("id");
+                for (String attribute : setters.keySet()) {
+                    if (primitives.contains(attribute)
+                            || (fields != null ? fields.contains(attribute) : !unlisted.contains(attribute))) {
+                        read.add(attribute);
+                    }
+                }
+                read.addAll(sortFields);
+                List<String> order = List.copyOf(read);
+                this.columns = order.stream().map(attribute -> "e." + attribute).collect(Collectors.joining(", "));
+                this.columnSetters = order.stream().map(setters::get).toArray(MethodHandle[]::new);
+                this.sortIndexes = sortFields.stream().mapToInt(order::indexOf).toArray();
+            }
+
+            private D map(Object[] row) {
+                try {
+                    Object form = (Object) constructor.invokeExact();
+                    for (int i = 0; i < row.length; i++) {
+                        if (columnSetters[i] != null && row[i] != null) {
+                            columnSetters[i].invokeExact(form, row[i]);
+                        }
+                    }
+                    return formClass.cast(form);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Cannot create " + formClass.getName(), e);
+                }
+            }
+
+            private List<Object> sortValues(Object[] row) {
+                List<Object> values = new ArrayList<>(sortIndexes.length);
+                for (int index : sortIndexes) {
+                    values.add(row[index]);
+                }
+                return values;
+            }
+        }
+    }
+
+    /**
+     * Entity-specific filter declared by a repository: a JPQL condition with one
+     * {@code ?} per value, applied when every value is present.
+     */
+    private static final class FieldHandler<F> {
+        private final Condition condition;
+        private final List<Function<F, ?>> values;
+
+        private FieldHandler(Condition condition, List<Function<F, ?>> values) {
+            this.condition = condition;
+            this.values = values;
+        }
+
+        private FieldHandler<F> indexed(int index) {
+            return new FieldHandler<>(new Condition("h" + index, condition.jpql, condition.patternMatch), values);
+        }
+
+        /**
+         * Returns the values to bind, or null when the handler does not apply.
+         */
+        private Object[] values(F form) {
+            Object[] result = new Object[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                Object value = values.get(i).apply(form);
+                if (value == null || (value instanceof String && ((String) value).isEmpty())) {
+                    return null;
+                }
+                result[i] = value;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Where-clause element: its shape token in the plan key and its JPQL with {@code ?} placeholders.
+     */
+    private static final class Condition {
+        private final String shape;
+        private final String jpql;
+        private final boolean patternMatch;
+
+        private Condition(String shape, String jpql) {
+            this(shape, jpql, false);
+        }
+
+        private Condition(String shape, String jpql, boolean patternMatch) {
+            this.shape = shape;
+            this.jpql = jpql;
+            this.patternMatch = patternMatch;
+        }
+    }
+
+    private static final class SortKey {
+        private final String field;
+        private final boolean descending;
+
+        private SortKey(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * Compiled search: HQL strings and what the page needs to build its cursor.
+     */
+    static final class Plan {
+        private final String dataHql;
+        private final String dataBody;
+        private final String countHql;
+        private final String rowsHql;
+        private final int countParameters;
+        private final boolean patternMatch;
+        private final List<String> sortFields;
+        private final String shape;
+
+        private Plan(String dataHql, String countBody, int countParameters, boolean patternMatch,
+                     List<String> sortFields) {
+            this.dataHql = dataHql;
+            this.dataBody = dataHql.substring(DATA_SELECT.length());
+            this.shape = shapeHash(dataHql);
+            this.countHql = "select count(e) " + countBody;
+            this.rowsHql = "select cast(e.id as String) " + countBody;
+            this.countParameters = countParameters;
+            this.patternMatch = patternMatch;
+            this.sortFields = sortFields;
+        }
+
+        String getDataHql() {
+            return dataHql;
+        }
+
+        String getCountHql() {
+            return countHql;
+        }
+
+        String getRowsHql() {
+            return rowsHql;
+        }
+
+        String getShape() {
+            return shape;
+        }
+    }
+
+    /**
+     * A plan with the parameter values of one search.
+     */
+    static final class Execution {
+        private final Plan plan;
+        private final Object[] values;
+        private final Object[] cursorValues;
+
+        private Execution(Plan plan, Object[] values, Object[] cursorValues) {
+            this.plan = plan;
+            this.values = values;
+            this.cursorValues = cursorValues;
+        }
+
+        Plan getPlan() {
+            return plan;
+        }
+    }
+
+    /**
+     * Declares the search engine of an entity: default sort and entity-specific field handlers.
+     *
+     * @param <T> the entity type
+     * @param <F> the search form subclass of the entity
+     */
+    public static final class Builder<T extends BaseEntity, F extends SearchForm> {
+        private final Class<T> entityClass;
+        private final Class<F> formClass;
+        private final List<FieldHandler<F>> fieldHandlers = new ArrayList<>();
+        private final List<String> referencedAttributes = new ArrayList<>();
+        private String defaultSortField = "id";
+        private String fetchGraph;
+        private String cacheRegion;
+
+        private Builder(Class<T> entityClass, Class<F> formClass) {
+            this.entityClass = entityClass;
+            this.formClass = formClass;
+        }
+
+        /**
+         * Sets the field to sort by when the search does not specify one.
+         */
+        public Builder<T, F> defaultSort(String field) {
+            referencedAttributes.add(field);
+            this.defaultSortField = field;
+            return this;
+        }
+
+        /**
+         * Sets the named entity graph loaded with the data rows, so that the associations
+         * read when mapping a page come in the same statement instead of one select per row.
+         */
+        public Builder<T, F> fetchGraph(String entityGraphName) {
+            this.fetchGraph = entityGraphName;
+            return this;
+        }
+
+        /**
+         * Caches the page ids and the exact counts of the searches (not the exports) in a query cache
+         * region, keyed by statement and bound values; Hibernate drops them whenever the table is written.
+         * Meant for small read-mostly entities that are themselves in the second-level cache, so that a
+         * repeated search runs no SQL at all.
+         */
+        public Builder<T, F> cacheRegion(String region) {
+            this.cacheRegion = region;
+            return this;
+        }
+
+        /**
+         * Case-insensitive substring match on a string attribute.
+         */
+        public Builder<T, F> contains(String attribute, Function<F, String> value) {
+            referencedAttributes.add(attribute);
+            fieldHandlers.add(new FieldHandler<>(new Condition(null, "lower(e." + attribute + ") like ?", true),
+                List.of(form -> {
+                    String text = value.apply(form);
+                    return text == null || text.isEmpty() ? null : "%" + text.toLowerCase() + "%";
+                })));
+            return this;
+        }
+
+        /**
+         * Equality on an attribute.
+         */
+        public Builder<T, F> equal(String attribute, Function<F, ?> value) {
+            referencedAttributes.add(attribute);
+            return where("e." + attribute + " = ?", value);
+        }
+
+        /**
+         * Case-insensitive equality on a string attribute.
+         */
+        public Builder<T, F> equalIgnoreCase(String attribute, Function<F, String> value) {
+            referencedAttributes.add(attribute);
+            return where("lower(e." + attribute + ") = ?", form -> {
+                String text = value.apply(form);
+                return text == null ? null : text.toLowerCase();
+            });
+        }
+
+        /**
+         * Distance filter: a JPQL condition on the alias {@code e} calling {@code within_radius}
+         * (see {@link com.viridial.common.config.GeoFunctionContributor}) with three {@code ?}: the
+         * latitude and longitude of the center, then the radius in meters. Applied when the form has
+         * a complete circle; a search with a center or radius out of range fails with an
+         * {@link InvalidRequestException}.
+         */
+        public Builder<T, F> withinRadius(String condition, Function<F, SearchForm.GeoRadius> radius) {
+            return where(condition,
+                form -> {
+                    // The first value read: checks the whole circle
+                    SearchForm.GeoRadius circle = radius.apply(form);
+                    if (circle == null) {
+                        return null;
+                    }
+                    circle.validate();
+                    return circle.getLatitude();
+                },
+                form -> radius.apply(form) != null ? radius.apply(form).getLongitude() : null,
+                form -> radius.apply(form) != null && radius.apply(form).getRadiusKm() != null
+                    ? radius.apply(form).getRadiusKm() * 1000 : null);
+        }
+
+        /**
+         * Custom condition in JPQL on the alias {@code e}, with one {@code ?} per value.
+         * It is applied when every value is non-null (and non-empty for strings).
+         */
+        @SafeVarargs
+        public final Builder<T, F> where(String condition, Function<F, ?>... values) {
+            fieldHandlers.add(new FieldHandler<>(new Condition(null, condition), List.of(values)));
+            return this;
+        }
+
+        /**
+         * Builds the engine, resolving and validating the attributes against the metamodel.
+         *
+         * @param searchMetrics where the phases of the searches are timed, null for nowhere
+         * @throws IllegalArgumentException if a declared attribute or the fetch graph does not exist
+         */
+        public SearchEngine<T> build(EntityManager entityManager, SearchCountRepository searchCountRepository,
+                                     SearchMetrics searchMetrics) {
+            return new SearchEngine<>(this, entityManager, searchCountRepository, searchMetrics);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.viridial.common.form.SearchForm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stable fingerprint of the filtering part of a search form: the same filters
+ * give the same fingerprint whatever the page, size, sort, cursor or fieldset requested.
+ */
+public final class SearchFingerprint {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+        .findAndAddModules()
+        .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    // Properties that only select a window over the same result set, or the columns read from it
+    private static final List<String> PAGING_PROPERTIES = List.of(
+        "page", "size", "sortBy", "sortDirection", "sorts", "after", "paginationMode", "keyset", "countMode",
+        "fields");
+
+    private SearchFingerprint() {
+    }
+
+    /**
+     * Computes the predicate fingerprint of a search on an entity.
+     *
+     * @param entityClass the searched entity
+     * @param searchForm the search form
+     * @return a SHA-256 hex digest of the entity name and canonical filter JSON
+     */
+    public static String of(Class<?> entityClass, SearchForm searchForm) {
+        ObjectNode filters = MAPPER.valueToTree(searchForm);
+        filters.remove(PAGING_PROPERTIES);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(entityClass.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update(filters.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
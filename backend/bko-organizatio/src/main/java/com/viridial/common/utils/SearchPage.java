@@ -0,0 +1,128 @@
+package com.viridial.common.utils;
+
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.form.SearchForm.CountMode;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Page of search results that also carries the keyset cursor of the next page,
+ * whether a next page exists and how its total was computed.
+ *
+ * @param <T> the entity type
+ */
+public class SearchPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean hasNext;
+    private final String nextCursor;
+    private final CountMode countMode;
+    private transient LongConsumer mappingRecorder;
+
+    public SearchPage(List<T> content, Pageable pageable, long total, boolean hasNext,
+                      String nextCursor, CountMode countMode) {
+        super(content, pageable, total);
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+        this.countMode = countMode;
+    }
+
+    /**
+     * Builds the result page. The query is expected to have fetched one extra row:
+     * it is dropped and tells whether a next page (and, in KEYSET mode, a next cursor) exists.
+     *
+     * @param rows the fetched rows, at most page size + 1
+     * @param pageable the requested page
+     * @param total the total number of matching rows, or null when not counted
+     * @param searchForm the search form
+     * @param sortFields the sort key fields used by the query, read from the last row for the cursor
+     * @return the page with its next cursor
+     */
+    public static <T> SearchPage<T> of(List<T> rows, Pageable pageable, Long total,
+                                       SearchForm searchForm, List<String> sortFields) {
+        return of(rows, pageable, total, searchForm, sortFields, row -> {
+            BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(row);
+            List<Object> values = new ArrayList<>(sortFields.size());
+            for (String field : sortFields) {
+                values.add(last.getPropertyValue(field));
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Builds the result page of rows that are not beans, such as the tuples of a projection.
+     *
+     * @param sortValues reads the values of the sort key fields from a row, for the cursor
+     */
+    public static <T> SearchPage<T> of(List<T> rows, Pageable pageable, Long total, SearchForm searchForm,
+                                       List<String> sortFields, Function<T, List<Object>> sortValues) {
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<T> content = hasNext ? new ArrayList<>(rows.subList(0, pageable.getPageSize())) : rows;
+
+        String nextCursor = null;
+        if (searchForm.isKeyset() && hasNext) {
+            nextCursor = new SearchCursor(sortFields, sortValues.apply(content.get(content.size() - 1))).encode();
+        }
+
+        if (total == null) {
+            long seen = pageable.getOffset() + content.size() + (hasNext ? 1 : 0);
+            return new SearchPage<>(content, pageable, seen, hasNext, nextCursor, CountMode.NONE);
+        }
+        return new SearchPage<>(content, pageable, total, hasNext, nextCursor, searchForm.getCountMode());
+    }
+
+    /**
+     * Whether more rows follow, known from the extra row fetched by the search
+     * rather than from the total, which may be estimated or absent.
+     */
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public boolean isLast() {
+        return !hasNext;
+    }
+
+    /**
+     * Returns the cursor to pass as {@code after} to fetch the next page,
+     * or null when the search is not in KEYSET mode or this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns the mode that produced the total; with NONE the total is only a lower bound.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Sets the recorder of the mapping time of the page, given its start ({@link System#nanoTime()})
+     * once the mapping is done, see {@link #recordMapping}.
+     */
+    public void setMappingRecorder(LongConsumer mappingRecorder) {
+        this.mappingRecorder = mappingRecorder;
+    }
+
+    /**
+     * Tells the mapping recorder, if any, that the mapping of the rows started at {@code startNanos} is done.
+     */
+    public void recordMapping(long startNanos) {
+        if (mappingRecorder != null) {
+            mappingRecorder.accept(startNanos);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.viridial.common.utils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of seed rows of one table, read from a packaged CSV file (header line, RFC 4180 quoting).
+ *
+ * <p>Rows are matched to the existing ones by their natural key ({@code keyColumns}), so applying
+ * a set again only inserts the missing rows and updates the ones whose values differ. References to
+ * other rows are written in the file by natural key (ISO code, timezone code...) and resolved to ids
+ * by the mapper through {@link References}.</p>
+ *
+ * <p>A set is re-applied when its file checksum or its {@code version} changes: the version is
+ * bumped when the mapping of the file to the columns changes without the file changing.</p>
+ */
+public final class SeedSet {
+
+    private final String name;
+    private final int version;
+    private final String resource;
+    private final String table;
+    private final List<String> keyColumns;
+    private final List<String> columns;
+    private final RowMapper mapper;
+
+    /**
+     * @param name unique name of the set, also the name under which references to its rows are resolved
+     * @param version version of the mapping, bumped to re-apply an unchanged file
+     * @param resource classpath location of the CSV file
+     * @param table the table receiving the rows; its ids are drawn from {@code <table>_seq}
+     * @param keyColumns the columns identifying a row, a subset of the columns
+     * @param columns the columns set from each row, in the order of the mapped values
+     * @param mapper maps a CSV row to the column values
+     */
+    public SeedSet(String name, int version, String resource, String table, List<String> keyColumns,
+                   List<String> columns, RowMapper mapper) {
+        if (!columns.containsAll(keyColumns)) {
+            throw new IllegalArgumentException("Key columns of seed set " + name + " must be columns");
+        }
+        this.name = name;
+        this.version = version;
+        this.resource = resource;
+        this.table = table;
+        this.keyColumns = List.copyOf(keyColumns);
+        this.columns = List.copyOf(columns);
+        this.mapper = mapper;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public RowMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Maps a CSV row (field name to non-empty text value) to the values of the columns, in order.
+     * Throws IllegalArgumentException for an invalid row.
+     */
+    @FunctionalInterface
+    public interface RowMapper {
+        Object[] map(Map<String, String> row, References references);
+    }
+
+    /**
+     * Resolves rows of the seed sets (the current one included) to their ids.
+     */
+    public interface References {
+
+        /**
+         * Returns the id of the row of a seed set with the given key values (key column order).
+         * A row of the current set may be referenced before its own line.
+         *
+         * @throws IllegalArgumentException when there is no such row
+         */
+        Long id(String set, Object... key);
+    }
+}
@@ -8,6 +8,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 @Entity
+@EntityListeners(SuggestEntityListener.class)
 @Table(
     name = "com_cities",
     indexes = {
@@ -1,16 +1,22 @@
 package com.viridial.countries.entities;
 
+import com.viridial.common.config.CacheRegions;
 import com.viridial.common.entities.BaseEntity;
 import com.viridial.referentiel.entities.ReferentialEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.COUNTRY)
+@EntityListeners(SuggestEntityListener.class)
 @Table(
     name = "com_countries",
     indexes = {
@@ -0,0 +1,48 @@
+package com.viridial.countries.entities;
+
+import com.viridial.countries.services.CitySuggestIndex;
+import com.viridial.countries.services.CountrySuggestIndex;
+import com.viridial.countries.services.ReverseGeocoder;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps the suggestion indexes and the reverse geocoder up to date on every insert, update or
+ * delete of a city or a country.
+ * Instantiated by Spring through Hibernate's bean container; the indexes are looked up
+ * lazily because the listener is created while the EntityManagerFactory is built.
+ */
+public class SuggestEntityListener {
+
+    @Autowired
+    private ObjectProvider<CitySuggestIndex> citySuggestIndex;
+
+    @Autowired
+    private ObjectProvider<CountrySuggestIndex> countrySuggestIndex;
+
+    @Autowired
+    private ObjectProvider<ReverseGeocoder> reverseGeocoder;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        onChange(entity, false);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        onChange(entity, true);
+    }
+
+    private void onChange(Object entity, boolean removed) {
+        if (entity instanceof CityEntity city) {
+            citySuggestIndex.ifAvailable(index -> index.onChange(city, removed));
+            reverseGeocoder.ifAvailable(geocoder -> geocoder.onChange(city, removed));
+        } else if (entity instanceof CountryEntity) {
+            countrySuggestIndex.ifAvailable(CountrySuggestIndex::invalidate);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.viridial.countries.entities;
 
+import com.viridial.common.config.CacheRegions;
 import com.viridial.common.entities.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = CacheRegions.TIMEZONE)
 @Table(
     name = "com_timezone",
     indexes = {
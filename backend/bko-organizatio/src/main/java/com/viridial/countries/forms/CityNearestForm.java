@@ -0,0 +1,104 @@
+package com.viridial.countries.forms;
+
+/**
+ * A city near a point, with its great-circle distance.
+ */
+public class CityNearestForm {
+    private Long id;
+    private String name;
+    private String state;
+    private Long countryId;
+    private Double latitude;
+    private Double longitude;
+    private Long population;
+    private boolean capital;
+    private double distanceKm;
+
+    public CityNearestForm() {
+    }
+
+    public CityNearestForm(Long id, String name, String state, Long countryId, Double latitude, Double longitude,
+                           Long population, boolean capital, double distanceKm) {
+        this.id = id;
+        this.name = name;
+        this.state = state;
+        this.countryId = countryId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.population = population;
+        this.capital = capital;
+        this.distanceKm = distanceKm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public Long getCountryId() {
+        return countryId;
+    }
+
+    public void setCountryId(Long countryId) {
+        this.countryId = countryId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Long getPopulation() {
+        return population;
+    }
+
+    public void setPopulation(Long population) {
+        this.population = population;
+    }
+
+    public boolean isCapital() {
+        return capital;
+    }
+
+    public void setCapital(boolean capital) {
+        this.capital = capital;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -11,6 +11,8 @@ public class CitySearchForm extends SearchForm {
     private Boolean capital;
     private Long countryId;
     private Long timezoneId;
+    // Cities located within the circle
+    private GeoRadius withinRadius;
 
     // Getters and Setters
     public String getName() { return name; }
@@ -23,5 +25,7 @@ public class CitySearchForm extends SearchForm {
     public void setCountryId(Long countryId) { this.countryId = countryId; }
     public Long getTimezoneId() { return timezoneId; }
     public void setTimezoneId(Long timezoneId) { this.timezoneId = timezoneId; }
+    public GeoRadius getWithinRadius() { return withinRadius; }
+    public void setWithinRadius(GeoRadius withinRadius) { this.withinRadius = withinRadius; }
 }
 
@@ -0,0 +1,94 @@
+package com.viridial.countries.forms;
+
+/**
+ * Typeahead suggestion of a city.
+ */
+public class CitySuggestForm {
+    private Long id;
+    private String name;
+    private String nativeName;
+    private String state;
+    private String postalCode;
+    private Long countryId;
+    private Long population;
+    private boolean capital;
+
+    public CitySuggestForm() {
+    }
+
+    public CitySuggestForm(Long id, String name, String nativeName, String state, String postalCode, Long countryId,
+                           Long population, boolean capital) {
+        this.id = id;
+        this.name = name;
+        this.nativeName = nativeName;
+        this.state = state;
+        this.postalCode = postalCode;
+        this.countryId = countryId;
+        this.population = population;
+        this.capital = capital;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNativeName() {
+        return nativeName;
+    }
+
+    public void setNativeName(String nativeName) {
+        this.nativeName = nativeName;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public void setPostalCode(String postalCode) {
+        this.postalCode = postalCode;
+    }
+
+    public Long getCountryId() {
+        return countryId;
+    }
+
+    public void setCountryId(Long countryId) {
+        this.countryId = countryId;
+    }
+
+    public Long getPopulation() {
+        return population;
+    }
+
+    public void setPopulation(Long population) {
+        this.population = population;
+    }
+
+    public boolean isCapital() {
+        return capital;
+    }
+
+    public void setCapital(boolean capital) {
+        this.capital = capital;
+    }
+}
@@ -0,0 +1,73 @@
+package com.viridial.countries.forms;
+
+/**
+ * Typeahead suggestion of a country.
+ */
+public class CountrySuggestForm {
+    private Long id;
+    private String name;
+    private String nativeName;
+    private String iso2;
+    private String iso3;
+    private String flagEmoji;
+
+    public CountrySuggestForm() {
+    }
+
+    public CountrySuggestForm(Long id, String name, String nativeName, String iso2, String iso3, String flagEmoji) {
+        this.id = id;
+        this.name = name;
+        this.nativeName = nativeName;
+        this.iso2 = iso2;
+        this.iso3 = iso3;
+        this.flagEmoji = flagEmoji;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNativeName() {
+        return nativeName;
+    }
+
+    public void setNativeName(String nativeName) {
+        this.nativeName = nativeName;
+    }
+
+    public String getIso2() {
+        return iso2;
+    }
+
+    public void setIso2(String iso2) {
+        this.iso2 = iso2;
+    }
+
+    public String getIso3() {
+        return iso3;
+    }
+
+    public void setIso3(String iso3) {
+        this.iso3 = iso3;
+    }
+
+    public String getFlagEmoji() {
+        return flagEmoji;
+    }
+
+    public void setFlagEmoji(String flagEmoji) {
+        this.flagEmoji = flagEmoji;
+    }
+}
@@ -0,0 +1,242 @@
+package com.viridial.countries.repositories;
+
+import com.viridial.common.utils.CopyRowEncoder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk import of cities through PostgreSQL COPY: each chunk is copied into a temporary
+ * staging table, then merged into com_cities with one set-based upsert on uk_city_unique.
+ * No CityEntity is ever created.
+ */
+@Repository
+public class CityImportRepository {
+
+    /**
+     * Columns of a staged row, in COPY order.
+     */
+    public static final List<String> STAGE_COLUMNS = List.of("line", "name", "native_name", "state", "district",
+        "postal_code", "latitude", "longitude", "elevation", "population", "area_km2", "country_id", "timezone_id",
+        "capital", "metropolitan", "active");
+
+    private static final String CREATE_STAGE = "CREATE TEMP TABLE IF NOT EXISTS city_import_stage ("
+        + "line bigint NOT NULL, name varchar(255) NOT NULL, native_name varchar(255), state varchar(100),"
+        + " district varchar(100), postal_code varchar(20), latitude double precision, longitude double precision,"
+        + " elevation double precision, population bigint, area_km2 double precision, country_id bigint NOT NULL,"
+        + " timezone_id bigint, capital boolean NOT NULL, metropolitan boolean NOT NULL, active boolean NOT NULL"
+        + ") ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGE = "COPY city_import_stage (" + String.join(", ", STAGE_COLUMNS)
+        + ") FROM STDIN";
+
+    // Last occurrence of a city in the chunk wins; DISTINCT ON treats null states as equal
+    private static final String DEDUPLICATED_STAGE = "SELECT DISTINCT ON (name, country_id, state) *"
+        + " FROM city_import_stage ORDER BY name, country_id, state, line DESC";
+
+    // Columns overwritten when an imported city already exists; a soft-deleted one is also restored
+    private static final List<String> UPDATED_COLUMNS = List.of("native_name", "district", "postal_code",
+        "latitude", "longitude", "elevation", "population", "area_km2", "timezone_id", "capital", "metropolitan",
+        "active");
+
+    /**
+     * Cities without state never conflict on uk_city_unique (nulls are distinct), so they are matched here.
+     */
+    private static final String UPDATE_STATELESS = "WITH s AS (" + DEDUPLICATED_STAGE + ")"
+        + " UPDATE com_cities c SET " + assignments("s")
+        + ", deleted_at = NULL, deleted_by = NULL, updated_at = ?, updated_by = ?, version = c.version + 1"
+        + " FROM s WHERE s.state IS NULL AND c.state IS NULL AND c.name = s.name AND c.country_id = s.country_id";
+
+    /**
+     * Inserts the other rows, ids drawn from com_cities_seq in whole blocks as Hibernate's pooled-lo
+     * optimizer does, and reports how many rows were inserted or updated.
+     */
+    private static final String UPSERT = "WITH s AS (" + DEDUPLICATED_STAGE + "),"
+        + " r AS (SELECT s.*, row_number() OVER () AS rn FROM s WHERE s.state IS NOT NULL OR NOT EXISTS ("
+        + "SELECT 1 FROM com_cities c WHERE c.state IS NULL AND c.name = s.name AND c.country_id = s.country_id)),"
+        + " b AS (SELECT array_agg(nextval('com_cities_seq')) AS starts"
+        + " FROM generate_series(1, (SELECT (count(*) + ? - 1) / ? FROM r))),"
+        + " upserted AS (INSERT INTO com_cities (id, name, native_name, state, district, postal_code, latitude,"
+        + " longitude, elevation, population, area_km2, country_id, timezone_id, capital, metropolitan, active,"
+        + " created_at, updated_at, created_by, updated_by, version)"
+        + " SELECT b.starts[(r.rn - 1) / ? + 1] + (r.rn - 1) % ?, r.name, r.native_name, r.state, r.district,"
+        + " r.postal_code, r.latitude, r.longitude, r.elevation, r.population, r.area_km2, r.country_id,"
+        + " r.timezone_id, r.capital, r.metropolitan, r.active, ?, ?, ?, ?, 0 FROM r CROSS JOIN b"
+        + " ON CONFLICT ON CONSTRAINT uk_city_unique DO UPDATE SET "
+        + assignments("EXCLUDED")
+        + ", deleted_at = NULL, deleted_by = NULL, updated_at = EXCLUDED.updated_at, updated_by = EXCLUDED.updated_by,"
+        + " version = com_cities.version + 1"
+        + " RETURNING (xmax = 0) AS inserted)"
+        + " SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Returns the ids of the non-deleted countries by upper-case ISO 3166 alpha-2 and alpha-3 code.
+     */
+    public Map<String, Long> findCountryIdsByCode() {
+        Map<String, Long> ids = new HashMap<>();
+        List<Object[]> countries = entityManager.createQuery(
+                "SELECT c.id, c.iso2, c.iso3 FROM CountryEntity c WHERE c.deletedAt IS NULL", Object[].class)
+            .getResultList();
+        for (Object[] country : countries) {
+            ids.put(((String) country[1]).toUpperCase(Locale.ROOT), (Long) country[0]);
+            ids.put(((String) country[2]).toUpperCase(Locale.ROOT), (Long) country[0]);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids of the non-deleted timezones by code (IANA name such as Europe/Paris).
+     */
+    public Map<String, Long> findTimezoneIdsByCode() {
+        Map<String, Long> ids = new HashMap<>();
+        List<Object[]> timezones = entityManager.createQuery(
+                "SELECT t.id, t.code FROM TimezoneEntity t WHERE t.deletedAt IS NULL", Object[].class)
+            .getResultList();
+        for (Object[] timezone : timezones) {
+            ids.put((String) timezone[1], (Long) timezone[0]);
+        }
+        return ids;
+    }
+
+    /**
+     * Opens a dedicated connection with an empty staging table. Each chunk is committed on its own.
+     */
+    public Stage openStage(String importedBy) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGE);
+                statement.execute("TRUNCATE city_import_stage");
+            }
+            int increment;
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT increment_by FROM pg_sequences"
+                     + " WHERE schemaname = current_schema() AND sequencename = 'com_cities_seq'")) {
+                increment = resultSet.next() ? resultSet.getInt(1) : 1;
+            }
+            connection.commit();
+            return new Stage(connection, increment, importedBy);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static String assignments(String source) {
+        StringBuilder sql = new StringBuilder();
+        for (String column : UPDATED_COLUMNS) {
+            sql.append(sql.length() > 0 ? ", " : "").append(column).append(" = ").append(source).append('.').append(column);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Rows inserted and updated by one chunk.
+     */
+    public static final class ChunkResult {
+        private final long inserted;
+        private final long updated;
+
+        private ChunkResult(long inserted, long updated) {
+            this.inserted = inserted;
+            this.updated = updated;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+    }
+
+    /**
+     * Staging table bound to one connection for the duration of an import.
+     */
+    public static final class Stage implements AutoCloseable {
+        private final Connection connection;
+        private final CopyManager copyManager;
+        private final int increment;
+        private final String importedBy;
+
+        private Stage(Connection connection, int increment, String importedBy) throws SQLException {
+            this.connection = connection;
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            this.increment = increment;
+            this.importedBy = importedBy;
+        }
+
+        /**
+         * Copies a chunk of rows, encoded in {@link #STAGE_COLUMNS} order, merges it and commits.
+         * On failure the chunk is rolled back.
+         */
+        public ChunkResult upsert(CopyRowEncoder chunk) throws SQLException {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                copyManager.copyIn(COPY_STAGE, new ByteArrayInputStream(chunk.toByteArray()));
+
+                long updated;
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATELESS)) {
+                    statement.setObject(1, now);
+                    statement.setString(2, importedBy);
+                    updated = statement.executeUpdate();
+                }
+                ChunkResult result;
+                try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+                    statement.setInt(1, increment);
+                    statement.setInt(2, increment);
+                    statement.setInt(3, increment);
+                    statement.setInt(4, increment);
+                    statement.setObject(5, now);
+                    statement.setObject(6, now);
+                    statement.setString(7, importedBy);
+                    statement.setString(8, importedBy);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        result = new ChunkResult(resultSet.getLong(1), updated + resultSet.getLong(2));
+                    }
+                }
+                connection.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e instanceof SQLException ? (SQLException) e : new SQLException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS city_import_stage");
+                connection.commit();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
@@ -2,17 +2,21 @@ package com.viridial.countries.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.countries.entities.CityEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.countries.forms.CityForm;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for CityEntity.
  * Defines additional methods beyond standard JPA repository operations.
  */
 public interface CityRepositoryCustom {
-    Page<CityEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<CityEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<CityForm> searchForms(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<CityEntity> action);
     List<CityEntity> findAllById(List<Long> ids);
     void saveAll(List<CityEntity> entities);
 }
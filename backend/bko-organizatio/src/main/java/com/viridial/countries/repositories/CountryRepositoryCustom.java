@@ -2,16 +2,18 @@ package com.viridial.countries.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.countries.entities.CountryEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for CountryEntity.
  */
 public interface CountryRepositoryCustom {
-    Page<CountryEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<CountryEntity> search(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<CountryEntity> action);
     List<CountryEntity> findAllById(List<Long> ids);
     void saveAll(List<CountryEntity> entities);
 }
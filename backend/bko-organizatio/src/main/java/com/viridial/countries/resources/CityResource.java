@@ -1,19 +1,36 @@
 package com.viridial.countries.resources;
 
+import com.viridial.common.form.SearchForm;
 import com.viridial.common.forms.BulkDeleteForm;
 import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
 import com.viridial.common.forms.BulkUpdateActiveForm;
 import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.ImportResponse;
+import com.viridial.common.resources.BulkJobResource;
+import com.viridial.common.services.BulkJobService;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.ImportRowReader;
 import com.viridial.countries.forms.CityForm;
+import com.viridial.countries.forms.CityNearestForm;
 import com.viridial.countries.forms.CitySearchForm;
+import com.viridial.countries.forms.CitySuggestForm;
+import com.viridial.countries.services.CityImportService;
 import com.viridial.countries.services.CityService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,23 +38,98 @@ import java.util.List;
 public class CityResource {
     @Autowired
     private CityService cityService;
+    @Autowired
+    private BulkJobService bulkJobService;
+    @Autowired
+    private CityImportService cityImportService;
 
+    /**
+     * Returns the matching cities as read straight from their columns, distance filter included: a list
+     * in OFFSET mode, a page with the cursor of the next one in KEYSET mode.
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<CityForm>> search(@RequestBody CitySearchForm search) {
-        return ResponseEntity.ok(cityService.search(search));
+    public ResponseEntity<?> search(@RequestBody CitySearchForm search) {
+        return cityService.search(search).toResponse(search);
+    }
+
+    /**
+     * Typeahead: the active cities with a name, native name word or postal code starting with q,
+     * capitals then most populated first (limit 10 by default, 50 at most).
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<CitySuggestForm>> suggest(@RequestParam String q,
+                                                         @RequestParam(required = false) Long countryId,
+                                                         @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(cityService.suggest(q, countryId, limit));
+    }
+
+    /**
+     * The k active cities nearest to a point, nearest first, with their distance in kilometers
+     * (k 10 by default, 100 at most), optionally within a country and a maximum distance.
+     * 400 Bad Request for a point or a maximum distance out of range.
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<CityNearestForm>> nearest(@RequestParam Double lat,
+                                                         @RequestParam Double lon,
+                                                         @RequestParam(required = false) Integer k,
+                                                         @RequestParam(required = false) Long countryId,
+                                                         @RequestParam(required = false) Double maxDistanceKm) {
+        new SearchForm.GeoRadius(lat, lon, maxDistanceKm).validate();
+        return ResponseEntity.ok(cityService.nearest(lat, lon, countryId, k, maxDistanceKm));
     }
 
     @PostMapping("/bulk-update-active")
     public ResponseEntity<BulkUpdateActiveResponse> bulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
-        int updatedCount = cityService.bulkUpdateActive(form.getIds(), form.isActive());
-        return ResponseEntity.ok(new BulkUpdateActiveResponse(updatedCount, form.isActive()));
+        return ResponseEntity.ok(cityService.bulkUpdateActive(form));
     }
 
+    /**
+     * Soft-deletes the ids of the form. The X-User-Id header, if any, is recorded as the deletedBy of the rows.
+     */
     @PostMapping("/bulk-delete")
-    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form) {
-        String deletedBy = null; // TODO: Get from security context
-        int deletedCount = cityService.bulkDelete(form.getIds(), deletedBy);
-        return ResponseEntity.ok(new BulkDeleteResponse(deletedCount));
+    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return ResponseEntity.ok(cityService.bulkDelete(form, deletedBy));
     }
-}
 
+    /**
+     * Same as bulk-update-active, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     */
+    @PostMapping("/bulk-update-active/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
+        return BulkJobResource.accepted(bulkJobService.submitUpdateActive("cities", form));
+    }
+
+    /**
+     * Same as bulk-delete, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     * The X-User-Id header, if any, is recorded as the requester of the job and the deletedBy of the rows.
+     */
+    @PostMapping("/bulk-delete/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return BulkJobResource.accepted(bulkJobService.submitDelete("cities", form, deletedBy));
+    }
+
+    /**
+     * Imports cities from a CSV (text/csv, with header) or NDJSON (application/x-ndjson) body,
+     * streamed without being buffered. Existing cities (same name, country and state) are updated, and restored
+     * if they were deleted. The X-User-Id header, if any, is recorded as their creator or updater.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResponse> importCities(HttpServletRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "import") String importedBy) throws IOException {
+        ImportRowReader.Format format = MediaType.parseMediaType(request.getContentType())
+            .isCompatibleWith(MediaType.APPLICATION_NDJSON) ? ImportRowReader.Format.NDJSON : ImportRowReader.Format.CSV;
+        return ResponseEntity.ok(cityImportService.importCities(request.getInputStream(), format, importedBy));
+    }
+
+    /**
+     * Streams every city matching the search filters and sort, ignoring paging, as NDJSON (default) or CSV.
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody CitySearchForm search,
+                       @RequestParam(defaultValue = "NDJSON") ExportWriter.Format format,
+                       HttpServletResponse response) throws IOException {
+        ExportWriter.attach(response, format, "cities", output -> cityService.export(search, format, output));
+    }
+}
@@ -2,18 +2,28 @@ package com.viridial.countries.resources;
 
 import com.viridial.common.forms.BulkDeleteForm;
 import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
 import com.viridial.common.forms.BulkUpdateActiveForm;
 import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.resources.BulkJobResource;
+import com.viridial.common.services.BulkJobService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.forms.CountryForm;
 import com.viridial.countries.forms.CountrySearchForm;
+import com.viridial.countries.forms.CountrySuggestForm;
 import com.viridial.countries.services.CountryService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,23 +31,66 @@ import java.util.List;
 public class CountryResource {
     @Autowired
     private CountryService countryService;
+    @Autowired
+    private BulkJobService bulkJobService;
 
+    /**
+     * Returns the matching countries: a list in OFFSET mode, a page with the next cursor in KEYSET mode.
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<CountryForm>> search(@RequestBody CountrySearchForm search) {
-        return ResponseEntity.ok(countryService.search(search));
+    public ResponseEntity<?> search(@RequestBody CountrySearchForm search) {
+        return countryService.search(search).toResponse(search);
+    }
+
+    /**
+     * Typeahead: the active countries with a name, native name word or ISO code starting with q,
+     * most populated first (limit 10 by default, 50 at most).
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<CountrySuggestForm>> suggest(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(countryService.suggest(q, limit));
     }
 
     @PostMapping("/bulk-update-active")
     public ResponseEntity<BulkUpdateActiveResponse> bulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
-        int updatedCount = countryService.bulkUpdateActive(form.getIds(), form.isActive());
-        return ResponseEntity.ok(new BulkUpdateActiveResponse(updatedCount, form.isActive()));
+        return ResponseEntity.ok(countryService.bulkUpdateActive(form));
     }
 
+    /**
+     * Soft-deletes the ids of the form. The X-User-Id header, if any, is recorded as the deletedBy of the rows.
+     */
     @PostMapping("/bulk-delete")
-    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form) {
-        String deletedBy = null; // TODO: Get from security context
-        int deletedCount = countryService.bulkDelete(form.getIds(), deletedBy);
-        return ResponseEntity.ok(new BulkDeleteResponse(deletedCount));
+    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return ResponseEntity.ok(countryService.bulkDelete(form, deletedBy));
+    }
+
+    /**
+     * Same as bulk-update-active, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     */
+    @PostMapping("/bulk-update-active/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
+        return BulkJobResource.accepted(bulkJobService.submitUpdateActive("countries", form));
+    }
+
+    /**
+     * Same as bulk-delete, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     * The X-User-Id header, if any, is recorded as the requester of the job and the deletedBy of the rows.
+     */
+    @PostMapping("/bulk-delete/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return BulkJobResource.accepted(bulkJobService.submitDelete("countries", form, deletedBy));
     }
-}
 
+    /**
+     * Streams every country matching the search filters and sort, ignoring paging, as NDJSON (default) or CSV.
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody CountrySearchForm search,
+                       @RequestParam(defaultValue = "NDJSON") ExportWriter.Format format,
+                       HttpServletResponse response) throws IOException {
+        ExportWriter.attach(response, format, "countries", output -> countryService.export(search, format, output));
+    }
+}
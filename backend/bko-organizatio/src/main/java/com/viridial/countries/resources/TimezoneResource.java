@@ -2,42 +2,82 @@ package com.viridial.countries.resources;
 
 import com.viridial.common.forms.BulkDeleteForm;
 import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
 import com.viridial.common.forms.BulkUpdateActiveForm;
 import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.resources.BulkJobResource;
+import com.viridial.common.services.BulkJobService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.forms.TimezoneForm;
 import com.viridial.countries.forms.TimezoneSearchForm;
 import com.viridial.countries.services.TimezoneService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/timezones")
 public class TimezoneResource {
     @Autowired
     private TimezoneService timezoneService;
+    @Autowired
+    private BulkJobService bulkJobService;
 
+    /**
+     * Returns the matching timezones: a list in OFFSET mode, a page with the next cursor in KEYSET mode.
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<TimezoneForm>> search(@RequestBody TimezoneSearchForm search) {
-        return ResponseEntity.ok(timezoneService.search(search));
+    public ResponseEntity<?> search(@RequestBody TimezoneSearchForm search) {
+        return timezoneService.search(search).toResponse(search);
     }
 
     @PostMapping("/bulk-update-active")
     public ResponseEntity<BulkUpdateActiveResponse> bulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
-        int updatedCount = timezoneService.bulkUpdateActive(form.getIds(), form.isActive());
-        return ResponseEntity.ok(new BulkUpdateActiveResponse(updatedCount, form.isActive()));
+        return ResponseEntity.ok(timezoneService.bulkUpdateActive(form));
     }
 
+    /**
+     * Soft-deletes the ids of the form. The X-User-Id header, if any, is recorded as the deletedBy of the rows.
+     */
     @PostMapping("/bulk-delete")
-    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form) {
-        String deletedBy = null; // TODO: Get from security context
-        int deletedCount = timezoneService.bulkDelete(form.getIds(), deletedBy);
-        return ResponseEntity.ok(new BulkDeleteResponse(deletedCount));
+    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return ResponseEntity.ok(timezoneService.bulkDelete(form, deletedBy));
+    }
+
+    /**
+     * Same as bulk-update-active, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     */
+    @PostMapping("/bulk-update-active/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
+        return BulkJobResource.accepted(bulkJobService.submitUpdateActive("timezones", form));
     }
-}
 
+    /**
+     * Same as bulk-delete, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     * The X-User-Id header, if any, is recorded as the requester of the job and the deletedBy of the rows.
+     */
+    @PostMapping("/bulk-delete/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return BulkJobResource.accepted(bulkJobService.submitDelete("timezones", form, deletedBy));
+    }
+
+    /**
+     * Streams every timezone matching the search filters and sort, ignoring paging, as NDJSON (default) or CSV.
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody TimezoneSearchForm search,
+                       @RequestParam(defaultValue = "NDJSON") ExportWriter.Format format,
+                       HttpServletResponse response) throws IOException {
+        ExportWriter.attach(response, format, "timezones", output -> timezoneService.export(search, format, output));
+    }
+}
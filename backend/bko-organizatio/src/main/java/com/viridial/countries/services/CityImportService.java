@@ -0,0 +1,13 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.forms.ImportResponse;
+import com.viridial.common.utils.ImportRowReader;
+
+import java.io.InputStream;
+
+/**
+ * Service interface for bulk city imports.
+ */
+public interface CityImportService {
+    ImportResponse importCities(InputStream input, ImportRowReader.Format format, String importedBy);
+}
@@ -0,0 +1,257 @@
+package com.viridial.countries.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.forms.ImportRejectForm;
+import com.viridial.common.forms.ImportResponse;
+import com.viridial.common.utils.CopyRowEncoder;
+import com.viridial.common.utils.ImportRowReader;
+import com.viridial.countries.repositories.CityImportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams a CSV or NDJSON city file into com_cities in chunks of {@code app.import.chunk-size} rows.
+ *
+ * <p>Each row is validated and its country and timezone codes resolved from in-memory maps, then encoded
+ * straight into the COPY buffer of the current chunk; only one chunk is held in memory. Each chunk is
+ * committed on its own, so a failure keeps the chunks already imported; importing the same file again
+ * is safe since rows are upserted on (name, country, state).</p>
+ *
+ * <p>Recognized fields (CityForm names): name, nativeName, state, district, postalCode, latitude, longitude,
+ * elevation, population, areaKm2, countryId or countryCode (ISO alpha-2 or alpha-3), timezoneId or
+ * timezoneCode, capital, metropolitan, active. Other fields are ignored.</p>
+ */
+@Service
+public class CityImportServiceImpl implements CityImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityImportServiceImpl.class);
+
+    @Autowired
+    private CityImportRepository cityImportRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CitySuggestIndex citySuggestIndex;
+
+    @Autowired
+    private ReverseGeocoder reverseGeocoder;
+
+    @Value("${app.import.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${app.import.max-rejects:1000}")
+    private int maxRejects;
+
+    @Override
+    public ImportResponse importCities(InputStream input, ImportRowReader.Format format, String importedBy) {
+        long start = System.currentTimeMillis();
+        ImportResponse response = new ImportResponse();
+        Map<String, Long> countryIds = cityImportRepository.findCountryIdsByCode();
+        Set<Long> knownCountryIds = new HashSet<>(countryIds.values());
+        Map<String, Long> timezoneIds = cityImportRepository.findTimezoneIdsByCode();
+        Set<Long> knownTimezoneIds = new HashSet<>(timezoneIds.values());
+        CopyRowEncoder chunk = new CopyRowEncoder(chunkSize * 128);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        try (ImportRowReader rows = ImportRowReader.of(format, reader, objectMapper);
+             CityImportRepository.Stage stage = cityImportRepository.openStage(importedBy)) {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    row = rows.next();
+                } catch (ImportRowReader.MalformedRowException e) {
+                    response.setReceived(response.getReceived() + 1);
+                    reject(response, rows.getLine(), e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                response.setReceived(response.getReceived() + 1);
+                String reason = stage(row, rows.getLine(), chunk, countryIds, knownCountryIds, timezoneIds,
+                    knownTimezoneIds);
+                if (reason != null) {
+                    reject(response, rows.getLine(), reason);
+                } else if (chunk.getRows() >= chunkSize) {
+                    flush(stage, chunk, response, start);
+                }
+            }
+            if (chunk.getRows() > 0) {
+                flush(stage, chunk, response, start);
+            }
+        } catch (IOException | SQLException e) {
+            logger.error("City import stopped after {} rows", response.getReceived(), e);
+            response.setError(e.getMessage());
+        }
+        if (response.getInserted() + response.getUpdated() > 0) {
+            // Chunks are upserted with COPY, outside the entities: the suggestions are rebuilt
+            citySuggestIndex.refresh();
+            reverseGeocoder.refresh();
+        }
+        response.setDurationMs(System.currentTimeMillis() - start);
+        logger.info("City import: {} rows received, {} inserted, {} updated, {} rejected in {} ms",
+            response.getReceived(), response.getInserted(), response.getUpdated(), response.getRejected(),
+            response.getDurationMs());
+        return response;
+    }
+
+    private void flush(CityImportRepository.Stage stage, CopyRowEncoder chunk, ImportResponse response, long start)
+            throws SQLException {
+        CityImportRepository.ChunkResult result = stage.upsert(chunk);
+        response.setInserted(response.getInserted() + result.getInserted());
+        response.setUpdated(response.getUpdated() + result.getUpdated());
+        response.setChunks(response.getChunks() + 1);
+        chunk.reset();
+        logger.info("City import progress: chunk {} done, {} rows received, {} inserted, {} updated, {} rejected, {} ms",
+            response.getChunks(), response.getReceived(), response.getInserted(), response.getUpdated(),
+            response.getRejected(), System.currentTimeMillis() - start);
+    }
+
+    private void reject(ImportResponse response, long line, String reason) {
+        response.setRejected(response.getRejected() + 1);
+        if (response.getRejects().size() < maxRejects) {
+            response.getRejects().add(new ImportRejectForm(line, reason));
+        } else {
+            response.setRejectsTruncated(true);
+        }
+    }
+
+    /**
+     * Validates a row and appends it to the chunk, in CityImportRepository.STAGE_COLUMNS order.
+     *
+     * @return the reason of the rejection, or null when the row was staged
+     */
+    private static String stage(Map<String, String> row, long line, CopyRowEncoder chunk,
+                                Map<String, Long> countryIds, Set<Long> knownCountryIds,
+                                Map<String, Long> timezoneIds, Set<Long> knownTimezoneIds) {
+        try {
+            String name = text(row, "name", 255);
+            if (name == null) {
+                return "name is required";
+            }
+            String nativeName = text(row, "nativeName", 255);
+            String state = text(row, "state", 100);
+            String district = text(row, "district", 100);
+            String postalCode = text(row, "postalCode", 20);
+            Double latitude = decimal(row, "latitude", -90, 90);
+            Double longitude = decimal(row, "longitude", -180, 180);
+            Double elevation = decimal(row, "elevation", -Double.MAX_VALUE, Double.MAX_VALUE);
+            Double areaKm2 = decimal(row, "areaKm2", 0, Double.MAX_VALUE);
+            Long population = integer(row, "population");
+            if (population != null && population < 0) {
+                return "population must not be negative";
+            }
+
+            Long countryId = reference(row, "countryId", "countryCode", countryIds, knownCountryIds, true);
+            if (countryId == null) {
+                return "countryId or countryCode is required";
+            }
+            Long timezoneId = reference(row, "timezoneId", "timezoneCode", timezoneIds, knownTimezoneIds, false);
+
+            chunk.add(line).add(name).add(nativeName).add(state).add(district).add(postalCode)
+                .add(latitude).add(longitude).add(elevation).add(population).add(areaKm2)
+                .add(countryId).add(timezoneId)
+                .add(bool(row, "capital", false)).add(bool(row, "metropolitan", false)).add(bool(row, "active", true));
+            chunk.endRow();
+            return null;
+        } catch (IllegalArgumentException e) {
+            chunk.discardRow();
+            return e.getMessage();
+        }
+    }
+
+    private static String text(Map<String, String> row, String field, int maxLength) {
+        String value = row.get(field);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.strip();
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    private static Double decimal(Map<String, String> row, String field, double min, double max) {
+        String value = text(row, field, 64);
+        if (value == null) {
+            return null;
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+        if (!Double.isFinite(number) || number < min || number > max) {
+            throw new IllegalArgumentException(field + " is out of range: " + value);
+        }
+        return number;
+    }
+
+    private static Long integer(Map<String, String> row, String field) {
+        String value = text(row, field, 64);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not an integer: " + value);
+        }
+    }
+
+    private static boolean bool(Map<String, String> row, String field, boolean defaultValue) {
+        String value = text(row, field, 5);
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes":
+                return true;
+            case "false", "0", "no":
+                return false;
+            default:
+                throw new IllegalArgumentException(field + " is not a boolean: " + value);
+        }
+    }
+
+    /**
+     * Resolves a reference given either by id or by code.
+     */
+    private static Long reference(Map<String, String> row, String idField, String codeField,
+                                  Map<String, Long> idsByCode, Set<Long> knownIds, boolean upperCaseCode) {
+        Long id = integer(row, idField);
+        if (id != null) {
+            if (!knownIds.contains(id)) {
+                throw new IllegalArgumentException("unknown " + idField + ": " + id);
+            }
+            return id;
+        }
+        String code = text(row, codeField, 64);
+        if (code == null) {
+            return null;
+        }
+        id = idsByCode.get(upperCaseCode ? code.toUpperCase(Locale.ROOT) : code);
+        if (id == null) {
+            throw new IllegalArgumentException("unknown " + codeField + ": " + code);
+        }
+        return id;
+    }
+}
@@ -1,16 +1,23 @@
 package com.viridial.countries.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.forms.CityForm;
+import com.viridial.countries.forms.CityNearestForm;
 import com.viridial.countries.forms.CitySearchForm;
+import com.viridial.countries.forms.CitySuggestForm;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
  * Service interface for CityEntity operations.
  */
-public interface CityService {
-    List<CityForm> search(CitySearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface CityService extends BulkService {
+    PaginatedResponse<CityForm> search(CitySearchForm search);
+    long export(CitySearchForm search, ExportWriter.Format format, OutputStream output);
+    List<CitySuggestForm> suggest(String query, Long countryId, Integer limit);
+    List<CityNearestForm> nearest(Double latitude, Double longitude, Long countryId, Integer limit, Double maxDistanceKm);
 }
 
@@ -1,19 +1,32 @@
 package com.viridial.countries.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.entities.CityEntity;
 import com.viridial.countries.forms.CityForm;
+import com.viridial.countries.forms.CityNearestForm;
 import com.viridial.countries.forms.CitySearchForm;
+import com.viridial.countries.forms.CitySuggestForm;
 import com.viridial.countries.mapper.CityMapper;
 import com.viridial.countries.repositories.CityRepositoryCustom;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for CityEntity operations.
@@ -21,46 +34,101 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class CityServiceImpl implements CityService {
+    private static final int SUGGEST_DEFAULT_LIMIT = 10;
+    private static final int SUGGEST_MAX_LIMIT = 50;
+    private static final int NEAREST_DEFAULT_LIMIT = 10;
+    private static final int NEAREST_MAX_LIMIT = 100;
+
     @Autowired
     private CityRepositoryCustom cityRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CitySuggestIndex citySuggestIndex;
+
+    @Autowired
+    private ReverseGeocoder reverseGeocoder;
+
     @Override
     @Transactional(readOnly = true)
-    public List<CityForm> search(CitySearchForm search) {
+    public PaginatedResponse<CityForm> search(CitySearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<CityEntity> page = cityRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(CityMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        return PaginatedResponse.of(cityRepositoryCustom.searchForms(search, pageable));
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<CityEntity> entities = cityRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        cityRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            CityEntity.class, ids, form.getVersions(), form.isActive(), null);
+        // Bulk statements bypass the entity listeners
+        citySuggestIndex.onBulkChange(ids);
+        reverseGeocoder.onBulkChange(ids);
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<CityEntity> entities = cityRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(CityEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            CityEntity.class, ids, form.getVersions(), deletedBy);
+        citySuggestIndex.onBulkChange(ids);
+        reverseGeocoder.onBulkChange(ids);
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(CitySearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, CityForm.class, objectMapper)) {
+            cityRepositoryCustom.export(search, entity -> writer.write(CityMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        cityRepositoryCustom.saveAll(entities);
-        return entities.size();
+    }
+
+    /**
+     * Served from memory: no transaction, so no connection is taken.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CitySuggestForm> suggest(String query, Long countryId, Integer limit) {
+        return citySuggestIndex.suggest(query, countryId, suggestLimit(limit));
+    }
+
+    /**
+     * Served from memory, like the suggestions. The point and the maximum distance are checked by
+     * the resource.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CityNearestForm> nearest(Double latitude, Double longitude, Long countryId, Integer limit,
+                                         Double maxDistanceKm) {
+        int nearestLimit = limit == null ? NEAREST_DEFAULT_LIMIT : Math.max(1, Math.min(limit, NEAREST_MAX_LIMIT));
+        return citySuggestIndex.nearest(latitude, longitude, countryId, nearestLimit,
+            maxDistanceKm != null ? maxDistanceKm : Double.POSITIVE_INFINITY);
+    }
+
+    private static int suggestLimit(Integer limit) {
+        return limit == null ? SUGGEST_DEFAULT_LIMIT : Math.max(1, Math.min(limit, SUGGEST_MAX_LIMIT));
     }
 
     private Pageable buildPageable(CitySearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
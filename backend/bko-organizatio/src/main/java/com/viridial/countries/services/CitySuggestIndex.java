@@ -0,0 +1,607 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.utils.GeoIndex;
+import com.viridial.common.utils.PrefixIndex;
+import com.viridial.countries.entities.CityEntity;
+import com.viridial.countries.forms.CityNearestForm;
+import com.viridial.countries.forms.CitySuggestForm;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory typeahead index of the active cities, by name, native name (from each word start)
+ * and postal code, partitioned by country and weighted by capital first, then population.
+ *
+ * <p>The snapshot is a {@link PrefixIndex} with the displayed fields in parallel arrays, loaded
+ * through a stateless session in the background at startup. City writes made through entities are
+ * applied incrementally: after commit, the new state of each changed city goes into a change map
+ * that overrides the snapshot, and is scanned with it at lookup. Once the change map exceeds
+ * {@code app.suggest.city-rebuild-threshold} cities, the snapshot is rebuilt in the background and
+ * the changes it includes are dropped. Bulk updates and deletes, which bypass the entities, read back
+ * the cities they wrote and go into the change map the same way ({@link #onBulkChange}). Other writes
+ * that bypass them (import, seed) call {@link #refresh()}: the index is rebuilt after their commit and
+ * serves the previous state until then.</p>
+ *
+ * <p>The snapshot also keeps a {@link GeoIndex} of the cities with coordinates, for the nearest
+ * cities of a point: the same change map overrides it.</p>
+ */
+@Component
+public class CitySuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CitySuggestIndex.class);
+
+    private static final String LOAD_QUERY = "select c.id, c.name, c.nativeName, c.state, c.postalCode, "
+        + "c.countryId, c.population, c.capital, c.latitude, c.longitude from CityEntity c where c.active = true and c.deletedAt is null";
+
+    private static final String READ_BACK_QUERY = LOAD_QUERY + " and c.id in :ids";
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private static final Comparator<Nearest> BY_DISTANCE = Comparator.comparingDouble(nearest -> nearest.distanceKm);
+
+    private static final Comparator<CityEntry> BY_WEIGHT = Comparator.comparingLong((CityEntry entry) -> entry.weight)
+        .reversed()
+        .thenComparing(entry -> entry.name);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.suggest.city-rebuild-threshold:10000}")
+    private int rebuildThreshold;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "city-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Snapshot snapshot;
+
+    /**
+     * Returns the cities with a name, native name word or postal code starting with the text,
+     * capitals then most populated first.
+     *
+     * @param text the typed text, normalized like the names (case and accents are ignored)
+     * @param countryId the country to search in, or null for all
+     * @param limit the maximum number of cities
+     */
+    public List<CitySuggestForm> suggest(String text, Long countryId, int limit) {
+        String prefix = PrefixIndex.normalize(text);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot();
+        List<CityEntry> matches = new ArrayList<>();
+        // Changed cities are looked up in the change map only
+        for (int item : current.index.top(prefix, countryId, limit, item -> changes.containsKey(current.ids[item]))) {
+            matches.add(current.entry(item));
+        }
+        for (Change change : changes.values()) {
+            if (change.entry != null && change.entry.matches(prefix, countryId)) {
+                matches.add(change.entry);
+            }
+        }
+        matches.sort(BY_WEIGHT);
+        List<CitySuggestForm> suggestions = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            suggestions.add(matches.get(i).toForm());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the cities nearest to a point, nearest first, with their great-circle distance.
+     *
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param countryId the country to search in, or null for all
+     * @param limit the maximum number of cities
+     * @param maxDistanceKm the distance beyond which cities are ignored, infinite for none
+     */
+    public List<CityNearestForm> nearest(double latitude, double longitude, Long countryId, int limit,
+                                         double maxDistanceKm) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot();
+        List<Nearest> matches = new ArrayList<>();
+        int[] items = current.geo.nearest(latitude, longitude, limit, maxDistanceKm,
+            item -> (countryId != null && current.countryIds[item] != countryId)
+                || changes.containsKey(current.ids[item]));
+        for (int item : items) {
+            CityEntry entry = current.entry(item);
+            matches.add(new Nearest(entry, entry.distanceKm(latitude, longitude)));
+        }
+        for (Change change : changes.values()) {
+            CityEntry entry = change.entry;
+            if (entry != null && entry.latitude != null && entry.longitude != null
+                    && (countryId == null || countryId.equals(entry.countryId))) {
+                double distanceKm = entry.distanceKm(latitude, longitude);
+                if (distanceKm <= maxDistanceKm) {
+                    matches.add(new Nearest(entry, distanceKm));
+                }
+            }
+        }
+        matches.sort(BY_DISTANCE);
+        List<CityNearestForm> nearest = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            nearest.add(matches.get(i).toForm());
+        }
+        return nearest;
+    }
+
+    /**
+     * Records the new state of a city written through its entity, applied once the current transaction commits.
+     *
+     * @param removed whether the city was deleted
+     */
+    public void onChange(CityEntity city, boolean removed) {
+        Map<Long, CityEntry> entries = new HashMap<>();
+        boolean suggested = !removed && city.isActive() && city.getDeletedAt() == null;
+        entries.put(city.getId(), suggested ? CityEntry.of(city) : null);
+        record(entries);
+    }
+
+    /**
+     * Records the new state of cities written by a bulk statement, applied once the current transaction
+     * commits. Called after the statement: the cities still active are read back in the current
+     * transaction, the others are removed from the suggestions. Beyond the rebuild threshold, the whole
+     * index is rebuilt after commit instead.
+     */
+    public void onBulkChange(Collection<Long> ids) {
+        if (ids.size() > rebuildThreshold) {
+            refresh();
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive() && pending().overflow) {
+            return;
+        }
+        Map<Long, CityEntry> entries = new HashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                entries.put(id, null);
+            }
+        }
+        entityManager.createQuery(READ_BACK_QUERY, Object[].class)
+            .setParameter("ids", ids)
+            .getResultList()
+            .forEach(row -> entries.put((Long) row[0], CityEntry.of(row)));
+        record(entries);
+    }
+
+    /**
+     * Rebuilds the index after the current transaction commits, or now without transaction.
+     * For writes that do not go through the city entities.
+     */
+    public void refresh() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scheduleRebuild();
+            return;
+        }
+        Pending pending = pending();
+        pending.overflow = true;
+        pending.entries.clear();
+    }
+
+    /**
+     * Returns the number of cities overriding the snapshot.
+     */
+    int getChangeCount() {
+        return changes.size();
+    }
+
+    /**
+     * Returns the number of snapshots loaded so far.
+     */
+    long getLoadCount() {
+        return loads.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void record(Map<Long, CityEntry> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(entries);
+            return;
+        }
+        Pending pending = pending();
+        if (pending.overflow) {
+            return;
+        }
+        pending.entries.putAll(entries);
+        if (pending.entries.size() > rebuildThreshold) {
+            // Too many to apply one by one: the whole index is rebuilt after commit
+            pending.overflow = true;
+            pending.entries.clear();
+        }
+    }
+
+    private Pending pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (created.overflow) {
+                        scheduleRebuild();
+                    } else {
+                        apply(created.entries);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CitySuggestIndex.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void apply(Map<Long, CityEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long changeSequence = sequence.incrementAndGet();
+        entries.forEach((id, entry) -> changes.put(id, new Change(changeSequence, entry)));
+        if (changes.size() > rebuildThreshold) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                // Changes committed from now on schedule another rebuild
+                rebuildScheduled.set(false);
+                try {
+                    loadLock.lock();
+                    try {
+                        rebuild();
+                    } finally {
+                        loadLock.unlock();
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("City suggestion index rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the snapshot, loading it on the calling thread when none was ever loaded.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            if (snapshot == null) {
+                rebuild();
+            }
+            return snapshot;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Loads a new snapshot, then drops the changes committed before the load started, which it includes.
+     * Must hold the load lock.
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        long loadSequence = sequence.get();
+        Snapshot loaded = entityManagerFactory.unwrap(SessionFactory.class).fromStatelessTransaction(session -> {
+            SnapshotBuilder builder = new SnapshotBuilder();
+            session.createSelectionQuery(LOAD_QUERY, Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()
+                .forEach(builder::add);
+            return builder.build();
+        });
+        snapshot = loaded;
+        loads.incrementAndGet();
+        changes.forEach((id, change) -> {
+            if (change.sequence <= loadSequence) {
+                changes.remove(id, change);
+            }
+        });
+        logger.info("City suggestion index loaded: {} cities, {} keys, {} located in {} ms", loaded.ids.length,
+            loaded.index.size(), loaded.geo.size(), System.currentTimeMillis() - start);
+    }
+
+    private static long weight(boolean capital, Long population) {
+        return (capital ? 1L << 62 : 0) + (population != null ? Math.max(0, Math.min(population, (1L << 62) - 1)) : 0);
+    }
+
+    /**
+     * A city found near a point.
+     */
+    private static final class Nearest {
+        private final CityEntry entry;
+        private final double distanceKm;
+
+        private Nearest(CityEntry entry, double distanceKm) {
+            this.entry = entry;
+            this.distanceKm = distanceKm;
+        }
+
+        private CityNearestForm toForm() {
+            return new CityNearestForm(entry.id, entry.name, entry.state, entry.countryId, entry.latitude,
+                entry.longitude, entry.population, entry.capital, distanceKm);
+        }
+    }
+
+    /**
+     * Changes of the current transaction, by city id (null when removed from the suggestions).
+     */
+    private static final class Pending {
+        private final Map<Long, CityEntry> entries = new HashMap<>();
+        private boolean overflow;
+    }
+
+    /**
+     * Committed state of a city, overriding the snapshot.
+     */
+    private static final class Change {
+        private final long sequence;
+        private final CityEntry entry;
+
+        private Change(long sequence, CityEntry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * A suggestible city, with its normalized keys for matching outside the snapshot.
+     */
+    private static final class CityEntry {
+        private final Long id;
+        private final String name;
+        private final String nativeName;
+        private final String state;
+        private final String postalCode;
+        private final Long countryId;
+        private final Long population;
+        private final boolean capital;
+        private final Double latitude;
+        private final Double longitude;
+        private final long weight;
+        private String[] keys;
+
+        private CityEntry(Long id, String name, String nativeName, String state, String postalCode, Long countryId,
+                          Long population, boolean capital, Double latitude, Double longitude) {
+            this.id = id;
+            this.name = name;
+            this.nativeName = nativeName;
+            this.state = state;
+            this.postalCode = postalCode;
+            this.countryId = countryId;
+            this.population = population;
+            this.capital = capital;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.weight = weight(capital, population);
+        }
+
+        private static CityEntry of(CityEntity city) {
+            return new CityEntry(city.getId(), city.getName(), city.getNativeName(), city.getState(),
+                city.getPostalCode(), city.getCountryId(), city.getPopulation(), city.isCapital(), city.getLatitude(),
+                city.getLongitude()).withKeys();
+        }
+
+        /**
+         * From a row of {@link #LOAD_QUERY}.
+         */
+        private static CityEntry of(Object[] row) {
+            return new CityEntry((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                (Long) row[5], (Long) row[6], (Boolean) row[7], (Double) row[8], (Double) row[9]).withKeys();
+        }
+
+        private CityEntry withKeys() {
+            keys = new String[]{PrefixIndex.normalize(name), PrefixIndex.normalize(nativeName),
+                PrefixIndex.normalize(postalKey(postalCode))};
+            return this;
+        }
+
+        private boolean matches(String prefix, Long partition) {
+            if (partition != null && !partition.equals(countryId)) {
+                return false;
+            }
+            return startsWithWord(keys[0], prefix) || startsWithWord(keys[1], prefix) || keys[2].startsWith(prefix);
+        }
+
+        private static boolean startsWithWord(String key, String prefix) {
+            for (int i = 0; i <= key.length() - prefix.length(); i++) {
+                if ((i == 0 || key.charAt(i - 1) == ' ') && key.startsWith(prefix, i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private double distanceKm(double fromLatitude, double fromLongitude) {
+            return GeoIndex.distanceKm(fromLatitude, fromLongitude, latitude, longitude);
+        }
+
+        private CitySuggestForm toForm() {
+            return new CitySuggestForm(id, name, nativeName, state, postalCode, countryId, population, capital);
+        }
+    }
+
+    /**
+     * Postal codes are matched without their spaces: "75 001" is found by "7500".
+     */
+    private static String postalKey(String postalCode) {
+        return postalCode != null ? postalCode.replace(" ", "") : null;
+    }
+
+    /**
+     * Immutable index of the active cities at load time; city i is item i of the prefix and geo indexes.
+     */
+    private static final class Snapshot {
+        private final PrefixIndex index;
+        private final GeoIndex geo;
+        private final long[] ids;
+        private final String[] names;
+        private final String[] nativeNames;
+        private final String[] states;
+        private final String[] postalCodes;
+        private final long[] countryIds;
+        private final long[] populations;
+        private final BitSet capitals;
+        // NaN without coordinates
+        private final double[] latitudes;
+        private final double[] longitudes;
+
+        private Snapshot(PrefixIndex index, GeoIndex geo, long[] ids, String[] names, String[] nativeNames,
+                         String[] states, String[] postalCodes, long[] countryIds, long[] populations,
+                         BitSet capitals, double[] latitudes, double[] longitudes) {
+            this.index = index;
+            this.geo = geo;
+            this.ids = ids;
+            this.names = names;
+            this.nativeNames = nativeNames;
+            this.states = states;
+            this.postalCodes = postalCodes;
+            this.countryIds = countryIds;
+            this.populations = populations;
+            this.capitals = capitals;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+        }
+
+        private CityEntry entry(int item) {
+            return new CityEntry(ids[item], names[item], nativeNames[item], states[item], postalCodes[item],
+                countryIds[item], populations[item] >= 0 ? populations[item] : null, capitals.get(item),
+                Double.isNaN(latitudes[item]) ? null : latitudes[item],
+                Double.isNaN(longitudes[item]) ? null : longitudes[item]);
+        }
+    }
+
+    /**
+     * Accumulates the loaded rows into growing parallel arrays.
+     */
+    private static final class SnapshotBuilder {
+        private final PrefixIndex.Builder index = PrefixIndex.builder();
+        // States repeat across cities: one instance each
+        private final Map<String, String> states = new HashMap<>();
+        private long[] ids = new long[1024];
+        private String[] names = new String[1024];
+        private String[] nativeNames = new String[1024];
+        private String[] stateNames = new String[1024];
+        private String[] postalCodes = new String[1024];
+        private long[] countryIds = new long[1024];
+        private long[] populations = new long[1024];
+        private long[] weights = new long[1024];
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private final BitSet capitals = new BitSet();
+        private int count;
+
+        private void add(Object[] row) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                nativeNames = Arrays.copyOf(nativeNames, capacity);
+                stateNames = Arrays.copyOf(stateNames, capacity);
+                postalCodes = Arrays.copyOf(postalCodes, capacity);
+                countryIds = Arrays.copyOf(countryIds, capacity);
+                populations = Arrays.copyOf(populations, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            String name = (String) row[1];
+            String nativeName = (String) row[2];
+            String postalCode = (String) row[4];
+            long countryId = (Long) row[5];
+            Long population = (Long) row[6];
+            boolean capital = (Boolean) row[7];
+            Double latitude = (Double) row[8];
+            Double longitude = (Double) row[9];
+
+            ids[count] = (Long) row[0];
+            names[count] = name;
+            // Most native names equal the name: shared
+            nativeNames[count] = name.equals(nativeName) ? name : nativeName;
+            stateNames[count] = row[3] != null ? states.computeIfAbsent((String) row[3], state -> state) : null;
+            postalCodes[count] = postalCode;
+            countryIds[count] = countryId;
+            populations[count] = population != null ? population : -1;
+            weights[count] = weight(capital, population);
+            capitals.set(count, capital);
+            latitudes[count] = latitude != null ? latitude : Double.NaN;
+            longitudes[count] = longitude != null ? longitude : Double.NaN;
+
+            index.add(count, countryId, name, true);
+            if (nativeName != null && !nativeName.equals(name)) {
+                index.add(count, countryId, nativeName, true);
+            }
+            index.add(count, countryId, postalKey(postalCode), false);
+            count++;
+        }
+
+        private Snapshot build() {
+            double[] loadedLatitudes = Arrays.copyOf(latitudes, count);
+            double[] loadedLongitudes = Arrays.copyOf(longitudes, count);
+            return new Snapshot(index.build(Arrays.copyOf(weights, count)),
+                GeoIndex.of(loadedLatitudes, loadedLongitudes), Arrays.copyOf(ids, count),
+                Arrays.copyOf(names, count), Arrays.copyOf(nativeNames, count),
+                Arrays.copyOf(stateNames, count), Arrays.copyOf(postalCodes, count),
+                Arrays.copyOf(countryIds, count), Arrays.copyOf(populations, count), capitals,
+                loadedLatitudes, loadedLongitudes);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.viridial.countries.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.forms.CountryForm;
 import com.viridial.countries.forms.CountrySearchForm;
+import com.viridial.countries.forms.CountrySuggestForm;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
  * Service interface for CountryEntity operations.
  */
-public interface CountryService {
-    List<CountryForm> search(CountrySearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface CountryService extends BulkService {
+    PaginatedResponse<CountryForm> search(CountrySearchForm search);
+    long export(CountrySearchForm search, ExportWriter.Format format, OutputStream output);
+    List<CountrySuggestForm> suggest(String query, Integer limit);
 }
 
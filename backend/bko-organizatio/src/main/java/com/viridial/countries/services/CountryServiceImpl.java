@@ -1,19 +1,32 @@
 package com.viridial.countries.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.countries.entities.CountryEntity;
 import com.viridial.countries.forms.CountryForm;
 import com.viridial.countries.forms.CountrySearchForm;
+import com.viridial.countries.forms.CountrySuggestForm;
 import com.viridial.countries.mapper.CountryMapper;
 import com.viridial.countries.repositories.CountryRepositoryCustom;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for CountryEntity operations.
@@ -21,46 +34,82 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class CountryServiceImpl implements CountryService {
+    private static final int SUGGEST_DEFAULT_LIMIT = 10;
+    private static final int SUGGEST_MAX_LIMIT = 50;
+
     @Autowired
     private CountryRepositoryCustom countryRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CountrySuggestIndex countrySuggestIndex;
+
     @Override
     @Transactional(readOnly = true)
-    public List<CountryForm> search(CountrySearchForm search) {
+    public PaginatedResponse<CountryForm> search(CountrySearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<CountryEntity> page = countryRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(CountryMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        SearchPage<CountryEntity> page = countryRepositoryCustom.search(search, pageable);
+        return PaginatedResponse.of(page, CountryMapper::mapEntityToForm);
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<CountryEntity> entities = countryRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        countryRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        // Bulk statements bypass the entity listeners
+        countrySuggestIndex.invalidate();
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            CountryEntity.class, ids, form.getVersions(), form.isActive(), null);
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<CountryEntity> entities = countryRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(CountryEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        countrySuggestIndex.invalidate();
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            CountryEntity.class, ids, form.getVersions(), deletedBy);
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(CountrySearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, CountryForm.class, objectMapper)) {
+            countryRepositoryCustom.export(search, entity -> writer.write(CountryMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        countryRepositoryCustom.saveAll(entities);
-        return entities.size();
+    }
+
+    /**
+     * Served from memory: no transaction, so no connection is taken.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CountrySuggestForm> suggest(String query, Integer limit) {
+        return countrySuggestIndex.suggest(query, suggestLimit(limit));
+    }
+
+    private static int suggestLimit(Integer limit) {
+        return limit == null ? SUGGEST_DEFAULT_LIMIT : Math.max(1, Math.min(limit, SUGGEST_MAX_LIMIT));
     }
 
     private Pageable buildPageable(CountrySearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
@@ -0,0 +1,157 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.utils.PrefixIndex;
+import com.viridial.countries.forms.CountrySuggestForm;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory typeahead index of the active, enabled countries, by name, native name (from each
+ * word start), ISO 2 and ISO 3 codes, weighted by the population of their active cities.
+ *
+ * <p>Invalidated like the referential cache: any write to a country drops the snapshot, at the
+ * write and again at the end of the transaction, and the next lookup reloads it. While another
+ * thread reloads, lookups keep being served from the previous snapshot.</p>
+ */
+@Component
+public class CountrySuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountrySuggestIndex.class);
+
+    private static final String LOAD_QUERY = "select c.id, c.name, c.nativeName, c.iso2, c.iso3, c.flagEmoji "
+        + "from CountryEntity c where c.active = true and c.enabled = true and c.deletedAt is null";
+
+    private static final String POPULATION_QUERY = "select c.countryId, sum(c.population) from CityEntity c "
+        + "where c.active = true and c.deletedAt is null and c.population is not null group by c.countryId";
+
+    // Countries are not partitioned
+    private static final long PARTITION = 0;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Returns the countries with a name, native name word or ISO code starting with the text, most populated first.
+     *
+     * @param text the typed text, normalized like the names (case and accents are ignored)
+     * @param limit the maximum number of countries
+     */
+    public List<CountrySuggestForm> suggest(String text, int limit) {
+        String prefix = PrefixIndex.normalize(text);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot();
+        List<CountrySuggestForm> suggestions = new ArrayList<>();
+        for (int item : current.index.top(prefix, null, limit, null)) {
+            suggestions.add(current.countries.get(item));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Drops the current snapshot. Also registers a second invalidation at the end of the
+     * current transaction, so that a reload racing with the commit cannot keep stale data.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CountrySuggestIndex.this);
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the valid snapshot, loading it if needed; the stale one while another thread loads.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.generation == generation.get()) {
+            return current;
+        }
+        if (current != null && !loadLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            loadLock.lock();
+        }
+        try {
+            current = snapshot;
+            if (current != null && current.generation == generation.get()) {
+                return current;
+            }
+            // A snapshot loaded while an invalidation happens keeps the old generation and is reloaded next time
+            current = load(generation.get());
+            snapshot = current;
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private Snapshot load(long loadGeneration) {
+        return entityManagerFactory.unwrap(SessionFactory.class).fromStatelessTransaction(session -> {
+            Map<Long, Long> populations = new HashMap<>();
+            for (Object[] row : session.createSelectionQuery(POPULATION_QUERY, Object[].class).getResultList()) {
+                populations.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            List<CountrySuggestForm> countries = new ArrayList<>();
+            PrefixIndex.Builder index = PrefixIndex.builder();
+            for (Object[] row : session.createSelectionQuery(LOAD_QUERY, Object[].class).getResultList()) {
+                CountrySuggestForm country = new CountrySuggestForm((Long) row[0], (String) row[1], (String) row[2],
+                    (String) row[3], (String) row[4], (String) row[5]);
+                int item = countries.size();
+                countries.add(country);
+                index.add(item, PARTITION, country.getName(), true)
+                    .add(item, PARTITION, country.getNativeName(), true)
+                    .add(item, PARTITION, country.getIso2(), false)
+                    .add(item, PARTITION, country.getIso3(), false);
+            }
+            long[] weights = new long[countries.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = populations.getOrDefault(countries.get(i).getId(), 0L);
+            }
+            logger.debug("Loaded {} countries into the suggestion index", countries.size());
+            return new Snapshot(loadGeneration, index.build(weights), countries);
+        });
+    }
+
+    /**
+     * Immutable index of the suggestible countries at one generation; country i is item i.
+     */
+    private static final class Snapshot {
+        private final long generation;
+        private final PrefixIndex index;
+        private final List<CountrySuggestForm> countries;
+
+        private Snapshot(long generation, PrefixIndex index, List<CountrySuggestForm> countries) {
+            this.generation = generation;
+            this.index = index;
+            this.countries = countries;
+        }
+    }
+}
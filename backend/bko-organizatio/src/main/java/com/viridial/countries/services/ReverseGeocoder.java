@@ -0,0 +1,528 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.utils.GeoIndex;
+import com.viridial.countries.entities.CityEntity;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reverse geocoding: the active city nearest to a point, and its country.
+ *
+ * <p>The snapshot is a {@link GeoIndex} of the active cities with coordinates and their ids and
+ * country ids in primitive arrays, item i being city i. It is saved to
+ * {@code app.geocoding.index-file} and memory-mapped back at startup, with the fingerprint of the
+ * cities table it was built from (largest id, latest update, both read from an index): a restart
+ * reads the file, without querying the cities nor building the tree, unless the table has changed
+ * since. Cities are never deleted but soft deleted, which updates them.</p>
+ *
+ * <p>As in {@link CitySuggestIndex}, city writes are applied incrementally: after commit, the new
+ * location of each changed city goes into a change map that overrides the snapshot, entity writes
+ * through {@link #onChange} and bulk updates and deletes through {@link #onBulkChange}. Once the
+ * change map exceeds {@code app.geocoding.rebuild-threshold} cities, the snapshot is rebuilt in the
+ * background, saved again, and the changes it includes are dropped. Import and seed call
+ * {@link #refresh()} to rebuild it after their commit.</p>
+ */
+@Component
+public class ReverseGeocoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReverseGeocoder.class);
+
+    private static final String LOAD_QUERY = "select c.id, c.countryId, c.latitude, c.longitude from CityEntity c "
+        + "where c.active = true and c.deletedAt is null and c.latitude is not null and c.longitude is not null";
+
+    private static final String READ_BACK_QUERY = LOAD_QUERY + " and c.id in :ids";
+
+    // Soft deletes, bulk writes and imports set updatedAt as well. Both from an index (db/geocoding-indexes.sql)
+    private static final String FINGERPRINT_QUERY = "select max(c.id), max(c.updatedAt) from CityEntity c";
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private static final int FILE_MAGIC = 0x56524743; // VRGC
+    private static final int FILE_VERSION = 2;
+    // Magic, version, fingerprint, city count
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    // City id, country id, latitude and longitude of each city
+    private static final int BYTES_PER_CITY = 2 * Long.BYTES + 2 * Float.BYTES;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.geocoding.index-file:}")
+    private String indexFile;
+
+    @Value("${app.geocoding.rebuild-threshold:1000}")
+    private int rebuildThreshold;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reverse-geocoder-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Snapshot snapshot;
+
+    /**
+     * A resolved point: the nearest active city within the maximum distance.
+     */
+    public record Resolution(long cityId, long countryId, double distanceKm) {
+    }
+
+    /**
+     * Returns the active city nearest to a point, or null when none is within the distance.
+     *
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param maxDistanceKm the distance beyond which cities are ignored
+     */
+    public Resolution resolve(double latitude, double longitude, double maxDistanceKm) {
+        Snapshot current = snapshot();
+        Resolution nearest = null;
+        // Changed cities are looked up in the change map only
+        int[] items = current.index.nearest(latitude, longitude, 1, maxDistanceKm,
+            item -> changes.containsKey(current.cityIds[item]));
+        if (items.length > 0) {
+            int item = items[0];
+            nearest = new Resolution(current.cityIds[item], current.countryIds[item],
+                GeoIndex.distanceKm(latitude, longitude, current.latitudes[item], current.longitudes[item]));
+        }
+        for (Map.Entry<Long, Change> entry : changes.entrySet()) {
+            Location location = entry.getValue().location;
+            if (location != null) {
+                double distanceKm = GeoIndex.distanceKm(latitude, longitude, location.latitude(), location.longitude());
+                if (distanceKm <= maxDistanceKm && (nearest == null || distanceKm < nearest.distanceKm())) {
+                    nearest = new Resolution(entry.getKey(), location.countryId(), distanceKm);
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Records the new location of a city written through its entity, applied once the current transaction commits.
+     *
+     * @param removed whether the city was deleted
+     */
+    public void onChange(CityEntity city, boolean removed) {
+        boolean located = !removed && city.isActive() && city.getDeletedAt() == null && city.getLatitude() != null
+            && city.getLongitude() != null;
+        Map<Long, Location> locations = new HashMap<>();
+        locations.put(city.getId(), located
+            ? new Location(city.getCountryId(), city.getLatitude(), city.getLongitude()) : null);
+        record(locations);
+    }
+
+    /**
+     * Records the new location of cities written by a bulk statement, applied once the current transaction
+     * commits. Called after the statement: the located active cities are read back in the current
+     * transaction, the others are removed. Beyond the rebuild threshold, the snapshot is rebuilt after
+     * commit instead.
+     */
+    public void onBulkChange(Collection<Long> ids) {
+        if (ids.size() > rebuildThreshold) {
+            refresh();
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive() && pending().overflow) {
+            return;
+        }
+        Map<Long, Location> locations = new HashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                locations.put(id, null);
+            }
+        }
+        entityManager.createQuery(READ_BACK_QUERY, Object[].class)
+            .setParameter("ids", ids)
+            .getResultList()
+            .forEach(row -> locations.put((Long) row[0],
+                new Location((Long) row[1], (Double) row[2], (Double) row[3])));
+        record(locations);
+    }
+
+    /**
+     * Rebuilds the snapshot after the current transaction commits, or now without transaction.
+     * For writes that do not go through the city entities nor the bulk statements.
+     */
+    public void refresh() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scheduleRebuild();
+            return;
+        }
+        Pending pending = pending();
+        pending.overflow = true;
+        pending.locations.clear();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void record(Map<Long, Location> locations) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(locations);
+            return;
+        }
+        Pending pending = pending();
+        if (pending.overflow) {
+            return;
+        }
+        pending.locations.putAll(locations);
+        if (pending.locations.size() > rebuildThreshold) {
+            // Too many to apply one by one: the snapshot is rebuilt after commit
+            pending.overflow = true;
+            pending.locations.clear();
+        }
+    }
+
+    private Pending pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (created.overflow) {
+                        scheduleRebuild();
+                    } else {
+                        apply(created.locations);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReverseGeocoder.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void apply(Map<Long, Location> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
+        long changeSequence = sequence.incrementAndGet();
+        locations.forEach((id, location) -> changes.put(id, new Change(changeSequence, location)));
+        if (changes.size() > rebuildThreshold) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                // Writes committed from now on schedule another rebuild
+                rebuildScheduled.set(false);
+                try {
+                    loadLock.lock();
+                    try {
+                        load();
+                    } finally {
+                        loadLock.unlock();
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Reverse geocoder rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the snapshot, loading it on the calling thread when none was ever loaded.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            if (snapshot == null) {
+                load();
+            }
+            return snapshot;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the snapshot if the cities have not changed, else reads the saved one if it matches
+     * them, else builds one from the cities and saves it. Then drops the changes committed before
+     * the load started, which it includes. Must hold the load lock.
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        long loadSequence = sequence.get();
+        Snapshot loaded = entityManagerFactory.unwrap(SessionFactory.class).fromStatelessTransaction(session -> {
+            // Read first: the cities loaded next are at least as recent
+            Fingerprint fingerprint = fingerprint(session);
+            Snapshot current = snapshot;
+            if (current != null && current.fingerprint.equals(fingerprint)) {
+                return current;
+            }
+            Snapshot saved = read(fingerprint);
+            if (saved != null) {
+                logger.info("Reverse geocoder read from {}: {} cities in {} ms", indexFile, saved.cityIds.length,
+                    System.currentTimeMillis() - start);
+                return saved;
+            }
+            SnapshotBuilder builder = new SnapshotBuilder();
+            session.createSelectionQuery(LOAD_QUERY, Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()
+                .forEach(builder::add);
+            Snapshot built = builder.build(fingerprint);
+            logger.info("Reverse geocoder built: {} cities in {} ms", built.cityIds.length,
+                System.currentTimeMillis() - start);
+            write(built);
+            return built;
+        });
+        snapshot = loaded;
+        changes.forEach((id, change) -> {
+            if (change.sequence <= loadSequence) {
+                changes.remove(id, change);
+            }
+        });
+    }
+
+    private static Fingerprint fingerprint(StatelessSession session) {
+        Object[] row = session.createSelectionQuery(FINGERPRINT_QUERY, Object[].class).getSingleResult();
+        LocalDateTime updatedAt = (LocalDateTime) row[1];
+        return new Fingerprint(row[0] != null ? (Long) row[0] : 0,
+            updatedAt != null ? updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000 : 0);
+    }
+
+    /**
+     * Maps the saved snapshot; null when there is none, or it was built from other cities or is unreadable.
+     */
+    private Snapshot read(Fingerprint fingerprint) {
+        if (indexFile.isEmpty() || !Files.isRegularFile(Path.of(indexFile))) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(indexFile), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION
+                    || !new Fingerprint(buffer.getLong(), buffer.getLong()).equals(fingerprint)) {
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * BYTES_PER_CITY > buffer.remaining()) {
+                return null;
+            }
+            long[] cityIds = new long[count];
+            long[] countryIds = new long[count];
+            float[] latitudes = new float[count];
+            float[] longitudes = new float[count];
+            getAll(buffer, cityIds);
+            getAll(buffer, countryIds);
+            getAll(buffer, latitudes);
+            getAll(buffer, longitudes);
+            return new Snapshot(fingerprint, GeoIndex.read(buffer), cityIds, countryIds, latitudes, longitudes);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Reverse geocoder file {} ignored: {}", indexFile, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the snapshot to a temporary file moved over the index file, so that a reader never sees it half written.
+     */
+    private void write(Snapshot built) {
+        if (indexFile.isEmpty()) {
+            return;
+        }
+        Path target = Path.of(indexFile).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                long size = HEADER_BYTES + (long) built.cityIds.length * BYTES_PER_CITY + built.index.byteSize();
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    buffer.order(ByteOrder.LITTLE_ENDIAN);
+                    buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION)
+                        .putLong(built.fingerprint.maxId()).putLong(built.fingerprint.updatedAt())
+                        .putInt(built.cityIds.length);
+                    putAll(buffer, built.cityIds);
+                    putAll(buffer, built.countryIds);
+                    putAll(buffer, built.latitudes);
+                    putAll(buffer, built.longitudes);
+                    built.index.write(buffer);
+                    buffer.force();
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // Only the next restart is slower
+            logger.warn("Reverse geocoder file {} not saved: {}", indexFile, e.toString());
+        }
+    }
+
+    private static void getAll(ByteBuffer buffer, long[] values) {
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+    }
+
+    private static void getAll(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Float.BYTES);
+    }
+
+    private static void putAll(ByteBuffer buffer, long[] values) {
+        buffer.asLongBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+    }
+
+    private static void putAll(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Float.BYTES);
+    }
+
+    /**
+     * State of the cities table a snapshot was built from: largest id and latest update (epoch microseconds).
+     */
+    private record Fingerprint(long maxId, long updatedAt) {
+    }
+
+    /**
+     * Committed location of a city, overriding the snapshot.
+     */
+    private record Location(long countryId, double latitude, double longitude) {
+    }
+
+    /**
+     * Changes of the current transaction, by city id (null when no longer located).
+     */
+    private static final class Pending {
+        private final Map<Long, Location> locations = new HashMap<>();
+        private boolean overflow;
+    }
+
+    /**
+     * A city changed since the snapshot, with its location or null when removed.
+     */
+    private static final class Change {
+        private final long sequence;
+        private final Location location;
+
+        private Change(long sequence, Location location) {
+            this.sequence = sequence;
+            this.location = location;
+        }
+    }
+
+    /**
+     * Immutable index of the located active cities at load time; city i is item i of the geo index.
+     */
+    private static final class Snapshot {
+        private final Fingerprint fingerprint;
+        private final GeoIndex index;
+        private final long[] cityIds;
+        private final long[] countryIds;
+        // Floats are within a meter, enough for the distances
+        private final float[] latitudes;
+        private final float[] longitudes;
+
+        private Snapshot(Fingerprint fingerprint, GeoIndex index, long[] cityIds, long[] countryIds,
+                         float[] latitudes, float[] longitudes) {
+            this.fingerprint = fingerprint;
+            this.index = index;
+            this.cityIds = cityIds;
+            this.countryIds = countryIds;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+        }
+    }
+
+    /**
+     * Accumulates the loaded rows into growing parallel arrays.
+     */
+    private static final class SnapshotBuilder {
+        private long[] cityIds = new long[1024];
+        private long[] countryIds = new long[1024];
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private int count;
+
+        private void add(Object[] row) {
+            if (count == cityIds.length) {
+                int capacity = count * 2;
+                cityIds = Arrays.copyOf(cityIds, capacity);
+                countryIds = Arrays.copyOf(countryIds, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            cityIds[count] = (Long) row[0];
+            countryIds[count] = (Long) row[1];
+            latitudes[count] = (Double) row[2];
+            longitudes[count] = (Double) row[3];
+            count++;
+        }
+
+        private Snapshot build(Fingerprint fingerprint) {
+            float[] builtLatitudes = new float[count];
+            float[] builtLongitudes = new float[count];
+            for (int i = 0; i < count; i++) {
+                builtLatitudes[i] = (float) latitudes[i];
+                builtLongitudes[i] = (float) longitudes[i];
+            }
+            return new Snapshot(fingerprint, GeoIndex.of(Arrays.copyOf(latitudes, count), Arrays.copyOf(longitudes, count)),
+                Arrays.copyOf(cityIds, count), Arrays.copyOf(countryIds, count), builtLatitudes, builtLongitudes);
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.viridial.countries.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.countries.forms.TimezoneForm;
 import com.viridial.countries.forms.TimezoneSearchForm;
 
-import java.util.List;
+import java.io.OutputStream;
 
 /**
  * Service interface for TimezoneEntity operations.
  */
-public interface TimezoneService {
-    List<TimezoneForm> search(TimezoneSearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface TimezoneService extends BulkService {
+    PaginatedResponse<TimezoneForm> search(TimezoneSearchForm search);
+    long export(TimezoneSearchForm search, ExportWriter.Format format, OutputStream output);
 }
 
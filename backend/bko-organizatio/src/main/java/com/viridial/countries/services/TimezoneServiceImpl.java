@@ -1,19 +1,30 @@
 package com.viridial.countries.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.common.repositories.TimezoneRepositoryCustom;
 import com.viridial.countries.entities.TimezoneEntity;
 import com.viridial.countries.forms.TimezoneForm;
 import com.viridial.countries.forms.TimezoneSearchForm;
 import com.viridial.countries.mapper.TimezoneMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for TimezoneEntity operations.
@@ -24,43 +35,57 @@ public class TimezoneServiceImpl implements TimezoneService {
     @Autowired
     private TimezoneRepositoryCustom timezoneRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @Transactional(readOnly = true)
-    public List<TimezoneForm> search(TimezoneSearchForm search) {
+    public PaginatedResponse<TimezoneForm> search(TimezoneSearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<TimezoneEntity> page = timezoneRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(TimezoneMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        SearchPage<TimezoneEntity> page = timezoneRepositoryCustom.search(search, pageable);
+        return PaginatedResponse.of(page, TimezoneMapper::mapEntityToForm);
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<TimezoneEntity> entities = timezoneRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        timezoneRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            TimezoneEntity.class, ids, form.getVersions(), form.isActive(), null);
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<TimezoneEntity> entities = timezoneRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(TimezoneEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            TimezoneEntity.class, ids, form.getVersions(), deletedBy);
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(TimezoneSearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, TimezoneForm.class, objectMapper)) {
+            timezoneRepositoryCustom.export(search, entity -> writer.write(TimezoneMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        timezoneRepositoryCustom.saveAll(entities);
-        return entities.size();
     }
 
     private Pageable buildPageable(TimezoneSearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(PermissionEntityListener.class)
 @Table(
     name = "feat_feature",
     indexes = {
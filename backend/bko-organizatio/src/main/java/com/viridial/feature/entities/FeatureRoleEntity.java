@@ -6,6 +6,7 @@ import com.viridial.roles.entities.RoleEntity;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(PermissionEntityListener.class)
 @Table(
     name = "feat_feature_role",
     indexes = {
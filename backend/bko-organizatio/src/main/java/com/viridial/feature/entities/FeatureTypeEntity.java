@@ -1,11 +1,16 @@
 package com.viridial.feature.entities;
 
+import com.viridial.common.config.CacheRegions;
 import com.viridial.common.entities.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.FEATURE_TYPE)
 @Table(
     name = "feat_feature_type",
     indexes = {
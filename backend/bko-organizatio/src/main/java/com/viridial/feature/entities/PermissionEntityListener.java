@@ -0,0 +1,38 @@
+package com.viridial.feature.entities;
+
+import com.viridial.feature.services.PermissionResolver;
+import com.viridial.users.entities.UserEntity;
+import com.viridial.users.entities.UserRoleEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps the permission resolver in sync with the authorization model: a change to a role, feature
+ * or feature link invalidates the whole model, a change to a user or a role assignment evicts that user.
+ * Instantiated by Spring through Hibernate's bean container, like the referential listener.
+ */
+public class PermissionEntityListener {
+
+    @Autowired
+    private ObjectProvider<PermissionResolver> permissionResolver;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        permissionResolver.ifAvailable(resolver -> {
+            if (entity instanceof UserRoleEntity userRole) {
+                if (userRole.getUserId() != null) {
+                    resolver.evictUser(userRole.getUserId());
+                }
+            } else if (entity instanceof UserEntity user) {
+                resolver.evictUser(user.getId());
+            } else {
+                resolver.invalidate();
+            }
+        });
+    }
+}
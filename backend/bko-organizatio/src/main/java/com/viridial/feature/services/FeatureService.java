@@ -4,6 +4,5 @@ package com.viridial.feature.services;
  * Service interface for FeatureEntity operations.
  */
 public interface FeatureService {
-
+    boolean hasFeature(Long userId, String featureCode);
 }
-
@@ -1,6 +1,8 @@
 package com.viridial.feature.services;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -9,6 +11,15 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 @Transactional
 public class FeatureServiceImpl implements FeatureService {
+    @Autowired
+    private PermissionResolver permissionResolver;
 
+    /**
+     * Checks a user's access to a feature from the precomputed permissions; no transaction is needed.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean hasFeature(Long userId, String featureCode) {
+        return permissionResolver.hasFeature(userId, featureCode);
+    }
 }
-
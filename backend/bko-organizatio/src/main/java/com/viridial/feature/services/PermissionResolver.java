@@ -0,0 +1,446 @@
+package com.viridial.feature.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Effective permissions of users: which features a user can use through the roles assigned to them.
+ *
+ * <p>The role and feature model is flattened once into a snapshot. Each enabled feature gets a dense
+ * ordinal, and each role gets the bitset of every feature it grants. A role grants:</p>
+ * <ul>
+ *     <li>its active feature links and their sub-features;</li>
+ *     <li>every enabled feature when it is an admin role;</li>
+ *     <li>whatever its parent roles grant.</li>
+ * </ul>
+ * <p>An inactive role grants nothing of its own. A feature is enabled when it and all its parent
+ * features are active and not deleted.</p>
+ *
+ * <p>A user's bitset is the union of the roles of their current assignments: active, not deleted,
+ * between start and end date. It is computed with one query on first use and cached until the next
+ * start or end date of an assignment. {@link #hasFeature} is then two map lookups and a bit test.</p>
+ *
+ * <p>A change to a role, feature or feature link drops the snapshot and, with it, every user's
+ * bitset. A change to a user or their assignments evicts that user only. As with the referential
+ * cache, the current transaction bypasses the cache while its own changes are uncommitted. A second
+ * invalidation runs after the commit, so that a load racing with the commit is never served.</p>
+ */
+@Component
+public class PermissionResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionResolver.class);
+
+    // Bound of the parent chains, against cycles in the data
+    private static final int MAX_DEPTH = 64;
+
+    private static final String FEATURES_QUERY = "select f.id, f.code, f.parentId, f.active from FeatureEntity f"
+        + " where f.deletedAt is null";
+    private static final String ROLES_QUERY = "select r.id, r.code, r.parentId, r.active, r.admin from RoleEntity r"
+        + " where r.deletedAt is null";
+    private static final String GRANTS_QUERY = "select fr.roleId, fr.featureId from FeatureRoleEntity fr"
+        + " where fr.active = true and fr.deletedAt is null and fr.roleId is not null and fr.featureId is not null";
+    private static final String ASSIGNMENTS_QUERY = "select ur.roleId, ur.startDate, ur.endDate"
+        + " from UserRoleEntity ur join UserEntity u on u.id = ur.userId"
+        + " where ur.userId = :userId and ur.active = true and ur.deletedAt is null"
+        + " and u.active = true and u.deletedAt is null";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Model model;
+
+    private final Map<Long, UserPermissions> users = new ConcurrentHashMap<>();
+    // Incremented by every eviction: permissions loaded across one may be stale
+    private final AtomicLong userGeneration = new AtomicLong();
+
+    /**
+     * Checks whether a user can currently use a feature, by feature code.
+     */
+    public boolean hasFeature(Long userId, String featureCode) {
+        Model current = model();
+        Integer ordinal = current.ordinals.get(featureCode);
+        return ordinal != null && permissions(current, userId).has(ordinal);
+    }
+
+    /**
+     * Returns the codes of the features a user can currently use, sorted.
+     */
+    public List<String> getFeatureCodes(Long userId) {
+        Model current = model();
+        UserPermissions permissions = permissions(current, userId);
+        List<String> codes = new ArrayList<>();
+        for (int ordinal = 0; ordinal < current.codes.length; ordinal++) {
+            if (permissions.has(ordinal)) {
+                codes.add(current.codes[ordinal]);
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Returns the codes of the roles a user currently holds, inherited roles included, sorted.
+     */
+    public List<String> getRoleCodes(Long userId) {
+        Model current = model();
+        Set<String> codes = new TreeSet<>();
+        for (Long roleId : permissions(current, userId).roleIds) {
+            Long id = roleId;
+            for (int depth = 0; id != null && depth < MAX_DEPTH; depth++) {
+                Role role = current.roles.get(id);
+                if (role == null) {
+                    break;
+                }
+                if (role.active) {
+                    codes.add(role.code);
+                }
+                id = role.parentId;
+            }
+        }
+        return new ArrayList<>(codes);
+    }
+
+    /**
+     * Returns when the user's permissions change next because an assignment starts or ends,
+     * or null when no assignment is scheduled to.
+     */
+    public LocalDateTime getValidUntil(Long userId) {
+        long validUntil = permissions(model(), userId).validUntil;
+        return validUntil == Long.MAX_VALUE ? null
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(validUntil), ZoneId.systemDefault());
+    }
+
+    /**
+     * Drops the role and feature snapshot, and with it every user's permissions.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        Pending pending = pending();
+        if (pending != null) {
+            pending.model = true;
+        }
+    }
+
+    /**
+     * Drops the permissions of some users, after a change to them or to their role assignments.
+     */
+    public void evictUsers(Collection<Long> userIds) {
+        evict(userIds);
+        Pending pending = pending();
+        if (pending != null) {
+            pending.userIds.addAll(userIds);
+        }
+    }
+
+    public void evictUser(Long userId) {
+        evictUsers(List.of(userId));
+    }
+
+    private void evict(Collection<Long> userIds) {
+        userGeneration.incrementAndGet();
+        for (Long userId : userIds) {
+            users.remove(userId);
+        }
+    }
+
+    /**
+     * Returns the invalidations to repeat at the end of the current transaction, registering them
+     * on first use, or null outside of a transaction.
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending registered = new Pending();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PermissionResolver.this);
+                    if (registered.model) {
+                        generation.incrementAndGet();
+                    }
+                    if (!registered.userIds.isEmpty()) {
+                        evict(registered.userIds);
+                    }
+                }
+            });
+            pending = registered;
+        }
+        return pending;
+    }
+
+    private boolean isBypassed() {
+        // The current transaction has uncommitted role, feature or assignment changes
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    private UserPermissions permissions(Model current, Long userId) {
+        UserPermissions permissions = users.get(userId);
+        if (permissions != null && permissions.model == current
+                && permissions.validUntil > System.currentTimeMillis()) {
+            return permissions;
+        }
+        long loadedAt = userGeneration.get();
+        permissions = loadUser(current, userId);
+        if (!isBypassed() && current == model) {
+            users.put(userId, permissions);
+            // An eviction during the load may have removed the entry before it was put: the
+            // generation was incremented before the removal, so it is seen here
+            if (userGeneration.get() != loadedAt) {
+                users.remove(userId, permissions);
+            }
+        }
+        return permissions;
+    }
+
+    private Model model() {
+        if (isBypassed()) {
+            return loadModel(-1);
+        }
+        Model current = model;
+        if (current != null && current.generation == generation.get()) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = model;
+            if (current != null && current.generation == generation.get()) {
+                return current;
+            }
+            // A model loaded while an invalidation happens keeps the old generation and is never served again
+            current = loadModel(generation.get());
+            model = current;
+            users.clear();
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the model with projections only, so nothing is added to the current persistence context.
+     * In a transaction with uncommitted changes, the queries see them.
+     */
+    private Model loadModel(long loadGeneration) {
+        List<Object[]> featureRows = entityManager.createQuery(FEATURES_QUERY, Object[].class).getResultList();
+        List<Object[]> roleRows = entityManager.createQuery(ROLES_QUERY, Object[].class).getResultList();
+        List<Object[]> grantRows = entityManager.createQuery(GRANTS_QUERY, Object[].class).getResultList();
+        Model loaded = new Model(loadGeneration, featureRows, roleRows, grantRows);
+        logger.debug("Loaded the permission model: {} enabled features, {} roles",
+            loaded.codes.length, loaded.roles.size());
+        return loaded;
+    }
+
+    private UserPermissions loadUser(Model current, Long userId) {
+        List<Object[]> assignments = entityManager.createQuery(ASSIGNMENTS_QUERY, Object[].class)
+            .setParameter("userId", userId)
+            .getResultList();
+        long now = System.currentTimeMillis();
+        long validUntil = Long.MAX_VALUE;
+        long[] bits = new long[current.words];
+        List<Long> roleIds = new ArrayList<>();
+        for (Object[] assignment : assignments) {
+            Long roleId = (Long) assignment[0];
+            long start = toMillis((LocalDateTime) assignment[1], Long.MIN_VALUE);
+            long end = toMillis((LocalDateTime) assignment[2], Long.MAX_VALUE);
+            if (start > now) {
+                validUntil = Math.min(validUntil, start);
+            } else if (end > now) {
+                validUntil = Math.min(validUntil, end);
+                long[] roleBits = current.bitsByRole.get(roleId);
+                if (roleBits != null) {
+                    or(bits, roleBits);
+                    roleIds.add(roleId);
+                }
+            }
+        }
+        return new UserPermissions(current, validUntil, bits, roleIds);
+    }
+
+    private static long toMillis(LocalDateTime dateTime, long defaultValue) {
+        return dateTime == null ? defaultValue : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= source[i];
+        }
+    }
+
+    private static void set(long[] bits, int ordinal) {
+        bits[ordinal >>> 6] |= 1L << ordinal;
+    }
+
+    /**
+     * Invalidations of a transaction, repeated once it has completed.
+     */
+    private static final class Pending {
+        private boolean model;
+        private final Set<Long> userIds = new HashSet<>();
+    }
+
+    private static final class Role {
+        private final String code;
+        private final Long parentId;
+        private final boolean active;
+        private final boolean admin;
+
+        private Role(String code, Long parentId, boolean active, boolean admin) {
+            this.code = code;
+            this.parentId = parentId;
+            this.active = active;
+            this.admin = admin;
+        }
+    }
+
+    /**
+     * Flattened roles and features at one generation.
+     */
+    private static final class Model {
+        private final long generation;
+        private final Map<String, Integer> ordinals;
+        private final String[] codes;
+        private final int words;
+        private final Map<Long, Role> roles;
+        private final Map<Long, long[]> bitsByRole;
+
+        private Model(long generation, List<Object[]> featureRows, List<Object[]> roleRows, List<Object[]> grantRows) {
+            this.generation = generation;
+
+            Map<Long, Object[]> features = new HashMap<>();
+            for (Object[] row : featureRows) {
+                features.put((Long) row[0], row);
+            }
+            // Enabled features, with dense ordinals in code order
+            TreeSet<String> enabledCodes = new TreeSet<>();
+            Map<Long, String> enabledIds = new HashMap<>();
+            for (Object[] row : featureRows) {
+                if (isEnabled(row, features)) {
+                    enabledCodes.add((String) row[1]);
+                    enabledIds.put((Long) row[0], (String) row[1]);
+                }
+            }
+            this.codes = enabledCodes.toArray(new String[0]);
+            Map<String, Integer> codeOrdinals = new HashMap<>();
+            for (int i = 0; i < codes.length; i++) {
+                codeOrdinals.put(codes[i], i);
+            }
+            this.ordinals = Map.copyOf(codeOrdinals);
+            this.words = Math.max(1, (codes.length + 63) >>> 6);
+
+            // Each enabled feature set in its own subtree and in its ancestors' subtrees
+            Map<Long, long[]> subtrees = new HashMap<>();
+            enabledIds.forEach((id, code) -> {
+                int ordinal = ordinals.get(code);
+                Long featureId = id;
+                for (int depth = 0; featureId != null && depth < MAX_DEPTH; depth++) {
+                    set(subtrees.computeIfAbsent(featureId, key -> new long[words]), ordinal);
+                    Object[] feature = features.get(featureId);
+                    featureId = feature != null ? (Long) feature[2] : null;
+                }
+            });
+
+            long[] all = new long[words];
+            for (int i = 0; i < codes.length; i++) {
+                set(all, i);
+            }
+            Map<Long, Role> roleMap = new HashMap<>();
+            for (Object[] row : roleRows) {
+                roleMap.put((Long) row[0], new Role((String) row[1], (Long) row[2], (Boolean) row[3], (Boolean) row[4]));
+            }
+            this.roles = Map.copyOf(roleMap);
+            Map<Long, long[]> own = new HashMap<>();
+            for (Object[] grant : grantRows) {
+                Role role = roles.get((Long) grant[0]);
+                long[] subtree = subtrees.get((Long) grant[1]);
+                if (role != null && role.active && subtree != null) {
+                    or(own.computeIfAbsent((Long) grant[0], key -> new long[words]), subtree);
+                }
+            }
+
+            Map<Long, long[]> effective = new HashMap<>();
+            for (Map.Entry<Long, Role> entry : roles.entrySet()) {
+                long[] bits = new long[words];
+                Long roleId = entry.getKey();
+                Set<Long> visited = new HashSet<>();
+                while (roleId != null && visited.add(roleId)) {
+                    Role role = roles.get(roleId);
+                    if (role == null) {
+                        break;
+                    }
+                    if (role.active && role.admin) {
+                        or(bits, all);
+                    } else if (role.active && own.containsKey(roleId)) {
+                        or(bits, own.get(roleId));
+                    }
+                    roleId = role.parentId;
+                }
+                effective.put(entry.getKey(), bits);
+            }
+            this.bitsByRole = Map.copyOf(effective);
+        }
+
+        private static boolean isEnabled(Object[] row, Map<Long, Object[]> features) {
+            Object[] feature = row;
+            for (int depth = 0; depth < MAX_DEPTH; depth++) {
+                if (!(Boolean) feature[3]) {
+                    return false;
+                }
+                if (feature[2] == null) {
+                    return true;
+                }
+                feature = features.get((Long) feature[2]);
+                if (feature == null) {
+                    // Parent deleted
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Features of one user, valid for one model until {@code validUntil} (epoch millis).
+     */
+    private static final class UserPermissions {
+        private final Model model;
+        private final long validUntil;
+        private final long[] bits;
+        private final List<Long> roleIds;
+
+        private UserPermissions(Model model, long validUntil, long[] bits, List<Long> roleIds) {
+            this.model = model;
+            this.validUntil = validUntil;
+            this.bits = bits;
+            this.roleIds = List.copyOf(roleIds);
+        }
+
+        private boolean has(int ordinal) {
+            return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.viridial.organization.entities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * One path of the team hierarchy: {@code descendantId} is {@code depth} levels below {@code ancestorId}.
+ * Every team is its own ancestor at depth 0.
+ *
+ * <p>The table is maintained by database triggers on org_team (see db/team-closure.sql),
+ * so it is read-only here; subtree reads are one lookup on the primary key prefix.</p>
+ */
+@Entity
+@Immutable
+@IdClass(TeamClosureId.class)
+@Table(
+    name = "org_team_closure",
+    indexes = {
+        @Index(name = "idx_team_closure_ancestor_depth", columnList = "ancestor_id, depth"),
+        @Index(name = "idx_team_closure_descendant", columnList = "descendant_id, depth")
+    }
+)
+public class TeamClosureEntity {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
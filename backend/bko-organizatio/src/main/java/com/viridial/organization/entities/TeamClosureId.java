@@ -0,0 +1,52 @@
+package com.viridial.organization.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Primary key of {@link TeamClosureEntity}: an (ancestor, descendant) pair.
+ */
+public class TeamClosureId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long ancestorId;
+    private Long descendantId;
+
+    public TeamClosureId() {
+    }
+
+    public TeamClosureId(Long ancestorId, Long descendantId) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+    }
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public void setAncestorId(Long ancestorId) {
+        this.ancestorId = ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public void setDescendantId(Long descendantId) {
+        this.descendantId = descendantId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TeamClosureId)) return false;
+        TeamClosureId that = (TeamClosureId) o;
+        return Objects.equals(ancestorId, that.ancestorId) && Objects.equals(descendantId, that.descendantId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ancestorId, descendantId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.viridial.organization.forms;
+
+/**
+ * A resolved point: its nearest active city, that city's country and the distance to it.
+ * Without city when no city is close enough or the coordinates are invalid.
+ */
+public class AddressResolutionForm {
+    private Double latitude;
+    private Double longitude;
+    private Long cityId;
+    private Long countryId;
+    private Double distanceKm;
+
+    public AddressResolutionForm() {
+    }
+
+    public AddressResolutionForm(Double latitude, Double longitude, Long cityId, Long countryId, Double distanceKm) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.cityId = cityId;
+        this.countryId = countryId;
+        this.distanceKm = distanceKm;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Long getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Long cityId) {
+        this.cityId = cityId;
+    }
+
+    public Long getCountryId() {
+        return countryId;
+    }
+
+    public void setCountryId(Long countryId) {
+        this.countryId = countryId;
+    }
+
+    public Double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(Double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,60 @@
+package com.viridial.organization.forms;
+
+import java.util.List;
+
+/**
+ * Batch of coordinates to resolve to their city and country.
+ */
+public class AddressResolveForm {
+    private List<Point> points;
+    // Points farther than this from every city stay unresolved; app.geocoding.max-distance-km by default
+    private Double maxDistanceKm;
+
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<Point> points) {
+        this.points = points;
+    }
+
+    public Double getMaxDistanceKm() {
+        return maxDistanceKm;
+    }
+
+    public void setMaxDistanceKm(Double maxDistanceKm) {
+        this.maxDistanceKm = maxDistanceKm;
+    }
+
+    /**
+     * Coordinates in degrees.
+     */
+    public static class Point {
+        private Double latitude;
+        private Double longitude;
+
+        public Point() {
+        }
+
+        public Point(Double latitude, Double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        public void setLatitude(Double latitude) {
+            this.latitude = latitude;
+        }
+
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        public void setLongitude(Double longitude) {
+            this.longitude = longitude;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.viridial.organization.forms;
+
+import java.util.List;
+
+/**
+ * Response of a batch resolution: one result per point, in the order of the points.
+ */
+public class AddressResolveResponse {
+    private List<AddressResolutionForm> results;
+    private int resolved;
+    private long durationMs;
+
+    public AddressResolveResponse() {
+    }
+
+    public AddressResolveResponse(List<AddressResolutionForm> results, int resolved, long durationMs) {
+        this.results = results;
+        this.resolved = resolved;
+        this.durationMs = durationMs;
+    }
+
+    public List<AddressResolutionForm> getResults() {
+        return results;
+    }
+
+    public void setResults(List<AddressResolutionForm> results) {
+        this.results = results;
+    }
+
+    public int getResolved() {
+        return resolved;
+    }
+
+    public void setResolved(int resolved) {
+        this.resolved = resolved;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -13,6 +13,11 @@ public class TeamSearchForm extends SearchForm {
     private Long teamTypeId;
     private Long industryId;
     private Long parentId;
+    // Subtree of a team, the team itself included, down to maxDepth levels below it
+    private Long ancestorId;
+    private Integer maxDepth;
+    // Teams with an address located within the circle
+    private GeoRadius withinRadius;
 
     // Getters and Setters
     public String getInternalCode() { return internalCode; }
@@ -29,5 +34,11 @@ public class TeamSearchForm extends SearchForm {
     public void setIndustryId(Long industryId) { this.industryId = industryId; }
     public Long getParentId() { return parentId; }
     public void setParentId(Long parentId) { this.parentId = parentId; }
+    public Long getAncestorId() { return ancestorId; }
+    public void setAncestorId(Long ancestorId) { this.ancestorId = ancestorId; }
+    public Integer getMaxDepth() { return maxDepth; }
+    public void setMaxDepth(Integer maxDepth) { this.maxDepth = maxDepth; }
+    public GeoRadius getWithinRadius() { return withinRadius; }
+    public void setWithinRadius(GeoRadius withinRadius) { this.withinRadius = withinRadius; }
 }
 
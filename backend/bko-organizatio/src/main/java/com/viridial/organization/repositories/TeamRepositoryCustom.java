@@ -2,18 +2,23 @@ package com.viridial.organization.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.organization.entities.TeamEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.organization.forms.TeamForm;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for TeamEntity.
  * Defines additional methods beyond standard JPA repository operations.
  */
 public interface TeamRepositoryCustom {
-    Page<TeamEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<TeamEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<TeamForm> searchForms(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<TeamEntity> action);
     List<TeamEntity> findAllById(List<Long> ids);
+    List<TeamEntity> findSubtree(Long ancestorId, Integer maxDepth);
     void saveAll(List<TeamEntity> entities);
 }
 
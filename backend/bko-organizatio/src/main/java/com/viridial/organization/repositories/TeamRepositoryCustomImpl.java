@@ -1,21 +1,22 @@
 package com.viridial.organization.repositories;
 
+import com.viridial.common.config.SearchMetrics;
 import com.viridial.common.form.SearchForm;
-import com.viridial.common.utils.SearchCriteriaBuilder;
+import com.viridial.common.repositories.SearchCountRepository;
+import com.viridial.common.utils.SearchEngine;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.organization.entities.TeamEntity;
+import com.viridial.organization.forms.TeamForm;
 import com.viridial.organization.forms.TeamSearchForm;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository implementation for TeamEntity.
@@ -28,73 +29,48 @@ public class TeamRepositoryCustomImpl implements TeamRepositoryCustom {
     @Autowired
     private TeamRepository teamRepository;
 
+    @Autowired
+    private SearchCountRepository searchCountRepository;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
+    private SearchEngine<TeamEntity> searchEngine;
+    private SearchEngine<TeamEntity>.Projection<TeamForm> formProjection;
+
+    @PostConstruct
+    void initSearchEngine() {
+        searchEngine = SearchEngine.builder(TeamEntity.class, TeamSearchForm.class)
+            .defaultSort("name")
+            .contains("internalCode", TeamSearchForm::getInternalCode)
+            .contains("name", TeamSearchForm::getName)
+            .contains("email", TeamSearchForm::getEmail)
+            .equal("active", TeamSearchForm::getActive)
+            .equal("teamTypeId", TeamSearchForm::getTeamTypeId)
+            .equal("industryId", TeamSearchForm::getIndustryId)
+            .equal("parentId", TeamSearchForm::getParentId)
+            .where("e.id in (select c.descendantId from TeamClosureEntity c where c.ancestorId = ? and c.depth <= ?)",
+                TeamSearchForm::getAncestorId, TeamRepositoryCustomImpl::maxDepth)
+            .withinRadius("e.id in (select a.teamId from TeamAddressEntity a where a.deletedAt is null"
+                + " and within_radius(a.latitude, a.longitude, ?, ?, ?))", TeamSearchForm::getWithinRadius)
+            .build(entityManager, searchCountRepository, searchMetrics);
+        // Long texts are only read when a fieldset asks for them
+        formProjection = searchEngine.projection(TeamForm.class, "description", "notes");
+    }
+
     @Override
-    public Page<TeamEntity> search(SearchForm searchForm, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<TeamEntity> countRoot = countQuery.from(TeamEntity.class);
-        countQuery.select(cb.count(countRoot));
-        
-        SearchCriteriaBuilder<TeamEntity> countBuilder = SearchCriteriaBuilder.of(cb, countRoot);
-        countQuery.where(countBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildTeamSearchPredicates(builder, root, form)));
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-        
-        CriteriaQuery<TeamEntity> dataQuery = cb.createQuery(TeamEntity.class);
-        Root<TeamEntity> dataRoot = dataQuery.from(TeamEntity.class);
-        dataQuery.select(dataRoot);
-        
-        SearchCriteriaBuilder<TeamEntity> dataBuilder = SearchCriteriaBuilder.of(cb, dataRoot);
-        dataQuery.where(dataBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildTeamSearchPredicates(builder, root, form)));
-        
-        List<Order> orders = dataBuilder.buildOrders(searchForm, "name");
-        if (!orders.isEmpty()) {
-            dataQuery.orderBy(orders);
-        }
-        
-        TypedQuery<TeamEntity> typedQuery = entityManager.createQuery(dataQuery);
-        typedQuery.setFirstResult((int) pageable.getOffset());
-        typedQuery.setMaxResults(pageable.getPageSize());
-        List<TeamEntity> results = typedQuery.getResultList();
-        
-        return new PageImpl<>(results, pageable, total);
+    public SearchPage<TeamEntity> search(SearchForm searchForm, Pageable pageable) {
+        return searchEngine.search(searchForm, pageable);
     }
 
-    private List<Predicate> buildTeamSearchPredicates(CriteriaBuilder cb, Root<TeamEntity> root, SearchForm searchForm) {
-        List<Predicate> predicates = new ArrayList<>();
-        
-        if (searchForm instanceof TeamSearchForm) {
-            TeamSearchForm formSearch = (TeamSearchForm) searchForm;
-            
-            if (formSearch.getInternalCode() != null && !formSearch.getInternalCode().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("internalCode")), 
-                    "%" + formSearch.getInternalCode().toLowerCase() + "%"));
-            }
-            if (formSearch.getName() != null && !formSearch.getName().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("name")), 
-                    "%" + formSearch.getName().toLowerCase() + "%"));
-            }
-            if (formSearch.getEmail() != null && !formSearch.getEmail().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("email")), 
-                    "%" + formSearch.getEmail().toLowerCase() + "%"));
-            }
-            if (formSearch.getActive() != null) {
-                predicates.add(cb.equal(root.get("active"), formSearch.getActive()));
-            }
-            if (formSearch.getTeamTypeId() != null) {
-                predicates.add(cb.equal(root.get("teamTypeId"), formSearch.getTeamTypeId()));
-            }
-            if (formSearch.getIndustryId() != null) {
-                predicates.add(cb.equal(root.get("industryId"), formSearch.getIndustryId()));
-            }
-            if (formSearch.getParentId() != null) {
-                predicates.add(cb.equal(root.get("parentId"), formSearch.getParentId()));
-            }
-        }
-        
-        return predicates;
+    @Override
+    public SearchPage<TeamForm> searchForms(SearchForm searchForm, Pageable pageable) {
+        return searchEngine.search(searchForm, pageable, formProjection);
+    }
+
+    @Override
+    public long export(SearchForm searchForm, Consumer<TeamEntity> action) {
+        return searchEngine.export(searchForm, action);
     }
 
     @Override
@@ -102,9 +78,34 @@ public class TeamRepositoryCustomImpl implements TeamRepositoryCustom {
         return teamRepository.findAllById(ids);
     }
 
+    /**
+     * Returns the non-deleted teams of a subtree, the root included, by depth then name.
+     * Empty when the root does not exist or is deleted.
+     */
+    @Override
+    public List<TeamEntity> findSubtree(Long ancestorId, Integer maxDepth) {
+        return entityManager.createQuery(
+                "SELECT e FROM TeamEntity e JOIN TeamClosureEntity c ON c.descendantId = e.id"
+                    + " WHERE c.ancestorId = :ancestorId AND c.depth <= :maxDepth AND e.deletedAt IS NULL"
+                    + " AND EXISTS (SELECT 1 FROM TeamEntity r WHERE r.id = :ancestorId AND r.deletedAt IS NULL)"
+                    + " ORDER BY c.depth, e.name, e.id", TeamEntity.class)
+            .setParameter("ancestorId", ancestorId)
+            .setParameter("maxDepth", maxDepth != null ? maxDepth : Integer.MAX_VALUE)
+            .getResultList();
+    }
+
     @Override
     public void saveAll(List<TeamEntity> entities) {
         teamRepository.saveAllAndFlush(entities);
     }
-}
 
+    /**
+     * Depth bound of an ancestorId search: unbounded without maxDepth, not applied without ancestorId.
+     */
+    private static Integer maxDepth(TeamSearchForm form) {
+        if (form.getAncestorId() == null) {
+            return null;
+        }
+        return form.getMaxDepth() != null ? form.getMaxDepth() : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,29 @@
+package com.viridial.organization.resources;
+
+import com.viridial.organization.forms.AddressResolveForm;
+import com.viridial.organization.forms.AddressResolveResponse;
+import com.viridial.organization.services.AddressService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/addresses")
+public class AddressResource {
+    @Autowired
+    private AddressService addressService;
+
+    /**
+     * Reverse geocoding of a batch of coordinates (app.geocoding.max-batch-size at most): for each
+     * point, in order, its nearest active city within maxDistanceKm and that city's country, to
+     * fill the cityId and countryId of an address when it is validated.
+     * 400 Bad Request for a larger batch or a negative maxDistanceKm.
+     */
+    @PostMapping("/resolve")
+    public ResponseEntity<AddressResolveResponse> resolve(@RequestBody AddressResolveForm form) {
+        return ResponseEntity.ok(addressService.resolve(form));
+    }
+}
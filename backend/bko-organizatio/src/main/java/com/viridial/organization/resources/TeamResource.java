@@ -2,18 +2,28 @@ package com.viridial.organization.resources;
 
 import com.viridial.common.forms.BulkDeleteForm;
 import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
 import com.viridial.common.forms.BulkUpdateActiveForm;
 import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.resources.BulkJobResource;
+import com.viridial.common.services.BulkJobService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.organization.forms.TeamForm;
 import com.viridial.organization.forms.TeamSearchForm;
 import com.viridial.organization.services.TeamService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,23 +31,68 @@ import java.util.List;
 public class TeamResource {
     @Autowired
     private TeamService teamService;
+    @Autowired
+    private BulkJobService bulkJobService;
 
+    /**
+     * Returns the matching teams as read straight from their columns, optionally within the subtree of
+     * an ancestor: a list in OFFSET mode, a page with the cursor of the next one in KEYSET mode.
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<TeamForm>> search(@RequestBody TeamSearchForm search) {
-        return ResponseEntity.ok(teamService.search(search));
+    public ResponseEntity<?> search(@RequestBody TeamSearchForm search) {
+        return teamService.search(search).toResponse(search);
+    }
+
+    /**
+     * Returns the team and its descendants, at most maxDepth levels below it, ordered by depth then name.
+     * Each team carries its parentId, so the tree can be rebuilt client side.
+     */
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<List<TeamForm>> subtree(@PathVariable Long id,
+                                                  @RequestParam(required = false) Integer maxDepth) {
+        List<TeamForm> teams = teamService.getSubtree(id, maxDepth);
+        return teams.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(teams);
     }
 
     @PostMapping("/bulk-update-active")
     public ResponseEntity<BulkUpdateActiveResponse> bulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
-        int updatedCount = teamService.bulkUpdateActive(form.getIds(), form.isActive());
-        return ResponseEntity.ok(new BulkUpdateActiveResponse(updatedCount, form.isActive()));
+        return ResponseEntity.ok(teamService.bulkUpdateActive(form));
     }
 
+    /**
+     * Soft-deletes the ids of the form. The X-User-Id header, if any, is recorded as the deletedBy of the rows.
+     */
     @PostMapping("/bulk-delete")
-    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form) {
-        String deletedBy = null; // TODO: Get from security context
-        int deletedCount = teamService.bulkDelete(form.getIds(), deletedBy);
-        return ResponseEntity.ok(new BulkDeleteResponse(deletedCount));
+    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return ResponseEntity.ok(teamService.bulkDelete(form, deletedBy));
+    }
+
+    /**
+     * Same as bulk-update-active, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     */
+    @PostMapping("/bulk-update-active/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
+        return BulkJobResource.accepted(bulkJobService.submitUpdateActive("teams", form));
+    }
+
+    /**
+     * Same as bulk-delete, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     * The X-User-Id header, if any, is recorded as the requester of the job and the deletedBy of the rows.
+     */
+    @PostMapping("/bulk-delete/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return BulkJobResource.accepted(bulkJobService.submitDelete("teams", form, deletedBy));
     }
-}
 
+    /**
+     * Streams every team matching the search filters and sort, ignoring paging, as NDJSON (default) or CSV.
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody TeamSearchForm search,
+                       @RequestParam(defaultValue = "NDJSON") ExportWriter.Format format,
+                       HttpServletResponse response) throws IOException {
+        ExportWriter.attach(response, format, "teams", output -> teamService.export(search, format, output));
+    }
+}
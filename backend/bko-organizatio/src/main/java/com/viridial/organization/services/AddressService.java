@@ -0,0 +1,11 @@
+package com.viridial.organization.services;
+
+import com.viridial.organization.forms.AddressResolveForm;
+import com.viridial.organization.forms.AddressResolveResponse;
+
+/**
+ * Service interface for address operations.
+ */
+public interface AddressService {
+    AddressResolveResponse resolve(AddressResolveForm form);
+}
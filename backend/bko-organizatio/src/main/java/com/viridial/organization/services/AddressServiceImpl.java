@@ -0,0 +1,74 @@
+package com.viridial.organization.services;
+
+import com.viridial.common.utils.InvalidRequestException;
+import com.viridial.countries.services.ReverseGeocoder;
+import com.viridial.organization.forms.AddressResolutionForm;
+import com.viridial.organization.forms.AddressResolveForm;
+import com.viridial.organization.forms.AddressResolveResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Service implementation for address operations.
+ */
+@Service
+public class AddressServiceImpl implements AddressService {
+    // Below this, splitting the batch across the cores costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    @Autowired
+    private ReverseGeocoder reverseGeocoder;
+
+    @Value("${app.geocoding.max-distance-km:50}")
+    private double defaultMaxDistanceKm;
+
+    @Value("${app.geocoding.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    /**
+     * Served from memory: no transaction, so no connection is taken (but for the first load).
+     * The points are resolved in parallel on the common fork-join pool.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public AddressResolveResponse resolve(AddressResolveForm form) {
+        long start = System.currentTimeMillis();
+        List<AddressResolveForm.Point> points = form.getPoints() != null ? form.getPoints() : List.of();
+        if (points.size() > maxBatchSize) {
+            throw new InvalidRequestException("At most " + maxBatchSize + " points per request, got " + points.size());
+        }
+        double maxDistanceKm = form.getMaxDistanceKm() != null ? form.getMaxDistanceKm() : defaultMaxDistanceKm;
+        if (!(maxDistanceKm >= 0)) {
+            throw new InvalidRequestException("Invalid maximum distance: " + maxDistanceKm);
+        }
+        AddressResolutionForm[] results = new AddressResolutionForm[points.size()];
+        IntStream indexes = IntStream.range(0, results.length);
+        (results.length >= PARALLEL_THRESHOLD ? indexes.parallel() : indexes)
+            .forEach(i -> results[i] = resolve(points.get(i), maxDistanceKm));
+        int resolved = (int) Arrays.stream(results).filter(result -> result.getCityId() != null).count();
+        return new AddressResolveResponse(Arrays.asList(results), resolved, System.currentTimeMillis() - start);
+    }
+
+    private AddressResolutionForm resolve(AddressResolveForm.Point point, double maxDistanceKm) {
+        Double latitude = point != null ? point.getLatitude() : null;
+        Double longitude = point != null ? point.getLongitude() : null;
+        // Invalid coordinates are left unresolved rather than failing the whole batch
+        if (latitude == null || longitude == null || !(latitude >= -90 && latitude <= 90)
+                || !(longitude >= -180 && longitude <= 180)) {
+            return new AddressResolutionForm(latitude, longitude, null, null, null);
+        }
+        ReverseGeocoder.Resolution resolution = reverseGeocoder.resolve(latitude, longitude, maxDistanceKm);
+        if (resolution == null) {
+            return new AddressResolutionForm(latitude, longitude, null, null, null);
+        }
+        return new AddressResolutionForm(latitude, longitude, resolution.cityId(), resolution.countryId(),
+            resolution.distanceKm());
+    }
+}
@@ -1,16 +1,20 @@
 package com.viridial.organization.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.organization.forms.TeamForm;
 import com.viridial.organization.forms.TeamSearchForm;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
  * Service interface for TeamEntity operations.
  */
-public interface TeamService {
-    List<TeamForm> search(TeamSearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface TeamService extends BulkService {
+    PaginatedResponse<TeamForm> search(TeamSearchForm search);
+    long export(TeamSearchForm search, ExportWriter.Format format, OutputStream output);
+    List<TeamForm> getSubtree(Long id, Integer maxDepth);
 }
 
@@ -1,19 +1,29 @@
 package com.viridial.organization.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.organization.entities.TeamEntity;
 import com.viridial.organization.forms.TeamForm;
 import com.viridial.organization.forms.TeamSearchForm;
 import com.viridial.organization.mapper.TeamMapper;
 import com.viridial.organization.repositories.TeamRepositoryCustom;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for TeamEntity operations.
@@ -24,43 +34,64 @@ public class TeamServiceImpl implements TeamService {
     @Autowired
     private TeamRepositoryCustom teamRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @Transactional(readOnly = true)
-    public List<TeamForm> search(TeamSearchForm search) {
+    public PaginatedResponse<TeamForm> search(TeamSearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<TeamEntity> page = teamRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(TeamMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        return PaginatedResponse.of(teamRepositoryCustom.searchForms(search, pageable));
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<TeamEntity> entities = teamRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        teamRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            TeamEntity.class, ids, form.getVersions(), form.isActive(), null);
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<TeamEntity> entities = teamRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(TeamEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            TeamEntity.class, ids, form.getVersions(), deletedBy);
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(TeamSearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, TeamForm.class, objectMapper)) {
+            teamRepositoryCustom.export(search, entity -> writer.write(TeamMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        teamRepositoryCustom.saveAll(entities);
-        return entities.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TeamForm> getSubtree(Long id, Integer maxDepth) {
+        return teamRepositoryCustom.findSubtree(id, maxDepth).stream()
+            .map(TeamMapper::mapEntityToForm)
+            .toList();
     }
 
     private Pageable buildPageable(TeamSearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
@@ -1,20 +1,38 @@
 package com.viridial.referentiel.entities;
 
+import com.viridial.common.config.CacheRegions;
 import com.viridial.common.entities.BaseEntity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ForeignKey;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = CacheRegions.REFERENTIAL)
+@EntityListeners(ReferentialEntityListener.class)
+@NamedEntityGraph(
+    name = ReferentialEntity.WITH_RELATIONS,
+    attributeNodes = {
+        @NamedAttributeNode("type"),
+        @NamedAttributeNode("subType"),
+        @NamedAttributeNode("parent")
+    }
+)
 @Table(
     name = "com_referential",
     indexes = {
@@ -29,6 +47,11 @@ import jakarta.validation.constraints.Size;
 )
 public class ReferentialEntity extends BaseEntity {
 
+    /**
+     * Fetch graph loading type, subType and parent with the referential, as read by ReferentialMapper.
+     */
+    public static final String WITH_RELATIONS = "ReferentialEntity.withRelations";
+
     @Column(name = "code", nullable = false, length = 50)
     @NotBlank
     @Size(max = 50)
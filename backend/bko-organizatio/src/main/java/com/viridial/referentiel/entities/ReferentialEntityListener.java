@@ -0,0 +1,26 @@
+package com.viridial.referentiel.entities;
+
+import com.viridial.referentiel.services.ReferentialCache;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Invalidates the referential cache on every insert, update or delete of a referential.
+ * Instantiated by Spring through Hibernate's bean container; the cache is looked up
+ * lazily because the listener is created while the EntityManagerFactory is built.
+ */
+public class ReferentialEntityListener {
+
+    @Autowired
+    private ObjectProvider<ReferentialCache> referentialCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(ReferentialEntity entity) {
+        referentialCache.ifAvailable(ReferentialCache::invalidate);
+    }
+}
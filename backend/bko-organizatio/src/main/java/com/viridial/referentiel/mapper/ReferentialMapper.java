@@ -1,16 +1,23 @@
 package com.viridial.referentiel.mapper;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.viridial.common.mapper.ExtMapper;
 import com.viridial.referentiel.entities.ReferentialEntity;
 import com.viridial.referentiel.forms.ReferentialForm;
+import com.viridial.referentiel.services.ReferentialCache;
+
+import java.util.function.Supplier;
 
 /**
  * Mapper for converting between ReferentialEntity and ReferentialForm.
  */
 @Component
 public class ReferentialMapper extends ExtMapper{
+
+    @Autowired
+    private ReferentialCache referentialCache;
     
     /**
      * Maps entity to form.
@@ -41,23 +48,34 @@ public class ReferentialMapper extends ExtMapper{
         form.setStartDate(entity.getStartDate());
         form.setEndDate(entity.getEndDate());
         if(form.getSubTypeId() != null){
-            form.setSubTypeLabel(entity.getSubType().getLabel());
-            form.setSubTypeCode(entity.getSubType().getCode());
-            form.setSubTypeDescription(entity.getSubType().getDescription());
-            form.setSubTypeDataType(entity.getSubType().getDataType());
+            ReferentialEntity subType = related(form.getSubTypeId(), entity::getSubType);
+            form.setSubTypeLabel(subType.getLabel());
+            form.setSubTypeCode(subType.getCode());
+            form.setSubTypeDescription(subType.getDescription());
+            form.setSubTypeDataType(subType.getDataType());
         }
         if(form.getTypeId() != null){
-            form.setTypeLabel(entity.getType().getLabel());
-            form.setTypeCode(entity.getType().getCode());
-            form.setTypeDescription(entity.getType().getDescription());
-            form.setTypeDataType(entity.getType().getDataType());
+            ReferentialEntity type = related(form.getTypeId(), entity::getType);
+            form.setTypeLabel(type.getLabel());
+            form.setTypeCode(type.getCode());
+            form.setTypeDescription(type.getDescription());
+            form.setTypeDataType(type.getDataType());
         }
         if(form.getParentId() != null){
-            form.setParentLabel(entity.getParent().getLabel());
-            form.setParentCode(entity.getParent().getCode());
-            form.setParentDescription(entity.getParent().getDescription());
-            form.setParentDataType(entity.getParent().getDataType());
+            ReferentialEntity parent = related(form.getParentId(), entity::getParent);
+            form.setParentLabel(parent.getLabel());
+            form.setParentCode(parent.getCode());
+            form.setParentDescription(parent.getDescription());
+            form.setParentDataType(parent.getDataType());
         }
         return form;
     }
+
+    /**
+     * Reads a related referential from the cache, falling back to the association
+     * (inactive referentials are not cached).
+     */
+    private ReferentialEntity related(Long id, Supplier<ReferentialEntity> association) {
+        return referentialCache.findById(id).orElseGet(association);
+    }
 }
\ No newline at end of file
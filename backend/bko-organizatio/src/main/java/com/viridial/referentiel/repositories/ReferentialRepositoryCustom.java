@@ -2,6 +2,7 @@ package com.viridial.referentiel.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.common.utils.SearchCriteriaBuilder;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.referentiel.entities.ReferentialEntity;
 import com.viridial.referentiel.forms.FormSearch;
 import jakarta.persistence.EntityManager;
@@ -10,13 +11,13 @@ import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository implementation for ReferentialEntity.
@@ -26,7 +27,9 @@ import java.util.List;
 public interface ReferentialRepositoryCustom  {
 
 
-    public Page<ReferentialEntity> search(SearchForm searchForm, Pageable pageable) ;
+    public SearchPage<ReferentialEntity> search(SearchForm searchForm, Pageable pageable) ;
+
+    public long export(SearchForm searchForm, Consumer<ReferentialEntity> action);
 
     
 
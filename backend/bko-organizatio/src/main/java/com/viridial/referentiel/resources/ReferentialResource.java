@@ -1,19 +1,28 @@
 package com.viridial.referentiel.resources;
 
 import com.viridial.common.forms.PaginatedResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.viridial.common.forms.BulkDeleteForm;
 import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkJobForm;
 import com.viridial.common.forms.BulkUpdateActiveForm;
 import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.resources.BulkJobResource;
+import com.viridial.common.services.BulkJobService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.referentiel.forms.FormSearch;
 import com.viridial.referentiel.forms.ReferentialForm;
 import com.viridial.referentiel.services.ReferentialSearchService;
@@ -26,6 +35,8 @@ public class ReferentialResource {
     private ReferentialSearchService referentialSearchService;
     @Autowired
     private ReferentialUpdateService referentialUpdateService;
+    @Autowired
+    private BulkJobService bulkJobService;
 
     @PostMapping("/search")
     public ResponseEntity<PaginatedResponse<ReferentialForm>> search(@RequestBody FormSearch search) {
@@ -34,16 +45,45 @@ public class ReferentialResource {
 
     @PostMapping("/bulk-update-active")
     public ResponseEntity<BulkUpdateActiveResponse> bulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
-        int updatedCount = referentialUpdateService.bulkUpdateActive(form.getIds(), form.isActive());
-        return ResponseEntity.ok(new BulkUpdateActiveResponse(updatedCount, form.isActive()));
+        return ResponseEntity.ok(referentialUpdateService.bulkUpdateActive(form));
     }
 
+    /**
+     * Soft-deletes the ids of the form. The X-User-Id header, if any, is recorded as the deletedBy of the rows.
+     */
     @PostMapping("/bulk-delete")
-    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form) {
-        // TODO: Get current user ID from security context if needed
-        String deletedBy = "1"; // Can be set from security context: SecurityContextHolder.getContext().getAuthentication()
-        int deletedCount = referentialUpdateService.bulkDelete(form.getIds(), deletedBy);
-        return ResponseEntity.ok(new BulkDeleteResponse(deletedCount));
+    public ResponseEntity<BulkDeleteResponse> bulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return ResponseEntity.ok(referentialUpdateService.bulkDelete(form, deletedBy));
+    }
+
+    /**
+     * Same as bulk-update-active, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     */
+    @PostMapping("/bulk-update-active/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkUpdateActive(@RequestBody BulkUpdateActiveForm form) {
+        return BulkJobResource.accepted(bulkJobService.submitUpdateActive("referentiels", form));
+    }
+
+    /**
+     * Same as bulk-delete, run in the background in committed chunks: returns the job, see /jobs/{id}.
+     * The X-User-Id header, if any, is recorded as the requester of the job and the deletedBy of the rows.
+     */
+    @PostMapping("/bulk-delete/jobs")
+    public ResponseEntity<BulkJobForm> submitBulkDelete(@RequestBody BulkDeleteForm form,
+            @RequestHeader(value = "X-User-Id", required = false) String deletedBy) {
+        return BulkJobResource.accepted(bulkJobService.submitDelete("referentiels", form, deletedBy));
+    }
+
+    /**
+     * Streams every referential matching the search filters and sort, ignoring paging, as NDJSON (default) or CSV.
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody FormSearch search,
+                       @RequestParam(defaultValue = "NDJSON") ExportWriter.Format format,
+                       HttpServletResponse response) throws IOException {
+        ExportWriter.attach(response, format, "referentiels",
+            output -> referentialSearchService.export(search, format, output));
     }
 
 }
@@ -0,0 +1,336 @@
+package com.viridial.referentiel.services;
+
+import com.viridial.common.form.SearchForm.CountMode;
+import com.viridial.common.utils.SearchPage;
+import com.viridial.referentiel.entities.ReferentialEntity;
+import com.viridial.referentiel.forms.FormSearch;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory dictionary of the active referentials (languages, regions, team types, industries,
+ * address and phone types...), which are read on nearly every request but rarely change.
+ *
+ * <p>All active, non-deleted referentials are loaded at once, with type, subType and parent
+ * fetched, into immutable maps by id, by dataType and by parentId. The entities are
+ * read through a stateless session, so they are detached and never shared with a persistence
+ * context. Any write to a referential invalidates the whole snapshot; the next read reloads it.</p>
+ *
+ * <p>Reads bypass the cache, and fall back to the database, while the current transaction has
+ * written referentials (its changes are not committed yet) or while another thread is loading.
+ * They also do while there are more active referentials than {@code app.referential-cache.max-entries}:
+ * the snapshot would not fit in memory. The count is taken again once {@code app.referential-cache.oversized-recheck}
+ * has passed, however many writes happen in between, so that a large table is not counted after every write.</p>
+ *
+ * <p>Lookups, loads and invalidations are published as {@code viridial.referential.cache.*} metrics.</p>
+ */
+@Component
+public class ReferentialCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferentialCache.class);
+
+    private static final String LOAD_QUERY = "select r from ReferentialEntity r "
+        + "left join fetch r.type left join fetch r.subType left join fetch r.parent "
+        + "where r.active = true and r.deletedAt is null";
+
+    static final String COUNT_QUERY = "select count(r) from ReferentialEntity r "
+        + "where r.active = true and r.deletedAt is null";
+
+    // Same order as the database search default: displayOrder ASC NULLS LAST, then id
+    private static final Comparator<ReferentialEntity> DISPLAY_ORDER = Comparator
+        .comparing(ReferentialEntity::getDisplayOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(ReferentialEntity::getId);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.referential-cache.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${app.referential-cache.oversized-recheck:PT5M}")
+    private Duration oversizedRecheck;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    // Whether the active referentials were too many to be loaded, and until when (System.nanoTime) to trust it
+    private volatile boolean oversized;
+    private volatile long oversizedUntil;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Finds an active referential by id.
+     */
+    public Optional<ReferentialEntity> findById(Long id) {
+        Snapshot current = snapshot();
+        return record(current != null ? current.byId.get(id) : null);
+    }
+
+    /**
+     * Serves a simple search from memory: active referentials only, equality and
+     * substring criteria of FormSearch, default sort and offset pagination.
+     *
+     * @return the page, or null when the search needs the database
+     */
+    public SearchPage<ReferentialEntity> search(FormSearch search, Pageable pageable) {
+        if (!isServable(search)) {
+            misses.increment();
+            return null;
+        }
+        Snapshot current = snapshot();
+        if (current == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        List<ReferentialEntity> candidates;
+        if (search.getParentId() != null) {
+            candidates = current.byParentId.getOrDefault(search.getParentId(), List.of());
+        } else if (search.getDataType() != null && !search.getDataType().isEmpty()) {
+            candidates = current.byDataType.getOrDefault(search.getDataType(), List.of());
+        } else {
+            candidates = current.all;
+        }
+
+        Set<Long> ids = search.getIds() != null && !search.getIds().isEmpty() ? new HashSet<>(search.getIds()) : null;
+        List<ReferentialEntity> matches = new ArrayList<>();
+        for (ReferentialEntity referential : candidates) {
+            if (matches(referential, search, ids)) {
+                matches.add(referential);
+            }
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = (int) Math.min(pageable.getOffset() + pageable.getPageSize() + 1L, matches.size());
+        // One extra row tells whether a next page exists
+        List<ReferentialEntity> rows = new ArrayList<>(matches.subList(from, to));
+        if (search.getCountMode() == CountMode.NONE) {
+            return SearchPage.of(rows, pageable, null, search, List.of());
+        }
+        // Every match is counted: the total is exact whatever count mode was requested
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SearchPage<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, matches.size(),
+            hasNext, null, CountMode.EXACT);
+    }
+
+    /**
+     * Drops the current snapshot. Also registers a second invalidation at the end of the
+     * current transaction, so that a reload racing with the commit cannot keep stale data.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReferentialCache.this);
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("viridial.referential.cache.gets", hits, LongAdder::sum)
+            .description("Lookups and searches of the referential cache")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("viridial.referential.cache.gets", misses, LongAdder::sum)
+            .description("Lookups and searches of the referential cache")
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("viridial.referential.cache.loads", loads, LongAdder::sum)
+            .description("Snapshots of the active referentials loaded")
+            .register(registry);
+        FunctionCounter.builder("viridial.referential.cache.invalidations", invalidations, LongAdder::sum)
+            .description("Referential writes that dropped the snapshot")
+            .register(registry);
+        Gauge.builder("viridial.referential.cache.size", this, ReferentialCache::size)
+            .description("Referentials in the current snapshot, 0 when it is stale")
+            .register(registry);
+    }
+
+    private int size() {
+        Snapshot current = snapshot;
+        return current != null && current.generation == generation.get() ? current.byId.size() : 0;
+    }
+
+    private Optional<ReferentialEntity> record(ReferentialEntity referential) {
+        if (referential != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return Optional.ofNullable(referential);
+    }
+
+    /**
+     * Returns the valid snapshot, loading it if needed, or null when the cache must be bypassed.
+     */
+    private Snapshot snapshot() {
+        long currentGeneration = generation.get();
+        Snapshot current = snapshot;
+        if (current != null && current.generation == currentGeneration) {
+            return current;
+        }
+        if (oversized && oversizedUntil - System.nanoTime() > 0) {
+            return null;
+        }
+        if (TransactionSynchronizationManager.hasResource(this) || !loadLock.tryLock()) {
+            // Uncommitted referential changes in this transaction, or another thread is loading
+            return null;
+        }
+        try {
+            current = snapshot;
+            if (current != null && current.generation == generation.get()) {
+                return current;
+            }
+            // A snapshot loaded while an invalidation happens keeps the old generation and is never served again
+            current = load(generation.get());
+            if (current != null) {
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the snapshot of a generation, or returns null when the active referentials are too many.
+     */
+    private Snapshot load(long loadGeneration) {
+        List<ReferentialEntity> referentials = entityManagerFactory.unwrap(SessionFactory.class)
+            .fromStatelessTransaction(session -> {
+                long count = session.createSelectionQuery(COUNT_QUERY, Long.class).getSingleResult();
+                if (count > maxEntries) {
+                    logger.warn("{} active referentials, more than app.referential-cache.max-entries ({}):"
+                        + " the referential cache is bypassed", count, maxEntries);
+                    return null;
+                }
+                return session.createSelectionQuery(LOAD_QUERY, ReferentialEntity.class).getResultList();
+            });
+        if (referentials == null) {
+            oversizedUntil = System.nanoTime() + oversizedRecheck.toNanos();
+            oversized = true;
+            return null;
+        }
+        oversized = false;
+        loads.increment();
+        logger.debug("Loaded {} referentials into the cache", referentials.size());
+        return new Snapshot(loadGeneration, referentials);
+    }
+
+    private static boolean isServable(FormSearch search) {
+        return Boolean.TRUE.equals(search.getActive())
+            && !search.getIncludeDeleted()
+            && !search.isKeyset()
+            && search.getFilters().isEmpty()
+            && search.getRanges().isEmpty()
+            && search.getSorts().isEmpty()
+            && isLiteral(search.getCode())
+            && isLiteral(search.getLabel());
+    }
+
+    /**
+     * Checks that a substring criterion has no LIKE wildcard, which memory matching would take literally.
+     */
+    private static boolean isLiteral(String text) {
+        return text == null || (text.indexOf('%') < 0 && text.indexOf('_') < 0);
+    }
+
+    private static boolean matches(ReferentialEntity referential, FormSearch search, Set<Long> ids) {
+        return (search.getId() == null || search.getId().equals(referential.getId()))
+            && (ids == null || ids.contains(referential.getId()))
+            && contains(referential.getCode(), search.getCode())
+            && contains(referential.getLabel(), search.getLabel())
+            && equal(referential.getDataType(), search.getDataType())
+            && equal(referential.getLocale(), search.getLocale())
+            && (search.getTypeId() == null || search.getTypeId().equals(referential.getTypeId()))
+            && (search.getSubTypeId() == null || search.getSubTypeId().equals(referential.getSubTypeId()))
+            && (search.getParentId() == null || search.getParentId().equals(referential.getParentId()));
+    }
+
+    private static boolean contains(String value, String criterion) {
+        return criterion == null || criterion.isEmpty()
+            || (value != null && value.toLowerCase(Locale.ROOT).contains(criterion.toLowerCase(Locale.ROOT)));
+    }
+
+    private static boolean equal(String value, String criterion) {
+        return criterion == null || criterion.isEmpty() || criterion.equals(value);
+    }
+
+    /**
+     * Immutable view of the active referentials at one generation.
+     */
+    private static final class Snapshot {
+        private final long generation;
+        private final List<ReferentialEntity> all;
+        private final Map<Long, ReferentialEntity> byId;
+        private final Map<String, List<ReferentialEntity>> byDataType;
+        private final Map<Long, List<ReferentialEntity>> byParentId;
+
+        private Snapshot(long generation, List<ReferentialEntity> referentials) {
+            this.generation = generation;
+            List<ReferentialEntity> sorted = new ArrayList<>(referentials);
+            sorted.sort(DISPLAY_ORDER);
+
+            Map<Long, ReferentialEntity> ids = new HashMap<>();
+            Map<String, List<ReferentialEntity>> dataTypes = new LinkedHashMap<>();
+            Map<Long, List<ReferentialEntity>> parents = new HashMap<>();
+            for (ReferentialEntity referential : sorted) {
+                ids.put(referential.getId(), referential);
+                dataTypes.computeIfAbsent(referential.getDataType(), dataType -> new ArrayList<>()).add(referential);
+                if (referential.getParentId() != null) {
+                    parents.computeIfAbsent(referential.getParentId(), parentId -> new ArrayList<>()).add(referential);
+                }
+            }
+
+            this.all = Collections.unmodifiableList(sorted);
+            this.byId = Map.copyOf(ids);
+            Map<String, List<ReferentialEntity>> immutableDataTypes = new HashMap<>();
+            dataTypes.forEach((dataType, list) -> immutableDataTypes.put(dataType, List.copyOf(list)));
+            this.byDataType = Map.copyOf(immutableDataTypes);
+            Map<Long, List<ReferentialEntity>> immutableParents = new HashMap<>();
+            parents.forEach((parentId, list) -> immutableParents.put(parentId, List.copyOf(list)));
+            this.byParentId = Map.copyOf(immutableParents);
+        }
+    }
+}
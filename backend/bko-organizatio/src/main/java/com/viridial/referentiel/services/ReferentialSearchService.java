@@ -1,10 +1,15 @@
 package com.viridial.referentiel.services;
 
 import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.referentiel.forms.FormSearch;
 import com.viridial.referentiel.forms.ReferentialForm;
 
+import java.io.OutputStream;
+
 public interface ReferentialSearchService {
     PaginatedResponse<ReferentialForm> search(FormSearch search);
 
+    long export(FormSearch search, ExportWriter.Format format, OutputStream output);
+
 }
\ No newline at end of file
@@ -1,20 +1,24 @@
 package com.viridial.referentiel.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viridial.referentiel.entities.ReferentialEntity;
 import com.viridial.referentiel.forms.FormSearch;
 import com.viridial.referentiel.forms.ReferentialForm;
 import com.viridial.referentiel.mapper.ReferentialMapper;
 import com.viridial.referentiel.repositories.ReferentialRepositoryCustom;
 import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.SearchPage;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.stream.Collectors;
 
 /**
@@ -32,28 +36,46 @@ public class ReferentialSearchServiceImpl implements ReferentialSearchService {
     @Autowired
     private ReferentialMapper referentialMapper;
 
+    @Autowired
+    private ReferentialCache referentialCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @Transactional(readOnly = true)
     public PaginatedResponse<ReferentialForm> search(FormSearch search) {
         // Build pageable from search form
         Pageable pageable = buildPageable(search);
         
-        // Execute search
-        Page<ReferentialEntity> page = referentialRepositoryCustom.search(search, pageable);
+        // Execute search, from memory when the cache can serve it
+        SearchPage<ReferentialEntity> page = referentialCache.search(search, pageable);
+        if (page == null) {
+            page = referentialRepositoryCustom.search(search, pageable);
+        }
         
         // Convert entities to forms
-        List<ReferentialForm> forms = page.getContent().stream()
-                .map(referentialMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        return PaginatedResponse.of(page, referentialMapper::mapEntityToForm);
+    }
 
-        return new PaginatedResponse<>(forms, page.getTotalElements(), page.getNumber(), page.getSize());
+    @Override
+    @Transactional(readOnly = true)
+    public long export(FormSearch search, ExportWriter.Format format, OutputStream output) {
+        // Always streamed from the database: the cache only serves pages
+        try (ExportWriter writer = ExportWriter.of(format, output, ReferentialForm.class, objectMapper)) {
+            referentialRepositoryCustom.export(search, entity -> writer.write(referentialMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Builds Pageable from search form.
      */
     private Pageable buildPageable(FormSearch search) {
-        int page = search.getPage();
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
         int size = search.getSize();
         
         // If sorts are provided, use them; otherwise use default
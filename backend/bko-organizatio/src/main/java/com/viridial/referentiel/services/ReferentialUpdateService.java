@@ -1,21 +1,26 @@
 package com.viridial.referentiel.services;
 
-import java.util.List;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.services.BulkService;
 
-public interface ReferentialUpdateService {
+public interface ReferentialUpdateService extends BulkService {
     /**
      * Bulk update active status for referentials.
-     * @param ids List of referential IDs to update
-     * @param active The active status to set
-     * @return Number of updated records
+     * @param form The referential IDs, the active status to set and the expected versions (optional)
+     * @return Number of updated records, and the IDs whose version did not match
      */
-    int bulkUpdateActive(List<Long> ids, boolean active);
+    @Override
+    BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form);
 
     /**
      * Bulk delete referentials (logical delete).
-     * @param ids List of referential IDs to delete
+     * @param form The referential IDs and their expected versions (optional)
      * @param deletedBy The email of the user performing the deletion (optional, can be null)
-     * @return Number of deleted records
+     * @return Number of deleted records, and the IDs whose version did not match
      */
-    int bulkDelete(List<Long> ids, String deletedBy);
+    @Override
+    BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy);
 }
\ No newline at end of file
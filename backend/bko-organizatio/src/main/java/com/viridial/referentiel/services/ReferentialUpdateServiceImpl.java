@@ -1,8 +1,12 @@
 package com.viridial.referentiel.services;
 
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
 import com.viridial.referentiel.entities.ReferentialEntity;
-import com.viridial.referentiel.mapper.ReferentialMapper;
-import com.viridial.referentiel.repositories.ReferentialRepositoryCustom;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,42 +21,38 @@ import java.util.List;
 public class ReferentialUpdateServiceImpl implements ReferentialUpdateService {
 
     @Autowired
-    private ReferentialRepositoryCustom referentialRepositoryCustom;
-    
-    
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ReferentialCache referentialCache;
 
     @Transactional
     @Override
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
         if (ids == null || ids.isEmpty()) {
-            return 0;
+            return new BulkUpdateActiveResponse(0, form.isActive());
         }
-        // Find all entities by IDs
-        List<ReferentialEntity> entities = referentialRepositoryCustom.findAllById(ids);
-        // Update active status
-        entities.forEach(entity -> entity.setActive(active));
-        // Save all updated entities
-        referentialRepositoryCustom.saveAll(entities);
-        
-        return entities.size();
+        // Single set-based UPDATE per chunk; entity listeners do not see it
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            ReferentialEntity.class, ids, form.getVersions(), form.isActive(), null);
+        referentialCache.invalidate();
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Transactional
     @Override
-    public int bulkDelete(List<Long> ids, String deletedBy) {
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
         if (ids == null || ids.isEmpty()) {
-            return 0;
-        }
-        // Find all entities by IDs
-        List<ReferentialEntity> entities = referentialRepositoryCustom.findAllById(ids);
-        // Perform logical delete
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(entity -> entity.delete());
+            return new BulkDeleteResponse(0);
         }
-        // Save all deleted entities
-        referentialRepositoryCustom.saveAll(entities);
-        return entities.size();
+        // Single set-based UPDATE per chunk; entity listeners do not see it
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            ReferentialEntity.class, ids, form.getVersions(), deletedBy);
+        referentialCache.invalidate();
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
     }
 }
@@ -1,14 +1,21 @@
 package com.viridial.roles.entities;
 
+import com.viridial.common.config.CacheRegions;
 import com.viridial.common.entities.BaseEntity;
+import com.viridial.feature.entities.PermissionEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ROLE)
+@EntityListeners(PermissionEntityListener.class)
 @Table(
     name = "sec_role",
     indexes = {
@@ -2,17 +2,19 @@ package com.viridial.roles.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.roles.entities.RoleEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for RoleEntity.
  * Defines additional methods beyond standard JPA repository operations.
  */
 public interface RoleRepositoryCustom {
-    Page<RoleEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<RoleEntity> search(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<RoleEntity> action);
     List<RoleEntity> findAllById(List<Long> ids);
     void saveAll(List<RoleEntity> entities);
 }
@@ -1,21 +1,22 @@
 package com.viridial.roles.repositories;
 
+import com.viridial.common.config.CacheRegions;
+import com.viridial.common.config.SearchMetrics;
 import com.viridial.common.form.SearchForm;
-import com.viridial.common.utils.SearchCriteriaBuilder;
+import com.viridial.common.repositories.SearchCountRepository;
+import com.viridial.common.utils.SearchEngine;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.roles.entities.RoleEntity;
 import com.viridial.roles.forms.RoleSearchForm;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository implementation for RoleEntity.
@@ -28,66 +29,35 @@ public class RoleRepositoryCustomImpl implements RoleRepositoryCustom {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private SearchCountRepository searchCountRepository;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
+    private SearchEngine<RoleEntity> searchEngine;
+
+    @PostConstruct
+    void initSearchEngine() {
+        searchEngine = SearchEngine.builder(RoleEntity.class, RoleSearchForm.class)
+            .defaultSort("code")
+            .cacheRegion(CacheRegions.ROLE_SEARCH)
+            .contains("code", RoleSearchForm::getCode)
+            .contains("label", RoleSearchForm::getLabel)
+            .equal("active", RoleSearchForm::getActive)
+            .equal("admin", RoleSearchForm::getAdmin)
+            .equal("parentId", RoleSearchForm::getParentId)
+            .build(entityManager, searchCountRepository, searchMetrics);
+    }
+
     @Override
-    public Page<RoleEntity> search(SearchForm searchForm, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<RoleEntity> countRoot = countQuery.from(RoleEntity.class);
-        countQuery.select(cb.count(countRoot));
-        
-        SearchCriteriaBuilder<RoleEntity> countBuilder = SearchCriteriaBuilder.of(cb, countRoot);
-        countQuery.where(countBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildRoleSearchPredicates(builder, root, form)));
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-        
-        CriteriaQuery<RoleEntity> dataQuery = cb.createQuery(RoleEntity.class);
-        Root<RoleEntity> dataRoot = dataQuery.from(RoleEntity.class);
-        dataQuery.select(dataRoot);
-        
-        SearchCriteriaBuilder<RoleEntity> dataBuilder = SearchCriteriaBuilder.of(cb, dataRoot);
-        dataQuery.where(dataBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildRoleSearchPredicates(builder, root, form)));
-        
-        List<Order> orders = dataBuilder.buildOrders(searchForm, "code");
-        if (!orders.isEmpty()) {
-            dataQuery.orderBy(orders);
-        }
-        
-        TypedQuery<RoleEntity> typedQuery = entityManager.createQuery(dataQuery);
-        typedQuery.setFirstResult((int) pageable.getOffset());
-        typedQuery.setMaxResults(pageable.getPageSize());
-        List<RoleEntity> results = typedQuery.getResultList();
-        
-        return new PageImpl<>(results, pageable, total);
+    public SearchPage<RoleEntity> search(SearchForm searchForm, Pageable pageable) {
+        return searchEngine.search(searchForm, pageable);
     }
 
-    private List<Predicate> buildRoleSearchPredicates(CriteriaBuilder cb, Root<RoleEntity> root, SearchForm searchForm) {
-        List<Predicate> predicates = new ArrayList<>();
-        
-        if (searchForm instanceof RoleSearchForm) {
-            RoleSearchForm formSearch = (RoleSearchForm) searchForm;
-            
-            if (formSearch.getCode() != null && !formSearch.getCode().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("code")), 
-                    "%" + formSearch.getCode().toLowerCase() + "%"));
-            }
-            if (formSearch.getLabel() != null && !formSearch.getLabel().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("label")), 
-                    "%" + formSearch.getLabel().toLowerCase() + "%"));
-            }
-            if (formSearch.getActive() != null) {
-                predicates.add(cb.equal(root.get("active"), formSearch.getActive()));
-            }
-            if (formSearch.getAdmin() != null) {
-                predicates.add(cb.equal(root.get("admin"), formSearch.getAdmin()));
-            }
-            if (formSearch.getParentId() != null) {
-                predicates.add(cb.equal(root.get("parentId"), formSearch.getParentId()));
-            }
-        }
-        
-        return predicates;
+    @Override
+    public long export(SearchForm searchForm, Consumer<RoleEntity> action) {
+        return searchEngine.export(searchForm, action);
     }
 
     @Override
@@ -1,16 +1,18 @@
 package com.viridial.roles.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.roles.forms.RoleForm;
 import com.viridial.roles.forms.RoleSearchForm;
 
-import java.util.List;
+import java.io.OutputStream;
 
 /**
  * Service interface for RoleEntity operations.
  */
-public interface RoleService {
-    List<RoleForm> search(RoleSearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface RoleService extends BulkService {
+    PaginatedResponse<RoleForm> search(RoleSearchForm search);
+    long export(RoleSearchForm search, ExportWriter.Format format, OutputStream output);
 }
 
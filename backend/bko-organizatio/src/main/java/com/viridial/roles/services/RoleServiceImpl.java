@@ -1,19 +1,31 @@
 package com.viridial.roles.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.SearchPage;
+import com.viridial.feature.services.PermissionResolver;
 import com.viridial.roles.entities.RoleEntity;
 import com.viridial.roles.forms.RoleForm;
 import com.viridial.roles.forms.RoleSearchForm;
 import com.viridial.roles.mapper.RoleMapper;
 import com.viridial.roles.repositories.RoleRepositoryCustom;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for RoleEntity operations.
@@ -24,43 +36,62 @@ public class RoleServiceImpl implements RoleService {
     @Autowired
     private RoleRepositoryCustom roleRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PermissionResolver permissionResolver;
+
     @Override
     @Transactional(readOnly = true)
-    public List<RoleForm> search(RoleSearchForm search) {
+    public PaginatedResponse<RoleForm> search(RoleSearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<RoleEntity> page = roleRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(RoleMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        SearchPage<RoleEntity> page = roleRepositoryCustom.search(search, pageable);
+        return PaginatedResponse.of(page, RoleMapper::mapEntityToForm);
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<RoleEntity> entities = roleRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        roleRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            RoleEntity.class, ids, form.getVersions(), form.isActive(), null);
+        permissionResolver.invalidate();
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<RoleEntity> entities = roleRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(RoleEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            RoleEntity.class, ids, form.getVersions(), deletedBy);
+        permissionResolver.invalidate();
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(RoleSearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, RoleForm.class, objectMapper)) {
+            roleRepositoryCustom.export(search, entity -> writer.write(RoleMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        roleRepositoryCustom.saveAll(entities);
-        return entities.size();
     }
 
     private Pageable buildPageable(RoleSearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
@@ -9,10 +9,13 @@ import jakarta.persistence.ForeignKey;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import com.viridial.common.entities.BaseEntity;
+import com.viridial.feature.entities.PermissionEntityListener;
 import com.viridial.referentiel.entities.ReferentialEntity;
 
 @Entity
+@EntityListeners(PermissionEntityListener.class)
 @Table(
     name = "sec_user"
 )
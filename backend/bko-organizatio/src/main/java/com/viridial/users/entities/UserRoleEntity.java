@@ -3,11 +3,13 @@ package com.viridial.users.entities;
 import java.time.LocalDateTime;
 
 import com.viridial.common.entities.BaseEntity;
+import com.viridial.feature.entities.PermissionEntityListener;
 import com.viridial.roles.entities.RoleEntity;
 
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(PermissionEntityListener.class)
 @Table(
     name = "sec_user_role",
     indexes = {
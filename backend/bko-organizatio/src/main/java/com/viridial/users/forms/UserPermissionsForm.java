@@ -0,0 +1,34 @@
+package com.viridial.users.forms;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Effective permissions of a user: the roles held (inherited ones included) and the features
+ * they grant, until validUntil when an assignment starts or ends.
+ */
+public class UserPermissionsForm {
+    private Long userId;
+    private List<String> roles;
+    private List<String> features;
+    private LocalDateTime validUntil;
+
+    public UserPermissionsForm() {
+    }
+
+    public UserPermissionsForm(Long userId, List<String> roles, List<String> features, LocalDateTime validUntil) {
+        this.userId = userId;
+        this.roles = roles;
+        this.features = features;
+        this.validUntil = validUntil;
+    }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public List<String> getRoles() { return roles; }
+    public void setRoles(List<String> roles) { this.roles = roles; }
+    public List<String> getFeatures() { return features; }
+    public void setFeatures(List<String> features) { this.features = features; }
+    public LocalDateTime getValidUntil() { return validUntil; }
+    public void setValidUntil(LocalDateTime validUntil) { this.validUntil = validUntil; }
+}
@@ -2,17 +2,19 @@ package com.viridial.users.repositories;
 
 import com.viridial.common.form.SearchForm;
 import com.viridial.users.entities.UserEntity;
-import org.springframework.data.domain.Page;
+import com.viridial.common.utils.SearchPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository interface for UserEntity.
  * Defines additional methods beyond standard JPA repository operations.
  */
 public interface UserRepositoryCustom {
-    Page<UserEntity> search(SearchForm searchForm, Pageable pageable);
+    SearchPage<UserEntity> search(SearchForm searchForm, Pageable pageable);
+    long export(SearchForm searchForm, Consumer<UserEntity> action);
     List<UserEntity> findAllById(List<Long> ids);
     void saveAll(List<UserEntity> entities);
 }
@@ -1,21 +1,21 @@
 package com.viridial.users.repositories;
 
+import com.viridial.common.config.SearchMetrics;
 import com.viridial.common.form.SearchForm;
-import com.viridial.common.utils.SearchCriteriaBuilder;
+import com.viridial.common.repositories.SearchCountRepository;
+import com.viridial.common.utils.SearchEngine;
+import com.viridial.common.utils.SearchPage;
 import com.viridial.users.entities.UserEntity;
 import com.viridial.users.forms.UserSearchForm;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Custom repository implementation for UserEntity.
@@ -28,67 +28,34 @@ public class UserRepositoryCustomImpl implements UserRepositoryCustom {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SearchCountRepository searchCountRepository;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
+    private SearchEngine<UserEntity> searchEngine;
+
+    @PostConstruct
+    void initSearchEngine() {
+        searchEngine = SearchEngine.builder(UserEntity.class, UserSearchForm.class)
+            .defaultSort("createdAt")
+            .contains("email", UserSearchForm::getEmail)
+            .contains("firstName", UserSearchForm::getFirstName)
+            .contains("lastName", UserSearchForm::getLastName)
+            .equal("active", UserSearchForm::getActive)
+            .equal("statusId", UserSearchForm::getStatusId)
+            .build(entityManager, searchCountRepository, searchMetrics);
+    }
+
     @Override
-    public Page<UserEntity> search(SearchForm searchForm, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<UserEntity> countRoot = countQuery.from(UserEntity.class);
-        countQuery.select(cb.count(countRoot));
-        
-        SearchCriteriaBuilder<UserEntity> countBuilder = SearchCriteriaBuilder.of(cb, countRoot);
-        countQuery.where(countBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildUserSearchPredicates(builder, root, form)));
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-        
-        CriteriaQuery<UserEntity> dataQuery = cb.createQuery(UserEntity.class);
-        Root<UserEntity> dataRoot = dataQuery.from(UserEntity.class);
-        dataQuery.select(dataRoot);
-        
-        SearchCriteriaBuilder<UserEntity> dataBuilder = SearchCriteriaBuilder.of(cb, dataRoot);
-        dataQuery.where(dataBuilder.buildPredicates(searchForm, 
-            (builder, root, form) -> buildUserSearchPredicates(builder, root, form)));
-        
-        List<Order> orders = dataBuilder.buildOrders(searchForm, "createdAt");
-        if (!orders.isEmpty()) {
-            dataQuery.orderBy(orders);
-        }
-        
-        TypedQuery<UserEntity> typedQuery = entityManager.createQuery(dataQuery);
-        typedQuery.setFirstResult((int) pageable.getOffset());
-        typedQuery.setMaxResults(pageable.getPageSize());
-        List<UserEntity> results = typedQuery.getResultList();
-        
-        return new PageImpl<>(results, pageable, total);
+    public SearchPage<UserEntity> search(SearchForm searchForm, Pageable pageable) {
+        return searchEngine.search(searchForm, pageable);
     }
 
-    private List<Predicate> buildUserSearchPredicates(CriteriaBuilder cb, Root<UserEntity> root, SearchForm searchForm) {
-        List<Predicate> predicates = new ArrayList<>();
-        
-        if (searchForm instanceof UserSearchForm) {
-            UserSearchForm formSearch = (UserSearchForm) searchForm;
-            
-            if (formSearch.getEmail() != null && !formSearch.getEmail().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("email")), 
-                    "%" + formSearch.getEmail().toLowerCase() + "%"));
-            }
-            if (formSearch.getFirstName() != null && !formSearch.getFirstName().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("firstName")), 
-                    "%" + formSearch.getFirstName().toLowerCase() + "%"));
-            }
-            if (formSearch.getLastName() != null && !formSearch.getLastName().isEmpty()) {
-                predicates.add(cb.like(cb.lower(root.get("lastName")), 
-                    "%" + formSearch.getLastName().toLowerCase() + "%"));
-            }
-            if (formSearch.getActive() != null) {
-                predicates.add(cb.equal(root.get("active"), formSearch.getActive()));
-            }
-            if (formSearch.getStatusId() != null) {
-                predicates.add(cb.equal(root.get("statusId"), formSearch.getStatusId()));
-            }
-        }
-        
-        return predicates;
+    @Override
+    public long export(SearchForm searchForm, Consumer<UserEntity> action) {
+        return searchEngine.export(searchForm, action);
     }
 
     @Override
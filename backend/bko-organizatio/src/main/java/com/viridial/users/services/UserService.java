@@ -1,16 +1,20 @@
 package com.viridial.users.services;
 
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.services.BulkService;
+import com.viridial.common.utils.ExportWriter;
 import com.viridial.users.forms.UserForm;
+import com.viridial.users.forms.UserPermissionsForm;
 import com.viridial.users.forms.UserSearchForm;
 
-import java.util.List;
+import java.io.OutputStream;
 
 /**
  * Service interface for UserEntity operations.
  */
-public interface UserService {
-    List<UserForm> search(UserSearchForm search);
-    int bulkUpdateActive(List<Long> ids, boolean active);
-    int bulkDelete(List<Long> ids, String deletedBy);
+public interface UserService extends BulkService {
+    PaginatedResponse<UserForm> search(UserSearchForm search);
+    long export(UserSearchForm search, ExportWriter.Format format, OutputStream output);
+    UserPermissionsForm getPermissions(Long id);
 }
 
@@ -1,19 +1,32 @@
 package com.viridial.users.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.common.config.RetryOnConflict;
+import com.viridial.common.forms.BulkDeleteForm;
+import com.viridial.common.forms.BulkDeleteResponse;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.forms.BulkUpdateActiveResponse;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.ExportWriter;
+import com.viridial.common.utils.SearchPage;
+import com.viridial.feature.services.PermissionResolver;
 import com.viridial.users.entities.UserEntity;
 import com.viridial.users.forms.UserForm;
+import com.viridial.users.forms.UserPermissionsForm;
 import com.viridial.users.forms.UserSearchForm;
 import com.viridial.users.mapper.UserMapper;
 import com.viridial.users.repositories.UserRepositoryCustom;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service implementation for UserEntity operations.
@@ -24,43 +37,73 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepositoryCustom userRepositoryCustom;
 
+    @Autowired
+    private BulkMutationRepository bulkMutationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PermissionResolver permissionResolver;
+
     @Override
     @Transactional(readOnly = true)
-    public List<UserForm> search(UserSearchForm search) {
+    public PaginatedResponse<UserForm> search(UserSearchForm search) {
         Pageable pageable = buildPageable(search);
-        Page<UserEntity> page = userRepositoryCustom.search(search, pageable);
-        return page.getContent().stream()
-                .map(UserMapper::mapEntityToForm)
-                .collect(Collectors.toList());
+        SearchPage<UserEntity> page = userRepositoryCustom.search(search, pageable);
+        return PaginatedResponse.of(page, UserMapper::mapEntityToForm);
     }
 
     @Override
     @Transactional
-    public int bulkUpdateActive(List<Long> ids, boolean active) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<UserEntity> entities = userRepositoryCustom.findAllById(ids);
-        entities.forEach(entity -> entity.setActive(active));
-        userRepositoryCustom.saveAll(entities);
-        return entities.size();
+    @RetryOnConflict
+    public BulkUpdateActiveResponse bulkUpdateActive(BulkUpdateActiveForm form) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkUpdateActiveResponse(0, form.isActive());
+        BulkMutationRepository.Result result = bulkMutationRepository.updateActive(
+            UserEntity.class, ids, form.getVersions(), form.isActive(), null);
+        permissionResolver.evictUsers(ids);
+        return new BulkUpdateActiveResponse(result.getChanged(), form.isActive(), result.getConflicts());
     }
 
     @Override
     @Transactional
-    public int bulkDelete(List<Long> ids, String deletedBy) {
-        if (ids == null || ids.isEmpty()) return 0;
-        List<UserEntity> entities = userRepositoryCustom.findAllById(ids);
-        if (deletedBy != null) {
-            entities.forEach(entity -> entity.delete(deletedBy));
-        } else {
-            entities.forEach(UserEntity::delete);
+    @RetryOnConflict
+    public BulkDeleteResponse bulkDelete(BulkDeleteForm form, String deletedBy) {
+        List<Long> ids = form.getIds();
+        if (ids == null || ids.isEmpty()) return new BulkDeleteResponse(0);
+        BulkMutationRepository.Result result = bulkMutationRepository.softDelete(
+            UserEntity.class, ids, form.getVersions(), deletedBy);
+        permissionResolver.evictUsers(ids);
+        return new BulkDeleteResponse(result.getChanged(), result.getConflicts());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(UserSearchForm search, ExportWriter.Format format, OutputStream output) {
+        try (ExportWriter writer = ExportWriter.of(format, output, UserForm.class, objectMapper)) {
+            userRepositoryCustom.export(search, entity -> writer.write(UserMapper.mapEntityToForm(entity)));
+            return writer.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPermissionsForm getPermissions(Long id) {
+        List<UserEntity> users = userRepositoryCustom.findAllById(List.of(id));
+        if (users.isEmpty() || users.get(0).getDeletedAt() != null) {
+            return null;
         }
-        userRepositoryCustom.saveAll(entities);
-        return entities.size();
+        return new UserPermissionsForm(id, permissionResolver.getRoleCodes(id), permissionResolver.getFeatureCodes(id),
+            permissionResolver.getValidUntil(id));
     }
 
     private Pageable buildPageable(UserSearchForm search) {
-        int page = search.getPage() != null ? search.getPage() : 0;
-        int size = search.getSize() != null ? search.getSize() : 10;
+        // Keyset pages are positioned by the cursor, not by an offset
+        int page = search.isKeyset() ? 0 : search.getPage();
+        int size = search.getSize();
         return PageRequest.of(page, size);
     }
 }
@@ -0,0 +1,35 @@
+-- Bulk jobs (BulkJobService): bulk-update-active and bulk-delete requests run in the background,
+-- one committed chunk of ids at a time. The row holds the ids and the progress, so that a job
+-- resumes where it stopped after a restart.
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- every statement is idempotent.
+
+CREATE TABLE IF NOT EXISTS com_bulk_job (
+    id bigserial PRIMARY KEY,
+    resource varchar(50) NOT NULL,
+    operation varchar(20) NOT NULL,
+    active boolean,
+    requested_by varchar(255),
+    -- Distinct ids in processing order, and the expected version of each (null elements for none)
+    ids bigint[] NOT NULL,
+    versions bigint[],
+    total integer NOT NULL,
+    status varchar(20) NOT NULL,
+    cancel_requested boolean NOT NULL DEFAULT false,
+    -- Ids handled so far: the next chunk starts there
+    processed integer NOT NULL DEFAULT 0,
+    changed integer NOT NULL DEFAULT 0,
+    conflict_count integer NOT NULL DEFAULT 0,
+    -- The first conflicts only (app.jobs.max-reported-conflicts), as BulkConflictForm objects
+    conflicts jsonb NOT NULL DEFAULT '[]',
+    error text,
+    -- Instance running the job, and when it last committed a chunk
+    claimed_by varchar(64),
+    heartbeat_at timestamp,
+    created_at timestamp NOT NULL,
+    started_at timestamp,
+    finished_at timestamp
+);
+
+-- Jobs left to run, polled by every instance
+CREATE INDEX IF NOT EXISTS idx_bulk_job_unfinished ON com_bulk_job (id) WHERE status IN ('PENDING', 'RUNNING');
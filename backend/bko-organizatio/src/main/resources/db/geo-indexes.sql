@@ -0,0 +1,27 @@
+-- GiST indexes serving the distance filters of the searches (within_radius, GeoFunctionContributor):
+-- earth_box(center, radius) @> ll_to_earth(latitude, longitude) on the cities and the team addresses.
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- every statement is idempotent. cube and earthdistance are trusted extensions: the database owner
+-- can create them.
+
+CREATE EXTENSION IF NOT EXISTS cube;
+CREATE EXTENSION IF NOT EXISTS earthdistance;
+
+-- As for the trigram indexes, a table is analyzed when its index is created: the planner needs
+-- statistics on ll_to_earth(latitude, longitude) to estimate a radius.
+DO $$
+DECLARE
+    geo text[];
+BEGIN
+    FOREACH geo SLICE 1 IN ARRAY ARRAY[
+        ['com_cities', 'idx_city_earth'],
+        ['org_team_address', 'idx_team_address_earth']
+    ]
+    LOOP
+        IF to_regclass(geo[2]) IS NULL THEN
+            EXECUTE format('CREATE INDEX %I ON %I USING gist (ll_to_earth(latitude, longitude))', geo[2], geo[1]);
+            EXECUTE format('ANALYZE %I', geo[1]);
+        END IF;
+    END LOOP;
+END
+$$;
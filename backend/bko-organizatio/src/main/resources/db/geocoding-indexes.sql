@@ -0,0 +1,6 @@
+-- Index serving the fingerprint of the cities read by ReverseGeocoder at every startup and rebuild:
+-- max(id) comes from the primary key and max(updated_at) from this index, without scanning the table.
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- the statement is idempotent.
+
+CREATE INDEX IF NOT EXISTS idx_city_updated_at ON com_cities (updated_at);
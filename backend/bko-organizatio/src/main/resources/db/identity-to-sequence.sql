@@ -0,0 +1,27 @@
+-- Migrates the id columns created with GenerationType.IDENTITY to the per-table
+-- sequences now used by BaseEntity (<table>_seq, increment 50, pooled-lo optimizer).
+-- Runs before Hibernate at every startup (spring.sql.init) and only touches id columns
+-- that are still identity columns, so it is a no-op once migrated and on a fresh database.
+-- With pooled-lo the value returned by nextval is the first id of the block,
+-- so each sequence restarts just after the highest existing id.
+DO $$
+DECLARE
+    t record;
+    next_id bigint;
+BEGIN
+    FOR t IN
+        SELECT c.table_name
+        FROM information_schema.columns c
+        WHERE c.table_schema = current_schema()
+          AND c.column_name = 'id'
+          AND c.is_identity = 'YES'
+    LOOP
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', t.table_name);
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', t.table_name || '_seq');
+        EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', t.table_name || '_seq', t.table_name);
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) + 1 FROM %I', t.table_name) INTO next_id;
+        PERFORM setval(quote_ident(t.table_name || '_seq'), next_id, false);
+        RAISE NOTICE 'Migrated %.id from identity to sequence %_seq starting at %', t.table_name, t.table_name, next_id;
+    END LOOP;
+END
+$$;
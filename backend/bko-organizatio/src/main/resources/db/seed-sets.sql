@@ -0,0 +1,15 @@
+-- Seed sets applied to this database (DataSeeder): one row per set with the version and the
+-- checksum of its file when last applied. A set is applied again only when either changes.
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- every statement is idempotent.
+
+CREATE TABLE IF NOT EXISTS com_seed_set (
+    name varchar(100) PRIMARY KEY,
+    version integer NOT NULL,
+    checksum varchar(64) NOT NULL,
+    row_count integer NOT NULL,
+    inserted integer NOT NULL,
+    updated integer NOT NULL,
+    applied_at timestamp NOT NULL,
+    duration_ms bigint NOT NULL
+);
@@ -0,0 +1,75 @@
+-- Maintains org_team_closure, the transitive closure of org_team.parent_id:
+-- one (ancestor_id, descendant_id, depth) row per path, including (id, id, 0) for every team.
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- every statement is idempotent.
+
+-- Paths go away with their teams
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_team_closure_ancestor') THEN
+        ALTER TABLE org_team_closure ADD CONSTRAINT fk_team_closure_ancestor
+            FOREIGN KEY (ancestor_id) REFERENCES org_team (id) ON DELETE CASCADE;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_team_closure_descendant') THEN
+        ALTER TABLE org_team_closure ADD CONSTRAINT fk_team_closure_descendant
+            FOREIGN KEY (descendant_id) REFERENCES org_team (id) ON DELETE CASCADE;
+    END IF;
+END
+$$;
+
+-- Inserted team: itself, plus the ancestors of its parent one level further.
+-- Moved team (parent_id changed): its subtree is detached from the old ancestors
+-- and attached under the ancestors of the new parent. Moves into the team's own subtree are refused.
+CREATE OR REPLACE FUNCTION org_team_closure_sync() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO org_team_closure (ancestor_id, descendant_id, depth)
+        SELECT NEW.id, NEW.id, 0
+        UNION ALL
+        SELECT c.ancestor_id, NEW.id, c.depth + 1 FROM org_team_closure c WHERE c.descendant_id = NEW.parent_id;
+        RETURN NULL;
+    END IF;
+
+    IF NEW.parent_id IS NOT NULL AND EXISTS (
+            SELECT 1 FROM org_team_closure WHERE ancestor_id = NEW.id AND descendant_id = NEW.parent_id) THEN
+        RAISE EXCEPTION 'Team % cannot be moved under team % of its own subtree', NEW.id, NEW.parent_id
+            USING ERRCODE = 'check_violation';
+    END IF;
+    DELETE FROM org_team_closure c
+    WHERE c.descendant_id IN (SELECT s.descendant_id FROM org_team_closure s WHERE s.ancestor_id = NEW.id)
+      AND c.ancestor_id NOT IN (SELECT s.descendant_id FROM org_team_closure s WHERE s.ancestor_id = NEW.id);
+    INSERT INTO org_team_closure (ancestor_id, descendant_id, depth)
+    SELECT a.ancestor_id, s.descendant_id, a.depth + s.depth + 1
+    FROM org_team_closure a
+    JOIN org_team_closure s ON s.ancestor_id = NEW.id
+    WHERE a.descendant_id = NEW.parent_id;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_team_closure_insert ON org_team;
+CREATE TRIGGER trg_team_closure_insert AFTER INSERT ON org_team
+    FOR EACH ROW EXECUTE FUNCTION org_team_closure_sync();
+
+DROP TRIGGER IF EXISTS trg_team_closure_move ON org_team;
+CREATE TRIGGER trg_team_closure_move AFTER UPDATE OF parent_id ON org_team
+    FOR EACH ROW WHEN (OLD.parent_id IS DISTINCT FROM NEW.parent_id) EXECUTE FUNCTION org_team_closure_sync();
+
+-- Rebuilds the closure of teams written while the triggers did not exist (first startup)
+DO $$
+BEGIN
+    IF (SELECT count(*) FROM org_team_closure WHERE depth = 0) <> (SELECT count(*) FROM org_team) THEN
+        TRUNCATE org_team_closure;
+        INSERT INTO org_team_closure (ancestor_id, descendant_id, depth)
+        WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (
+            SELECT id, id, 0 FROM org_team
+            UNION ALL
+            SELECT tree.ancestor_id, t.id, tree.depth + 1
+            FROM tree JOIN org_team t ON t.parent_id = tree.descendant_id
+        ) CYCLE descendant_id SET is_cycle USING path
+        SELECT ancestor_id, descendant_id, depth FROM tree WHERE NOT is_cycle
+        ON CONFLICT DO NOTHING;
+        RAISE NOTICE 'Rebuilt org_team_closure';
+    END IF;
+END
+$$;
@@ -0,0 +1,44 @@
+-- Trigram GIN indexes serving the text filters of the searches (SearchEngine):
+-- lower(column) LIKE '%x%' / 'x%' / '%x' and the FUZZY word similarity (value <% lower(column)).
+-- The btree indexes on the raw columns cannot serve a leading wildcard nor lower().
+-- Runs after Hibernate has created the tables (app.schema.post-ddl-locations) at every startup;
+-- every statement is idempotent. pg_trgm is a trusted extension: the database owner can create it.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- A table is analyzed when one of its indexes is created: until then the planner has no statistics
+-- on lower(column), overestimates the matches of a LIKE and prefers walking the sort index
+-- (ORDER BY name LIMIT n) over the trigram index, which takes seconds on com_cities.
+DO $$
+DECLARE
+    trgm text[];
+    analyzed text[] := '{}';
+    tbl text;
+BEGIN
+    FOREACH trgm SLICE 1 IN ARRAY ARRAY[
+        ['com_cities', 'name', 'idx_city_name_trgm'],
+        ['com_countries', 'name', 'idx_country_name_trgm'],
+        ['com_timezone', 'code', 'idx_timezone_code_trgm'],
+        ['com_timezone', 'name', 'idx_timezone_name_trgm'],
+        ['com_referential', 'code', 'idx_com_code_trgm'],
+        ['com_referential', 'label', 'idx_com_label_trgm'],
+        ['org_team', 'internal_code', 'idx_team_internal_code_trgm'],
+        ['org_team', 'name', 'idx_team_name_trgm'],
+        ['org_team', 'email', 'idx_team_email_trgm'],
+        ['sec_role', 'code', 'idx_sec_role_code_trgm'],
+        ['sec_role', 'label', 'idx_sec_role_label_trgm'],
+        ['sec_user', 'email', 'idx_sec_user_email_trgm'],
+        ['sec_user', 'first_name', 'idx_sec_user_first_name_trgm'],
+        ['sec_user', 'last_name', 'idx_sec_user_last_name_trgm']
+    ]
+    LOOP
+        IF to_regclass(trgm[3]) IS NULL THEN
+            EXECUTE format('CREATE INDEX %I ON %I USING gin (lower(%I) gin_trgm_ops)', trgm[3], trgm[1], trgm[2]);
+            analyzed := analyzed || trgm[1];
+        END IF;
+    END LOOP;
+    FOR tbl IN SELECT DISTINCT unnest(analyzed) LOOP
+        EXECUTE format('ANALYZE %I', tbl);
+    END LOOP;
+END
+$$;
@@ -0,0 +1,78 @@
+package com.viridial.common.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConflictRetryAdvisorTests {
+
+	@Test
+	void retriesThroughTheInterceptorsBelowUntilItSucceeds() {
+		Flaky target = new Flaky(2);
+		AtomicInteger transactions = new AtomicInteger();
+
+		Flaky proxy = proxy(target, transactions);
+
+		assertEquals("done", proxy.write());
+		assertEquals(3, target.calls.get());
+		// Each attempt went through the (transaction) interceptor again
+		assertEquals(3, transactions.get());
+	}
+
+	@Test
+	void givesUpAfterMaxAttemptsAndIgnoresUnannotatedMethods() {
+		Flaky target = new Flaky(10);
+
+		Flaky proxy = proxy(target, new AtomicInteger());
+
+		assertThrows(OptimisticLockingFailureException.class, proxy::write);
+		assertEquals(3, target.calls.get());
+		assertThrows(OptimisticLockingFailureException.class, proxy::read);
+		assertEquals(4, target.calls.get());
+	}
+
+	private static Flaky proxy(Flaky target, AtomicInteger transactions) {
+		ConflictRetryAdvisor advisor = new ConflictRetryAdvisor();
+		advisor.setEnvironment(new MockEnvironment()
+			.withProperty("app.retry.max-attempts", "3")
+			.withProperty("app.retry.backoff", "PT0.001S"));
+		advisor.setBeanFactory(new DefaultListableBeanFactory());
+		ProxyFactory factory = new ProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAdvisor(advisor);
+		factory.addAdvice((MethodInterceptor) invocation -> {
+			transactions.incrementAndGet();
+			return invocation.proceed();
+		});
+		return (Flaky) factory.getProxy();
+	}
+
+	static class Flaky {
+		private final int failures;
+		private final AtomicInteger calls = new AtomicInteger();
+
+		Flaky(int failures) {
+			this.failures = failures;
+		}
+
+		@RetryOnConflict
+		public String write() {
+			return read();
+		}
+
+		public String read() {
+			if (calls.incrementAndGet() <= failures) {
+				throw new OptimisticLockingFailureException("Row was updated by another transaction");
+			}
+			return "done";
+		}
+	}
+}
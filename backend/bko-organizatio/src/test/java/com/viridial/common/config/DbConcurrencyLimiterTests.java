@@ -0,0 +1,81 @@
+package com.viridial.common.config;
+
+import com.viridial.common.config.DbConcurrencyLimiter.DatabaseOverloadedException;
+import com.viridial.common.config.DbConcurrencyLimiter.LimitedDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DbConcurrencyLimiterTests {
+
+	@Test
+	void queuesBeyondMaxConcurrencyUntilAConnectionIsClosed() throws Exception {
+		LimitedDataSource dataSource = new LimitedDataSource(stubDataSource(), 1, 10, Duration.ofSeconds(5));
+		Connection first = dataSource.getConnection();
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<Connection> second = executor.submit(() -> dataSource.getConnection());
+			while (dataSource.getWaiting() == 0) {
+				Thread.onSpinWait();
+			}
+			assertEquals(1, dataSource.getActive());
+
+			first.close();
+			first.close();
+			second.get(5, TimeUnit.SECONDS).close();
+		}
+		assertEquals(0, dataSource.getActive());
+	}
+
+	@Test
+	void rejectsWhenTheQueueIsFullOrTheWaitTimesOut() throws Exception {
+		LimitedDataSource dataSource = new LimitedDataSource(stubDataSource(), 1, 1, Duration.ofMillis(50));
+		Connection held = CompletableFuture.supplyAsync(() -> {
+			try {
+				return dataSource.getConnection();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}).get();
+
+		assertThrows(DatabaseOverloadedException.class, dataSource::getConnection);
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<Connection> waiting = executor.submit(() -> dataSource.getConnection());
+			while (dataSource.getWaiting() == 0) {
+				Thread.onSpinWait();
+			}
+			assertThrows(DatabaseOverloadedException.class, dataSource::getConnection);
+			waiting.cancel(true);
+		}
+		held.close();
+	}
+
+	@Test
+	void nestedConnectionOfAPermitHolderIsNotQueued() throws Exception {
+		LimitedDataSource dataSource = new LimitedDataSource(stubDataSource(), 1, 10, Duration.ofMillis(50));
+
+		try (Connection outer = dataSource.getConnection(); Connection inner = dataSource.getConnection()) {
+			assertEquals(1, dataSource.getActive());
+		}
+		assertEquals(0, dataSource.getActive());
+	}
+
+	private static DataSource stubDataSource() {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+			(proxy, method, args) -> method.getName().equals("getConnection")
+				? Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+					(connection, connectionMethod, connectionArgs) -> null)
+				: null);
+	}
+}
@@ -0,0 +1,100 @@
+package com.viridial.common.config;
+
+import com.viridial.ViridialOrganizationApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application run in-process against an embedded PostgreSQL 16 (zonky, on the test classpath):
+ * no container and no external service. Used by the end-to-end benchmarks and {@link LocalLoadTest}.
+ *
+ * <p>The database lives in a temporary directory, dropped on {@link #close()}, or in a given one that
+ * is kept, so that large generated data sets are reused from one run to the next. PostgreSQL refuses
+ * to run as root. The application runs with the prod profile, without SQL logging; its log files go
+ * to a temporary directory.</p>
+ */
+public class EmbeddedApplication implements Closeable {
+
+	private final EmbeddedPostgres postgres;
+	private final Path logDirectory;
+	private ConfigurableApplicationContext context;
+
+	private EmbeddedApplication(EmbeddedPostgres postgres, Path logDirectory) {
+		this.postgres = postgres;
+		this.logDirectory = logDirectory;
+	}
+
+	/**
+	 * Starts PostgreSQL, in a temporary data directory when {@code dataDirectory} is null.
+	 */
+	public static EmbeddedApplication startDatabase(Path dataDirectory) throws IOException {
+		EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder();
+		if (dataDirectory != null) {
+			Files.createDirectories(dataDirectory);
+			builder.setDataDirectory(dataDirectory).setCleanDataDirectory(false);
+		}
+		return new EmbeddedApplication(builder.start(), Files.createTempDirectory("viridial-logs"));
+	}
+
+	/**
+	 * Starts the application on a random port, seeded before it is ready.
+	 *
+	 * @param arguments more command line arguments, e.g. {@code --app.db.max-concurrency=10}
+	 */
+	public void startApplication(String... arguments) {
+		List<String> args = new ArrayList<>(List.of(
+			"--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+			"--spring.datasource.username=postgres",
+			"--spring.datasource.password=",
+			"--spring.profiles.active=prod",
+			"--server.port=0",
+			"--app.seed.mode=startup",
+			"--logging.level.root=WARN",
+			"--logging.level.org.hibernate.SQL=OFF",
+			"--logging.file.name=" + logDirectory.resolve("viridial-organization.log"),
+			"--logging.file.error.name=" + logDirectory.resolve("viridial-organization-error.log"),
+			"--logging.file.slow-query.name=" + logDirectory.resolve("viridial-organization-slow-query.log")));
+		args.addAll(List.of(arguments));
+		context = SpringApplication.run(ViridialOrganizationApplication.class, args.toArray(String[]::new));
+	}
+
+	public void stopApplication() {
+		if (context != null) {
+			context.close();
+			context = null;
+		}
+	}
+
+	/**
+	 * Returns the database of the application, outside its connection pool.
+	 */
+	public DataSource getDataSource() {
+		return postgres.getPostgresDatabase();
+	}
+
+	public String getBaseUrl() {
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+
+	public Path getLogDirectory() {
+		return logDirectory;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			stopApplication();
+		} finally {
+			postgres.close();
+		}
+	}
+}
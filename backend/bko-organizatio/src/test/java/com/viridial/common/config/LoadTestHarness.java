@@ -0,0 +1,326 @@
+package com.viridial.common.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test of a running instance: N concurrent clients replay a weighted mix of requests,
+ * read from a workload script, for a fixed duration, then throughput and latency percentiles are
+ * printed, overall and per operation, with the response statuses.
+ *
+ * <p>Compares the thread modes by running it against the service started each way:</p>
+ * <pre>
+ * VIRTUAL_THREADS_ENABLED=false DB_LIMITER_ENABLED=false java -jar target/organization-*.jar
+ * VIRTUAL_THREADS_ENABLED=true java -jar target/organization-*.jar
+ * java -cp target/test-classes com.viridial.common.config.LoadTestHarness http://localhost:8081 1000 30
+ * </pre>
+ *
+ * <p>Arguments: base URL, concurrent clients (default 500), duration in seconds (default 30), then
+ * {@code name=value} options: {@code workload} (a file or a test resource, default
+ * {@value #DEFAULT_WORKLOAD}), {@code seed} (default 1), id ranges such as {@code cities=1-5000000}
+ * and any other variable of the script. The first 20% of the duration is a warm-up, not measured.</p>
+ *
+ * <p>A script line is {@code <operation> <weight> <method> <path> [json body]}, {@code #} starting a
+ * comment. Path and body may hold placeholders, drawn anew for each request:</p>
+ * <ul>
+ *     <li>{@code ${word}}: a name prefix; {@code ${bool}}: true or false;</li>
+ *     <li>{@code ${int:<min>:<max>}}: an integer between min and max included;</li>
+ *     <li>{@code ${id:<range>}}: an id of the range; {@code ${ids:<range>:<n>}}: a JSON array of n of them;</li>
+ *     <li>{@code ${<variable>}}: the value of an option.</li>
+ * </ul>
+ * <p>Each client draws from its own random generator, seeded with the seed and its number: the same
+ * seed replays the same requests.</p>
+ */
+public class LoadTestHarness {
+
+	public static final String DEFAULT_WORKLOAD = "load/default.workload";
+
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+	private static final Pattern RANGE = Pattern.compile("(\\d+)-(\\d+)");
+	private static final String[] WORDS = {"par", "mar", "ba", "lo", "ri", "sa", "ken", "vi", "ne", "to"};
+
+	/**
+	 * One line of a workload script.
+	 */
+	public record Operation(String name, int weight, String method, String path, String body) {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = 3; i < args.length; i++) {
+			int equals = args[i].indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Expected name=value: " + args[i]);
+			}
+			options.put(args[i].substring(0, equals), args[i].substring(equals + 1));
+		}
+		List<Operation> workload = readWorkload(options.getOrDefault("workload", DEFAULT_WORKLOAD));
+		long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+		System.out.print(run(baseUrl, clients, seconds, workload, options, seed));
+	}
+
+	/**
+	 * Reads a workload script from a file, or from the test resources when there is no such file.
+	 */
+	public static List<Operation> readWorkload(String location) throws IOException {
+		String script;
+		Path file = Path.of(location);
+		if (Files.isRegularFile(file)) {
+			script = Files.readString(file);
+		} else {
+			try (InputStream resource = LoadTestHarness.class.getClassLoader().getResourceAsStream(location)) {
+				if (resource == null) {
+					throw new IllegalArgumentException("No workload " + location);
+				}
+				script = new String(resource.readAllBytes(), StandardCharsets.UTF_8);
+			}
+		}
+		List<Operation> operations = new ArrayList<>();
+		for (String line : script.lines().toList()) {
+			int comment = line.indexOf('#');
+			String[] parts = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+", 5);
+			if (parts[0].isEmpty()) {
+				continue;
+			}
+			if (parts.length < 4) {
+				throw new IllegalArgumentException("Expected <operation> <weight> <method> <path> [body]: " + line);
+			}
+			operations.add(new Operation(parts[0], Integer.parseInt(parts[1]), parts[2], parts[3],
+				parts.length == 5 ? parts[4] : null));
+		}
+		if (operations.isEmpty()) {
+			throw new IllegalArgumentException("Empty workload " + location);
+		}
+		return operations;
+	}
+
+	/**
+	 * Runs the workload and returns the report.
+	 *
+	 * @param variables the values of the {@code ${<variable>}} placeholders and the id ranges, {@code <min>-<max>}
+	 */
+	public static Report run(String baseUrl, int clients, int seconds, List<Operation> workload,
+			Map<String, String> variables, long seed) throws InterruptedException, ExecutionException {
+		HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.executor(Executors.newVirtualThreadPerTaskExecutor())
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+		long start = System.nanoTime();
+		long measureFrom = start + seconds * 200_000_000L;
+		long end = start + seconds * 1_000_000_000L;
+
+		List<Future<Report>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < clients; i++) {
+				SplittableRandom random = new SplittableRandom(seed + i);
+				futures.add(executor.submit(() -> runClient(client, baseUrl, workload, variables, random,
+					measureFrom, end)));
+			}
+		}
+
+		Report report = new Report(clients, seconds, (end - measureFrom) / 1e9);
+		for (Future<Report> future : futures) {
+			report.add(future.get());
+		}
+		return report;
+	}
+
+	private static Report runClient(HttpClient client, String baseUrl, List<Operation> workload,
+			Map<String, String> variables, SplittableRandom random, long measureFrom, long end) {
+		Report report = new Report(0, 0, 0);
+		int totalWeight = workload.stream().mapToInt(Operation::weight).sum();
+		while (System.nanoTime() < end) {
+			Operation operation = pick(workload, random.nextInt(totalWeight));
+			HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl
+					+ expand(operation.path(), variables, random)))
+				.timeout(Duration.ofSeconds(60));
+			if (operation.body() != null) {
+				request.header("Content-Type", "application/json").method(operation.method(),
+					HttpRequest.BodyPublishers.ofString(expand(operation.body(), variables, random)));
+			} else {
+				request.method(operation.method(), HttpRequest.BodyPublishers.noBody());
+			}
+			long sent = System.nanoTime();
+			String status;
+			try {
+				status = String.valueOf(client.send(request.build(), HttpResponse.BodyHandlers.discarding())
+					.statusCode());
+			} catch (Exception e) {
+				status = e.getClass().getSimpleName();
+			}
+			long received = System.nanoTime();
+			if (sent >= measureFrom && received <= end) {
+				report.record(operation.name(), received - sent, status);
+			}
+		}
+		return report;
+	}
+
+	private static Operation pick(List<Operation> workload, int weight) {
+		for (Operation operation : workload) {
+			weight -= operation.weight();
+			if (weight < 0) {
+				return operation;
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	static String expand(String template, Map<String, String> variables, SplittableRandom random) {
+		Matcher matcher = PLACEHOLDER.matcher(template);
+		StringBuilder expanded = new StringBuilder();
+		while (matcher.find()) {
+			String[] placeholder = matcher.group(1).split(":");
+			String value = switch (placeholder[0]) {
+				case "word" -> WORDS[random.nextInt(WORDS.length)];
+				case "bool" -> String.valueOf(random.nextBoolean());
+				case "int" -> String.valueOf(random.nextLong(Long.parseLong(placeholder[1]),
+					Long.parseLong(placeholder[2]) + 1));
+				case "id" -> String.valueOf(id(placeholder[1], variables, random));
+				case "ids" -> {
+					long[] ids = new long[Integer.parseInt(placeholder[2])];
+					for (int i = 0; i < ids.length; i++) {
+						ids[i] = id(placeholder[1], variables, random);
+					}
+					yield Arrays.toString(ids);
+				}
+				default -> variable(placeholder[0], variables);
+			};
+			matcher.appendReplacement(expanded, Matcher.quoteReplacement(value));
+		}
+		return matcher.appendTail(expanded).toString();
+	}
+
+	private static long id(String range, Map<String, String> variables, SplittableRandom random) {
+		Matcher matcher = RANGE.matcher(variable(range, variables));
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Expected " + range + "=<min>-<max>");
+		}
+		return random.nextLong(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)) + 1);
+	}
+
+	private static String variable(String name, Map<String, String> variables) {
+		String value = variables.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing " + name + "=<value> for the workload");
+		}
+		return value;
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	/**
+	 * Latencies (ns) and statuses, in total and per operation; the clients' reports are merged at the end.
+	 */
+	public static final class Report {
+		private final int clients;
+		private final int seconds;
+		private final double measuredSeconds;
+		private final Latencies total = new Latencies();
+		private final Map<String, Latencies> operations = new TreeMap<>();
+
+		private Report(int clients, int seconds, double measuredSeconds) {
+			this.clients = clients;
+			this.seconds = seconds;
+			this.measuredSeconds = measuredSeconds;
+		}
+
+		private void record(String operation, long latency, String status) {
+			total.record(latency, status);
+			operations.computeIfAbsent(operation, name -> new Latencies()).record(latency, status);
+		}
+
+		private void add(Report other) {
+			total.add(other.total);
+			other.operations.forEach((name, latencies) ->
+				operations.computeIfAbsent(name, n -> new Latencies()).add(latencies));
+		}
+
+		public int getRequests() {
+			return total.count;
+		}
+
+		public double getThroughput() {
+			return total.count / measuredSeconds;
+		}
+
+		/**
+		 * Returns the status counts, exception names standing for the requests that got no response.
+		 */
+		public Map<String, Integer> getStatuses() {
+			return total.statuses;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder report = new StringBuilder(String.format(
+				"clients=%d duration=%ds requests=%d throughput=%.0f req/s%n", clients, seconds, total.count,
+				getThroughput()));
+			report.append(String.format("%-24s %8s %9s %8s %8s %8s %8s %8s  %s%n", "operation", "requests",
+				"req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses"));
+			operations.forEach((name, latencies) -> report.append(latencies.format(name, measuredSeconds)));
+			return report.append(total.format("total", measuredSeconds)).toString();
+		}
+	}
+
+	private static final class Latencies {
+		private long[] latencies = new long[1024];
+		private int count;
+		private final Map<String, Integer> statuses = new TreeMap<>();
+
+		private void record(long latency, String status) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latency;
+			statuses.merge(status, 1, Integer::sum);
+		}
+
+		private void add(Latencies other) {
+			latencies = Arrays.copyOf(latencies, Math.max(latencies.length, count + other.count));
+			System.arraycopy(other.latencies, 0, latencies, count, other.count);
+			count += other.count;
+			other.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+		}
+
+		private String format(String name, double measuredSeconds) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			return String.format("%-24s %8d %9.1f %8.1f %8.1f %8.1f %8.1f %8.1f  %s%n", name, count,
+				count / measuredSeconds, percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+				percentile(sorted, 0.999), percentile(sorted, 1.0), statuses);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.viridial.common.config;
+
+import com.viridial.common.config.LoadTestHarness.Report;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test at production scale on the developer's machine: the application and an embedded
+ * PostgreSQL in this JVM, the synthetic data set of {@link SyntheticDataGenerator}, then a workload
+ * of {@link LoadTestHarness} against the REST endpoints.
+ *
+ * <pre>
+ * mvn -Pload-test verify -Dload.args="teams=1000000 cities=5000000 referentials=10000000 clients=200 seconds=120"
+ * </pre>
+ *
+ * <p>Options, {@code name=value}: the volumes of {@link SyntheticDataGenerator.Volumes}, {@code clients}
+ * (default 200), {@code seconds} (default 60), {@code workload} (default {@value #DEFAULT_WORKLOAD}),
+ * {@code dataDirectory} (default {@code target/load-test/pgdata}). The database is kept in the data
+ * directory: the data set is generated by the first run only, the next ones with the same volumes
+ * start at once (another data set needs another directory). The workload gets the id ranges of the
+ * generated countries, cities, teams and referential types. PostgreSQL refuses to run as root.</p>
+ */
+public class LocalLoadTest {
+
+	public static final String DEFAULT_WORKLOAD = "load/mixed.workload";
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String argument : args) {
+			int equals = argument.indexOf('=');
+			if (equals > 0) {
+				options.put(argument.substring(0, equals), argument.substring(equals + 1));
+			}
+		}
+		SyntheticDataGenerator.Volumes volumes = SyntheticDataGenerator.Volumes.parse(Arrays.asList(args));
+		Path dataDirectory = Path.of(options.getOrDefault("dataDirectory", "target/load-test/pgdata"));
+
+		try (EmbeddedApplication application = EmbeddedApplication.startDatabase(dataDirectory)) {
+			// Creates the schema and the seed data the synthetic rows refer to
+			application.startApplication();
+			Map<String, String> variables = new LinkedHashMap<>(options);
+			try (Connection connection = application.getDataSource().getConnection()) {
+				SyntheticDataGenerator.Result result = SyntheticDataGenerator.generate(connection, volumes);
+				if (result.isGenerated()) {
+					System.out.println("Generated " + result.rows() + " in " + result.durationMs() + " ms");
+					// The in-memory indexes are built at startup
+					application.stopApplication();
+					application.startApplication();
+				}
+				variables.put("countries", range(connection, "com_countries", null));
+				variables.put("cities", range(connection, "com_cities", "created_by = 'synthetic'"));
+				variables.put("teams", range(connection, "org_team", "created_by = 'synthetic'"));
+				variables.put("referentialTypes", range(connection, "com_referential",
+					"code LIKE 'TYPE\\_SYNTHETIC\\_%'"));
+			}
+
+			Report report = LoadTestHarness.run(application.getBaseUrl(),
+				Integer.parseInt(options.getOrDefault("clients", "200")),
+				Integer.parseInt(options.getOrDefault("seconds", "60")),
+				LoadTestHarness.readWorkload(options.getOrDefault("workload", DEFAULT_WORKLOAD)),
+				variables, volumes.seed());
+			System.out.print(report);
+		}
+	}
+
+	/**
+	 * Returns {@code <min>-<max>} of the ids of the rows matching the condition, of all the rows when none does.
+	 */
+	private static String range(Connection connection, String table, String condition) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			if (condition != null) {
+				try (ResultSet resultSet = statement.executeQuery(
+						"SELECT min(id), max(id) FROM " + table + " WHERE " + condition)) {
+					resultSet.next();
+					if (resultSet.getObject(1) != null) {
+						return resultSet.getLong(1) + "-" + resultSet.getLong(2);
+					}
+				}
+			}
+			try (ResultSet resultSet = statement.executeQuery("SELECT min(id), max(id) FROM " + table)) {
+				resultSet.next();
+				return resultSet.getLong(1) + "-" + resultSet.getLong(2);
+			}
+		}
+	}
+}
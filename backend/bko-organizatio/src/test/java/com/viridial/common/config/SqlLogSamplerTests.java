@@ -0,0 +1,49 @@
+package com.viridial.common.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlLogSamplerTests {
+
+	private final LoggerContext context = new LoggerContext();
+	private final Logger statements = context.getLogger("org.hibernate.SQL");
+	private final Logger bindings = context.getLogger("org.hibernate.orm.jdbc.bind");
+
+	@Test
+	void logsAboutOneStatementInRateWithItsBindings() {
+		SqlLogSampler sampler = new SqlLogSampler();
+		sampler.setRate(10);
+
+		int sampled = 0;
+		for (int i = 0; i < 10_000; i++) {
+			// Enabled checks are not sampled
+			assertEquals(FilterReply.NEUTRAL, sampler.decide(null, statements, Level.DEBUG, null, null, null));
+			FilterReply statement = sampler.decide(null, statements, Level.DEBUG, "select 1", null, null);
+			assertEquals(statement, sampler.decide(null, bindings, Level.TRACE, null, null, null));
+			if (statement == FilterReply.NEUTRAL) {
+				sampled++;
+			}
+		}
+		assertTrue(sampled > 800 && sampled < 1200, "sampled " + sampled);
+	}
+
+	@Test
+	void passesEverythingElse() {
+		SqlLogSampler sampler = new SqlLogSampler();
+		sampler.setRate(Integer.MAX_VALUE);
+
+		assertEquals(FilterReply.NEUTRAL, sampler.decide(null, statements, Level.WARN, "Couldn't format", null, null));
+		assertEquals(FilterReply.NEUTRAL, sampler.decide(null, context.getLogger("com.viridial"), Level.DEBUG, "x",
+			null, null));
+
+		sampler.setRate(1);
+		assertEquals(FilterReply.NEUTRAL, sampler.decide(null, statements, Level.DEBUG, "select 1", null, null));
+	}
+
+}
@@ -0,0 +1,499 @@
+package com.viridial.common.config;
+
+import com.viridial.common.utils.CopyRowEncoder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic referentials, cities and team hierarchies, with their addresses and phones,
+ * at production volumes, straight into the tables with COPY: for load tests and benchmarks.
+ *
+ * <p>The rows only depend on the volumes and the seed. They reference the seed data (countries,
+ * timezones, team, industry, address and phone types), so the application must have started once
+ * on the database. Ids are drawn from the table sequences in whole blocks, as
+ * {@code CityImportRepository} does, so the application goes on inserting after them. The team
+ * closure is written along with the teams, its insert trigger disabled meanwhile.</p>
+ *
+ * <p>Everything is generated in one transaction, recorded in com_seed_set as the {@value #SET_NAME}
+ * set with a checksum of the parameters: generating the same set again does nothing, generating
+ * another one on the same database is refused. The tables are analyzed afterwards.</p>
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; com.viridial.common.config.SyntheticDataGenerator \
+ *     jdbc:postgresql://localhost:5432/viridialdb postgres 123456 referentials=10000000 teams=1000000 cities=5000000
+ * </pre>
+ */
+public class SyntheticDataGenerator {
+
+	public static final String SET_NAME = "synthetic";
+	public static final String CREATED_BY = "synthetic";
+
+	private static final int REFERENTIAL_TYPES = 10;
+	private static final int COPY_CHUNK_BYTES = 16 << 20;
+	private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private static final String[] SYLLABLES = {"ba", "ri", "to", "mar", "pa", "lo", "ne", "sa", "vi", "du", "ken", "or",
+		"al", "sto", "ber", "lin", "ca", "mo", "ter", "gu"};
+	private static final String[] TEAM_SUFFIXES = {"Group", "Labs", "Partners", "Holding", "Services", "Studio", "Works"};
+	private static final String[] LOCALES = {"en", "fr", "de", "es", "it"};
+	private static final String[] PHONE_COUNTRY_CODES = {"+1", "+33", "+44", "+49", "+34", "+39", "+212"};
+
+	private static final List<String> BASE_COLUMNS = List.of("id", "created_at", "created_by", "updated_at",
+		"updated_by", "version");
+	private static final List<String> REFERENTIAL_COLUMNS = columns("active", "code", "data_type", "description",
+		"display_order", "label", "locale", "parent_id", "type_id");
+	private static final List<String> CITY_COLUMNS = columns("active", "area_km2", "capital", "country_id",
+		"elevation", "latitude", "longitude", "metropolitan", "name", "population", "state", "timezone_id");
+	private static final List<String> TEAM_COLUMNS = columns("active", "description", "email", "employee_count",
+		"founded_date", "industry_id", "internal_code", "name", "parent_id", "team_type_id", "website");
+	private static final List<String> ADDRESS_COLUMNS = columns("address_type_id", "city_id", "country_id",
+		"latitude", "longitude", "postal_code", "is_primary", "street", "team_id", "validated");
+	private static final List<String> PHONE_COLUMNS = columns("active", "country_code", "formatted_number",
+		"number", "primary_phone", "team_id", "type_id", "verified");
+
+	/**
+	 * What to generate: row counts, the depth of the team trees and the seed of the values.
+	 */
+	public record Volumes(long referentials, long teams, long cities, int maxDepth, long seed) {
+
+		/**
+		 * Reads {@code name=value} arguments, the others keeping their defaults: 100k referentials,
+		 * 10k teams 12 levels deep at most, 100k cities, seed 42.
+		 */
+		public static Volumes parse(List<String> arguments) {
+			Map<String, String> values = new LinkedHashMap<>();
+			for (String argument : arguments) {
+				int equals = argument.indexOf('=');
+				if (equals > 0) {
+					values.put(argument.substring(0, equals), argument.substring(equals + 1));
+				}
+			}
+			return new Volumes(Long.parseLong(values.getOrDefault("referentials", "100000")),
+				Long.parseLong(values.getOrDefault("teams", "10000")),
+				Long.parseLong(values.getOrDefault("cities", "100000")),
+				Integer.parseInt(values.getOrDefault("maxDepth", "12")),
+				Long.parseLong(values.getOrDefault("seed", "42")));
+		}
+
+		private String checksum() {
+			try {
+				return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(
+					toString().getBytes(StandardCharsets.UTF_8)));
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Rows written per table, and how long it took; no row when the set had already been generated.
+	 */
+	public record Result(Map<String, Long> rows, long durationMs) {
+
+		public boolean isGenerated() {
+			return !rows.isEmpty();
+		}
+	}
+
+	private final Connection connection;
+	private final CopyManager copyManager;
+	private final SplittableRandom random;
+	private final Map<String, Long> rows = new LinkedHashMap<>();
+
+	private SyntheticDataGenerator(Connection connection, long seed) throws SQLException {
+		this.connection = connection;
+		this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+		this.random = new SplittableRandom(seed);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Arguments: <jdbc url> <user> <password> [referentials=N] [teams=N] [cities=N]"
+				+ " [maxDepth=N] [seed=N]");
+			System.exit(2);
+		}
+		Volumes volumes = Volumes.parse(Arrays.asList(args).subList(3, args.length));
+		try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+			Result result = generate(connection, volumes);
+			System.out.println(result.isGenerated()
+				? "Generated " + result.rows() + " in " + result.durationMs() + " ms"
+				: "Already generated: " + volumes);
+		}
+	}
+
+	/**
+	 * Generates the rows of the volumes, unless already done on this database, and commits.
+	 *
+	 * @throws IllegalStateException when other volumes were generated on this database
+	 */
+	public static Result generate(Connection connection, Volumes volumes) throws SQLException, IOException {
+		long start = System.currentTimeMillis();
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			String generated = generatedChecksum(connection);
+			if (volumes.checksum().equals(generated)) {
+				connection.rollback();
+				return new Result(Map.of(), 0);
+			}
+			if (generated != null) {
+				throw new IllegalStateException("Other synthetic volumes were generated on this database,"
+					+ " start from an empty one");
+			}
+			SyntheticDataGenerator generator = new SyntheticDataGenerator(connection, volumes.seed());
+			generator.referentials(volumes.referentials());
+			long[][] cities = generator.cities(volumes.cities());
+			generator.teams(volumes.teams(), volumes.maxDepth(), cities[0], cities[1]);
+			long durationMs = System.currentTimeMillis() - start;
+			generator.record(volumes, durationMs);
+			connection.commit();
+
+			connection.setAutoCommit(true);
+			try (Statement statement = connection.createStatement()) {
+				for (String table : generator.rows.keySet()) {
+					statement.execute("ANALYZE " + table);
+				}
+			}
+			return new Result(Map.copyOf(generator.rows), durationMs);
+		} catch (SQLException | IOException | RuntimeException e) {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+			}
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private static String generatedChecksum(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT checksum FROM com_seed_set WHERE name = ?")) {
+			statement.setString(1, SET_NAME);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				return resultSet.next() ? resultSet.getString(1) : null;
+			}
+		}
+	}
+
+	private void record(Volumes volumes, long durationMs) throws SQLException {
+		long total = rows.values().stream().mapToLong(Long::longValue).sum();
+		try (PreparedStatement statement = connection.prepareStatement("INSERT INTO com_seed_set (name, version,"
+				+ " checksum, row_count, inserted, updated, applied_at, duration_ms) VALUES (?, 1, ?, ?, ?, 0, ?, ?)")) {
+			statement.setString(1, SET_NAME);
+			statement.setString(2, volumes.checksum());
+			statement.setInt(3, (int) Math.min(total, Integer.MAX_VALUE));
+			statement.setInt(4, (int) Math.min(total, Integer.MAX_VALUE));
+			statement.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+			statement.setLong(6, durationMs);
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * {@value #REFERENTIAL_TYPES} referential types, then their values spread over them, one in five
+	 * under a parent of the same type.
+	 */
+	private void referentials(long count) throws SQLException, IOException {
+		if (count == 0) {
+			return;
+		}
+		long referentialTypeId = queryIds("SELECT id FROM com_referential WHERE code = 'TYPE_REFERENTIAL_TYPE'")[0];
+		Ids ids = new Ids("com_referential");
+		Copy copy = new Copy("com_referential", REFERENTIAL_COLUMNS, true);
+		long[] typeIds = new long[REFERENTIAL_TYPES];
+		for (int type = 0; type < REFERENTIAL_TYPES; type++) {
+			typeIds[type] = ids.next();
+			copy.base(typeIds[type], type)
+				.add(true).add("TYPE_SYNTHETIC_" + type).add("REFERENTIAL_TYPE").add(null).add(type)
+				.add("Synthetic " + type).add(null).add(null).add(referentialTypeId);
+			copy.endRow();
+		}
+		long[] valueIds = new long[(int) count];
+		for (int i = 0; i < count; i++) {
+			int type = i % REFERENTIAL_TYPES;
+			valueIds[i] = ids.next();
+			Long parentId = i >= 1000 && random.nextInt(5) == 0
+				? valueIds[i - REFERENTIAL_TYPES * (1 + random.nextInt(100))] : null;
+			copy.base(valueIds[i], i)
+				.add(random.nextInt(20) != 0).add("SYN" + i).add("SYNTHETIC_" + type).add(sentence(6))
+				.add(i / REFERENTIAL_TYPES % 1000).add(name(2, 4)).add(LOCALES[random.nextInt(LOCALES.length)])
+				.add(parentId).add(typeIds[type]);
+			copy.endRow();
+		}
+		copy.finish();
+	}
+
+	/**
+	 * Cities over the seeded countries and timezones, populations spread from 1k to 10M on a log scale.
+	 *
+	 * @return the ids of the cities and those of their countries, or of the existing cities when none is generated
+	 */
+	private long[][] cities(long count) throws SQLException, IOException {
+		if (count == 0) {
+			long[][] existing = {queryIds("SELECT id FROM com_cities ORDER BY id"),
+				queryIds("SELECT country_id FROM com_cities ORDER BY id")};
+			if (existing[0].length == 0) {
+				throw new IllegalStateException("No city to give the team addresses");
+			}
+			return existing;
+		}
+		long[] countryIds = queryIds("SELECT id FROM com_countries ORDER BY id");
+		long[] timezoneIds = queryIds("SELECT id FROM com_timezone ORDER BY id");
+		Ids ids = new Ids("com_cities");
+		Copy copy = new Copy("com_cities", CITY_COLUMNS, true);
+		long[] cityIds = new long[(int) count];
+		long[] cityCountryIds = new long[(int) count];
+		for (int i = 0; i < count; i++) {
+			cityIds[i] = ids.next();
+			cityCountryIds[i] = countryIds[random.nextInt(countryIds.length)];
+			copy.base(cityIds[i], i)
+				.add(random.nextInt(10) != 0).add(random.nextDouble(1, 5000)).add(random.nextInt(1000) == 0)
+				.add(cityCountryIds[i]).add(random.nextDouble(0, 3000)).add(random.nextDouble(-90, 90))
+				.add(random.nextDouble(-180, 180)).add(random.nextInt(50) == 0)
+				// The number keeps (name, country, state) unique
+				.add(name(2, 4) + " " + i).add((long) (1000 * Math.pow(10, random.nextDouble(4))))
+				.add(name(2, 3)).add(timezoneIds[random.nextInt(timezoneIds.length)]);
+			copy.endRow();
+		}
+		copy.finish();
+		return new long[][]{cityIds, cityCountryIds};
+	}
+
+	/**
+	 * Teams in trees at most {@code maxDepth} levels deep: each team goes under one of the 64 teams
+	 * generated before it, unless that one is too deep, and one in a thousand starts a new tree.
+	 * Every team has one or two addresses and phones.
+	 */
+	private void teams(long count, int maxDepth, long[] cityIds, long[] cityCountryIds)
+			throws SQLException, IOException {
+		if (count == 0) {
+			return;
+		}
+		long[] teamTypeIds = queryIds("SELECT id FROM com_referential WHERE data_type = 'TEAM_TYPE' ORDER BY id");
+		long[] industryIds = queryIds("SELECT id FROM com_referential WHERE data_type = 'INDUSTRY' ORDER BY id");
+		long[] addressTypeIds = queryIds("SELECT id FROM com_referential WHERE data_type = 'ADDRESS_TYPE' ORDER BY id");
+		long[] phoneTypeIds = queryIds("SELECT id FROM com_referential WHERE data_type = 'PHONE_TYPE' ORDER BY id");
+
+		try (Statement statement = connection.createStatement()) {
+			// Written below instead; ALTER TABLE is transactional, so no other session sees it disabled
+			statement.execute("ALTER TABLE org_team DISABLE TRIGGER trg_team_closure_insert");
+		}
+		Ids ids = new Ids("org_team");
+		Copy teams = new Copy("org_team", TEAM_COLUMNS, false);
+		Copy closure = new Copy("org_team_closure", List.of("ancestor_id", "descendant_id", "depth"), false);
+		long[] teamIds = new long[(int) count];
+		int[] parents = new int[(int) count];
+		byte[] depths = new byte[(int) count];
+		for (int i = 0; i < count; i++) {
+			teamIds[i] = ids.next();
+			int parent = i == 0 || random.nextInt(1000) == 0 ? -1 : i - 1 - random.nextInt(Math.min(i, 64));
+			if (parent >= 0 && depths[parent] + 1 >= maxDepth) {
+				parent = -1;
+			}
+			parents[i] = parent;
+			depths[i] = (byte) (parent < 0 ? 0 : depths[parent] + 1);
+			String name = name(2, 4);
+			teams.base(teamIds[i], i)
+				.add(random.nextInt(20) != 0).add(sentence(12)).add(name.toLowerCase() + i + "@example.com")
+				.add(1 + random.nextInt(5000)).add(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000)))
+				.add(industryIds[random.nextInt(industryIds.length)]).add(String.format("SYN-%08d", i))
+				.add(name + " " + TEAM_SUFFIXES[random.nextInt(TEAM_SUFFIXES.length)])
+				.add(parent < 0 ? null : teamIds[parent]).add(teamTypeIds[random.nextInt(teamTypeIds.length)])
+				.add("https://" + name.toLowerCase() + i + ".example.com");
+			teams.endRow();
+			for (int ancestor = i, depth = 0; ancestor >= 0; ancestor = parents[ancestor], depth++) {
+				closure.row(teamIds[ancestor], teamIds[i], depth);
+			}
+			// Closure rows reference the teams: the teams are always copied first
+			if (teams.isFull() || closure.isFull()) {
+				teams.flush();
+				closure.flush();
+			}
+		}
+		teams.finish();
+		closure.finish();
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ALTER TABLE org_team ENABLE TRIGGER trg_team_closure_insert");
+		}
+
+		Ids addressIds = new Ids("org_team_address");
+		Copy addresses = new Copy("org_team_address", ADDRESS_COLUMNS, true);
+		for (int i = 0; i < count; i++) {
+			for (int n = random.nextInt(3) == 0 ? 2 : 1, k = 0; k < n; k++) {
+				int city = random.nextInt(cityIds.length);
+				addresses.base(addressIds.next(), i)
+					.add(addressTypeIds[random.nextInt(addressTypeIds.length)]).add(cityIds[city])
+					.add(cityCountryIds[city]).add(random.nextDouble(-90, 90)).add(random.nextDouble(-180, 180))
+					.add(String.format("%05d", random.nextInt(100_000))).add(k == 0)
+					.add((1 + random.nextInt(300)) + " " + name(2, 3) + " Street").add(teamIds[i])
+					.add(random.nextBoolean());
+				addresses.endRow();
+			}
+		}
+		addresses.finish();
+
+		Ids phoneIds = new Ids("org_team_phone");
+		Copy phones = new Copy("org_team_phone", PHONE_COLUMNS, true);
+		for (int i = 0; i < count; i++) {
+			for (int n = random.nextInt(3) == 0 ? 2 : 1, k = 0; k < n; k++) {
+				String number = String.format("%09d", 2L * i + k);
+				String countryCode = PHONE_COUNTRY_CODES[random.nextInt(PHONE_COUNTRY_CODES.length)];
+				phones.base(phoneIds.next(), i)
+					.add(true).add(countryCode).add(countryCode + " " + number).add(number).add(k == 0)
+					.add(teamIds[i]).add(phoneTypeIds[random.nextInt(phoneTypeIds.length)]).add(random.nextBoolean());
+				phones.endRow();
+			}
+		}
+		phones.finish();
+	}
+
+	private String name(int minSyllables, int maxSyllables) {
+		StringBuilder name = new StringBuilder();
+		for (int i = minSyllables + random.nextInt(maxSyllables - minSyllables + 1); i > 0; i--) {
+			name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+
+	private String sentence(int words) {
+		StringBuilder sentence = new StringBuilder(name(1, 3));
+		for (int i = 1; i < words; i++) {
+			sentence.append(' ').append(name(1, 3).toLowerCase());
+		}
+		return sentence.append('.').toString();
+	}
+
+	private long[] queryIds(String sql) throws SQLException {
+		List<Long> ids = new ArrayList<>();
+		try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+			while (resultSet.next()) {
+				ids.add(resultSet.getLong(1));
+			}
+		}
+		if (ids.isEmpty() && !sql.contains("com_cities")) {
+			throw new IllegalStateException("No seed data for " + sql + ": start the application once first");
+		}
+		return ids.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static List<String> columns(String... columns) {
+		List<String> all = new ArrayList<>(BASE_COLUMNS);
+		all.addAll(List.of(columns));
+		return List.copyOf(all);
+	}
+
+	/**
+	 * Ids of a table, drawn from its sequence a thousand blocks at a time. Each nextval reserves a
+	 * block of {@code increment} ids, as Hibernate's pooled-lo optimizer assumes.
+	 */
+	private final class Ids {
+		private final String sequence;
+		private final int increment;
+		private long[] blocks = new long[0];
+		private int block;
+		private long next;
+		private long blockEnd;
+
+		private Ids(String table) throws SQLException {
+			this.sequence = table + "_seq";
+			try (PreparedStatement statement = connection.prepareStatement("SELECT increment_by FROM pg_sequences"
+					+ " WHERE schemaname = current_schema() AND sequencename = ?")) {
+				statement.setString(1, sequence);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					increment = resultSet.next() ? resultSet.getInt(1) : 1;
+				}
+			}
+		}
+
+		private long next() throws SQLException {
+			if (next == blockEnd) {
+				if (block == blocks.length) {
+					blocks = queryIds("SELECT nextval('" + sequence + "') FROM generate_series(1, 1000)");
+					block = 0;
+				}
+				next = blocks[block++];
+				blockEnd = next + increment;
+			}
+			return next++;
+		}
+	}
+
+	/**
+	 * Rows of one table, copied every {@value #COPY_CHUNK_BYTES} bytes, or when the caller flushes.
+	 */
+	private final class Copy {
+		private final String table;
+		private final String sql;
+		private final boolean autoFlush;
+		private final CopyRowEncoder encoder = new CopyRowEncoder(COPY_CHUNK_BYTES + (1 << 20));
+		private long count;
+
+		private Copy(String table, List<String> columns, boolean autoFlush) {
+			this.table = table;
+			this.autoFlush = autoFlush;
+			this.sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+		}
+
+		/**
+		 * Starts a row with the columns of BaseEntity, updated {@code index} seconds after creation.
+		 */
+		private CopyRowEncoder base(long id, long index) {
+			return encoder.add(id).add(CREATED_AT).add(CREATED_BY).add(CREATED_AT.plusSeconds(index))
+				.add(CREATED_BY).add(0);
+		}
+
+		private void row(Object... values) throws SQLException, IOException {
+			for (Object value : values) {
+				encoder.add(value);
+			}
+			endRow();
+		}
+
+		private void endRow() throws SQLException, IOException {
+			encoder.endRow();
+			count++;
+			if (autoFlush && isFull()) {
+				flush();
+			}
+		}
+
+		private boolean isFull() {
+			return encoder.size() >= COPY_CHUNK_BYTES;
+		}
+
+		private void flush() throws SQLException, IOException {
+			if (encoder.getRows() > 0) {
+				copyManager.copyIn(sql, new ByteArrayInputStream(encoder.toByteArray()));
+				encoder.reset();
+			}
+		}
+
+		private void finish() throws SQLException, IOException {
+			flush();
+			rows.merge(table, count, Long::sum);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.viridial.common.repositories;
+
+import com.viridial.common.forms.BulkConflictForm;
+import com.viridial.countries.entities.CityEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.bulk.chunk-size=2")
+@Transactional
+class BulkMutationRepositoryTests {
+
+	@Autowired
+	private BulkMutationRepository bulkMutationRepository;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void updatesOneStatementPerChunkAndBumpsVersion() {
+		List<CityEntity> cities = activeCities(5);
+		List<Long> ids = new ArrayList<>(cities.stream().map(CityEntity::getId).toList());
+		ids.add(ids.get(0));
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			assertEquals(5, bulkMutationRepository.updateActive(CityEntity.class, ids, false, "bulk"));
+			// 5 distinct ids in chunks of 2
+			assertEquals(3, statistics.getPrepareStatementCount());
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+		// Already inactive
+		assertEquals(0, bulkMutationRepository.updateActive(CityEntity.class, ids, false, "bulk"));
+
+		entityManager.clear();
+		for (CityEntity before : cities) {
+			CityEntity after = entityManager.find(CityEntity.class, before.getId());
+			assertEquals(false, after.isActive());
+			assertEquals(before.getVersion() + 1, after.getVersion());
+			assertEquals("bulk", after.getUpdatedBy());
+		}
+	}
+
+	@Test
+	void softDeleteKeepsRowsAlreadyDeleted() {
+		List<Long> ids = activeCities(3).stream().map(CityEntity::getId).toList();
+
+		assertEquals(3, bulkMutationRepository.softDelete(CityEntity.class, ids, "first"));
+		assertEquals(0, bulkMutationRepository.softDelete(CityEntity.class, ids, "second"));
+
+		entityManager.clear();
+		CityEntity deleted = entityManager.find(CityEntity.class, ids.get(0));
+		assertNotNull(deleted.getDeletedAt());
+		assertEquals("first", deleted.getDeletedBy());
+	}
+
+	@Test
+	void skipsRowsWhoseVersionChanged() {
+		List<CityEntity> cities = activeCities(3);
+		List<Long> ids = cities.stream().map(CityEntity::getId).toList();
+		Map<Long, Long> versions = new HashMap<>();
+		versions.put(ids.get(0), cities.get(0).getVersion());
+		versions.put(ids.get(1), cities.get(1).getVersion() - 1);
+		// No expected version for the third: written regardless
+
+		BulkMutationRepository.Result result = bulkMutationRepository.updateActive(CityEntity.class, ids, versions, false, "bulk");
+
+		assertEquals(2, result.getChanged());
+		assertEquals(1, result.getConflicts().size());
+		BulkConflictForm conflict = result.getConflicts().get(0);
+		assertEquals(ids.get(1), conflict.getId());
+		assertEquals(cities.get(1).getVersion() - 1, conflict.getExpectedVersion());
+		assertEquals(cities.get(1).getVersion(), (long) conflict.getCurrentVersion());
+		entityManager.clear();
+		assertTrue(entityManager.find(CityEntity.class, ids.get(1)).isActive());
+
+		// Stale now for the first one, unknown id reported without a current version
+		versions.put(-1L, 0L);
+		result = bulkMutationRepository.softDelete(CityEntity.class, List.of(ids.get(0), -1L), versions, "bulk");
+		assertEquals(0, result.getChanged());
+		assertEquals(2, result.getConflicts().size());
+		assertNull(result.getConflicts().get(1).getCurrentVersion());
+	}
+
+	private List<CityEntity> activeCities(int count) {
+		List<CityEntity> cities = entityManager.createQuery(
+				"select c from CityEntity c where c.active = true and c.deletedAt is null order by c.id", CityEntity.class)
+			.setMaxResults(count)
+			.getResultList();
+		assertEquals(count, cities.size());
+		entityManager.clear();
+		return cities;
+	}
+
+}
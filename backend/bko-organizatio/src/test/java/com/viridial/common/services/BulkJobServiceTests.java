@@ -0,0 +1,114 @@
+package com.viridial.common.services;
+
+import com.viridial.common.forms.BulkJobForm;
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.common.repositories.BulkJobRepository;
+import com.viridial.common.repositories.BulkMutationRepository;
+import com.viridial.common.utils.InvalidRequestException;
+import com.viridial.countries.entities.CityEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"app.jobs.chunk-size=2", "app.jobs.poll-interval=PT0.1S", "app.jobs.lease=PT1S"})
+class BulkJobServiceTests {
+
+	@Autowired
+	private BulkJobService bulkJobService;
+
+	@Autowired
+	private BulkJobRepository bulkJobRepository;
+
+	@Autowired
+	private BulkMutationRepository bulkMutationRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void runsInChunksAndReportsConflicts() throws InterruptedException {
+		List<CityEntity> cities = activeCities(5);
+		List<Long> ids = cities.stream().map(CityEntity::getId).toList();
+		BulkUpdateActiveForm form = new BulkUpdateActiveForm(ids, false);
+		form.setVersions(Map.of(ids.get(3), cities.get(3).getVersion() - 1));
+		try {
+			BulkJobForm job = awaitFinished(bulkJobService.submitUpdateActive("cities", form).getId());
+
+			assertEquals(BulkJobForm.Status.SUCCEEDED, job.getStatus());
+			assertEquals(5, job.getProcessed());
+			assertEquals(4, job.getChanged());
+			assertEquals(1, job.getConflictCount());
+			assertEquals(ids.get(3), job.getConflicts().get(0).getId());
+		} finally {
+			transactionTemplate.executeWithoutResult(status ->
+				bulkMutationRepository.updateActive(CityEntity.class, ids, true, null));
+		}
+	}
+
+	@Test
+	void takesOverTheJobOfAStoppedInstance() throws InterruptedException {
+		List<Long> ids = activeCities(3).stream().map(CityEntity::getId).toList();
+		long id = transactionTemplate.execute(status -> {
+			long jobId = bulkJobRepository.insert("cities", BulkJobForm.Operation.UPDATE_ACTIVE, false, null,
+				ids.toArray(Long[]::new), null);
+			// Claimed by an instance that stopped after its first chunk, two minutes ago
+			entityManager.createNativeQuery("UPDATE com_bulk_job SET status = 'RUNNING', claimed_by = 'gone',"
+					+ " processed = 1, heartbeat_at = localtimestamp - interval '2 minutes' WHERE id = :id")
+				.setParameter("id", jobId)
+				.executeUpdate();
+			return jobId;
+		});
+		try {
+			BulkJobForm job = awaitFinished(id);
+
+			assertEquals(BulkJobForm.Status.SUCCEEDED, job.getStatus());
+			assertEquals(3, job.getProcessed());
+			// The first id was left to the stopped instance
+			assertEquals(2, job.getChanged());
+		} finally {
+			transactionTemplate.executeWithoutResult(status ->
+				bulkMutationRepository.updateActive(CityEntity.class, ids, true, null));
+		}
+	}
+
+	@Test
+	void rejectsUnknownResourcesAndEmptyJobs() {
+		assertThrows(IllegalArgumentException.class,
+			() -> bulkJobService.submitUpdateActive("planets", new BulkUpdateActiveForm(List.of(1L), true)));
+		assertThrows(InvalidRequestException.class,
+			() -> bulkJobService.submitUpdateActive("cities", new BulkUpdateActiveForm(List.of(), true)));
+	}
+
+	private BulkJobForm awaitFinished(long id) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		BulkJobForm job = bulkJobService.get(id);
+		while (!job.getStatus().isFinished() && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+			job = bulkJobService.get(id);
+		}
+		return job;
+	}
+
+	private List<CityEntity> activeCities(int count) {
+		List<CityEntity> cities = entityManager.createQuery(
+				"select c from CityEntity c where c.active = true and c.deletedAt is null order by c.id desc", CityEntity.class)
+			.setMaxResults(count)
+			.getResultList();
+		assertEquals(count, cities.size());
+		return cities;
+	}
+
+}
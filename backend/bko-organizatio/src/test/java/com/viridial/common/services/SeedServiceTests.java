@@ -0,0 +1,52 @@
+package com.viridial.common.services;
+
+import com.viridial.common.config.SeedSets;
+import com.viridial.common.forms.SeedSetResultForm;
+import com.viridial.common.utils.SeedSet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SeedServiceTests {
+
+	@Autowired
+	private SeedService seedService;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void unchangedSetsAreNotAppliedAgain() {
+		// Applied when the context started (app.seed.mode=startup)
+		List<SeedSetResultForm> results = seedService.apply(SeedSets.all());
+
+		assertEquals(SeedSets.all().size(), results.size());
+		assertTrue(results.stream().noneMatch(SeedSetResultForm::isApplied));
+	}
+
+	@Test
+	void unknownReferenceFailsTheSetWithItsLine() {
+		List<SeedSet> sets = new ArrayList<>(SeedSets.all());
+		sets.add(new SeedSet("test-cities", 1, "seed/unknown-country-cities.csv", "com_cities",
+			List.of("country_id", "name"), List.of("country_id", "name"),
+			(row, references) -> new Object[]{references.id(SeedSets.COUNTRIES, row.get("countryCode")), row.get("name")}));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> seedService.apply(sets));
+
+		assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+		assertFalse(entityManager.createQuery("select c.id from CityEntity c where c.name = 'Seed Test City'", Long.class)
+			.getResultList().iterator().hasNext());
+	}
+
+}
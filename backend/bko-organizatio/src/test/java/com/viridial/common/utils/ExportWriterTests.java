@@ -0,0 +1,61 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viridial.countries.forms.CityForm;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExportWriterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void writesOneJsonObjectPerLine() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ExportWriter writer = ExportWriter.of(ExportWriter.Format.NDJSON, output, CityForm.class, objectMapper)) {
+			writer.write(city(1L, "Paris", null));
+			writer.write(city(2L, "Lyon", "ARA"));
+			assertEquals(2, writer.getRows());
+		}
+		String[] lines = output.toString(StandardCharsets.UTF_8).split("\n", -1);
+		assertEquals(3, lines.length);
+		assertEquals("Paris", objectMapper.readTree(lines[0]).get("name").asText());
+		assertEquals("ARA", objectMapper.readTree(lines[1]).get("state").asText());
+		assertEquals("", lines[2]);
+	}
+
+	@Test
+	void writesCsvThatReadsBack() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ExportWriter writer = ExportWriter.of(ExportWriter.Format.CSV, output, CityForm.class, objectMapper)) {
+			writer.write(city(1L, "Saint-Denis, \"La\"", "Ile\nde France"));
+			writer.write(city(2L, "Lyon", null));
+		}
+		String csv = output.toString(StandardCharsets.UTF_8);
+		try (ImportRowReader rows = ImportRowReader.of(ImportRowReader.Format.CSV, new StringReader(csv), objectMapper)) {
+			var first = rows.next();
+			assertEquals("1", first.get("id"));
+			assertEquals("Saint-Denis, \"La\"", first.get("name"));
+			assertEquals("Ile\nde France", first.get("state"));
+			var second = rows.next();
+			assertEquals("Lyon", second.get("name"));
+			assertNull(second.get("state"));
+			assertNull(rows.next());
+		}
+	}
+
+	private static CityForm city(Long id, String name, String state) {
+		CityForm city = new CityForm();
+		city.setId(id);
+		city.setName(name);
+		city.setState(state);
+		return city;
+	}
+}
@@ -0,0 +1,89 @@
+package com.viridial.common.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the nearest cities (/cities/nearest): 10 nearest among five million synthetic cities
+ * of 200 countries, clustered around their country center like real ones, for random points on
+ * land, from 8 concurrent threads. Sample time mode reports the latency percentiles.
+ *
+ * <p>Run with {@code main} from the IDE, or {@code mvn -Pbenchmark verify -Djmh.include=GeoIndexBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class GeoIndexBenchmark {
+
+	private static final int CITIES = 5_000_000;
+	private static final int COUNTRIES = 200;
+
+	private GeoIndex index;
+	private int[] countries;
+	private double[] centerLatitudes;
+	private double[] centerLongitudes;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		centerLatitudes = new double[COUNTRIES];
+		centerLongitudes = new double[COUNTRIES];
+		for (int country = 0; country < COUNTRIES; country++) {
+			centerLatitudes[country] = random.nextDouble(-55, 70);
+			centerLongitudes[country] = random.nextDouble(-180, 180);
+		}
+		countries = new int[CITIES];
+		double[] latitudes = new double[CITIES];
+		double[] longitudes = new double[CITIES];
+		for (int i = 0; i < CITIES; i++) {
+			int country = random.nextInt(COUNTRIES);
+			countries[i] = country;
+			latitudes[i] = Math.max(-90, Math.min(90, centerLatitudes[country] + random.nextGaussian() * 3));
+			longitudes[i] = centerLongitudes[country] + random.nextGaussian() * 4;
+			longitudes[i] = longitudes[i] > 180 ? longitudes[i] - 360 : longitudes[i] < -180 ? longitudes[i] + 360 : longitudes[i];
+		}
+		index = GeoIndex.of(latitudes, longitudes);
+	}
+
+	@Benchmark
+	public int[] allCountries() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int country = random.nextInt(COUNTRIES);
+		return index.nearest(centerLatitudes[country] + random.nextDouble(-5, 5),
+			centerLongitudes[country] + random.nextDouble(-5, 5), 10, Double.POSITIVE_INFINITY, item -> false);
+	}
+
+	@Benchmark
+	public int[] oneCountry() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int country = random.nextInt(COUNTRIES);
+		return index.nearest(centerLatitudes[country] + random.nextDouble(-5, 5),
+			centerLongitudes[country] + random.nextDouble(-5, 5), 10, Double.POSITIVE_INFINITY,
+			item -> countries[item] != country);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(GeoIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
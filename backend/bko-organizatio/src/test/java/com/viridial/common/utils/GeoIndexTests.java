@@ -0,0 +1,97 @@
+package com.viridial.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoIndexTests {
+
+	@Test
+	void measuresGreatCircleDistances() {
+		// Paris - London, Paris - New York
+		assertEquals(343.6, GeoIndex.distanceKm(48.8566, 2.3522, 51.5074, -0.1278), 0.5);
+		assertEquals(5837.2, GeoIndex.distanceKm(48.8566, 2.3522, 40.7128, -74.006), 1);
+		assertEquals(0, GeoIndex.distanceKm(10, 20, 10, 20));
+	}
+
+	@Test
+	void returnsNearestFirstAcrossTheAntimeridian() {
+		// Suva, Apia, Auckland, Honolulu, no coordinates
+		GeoIndex index = GeoIndex.of(new double[]{-18.1416, -13.8333, -36.8485, 21.3069, Double.NaN},
+			new double[]{178.4419, -171.7667, 174.7633, -157.8583, Double.NaN});
+
+		assertEquals(4, index.size());
+		assertArrayEquals(new int[]{1, 0, 2}, index.nearest(-14, -172, 3, Double.POSITIVE_INFINITY, item -> false));
+		assertArrayEquals(new int[]{1, 0}, index.nearest(-14, -172, 10, 1500, item -> false));
+		assertArrayEquals(new int[]{0, 2}, index.nearest(-14, -172, 2, Double.POSITIVE_INFINITY, item -> item == 1));
+		assertArrayEquals(new int[0], index.nearest(-14, -172, 0, Double.POSITIVE_INFINITY, item -> false));
+	}
+
+	@Test
+	void readsBackWhatItWrites() {
+		SplittableRandom random = new SplittableRandom(7);
+		double[] latitudes = random.doubles(1_000, -90, 90).toArray();
+		double[] longitudes = random.doubles(1_000, -180, 180).toArray();
+		GeoIndex index = GeoIndex.of(latitudes, longitudes);
+		ByteBuffer buffer = ByteBuffer.allocate((int) index.byteSize() + 3).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(new byte[3]);
+		index.write(buffer);
+		assertEquals(buffer.capacity(), buffer.position());
+
+		GeoIndex read = GeoIndex.read(buffer.flip().position(3));
+		assertEquals(index.size(), read.size());
+		for (int query = 0; query < 100; query++) {
+			double latitude = random.nextDouble(-90, 90);
+			double longitude = random.nextDouble(-180, 180);
+			assertArrayEquals(index.nearest(latitude, longitude, 5, Double.POSITIVE_INFINITY, item -> false),
+				read.nearest(latitude, longitude, 5, Double.POSITIVE_INFINITY, item -> false));
+		}
+	}
+
+	@Test
+	void findsTheSameItemsAsAFullScan() {
+		SplittableRandom random = new SplittableRandom(42);
+		int size = 20_000;
+		double[] latitudes = new double[size];
+		double[] longitudes = new double[size];
+		for (int i = 0; i < size; i++) {
+			// Clusters around a few centers, poles included
+			latitudes[i] = Math.max(-90, Math.min(90, (i % 7) * 30 - 90 + random.nextDouble(-5, 5)));
+			longitudes[i] = random.nextDouble(-180, 180);
+		}
+		GeoIndex index = GeoIndex.of(latitudes, longitudes);
+
+		for (int query = 0; query < 200; query++) {
+			double latitude = random.nextDouble(-90, 90);
+			double longitude = random.nextDouble(-180, 180);
+			double maxDistanceKm = query % 2 == 0 ? Double.POSITIVE_INFINITY : 2000;
+			double[] distances = distances(IntStream.range(0, size).toArray(), latitude, longitude, latitudes, longitudes);
+			int[] expected = IntStream.range(0, size)
+				.filter(item -> item % 3 != 0 && distances[item] <= maxDistanceKm)
+				.boxed()
+				.sorted(Comparator.comparingDouble(item -> distances[item]))
+				.limit(10)
+				.mapToInt(Integer::intValue)
+				.toArray();
+			int[] actual = index.nearest(latitude, longitude, 10, maxDistanceKm, item -> item % 3 == 0);
+			assertArrayEquals(distances(expected, latitude, longitude, latitudes, longitudes),
+				distances(actual, latitude, longitude, latitudes, longitudes), 0.01);
+		}
+	}
+
+	private static double[] distances(int[] items, double latitude, double longitude, double[] latitudes,
+									  double[] longitudes) {
+		return Arrays.stream(items)
+			.mapToDouble(item -> GeoIndex.distanceKm(latitude, longitude, latitudes[item], longitudes[item]))
+			.toArray();
+	}
+
+}
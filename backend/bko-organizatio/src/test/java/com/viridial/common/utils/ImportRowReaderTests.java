@@ -0,0 +1,58 @@
+package com.viridial.common.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImportRowReaderTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void readsQuotedCsvFieldsAndKeepsLineNumbers() throws IOException {
+		String csv = "name,state\r\n\"Saint-Denis, \"\"La\"\"\",\"Ile\nde France\"\nParis,\nshort\nLyon,ARA\n";
+		try (ImportRowReader rows = ImportRowReader.of(ImportRowReader.Format.CSV, new StringReader(csv), objectMapper)) {
+			assertEquals(Map.of("name", "Saint-Denis, \"La\"", "state", "Ile\nde France"), rows.next());
+			assertEquals(2, rows.getLine());
+			assertEquals(Map.of("name", "Paris"), rows.next());
+			assertEquals(4, rows.getLine());
+			assertThrows(ImportRowReader.MalformedRowException.class, rows::next);
+			assertEquals(5, rows.getLine());
+			assertEquals(Map.of("name", "Lyon", "state", "ARA"), rows.next());
+			assertNull(rows.next());
+		}
+	}
+
+	@Test
+	void skipsMalformedNdjsonLines() throws IOException {
+		String ndjson = "{\"name\":\"Paris\",\"population\":2100000,\"state\":null}\nnot json\n\n[1]\n{\"name\":\"Lyon\"}";
+		try (ImportRowReader rows = ImportRowReader.of(ImportRowReader.Format.NDJSON, new StringReader(ndjson), objectMapper)) {
+			assertEquals(Map.of("name", "Paris", "population", "2100000"), rows.next());
+			assertThrows(ImportRowReader.MalformedRowException.class, rows::next);
+			assertEquals(2, rows.getLine());
+			assertThrows(ImportRowReader.MalformedRowException.class, rows::next);
+			assertEquals(4, rows.getLine());
+			assertEquals(Map.of("name", "Lyon"), rows.next());
+			assertNull(rows.next());
+		}
+	}
+
+	@Test
+	void encodesCopyTextEscapes() {
+		CopyRowEncoder encoder = new CopyRowEncoder(64);
+		encoder.add("a\tb\\c\nd").add((Object) null).add(42L);
+		encoder.endRow();
+
+		assertEquals("a\\tb\\\\c\\nd\t\\N\t42\n", new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(1, encoder.getRows());
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.viridial.common.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead latency of the city suggestions (/cities/suggest): top 10 over one million synthetic
+ * cities of 200 countries, indexed like CitySuggestIndex (name and native name from each word start,
+ * postal code), for random 1 to 6 character prefixes, from 8 concurrent threads.
+ * Sample time mode reports the latency percentiles (p0.99 is the target).
+ *
+ * <p>Run with {@code main} from the IDE, or {@code mvn -Pbenchmark verify -Djmh.include=PrefixIndexBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PrefixIndexBenchmark {
+
+	private static final int CITIES = 1_000_000;
+	private static final int COUNTRIES = 200;
+	private static final String[] SYLLABLES = {"ba", "be", "bo", "ca", "ce", "da", "di", "fa", "ga", "la", "le", "li",
+		"lo", "ma", "me", "mo", "na", "ne", "pa", "pe", "po", "ra", "re", "ri", "sa", "se", "ta", "to", "va", "vi"};
+
+	private PrefixIndex index;
+	private String[] prefixes;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		PrefixIndex.Builder builder = PrefixIndex.builder();
+		long[] weights = new long[CITIES];
+		for (int i = 0; i < CITIES; i++) {
+			long country = random.nextInt(COUNTRIES);
+			String name = word(random) + (random.nextInt(4) == 0 ? " " + word(random) : "");
+			builder.add(i, country, name, true);
+			if (random.nextInt(5) == 0) {
+				builder.add(i, country, word(random), true);
+			}
+			builder.add(i, country, String.valueOf(10_000 + random.nextInt(90_000)), false);
+			// Long tail of small towns
+			weights[i] = (long) (1_000_000 / (1 + random.nextDouble() * 999));
+		}
+		index = builder.build(weights);
+
+		prefixes = new String[4096];
+		for (int i = 0; i < prefixes.length; i++) {
+			String text = random.nextInt(10) == 0 ? String.valueOf(10_000 + random.nextInt(90_000)) : word(random);
+			prefixes[i] = text.substring(0, Math.min(text.length(), 1 + random.nextInt(6)));
+		}
+	}
+
+	private static String word(SplittableRandom random) {
+		StringBuilder word = new StringBuilder();
+		for (int i = 2 + random.nextInt(3); i > 0; i--) {
+			word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		return word.toString();
+	}
+
+	@Benchmark
+	public int[] allCountries() {
+		return index.top(prefix(), null, 10, null);
+	}
+
+	@Benchmark
+	public int[] oneCountry() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return index.top(prefix(), (long) random.nextInt(COUNTRIES), 10, null);
+	}
+
+	private String prefix() {
+		return prefixes[ThreadLocalRandom.current().nextInt(prefixes.length)];
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PrefixIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
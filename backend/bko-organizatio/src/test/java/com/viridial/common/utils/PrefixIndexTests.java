@@ -0,0 +1,50 @@
+package com.viridial.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixIndexTests {
+
+	@Test
+	void normalizesCaseAccentsAndSeparators() {
+		assertEquals("saint etienne", PrefixIndex.normalize("  Saint-Étienne "));
+		assertEquals("sao paulo", PrefixIndex.normalize("São  Paulo"));
+		assertEquals("", PrefixIndex.normalize(null));
+	}
+
+	@Test
+	void returnsBestWeightedMatchesOnceInWeightOrder() {
+		PrefixIndex index = PrefixIndex.builder()
+			.add(0, 1, "Paris", true)
+			.add(1, 1, "Pau", true)
+			.add(2, 1, "Parma", true)
+			.add(2, 1, "Parme", true)
+			.add(3, 1, "Lyon", true)
+			.build(new long[]{2_100_000, 77_000, 195_000, 500_000});
+
+		assertArrayEquals(new int[]{0, 2, 1}, index.top("pa", null, 10, null));
+		assertArrayEquals(new int[]{0, 2}, index.top("par", null, 10, null));
+		assertArrayEquals(new int[]{0}, index.top("pa", null, 1, null));
+		assertArrayEquals(new int[]{2, 1}, index.top("pa", null, 10, item -> item == 0));
+		assertArrayEquals(new int[0], index.top("x", null, 10, null));
+	}
+
+	@Test
+	void matchesWordStartsWithinPartition() {
+		PrefixIndex index = PrefixIndex.builder()
+			.add(0, 1, "New York", true)
+			.add(1, 2, "York", true)
+			.add(2, 1, "Yorktown", false)
+			.add(2, 1, "10598", false)
+			.build(new long[]{8_000_000, 200_000, 36_000});
+
+		assertArrayEquals(new int[]{0, 1, 2}, index.top("york", null, 10, null));
+		assertArrayEquals(new int[]{0, 2}, index.top("york", 1L, 10, null));
+		assertArrayEquals(new int[0], index.top("town", 1L, 10, null));
+		assertArrayEquals(new int[]{2}, index.top("105", 1L, 10, null));
+		assertArrayEquals(new int[0], index.top("york", 3L, 10, null));
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.viridial.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTests {
+
+	@Test
+	void roundTripsSortKeyValues() {
+		LocalDateTime createdAt = LocalDateTime.of(2026, 1, 20, 10, 15, 30);
+		String token = new SearchCursor(List.of("createdAt", "name", "id"),
+			Arrays.asList(createdAt, null, 42L)).encode();
+
+		SearchCursor cursor = SearchCursor.decode(token);
+
+		assertEquals(List.of("createdAt", "name", "id"), cursor.getFields());
+		assertEquals(createdAt, SearchCursor.convert(cursor.getValues().get(0), LocalDateTime.class));
+		assertNull(SearchCursor.convert(cursor.getValues().get(1), String.class));
+		assertEquals(42L, SearchCursor.convert(cursor.getValues().get(2), Long.class));
+	}
+
+	@Test
+	void rejectsMalformedToken() {
+		assertThrows(InvalidRequestException.class, () -> SearchCursor.decode("not-a-cursor"));
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.viridial.common.utils;
+
+import com.viridial.common.form.SearchForm;
+import com.viridial.countries.entities.CityEntity;
+import com.viridial.countries.entities.CountryEntity;
+import com.viridial.countries.entities.TimezoneEntity;
+import com.viridial.countries.forms.CitySearchForm;
+import com.viridial.referentiel.entities.ReferentialEntity;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plan-build cost of a city search: the per-request Criteria pipeline
+ * ({@link SearchCriteriaBuilder}, count and data query) against {@link SearchEngine}.
+ * Both stop at Hibernate query creation; no database is needed.
+ *
+ * <p>Run with {@code main} from the IDE, or {@code mvn -Pbenchmark verify -Djmh.include=SearchEngineBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchEngineBenchmark {
+
+	private SessionFactory sessionFactory;
+	private Session session;
+	private SearchEngine<CityEntity> searchEngine;
+	private CitySearchForm searchForm;
+
+	@Setup
+	public void setUp() {
+		sessionFactory = new Configuration()
+			.addAnnotatedClass(CityEntity.class)
+			.addAnnotatedClass(CountryEntity.class)
+			.addAnnotatedClass(TimezoneEntity.class)
+			.addAnnotatedClass(ReferentialEntity.class)
+			.setProperty("hibernate.dialect", PostgreSQLDialect.class.getName())
+			.setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+			.buildSessionFactory();
+		session = sessionFactory.openSession();
+		searchEngine = SearchEngine.builder(CityEntity.class, CitySearchForm.class)
+			.defaultSort("name")
+			.contains("name", CitySearchForm::getName)
+			.equal("active", CitySearchForm::getActive)
+			.equal("capital", CitySearchForm::getCapital)
+			.equal("countryId", CitySearchForm::getCountryId)
+			.equal("timezoneId", CitySearchForm::getTimezoneId)
+			.build(session, null, null);
+
+		searchForm = new CitySearchForm();
+		searchForm.setName("par");
+		searchForm.setActive(true);
+		searchForm.setCountryId(42L);
+		searchForm.setFilters(List.of(
+			new SearchForm.FilterCriteria("population", SearchForm.FilterOperator.GREATER_THAN_OR_EQUAL, 100000)));
+		searchForm.setSorts(List.of(new SearchForm.SortCriteria("population", "DESC")));
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void criteria(Blackhole blackhole) {
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+
+		CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+		Root<CityEntity> countRoot = countQuery.from(CityEntity.class);
+		countQuery.select(cb.count(countRoot));
+		countQuery.where(SearchCriteriaBuilder.of(cb, countRoot).buildPredicates(searchForm, this::cityPredicates));
+		blackhole.consume(session.createQuery(countQuery));
+
+		CriteriaQuery<CityEntity> dataQuery = cb.createQuery(CityEntity.class);
+		Root<CityEntity> dataRoot = dataQuery.from(CityEntity.class);
+		dataQuery.select(dataRoot);
+		SearchCriteriaBuilder<CityEntity> dataBuilder = SearchCriteriaBuilder.of(cb, dataRoot);
+		dataQuery.where(dataBuilder.buildPredicates(searchForm, this::cityPredicates));
+		dataQuery.orderBy(dataBuilder.buildOrders(searchForm, "name"));
+		blackhole.consume(session.createQuery(dataQuery));
+	}
+
+	@Benchmark
+	public void searchEngine(Blackhole blackhole) {
+		SearchEngine.Execution execution = searchEngine.prepare(searchForm);
+		blackhole.consume(searchEngine.createCountQuery(execution));
+		blackhole.consume(searchEngine.createDataQuery(execution));
+	}
+
+	private List<Predicate> cityPredicates(CriteriaBuilder cb, Root<CityEntity> root, SearchForm form) {
+		CitySearchForm citySearch = (CitySearchForm) form;
+		List<Predicate> predicates = new ArrayList<>();
+		predicates.add(cb.like(cb.lower(root.get("name")), "%" + citySearch.getName().toLowerCase() + "%"));
+		predicates.add(cb.equal(root.get("active"), citySearch.getActive()));
+		predicates.add(cb.equal(root.get("countryId"), citySearch.getCountryId()));
+		return predicates;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SearchEngineBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
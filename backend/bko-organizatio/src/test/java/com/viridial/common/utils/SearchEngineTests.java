@@ -0,0 +1,268 @@
+package com.viridial.common.utils;
+
+import com.viridial.common.config.SearchMetrics;
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.repositories.SearchCountRepository;
+import com.viridial.countries.entities.CityEntity;
+import com.viridial.countries.forms.CityForm;
+import com.viridial.countries.forms.CitySearchForm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class SearchEngineTests {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private SearchCountRepository searchCountRepository;
+
+	@Autowired
+	private SearchMetrics searchMetrics;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private SearchEngine<CityEntity> searchEngine;
+
+	@BeforeEach
+	void buildEngine() {
+		searchEngine = SearchEngine.builder(CityEntity.class, CitySearchForm.class)
+			.defaultSort("name")
+			.build(entityManager, searchCountRepository, searchMetrics);
+	}
+
+	@Test
+	void fuzzyFilterToleratesTyposMostSimilarFirst() {
+		CitySearchForm search = fuzzy("marseile");
+		search.setCountMode(SearchForm.CountMode.EXACT);
+
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(0, 5));
+
+		assertEquals("Marseille", page.getContent().get(0).getName());
+		assertEquals(page.getContent().size(), page.getTotalElements());
+	}
+
+	@Test
+	void fuzzyFilterRanksOnlyOffsetPagesWithoutSort() {
+		String ranked = searchEngine.prepare(fuzzy("paris")).getPlan().getDataHql();
+		assertTrue(ranked.contains("order by word_similarity(:p1, lower(e.name)) desc, e.name asc"), ranked);
+
+		CitySearchForm keyset = fuzzy("paris");
+		keyset.setPaginationMode(SearchForm.PaginationMode.KEYSET);
+		assertFalse(searchEngine.prepare(keyset).getPlan().getDataHql().contains("word_similarity"));
+
+		CitySearchForm sorted = fuzzy("paris");
+		sorted.setSorts(List.of(new SearchForm.SortCriteria("id", "DESC")));
+		assertFalse(searchEngine.prepare(sorted).getPlan().getDataHql().contains("word_similarity"));
+	}
+
+	@Test
+	void containsMatchesLowerCaseSubstring() {
+		CitySearchForm search = new CitySearchForm();
+		search.setFilters(List.of(new SearchForm.FilterCriteria("name", SearchForm.FilterOperator.CONTAINS, "ARSEIL")));
+
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(0, 5));
+
+		assertEquals(List.of("Marseille"), page.getContent().stream().map(CityEntity::getName).toList());
+	}
+
+	@Test
+	void searchPhasesAreTimedByResourceAndShape() {
+		CitySearchForm search = fuzzy("lyon");
+		String shape = searchEngine.prepare(search).getPlan().getShape();
+
+		PaginatedResponse.of(searchEngine.search(search, PageRequest.of(0, 5)), CityEntity::getName);
+
+		for (String phase : List.of("predicate", "count", "data", "mapping")) {
+			Timer timer = meterRegistry.find(SearchMetrics.SEARCH_TIMER)
+				.tags("resource", "City", "shape", shape, "phase", phase)
+				.timer();
+			assertTrue(timer != null && timer.count() > 0, phase);
+		}
+	}
+
+	@Test
+	void projectionReadsTheFieldsetWithoutLoadingEntities() {
+		SearchEngine<CityEntity>.Projection<CityForm> projection = searchEngine.projection(CityForm.class);
+		CitySearchForm search = new CitySearchForm();
+		search.setFields(List.of("countryId"));
+		search.setPaginationMode(SearchForm.PaginationMode.KEYSET);
+		search.setSorts(List.of(new SearchForm.SortCriteria("name", "DESC")));
+
+		SearchPage<CityForm> first = searchEngine.search(search, PageRequest.of(0, 2), projection);
+		search.setAfter(first.getNextCursor());
+		SearchPage<CityForm> second = searchEngine.search(search, PageRequest.of(0, 2), projection);
+
+		assertEquals(0, entityManager.unwrap(SessionImplementor.class).getPersistenceContextInternal()
+			.getNumberOfManagedEntities());
+		CityForm city = second.getContent().get(0);
+		assertNotNull(city.getCountryId());
+		assertNotNull(city.getName());
+		assertNull(city.getTimezoneId());
+
+		search.setAfter(null);
+		List<Long> expected = searchEngine.search(search, PageRequest.of(0, 4)).getContent().stream()
+			.map(CityEntity::getId).toList();
+		assertEquals(expected.subList(2, 4), second.getContent().stream().map(CityForm::getId).toList());
+	}
+
+	@Test
+	void countModeNoneOnlyTellsWhetherMoreRowsFollow() {
+		CitySearchForm search = new CitySearchForm();
+		search.setCountMode(SearchForm.CountMode.NONE);
+
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(0, 5));
+
+		assertEquals(SearchForm.CountMode.NONE, page.getCountMode());
+		assertTrue(page.hasNext());
+		// Only a lower bound: the rows seen, plus the extra one fetched
+		assertEquals(6, page.getTotalElements());
+	}
+
+	@Test
+	void estimatedCountLeavesOutSoftDeletedRows() {
+		List<Long> deleted = entityManager.createQuery("select c.id from CityEntity c order by c.id", Long.class)
+			.setMaxResults(5)
+			.getResultList();
+		entityManager.createQuery("update CityEntity c set c.deletedAt = current_timestamp where c.id in :ids")
+			.setParameter("ids", deleted)
+			.executeUpdate();
+		entityManager.createNativeQuery("ANALYZE com_cities").executeUpdate();
+		CitySearchForm search = new CitySearchForm();
+		long exact = searchEngine.search(search, PageRequest.of(0, 1)).getTotalElements();
+
+		search.setCountMode(SearchForm.CountMode.ESTIMATED);
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(0, 1));
+
+		assertEquals(SearchForm.CountMode.ESTIMATED, page.getCountMode());
+		assertEquals(exact, page.getTotalElements());
+		search.setIncludeDeleted(true);
+		assertEquals(exact + deleted.size(), searchEngine.search(search, PageRequest.of(0, 1)).getTotalElements());
+	}
+
+	@Test
+	void estimatedCountBindsTheSearchParameters() {
+		entityManager.createNativeQuery("ANALYZE com_cities").executeUpdate();
+		CitySearchForm search = new CitySearchForm();
+		search.setIds(entityManager.createQuery("select c.id from CityEntity c order by c.id", Long.class)
+			.setMaxResults(3)
+			.getResultList());
+		search.setCountMode(SearchForm.CountMode.ESTIMATED);
+
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(0, 5));
+
+		assertEquals(3, page.getTotalElements());
+	}
+
+	@Test
+	void cachedCountIsReusedBySearchesWithTheSameFilters() {
+		CitySearchForm search = new CitySearchForm();
+		search.setFilters(List.of(new SearchForm.FilterCriteria("active", SearchForm.FilterOperator.EQUALS, true)));
+		search.setCountMode(SearchForm.CountMode.CACHED);
+		long cached = searchEngine.search(search, PageRequest.of(0, 1)).getTotalElements();
+
+		entityManager.createQuery("update CityEntity c set c.active = false where c.id = :id")
+			.setParameter("id", searchEngine.search(search, PageRequest.of(0, 1)).getContent().get(0).getId())
+			.executeUpdate();
+
+		// Another page of the same search, with another fieldset: the total stays the cached one until it expires
+		search.setFields(List.of("id", "name"));
+		SearchPage<CityEntity> page = searchEngine.search(search, PageRequest.of(1, 1));
+		assertEquals(SearchForm.CountMode.CACHED, page.getCountMode());
+		assertEquals(cached, page.getTotalElements());
+		search.setCountMode(SearchForm.CountMode.EXACT);
+		assertEquals(cached - 1, searchEngine.search(search, PageRequest.of(0, 1)).getTotalElements());
+	}
+
+	@Test
+	void keysetPagesThroughTiesAndNullsInEitherDirection() {
+		List<Long> ids = entityManager.createQuery("select c.id from CityEntity c order by c.id", Long.class)
+			.setMaxResults(12)
+			.getResultList();
+		String[] states = {"A", null, "A", "B", null, "A", "B", null, "C", "A", null, "B"};
+		Long[] populations = {10L, 10L, null, 20L, null, 10L, 20L, 10L, null, null, 20L, 10L};
+		for (int i = 0; i < ids.size(); i++) {
+			entityManager.createQuery("update CityEntity c set c.state = :state, c.population = :population"
+					+ " where c.id = :id")
+				.setParameter("state", states[i])
+				.setParameter("population", populations[i])
+				.setParameter("id", ids.get(i))
+				.executeUpdate();
+		}
+
+		assertKeysetPagesMatchTheWholeList(ids, "ASC", "DESC");
+		assertKeysetPagesMatchTheWholeList(ids, "DESC", "ASC");
+		assertKeysetPagesMatchTheWholeList(ids, "DESC", "DESC");
+	}
+
+	@Test
+	void withinRadiusRejectsCirclesOutOfRange() {
+		SearchEngine<CityEntity> engine = SearchEngine.builder(CityEntity.class, CitySearchForm.class)
+			.withinRadius("within_radius(e.latitude, e.longitude, ?, ?, ?)", CitySearchForm::getWithinRadius)
+			.build(entityManager, searchCountRepository, searchMetrics);
+		CitySearchForm search = new CitySearchForm();
+
+		search.setWithinRadius(new SearchForm.GeoRadius(48.85, 2.35, 10.0));
+		assertFalse(engine.search(search, PageRequest.of(0, 5)).getContent().isEmpty());
+		for (SearchForm.GeoRadius circle : List.of(new SearchForm.GeoRadius(48.85, 2.35, -1.0),
+				new SearchForm.GeoRadius(48.85, 2.35, Double.NaN), new SearchForm.GeoRadius(91.0, 2.35, 10.0),
+				new SearchForm.GeoRadius(48.85, -181.0, 10.0))) {
+			search.setWithinRadius(circle);
+			assertThrows(InvalidRequestException.class, () -> engine.search(search, PageRequest.of(0, 5)));
+		}
+	}
+
+	private void assertKeysetPagesMatchTheWholeList(List<Long> ids, String stateDirection,
+			String populationDirection) {
+		CitySearchForm search = new CitySearchForm();
+		search.setIds(ids);
+		search.setSorts(List.of(new SearchForm.SortCriteria("state", stateDirection),
+			new SearchForm.SortCriteria("population", populationDirection)));
+		List<Long> whole = searchEngine.search(search, PageRequest.of(0, ids.size())).getContent().stream()
+			.map(CityEntity::getId).toList();
+
+		search.setPaginationMode(SearchForm.PaginationMode.KEYSET);
+		search.setCountMode(SearchForm.CountMode.NONE);
+		List<Long> paged = new ArrayList<>();
+		SearchPage<CityEntity> page;
+		do {
+			page = searchEngine.search(search, PageRequest.of(0, 2));
+			page.getContent().forEach(city -> paged.add(city.getId()));
+			search.setAfter(page.getNextCursor());
+		} while (page.hasNext() && paged.size() <= ids.size());
+
+		String sort = stateDirection + "/" + populationDirection;
+		assertEquals(ids.size(), whole.size(), sort);
+		// No row skipped or repeated, in the order of the whole list
+		assertEquals(whole, paged, sort);
+	}
+
+	private static CitySearchForm fuzzy(String name) {
+		CitySearchForm search = new CitySearchForm();
+		search.setFilters(List.of(new SearchForm.FilterCriteria("name", SearchForm.FilterOperator.FUZZY, name)));
+		return search;
+	}
+}
@@ -0,0 +1,59 @@
+package com.viridial.countries.entities;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Detached {@link CityEntity} rows with every column set, generated from a seed so that two runs
+ * map and serialize the same values. Names are made of syllables, so that text filters match
+ * a realistic share of them.
+ */
+public final class SyntheticCities {
+
+	private static final String[] SYLLABLES = {"ba", "ri", "to", "mar", "pa", "lo", "ne", "sa", "vi", "du", "ken", "or"};
+	private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private SyntheticCities() {
+	}
+
+	public static List<CityEntity> of(int count, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		List<CityEntity> cities = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			CityEntity city = new CityEntity();
+			city.setId(i + 1L);
+			city.setName(name(random));
+			city.setNativeName(name(random));
+			city.setState(name(random));
+			city.setDistrict(name(random));
+			city.setPostalCode(String.format("%05d", random.nextInt(100_000)));
+			city.setLatitude(random.nextDouble(-90, 90));
+			city.setLongitude(random.nextDouble(-180, 180));
+			city.setElevation(random.nextDouble(0, 3000));
+			city.setPopulation(random.nextLong(1_000, 10_000_000));
+			city.setAreaKm2(random.nextDouble(1, 5000));
+			city.setCountryId(1L + random.nextInt(250));
+			city.setTimezoneId(1L + random.nextInt(400));
+			city.setCapital(random.nextInt(100) == 0);
+			city.setMetropolitan(random.nextInt(10) == 0);
+			city.setActive(random.nextInt(10) != 0);
+			city.setCreatedAt(CREATED_AT);
+			city.setUpdatedAt(CREATED_AT.plusSeconds(i));
+			city.setCreatedBy("system");
+			city.setUpdatedBy("system");
+			cities.add(city);
+		}
+		return cities;
+	}
+
+	private static String name(SplittableRandom random) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 2 + random.nextInt(3); i > 0; i--) {
+			name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+}
@@ -0,0 +1,79 @@
+package com.viridial.countries.resources;
+
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.common.utils.SearchCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CityResourceTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void offsetSearchListsThePageAndTellsHowItWasCounted() throws Exception {
+		mockMvc.perform(post("/cities/search").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"size\":1,\"countMode\":\"NONE\"}"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$").isArray())
+			.andExpect(header().string(PaginatedResponse.HAS_NEXT_HEADER, "true"))
+			.andExpect(header().string(PaginatedResponse.COUNT_MODE_HEADER, "NONE"))
+			.andExpect(header().doesNotExist(PaginatedResponse.TOTAL_COUNT_HEADER));
+
+		mockMvc.perform(post("/cities/search").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"size\":1,\"countMode\":\"ESTIMATED\"}"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(PaginatedResponse.COUNT_MODE_HEADER, "ESTIMATED"))
+			.andExpect(header().exists(PaginatedResponse.TOTAL_COUNT_HEADER));
+	}
+
+	@Test
+	void keysetSearchReturnsTheEnvelope() throws Exception {
+		mockMvc.perform(post("/cities/search").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"size\":1,\"paginationMode\":\"KEYSET\",\"countMode\":\"NONE\"}"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items.length()").value(1))
+			.andExpect(jsonPath("$.hasNext").value(true))
+			.andExpect(jsonPath("$.nextCursor").isString())
+			.andExpect(jsonPath("$.countMode").value("NONE"))
+			.andExpect(header().doesNotExist(PaginatedResponse.HAS_NEXT_HEADER));
+	}
+
+	@Test
+	void tamperedCursorIsABadRequest() throws Exception {
+		String otherSort = new SearchCursor(List.of("population", "id"), List.of(1000, 1)).encode();
+		String badValue = new SearchCursor(List.of("name", "id"), List.of("Paris", "one")).encode();
+		for (String after : List.of("not-a-cursor", otherSort, badValue)) {
+			String body = "{\"paginationMode\":\"KEYSET\",\"sorts\":[{\"field\":\"name\",\"direction\":\"ASC\"}],"
+				+ "\"after\":\"" + after + "\"}";
+			mockMvc.perform(post("/cities/search").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isBadRequest());
+			// Not answered as an attachment, which the error page could not be written into
+			mockMvc.perform(post("/cities/export").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_DISPOSITION));
+		}
+	}
+
+	@Test
+	void bulkJobWithoutIdsIsABadRequest() throws Exception {
+		mockMvc.perform(post("/cities/bulk-delete/jobs").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"ids\":[]}"))
+			.andExpect(status().isBadRequest());
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.countries.entities.CityEntity;
+import com.viridial.countries.forms.CityNearestForm;
+import com.viridial.countries.forms.CitySuggestForm;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.suggest.city-rebuild-threshold=3")
+class CitySuggestIndexTests {
+
+	@Autowired
+	private CitySuggestIndex citySuggestIndex;
+
+	@Autowired
+	private CityService cityService;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void loadSnapshot() throws InterruptedException {
+		rebuild();
+	}
+
+	@Test
+	void bulkChangesOverrideTheSnapshotUntilTheNextRebuild() {
+		CityEntity city = activeCities(1).get(0);
+		long loads = citySuggestIndex.getLoadCount();
+		try {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), false));
+
+			assertFalse(suggests(city));
+			assertFalse(isNearest(city));
+			assertEquals(1, citySuggestIndex.getChangeCount());
+
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+
+			// Read back from the database, not from the snapshot
+			assertTrue(suggests(city));
+			assertTrue(isNearest(city));
+			assertEquals(loads, citySuggestIndex.getLoadCount());
+		} finally {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+		}
+	}
+
+	@Test
+	void rebuildDropsTheChangesItIncludes() throws InterruptedException {
+		CityEntity city = activeCities(1).get(0);
+		try {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), false));
+			assertEquals(1, citySuggestIndex.getChangeCount());
+
+			rebuild();
+
+			assertEquals(0, citySuggestIndex.getChangeCount());
+			assertFalse(suggests(city));
+		} finally {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+		}
+	}
+
+	@Test
+	void bulkChangesBeyondTheThresholdRebuildTheIndex() throws InterruptedException {
+		List<CityEntity> cities = activeCities(4);
+		List<Long> ids = cities.stream().map(CityEntity::getId).toList();
+		long loads = citySuggestIndex.getLoadCount();
+		try {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(ids, false));
+			awaitLoads(loads + 1);
+
+			assertEquals(0, citySuggestIndex.getChangeCount());
+			for (CityEntity city : cities) {
+				assertFalse(suggests(city), city.getName());
+			}
+		} finally {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(ids, true));
+			awaitLoads(loads + 2);
+		}
+		assertTrue(suggests(cities.get(0)));
+	}
+
+	private boolean suggests(CityEntity city) {
+		return citySuggestIndex.suggest(city.getName(), city.getCountryId(), 50).stream()
+			.map(CitySuggestForm::getId)
+			.anyMatch(city.getId()::equals);
+	}
+
+	private boolean isNearest(CityEntity city) {
+		List<CityNearestForm> nearest = citySuggestIndex.nearest(city.getLatitude(), city.getLongitude(),
+			city.getCountryId(), 1, Double.POSITIVE_INFINITY);
+		return !nearest.isEmpty() && city.getId().equals(nearest.get(0).getId());
+	}
+
+	/**
+	 * Rebuilds the snapshot and waits until no other rebuild, such as the one at startup, is running.
+	 */
+	private void rebuild() throws InterruptedException {
+		long loads = citySuggestIndex.getLoadCount();
+		citySuggestIndex.refresh();
+		awaitLoads(loads + 1);
+		do {
+			loads = citySuggestIndex.getLoadCount();
+			Thread.sleep(200);
+		} while (citySuggestIndex.getLoadCount() != loads);
+	}
+
+	private void awaitLoads(long loads) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		while (citySuggestIndex.getLoadCount() < loads && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+		}
+		assertTrue(citySuggestIndex.getLoadCount() >= loads, "Index not rebuilt");
+	}
+
+	private List<CityEntity> activeCities(int count) {
+		List<CityEntity> cities = entityManager.createQuery("select c from CityEntity c where c.active = true"
+				+ " and c.deletedAt is null and c.latitude is not null and c.longitude is not null order by c.id",
+				CityEntity.class)
+			.setMaxResults(count)
+			.getResultList();
+		assertEquals(count, cities.size());
+		return cities;
+	}
+
+}
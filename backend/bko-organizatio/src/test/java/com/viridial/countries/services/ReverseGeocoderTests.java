@@ -0,0 +1,134 @@
+package com.viridial.countries.services;
+
+import com.viridial.common.forms.BulkUpdateActiveForm;
+import com.viridial.countries.entities.CityEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"app.geocoding.index-file=" + ReverseGeocoderTests.INDEX_FILE,
+	"app.geocoding.rebuild-threshold=3"})
+class ReverseGeocoderTests {
+
+	static final String INDEX_FILE = "target/reverse-geocoder-tests.idx";
+
+	@Autowired
+	private ReverseGeocoder reverseGeocoder;
+
+	@Autowired
+	private CityService cityService;
+
+	@Autowired
+	private AutowireCapableBeanFactory beanFactory;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@BeforeAll
+	static void deleteIndexFile() throws IOException {
+		// Built and saved by the warm-up of the application
+		Files.deleteIfExists(Path.of(INDEX_FILE));
+	}
+
+	@BeforeEach
+	void awaitWarmUp() {
+		// Waits for the snapshot of the warm-up, and for it to be saved
+		reverseGeocoder.resolve(0, 0, 0);
+	}
+
+	@Test
+	void savedFileIsReusedWhileTheCitiesAreUnchanged() throws Exception {
+		CityEntity city = locatedCities(1).get(0);
+		// Saved for the current cities, if the file was not yet
+		assertEquals(city.getId(), resolveRestarted(city));
+		Object saved = fileKey();
+
+		assertEquals(city.getId(), resolveRestarted(city));
+
+		assertEquals(saved, fileKey());
+	}
+
+	@Test
+	void savedFileIsIgnoredOnceTheCitiesChanged() throws Exception {
+		CityEntity city = locatedCities(1).get(0);
+		resolveRestarted(city);
+		Object saved = fileKey();
+
+		cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), false));
+		cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+		// Applied incrementally: not saved again
+		assertEquals(saved, fileKey());
+
+		assertEquals(city.getId(), resolveRestarted(city));
+		assertNotEquals(saved, fileKey());
+	}
+
+	@Test
+	void cityWritesOverrideTheSnapshot() throws Exception {
+		CityEntity city = locatedCities(1).get(0);
+		assertEquals(city.getId(), resolve(reverseGeocoder, city));
+		Object saved = fileKey();
+		try {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), false));
+			assertNotEquals(city.getId(), resolve(reverseGeocoder, city));
+
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+			assertEquals(city.getId(), resolve(reverseGeocoder, city));
+			assertEquals(saved, fileKey());
+		} finally {
+			cityService.bulkUpdateActive(new BulkUpdateActiveForm(List.of(city.getId()), true));
+		}
+	}
+
+	/**
+	 * Resolves the point of a city with a new geocoder, as after a restart: it loads its snapshot on first use.
+	 */
+	private Long resolveRestarted(CityEntity city) {
+		ReverseGeocoder restarted = beanFactory.createBean(ReverseGeocoder.class);
+		try {
+			return resolve(restarted, city);
+		} finally {
+			beanFactory.destroyBean(restarted);
+		}
+	}
+
+	private static Long resolve(ReverseGeocoder geocoder, CityEntity city) {
+		ReverseGeocoder.Resolution resolution = geocoder.resolve(city.getLatitude(), city.getLongitude(), 1);
+		return resolution != null ? resolution.cityId() : null;
+	}
+
+	/**
+	 * Identifies the saved file: saving it again moves a new file over it.
+	 */
+	private static Object fileKey() throws IOException {
+		Path file = Path.of(INDEX_FILE);
+		assertTrue(Files.isRegularFile(file), "Index file not saved");
+		return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+	}
+
+	private List<CityEntity> locatedCities(int count) {
+		List<CityEntity> cities = entityManager.createQuery("select c from CityEntity c where c.active = true"
+				+ " and c.deletedAt is null and c.latitude is not null and c.longitude is not null order by c.id",
+				CityEntity.class)
+			.setMaxResults(count)
+			.getResultList();
+		assertEquals(count, cities.size());
+		return cities;
+	}
+
+}
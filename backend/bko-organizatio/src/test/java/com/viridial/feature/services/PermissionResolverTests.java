@@ -0,0 +1,173 @@
+package com.viridial.feature.services;
+
+import com.viridial.common.entities.BaseEntity;
+import com.viridial.feature.entities.FeatureEntity;
+import com.viridial.feature.entities.FeatureRoleEntity;
+import com.viridial.feature.entities.FeatureTypeEntity;
+import com.viridial.roles.entities.RoleEntity;
+import com.viridial.users.entities.UserEntity;
+import com.viridial.users.entities.UserRoleEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class PermissionResolverTests {
+
+	@Autowired
+	private PermissionResolver permissionResolver;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private FeatureTypeEntity type;
+	private FeatureEntity module;
+	private RoleEntity base;
+	private RoleEntity editor;
+
+	@BeforeEach
+	void createModel() {
+		type = new FeatureTypeEntity();
+		type.setCode("PERM_TEST_TYPE");
+		type.setLabel("Permission test");
+		persist(type);
+
+		module = feature("PERM_TEST_MODULE", null, true);
+		feature("PERM_TEST_READ", module, true);
+		feature("PERM_TEST_WRITE", module, true);
+		FeatureEntity disabled = feature("PERM_TEST_OFF", null, false);
+		feature("PERM_TEST_OFF_CHILD", disabled, true);
+
+		base = role("PERM_TEST_BASE", null, false);
+		editor = role("PERM_TEST_EDITOR", base, false);
+		grant(base, "PERM_TEST_READ");
+		grant(editor, "PERM_TEST_WRITE");
+		grant(editor, "PERM_TEST_OFF_CHILD");
+	}
+
+	@Test
+	void rolesInheritTheirParentsGrants() {
+		LocalDateTime end = LocalDateTime.now().plusDays(1).withNano(0);
+		UserEntity user = user("perm.editor@test.local");
+		assign(user, editor, LocalDateTime.now().minusDays(1), end);
+		entityManager.flush();
+
+		assertEquals(List.of("PERM_TEST_READ", "PERM_TEST_WRITE"), testCodes(permissionResolver.getFeatureCodes(user.getId())));
+		assertEquals(List.of("PERM_TEST_BASE", "PERM_TEST_EDITOR"), permissionResolver.getRoleCodes(user.getId()));
+		assertTrue(permissionResolver.hasFeature(user.getId(), "PERM_TEST_WRITE"));
+		// Parent feature not granted, disabled feature subtree never granted
+		assertFalse(permissionResolver.hasFeature(user.getId(), "PERM_TEST_MODULE"));
+		assertFalse(permissionResolver.hasFeature(user.getId(), "PERM_TEST_OFF_CHILD"));
+		assertEquals(end, permissionResolver.getValidUntil(user.getId()));
+
+		// Granting a feature grants its sub-features
+		grant(base, "PERM_TEST_MODULE");
+		entityManager.flush();
+		assertEquals(List.of("PERM_TEST_MODULE", "PERM_TEST_READ", "PERM_TEST_WRITE"),
+			testCodes(permissionResolver.getFeatureCodes(user.getId())));
+
+		// An inactive role grants nothing of its own
+		base.setActive(false);
+		entityManager.flush();
+		assertEquals(List.of("PERM_TEST_WRITE"), testCodes(permissionResolver.getFeatureCodes(user.getId())));
+	}
+
+	@Test
+	void onlyCurrentAssignmentsCount() {
+		LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+		RoleEntity admin = role("PERM_TEST_ADMIN", null, true);
+		UserEntity user = user("perm.admin@test.local");
+		assign(user, admin, start, start.plusDays(1));
+		assign(user, editor, LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+		entityManager.flush();
+
+		assertTrue(permissionResolver.getFeatureCodes(user.getId()).isEmpty());
+		assertEquals(start, permissionResolver.getValidUntil(user.getId()));
+
+		assign(user, admin, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+		entityManager.flush();
+		assertTrue(permissionResolver.hasFeature(user.getId(), "PERM_TEST_MODULE"));
+		assertTrue(permissionResolver.hasFeature(user.getId(), "PERM_TEST_WRITE"));
+		assertFalse(permissionResolver.hasFeature(user.getId(), "PERM_TEST_OFF_CHILD"));
+		assertFalse(permissionResolver.hasFeature(user.getId(), "PERM_TEST_UNKNOWN"));
+	}
+
+	@Test
+	void unknownUserHasNoPermissions() {
+		assertFalse(permissionResolver.hasFeature(-1L, "PERM_TEST_MODULE"));
+		assertNull(permissionResolver.getValidUntil(-1L));
+	}
+
+	private static List<String> testCodes(List<String> codes) {
+		return codes.stream().filter(code -> code.startsWith("PERM_TEST_")).toList();
+	}
+
+	private FeatureEntity feature(String code, FeatureEntity parent, boolean active) {
+		FeatureEntity feature = new FeatureEntity();
+		feature.setCode(code);
+		feature.setLabel(code);
+		feature.setTypeId(type.getId());
+		feature.setParentId(parent != null ? parent.getId() : null);
+		feature.setActive(active);
+		return persist(feature);
+	}
+
+	private RoleEntity role(String code, RoleEntity parent, boolean admin) {
+		RoleEntity role = new RoleEntity();
+		role.setCode(code);
+		role.setLabel(code);
+		role.setParentId(parent != null ? parent.getId() : null);
+		role.setAdmin(admin);
+		return persist(role);
+	}
+
+	private void grant(RoleEntity role, String featureCode) {
+		FeatureEntity feature = entityManager.createQuery("select f from FeatureEntity f where f.code = :code", FeatureEntity.class)
+			.setParameter("code", featureCode)
+			.getSingleResult();
+		FeatureRoleEntity grant = new FeatureRoleEntity();
+		grant.setRoleId(role.getId());
+		grant.setFeatureId(feature.getId());
+		persist(grant);
+	}
+
+	private UserEntity user(String email) {
+		UserEntity user = new UserEntity();
+		user.setFirstName("Perm");
+		user.setLastName("Test");
+		user.setEmail(email);
+		user.setPassword("secret");
+		user.setActive(true);
+		return persist(user);
+	}
+
+	private void assign(UserEntity user, RoleEntity role, LocalDateTime start, LocalDateTime end) {
+		UserRoleEntity assignment = new UserRoleEntity();
+		assignment.setUserId(user.getId());
+		assignment.setRoleId(role.getId());
+		assignment.setStartDate(start);
+		assignment.setEndDate(end);
+		persist(assignment);
+	}
+
+	private <T extends BaseEntity> T persist(T entity) {
+		entity.setCreatedBy("test");
+		entity.setUpdatedBy("test");
+		entityManager.persist(entity);
+		entityManager.flush();
+		return entity;
+	}
+}
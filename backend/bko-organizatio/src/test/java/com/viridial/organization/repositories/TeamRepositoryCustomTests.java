@@ -0,0 +1,83 @@
+package com.viridial.organization.repositories;
+
+import com.viridial.common.utils.SearchPage;
+import com.viridial.organization.entities.TeamEntity;
+import com.viridial.organization.forms.TeamSearchForm;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class TeamRepositoryCustomTests {
+
+	@Autowired
+	private TeamRepositoryCustom teamRepositoryCustom;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void subtreeFollowsInsertsAndMoves() {
+		TeamEntity root = team("CLOSURE_ROOT", null);
+		TeamEntity a = team("CLOSURE_A", root);
+		TeamEntity b = team("CLOSURE_B", root);
+		TeamEntity a1 = team("CLOSURE_A1", a);
+
+		assertEquals(List.of(root.getId(), a.getId(), b.getId(), a1.getId()), subtree(root, null));
+		assertEquals(List.of(root.getId(), a.getId(), b.getId()), subtree(root, 1));
+		assertEquals(List.of(b.getId()), subtree(b, null));
+
+		// Moving A under B moves A1 with it
+		a.setParentId(b.getId());
+		entityManager.flush();
+		assertEquals(List.of(b.getId(), a.getId(), a1.getId()), subtree(b, null));
+		assertEquals(List.of(root.getId(), b.getId(), a.getId(), a1.getId()), subtree(root, null));
+
+		TeamSearchForm search = new TeamSearchForm();
+		search.setAncestorId(b.getId());
+		search.setMaxDepth(1);
+		SearchPage<TeamEntity> page = teamRepositoryCustom.search(search, PageRequest.of(0, 10));
+		assertEquals(List.of(a.getId(), b.getId()), page.getContent().stream().map(TeamEntity::getId).sorted().toList());
+	}
+
+	@Test
+	void refusesMovingATeamUnderItsOwnSubtree() {
+		TeamEntity root = team("CLOSURE_ROOT", null);
+		TeamEntity child = team("CLOSURE_CHILD", root);
+
+		root.setParentId(child.getId());
+		assertThrows(RuntimeException.class, () -> entityManager.flush());
+	}
+
+	@Test
+	void subtreeOfAMissingTeamIsEmpty() {
+		assertTrue(teamRepositoryCustom.findSubtree(-1L, null).isEmpty());
+	}
+
+	private List<Long> subtree(TeamEntity root, Integer maxDepth) {
+		return teamRepositoryCustom.findSubtree(root.getId(), maxDepth).stream().map(TeamEntity::getId).toList();
+	}
+
+	private TeamEntity team(String code, TeamEntity parent) {
+		TeamEntity team = new TeamEntity();
+		team.setInternalCode(code);
+		team.setName(code);
+		team.setParentId(parent != null ? parent.getId() : null);
+		team.setCreatedBy("test");
+		team.setUpdatedBy("test");
+		entityManager.persist(team);
+		entityManager.flush();
+		return team;
+	}
+}
@@ -0,0 +1,59 @@
+package com.viridial.referentiel.services;
+
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.referentiel.forms.FormSearch;
+import com.viridial.referentiel.forms.ReferentialForm;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.referential-cache.max-entries=1")
+class ReferentialCacheTests {
+
+	@Autowired
+	private ReferentialCache referentialCache;
+
+	@Autowired
+	private ReferentialSearchService referentialSearchService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void tooManyReferentialsAreServedFromTheDatabase() {
+		FormSearch search = new FormSearch();
+		search.setActive(true);
+		PaginatedResponse<ReferentialForm> page = referentialSearchService.search(search);
+
+		assertFalse(page.getItems().isEmpty());
+		assertTrue(referentialCache.findById(page.getItems().get(0).getId()).isEmpty());
+		assertEquals(0, meterRegistry.get("viridial.referential.cache.size").gauge().value());
+		assertTrue(meterRegistry.get("viridial.referential.cache.gets").tag("result", "miss").functionCounter().count() > 0);
+	}
+
+	@Test
+	void tooManyReferentialsAreNotCountedAgainAfterEachWrite() {
+		QueryStatistics counts = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+			.getQueryStatistics(ReferentialCache.COUNT_QUERY);
+		referentialCache.findById(1L);
+		long executions = counts.getExecutionCount();
+		assertTrue(executions > 0);
+
+		referentialCache.invalidate();
+
+		assertTrue(referentialCache.findById(1L).isEmpty());
+		assertEquals(executions, counts.getExecutionCount());
+	}
+
+}
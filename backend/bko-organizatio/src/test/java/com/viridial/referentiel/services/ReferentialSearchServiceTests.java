@@ -0,0 +1,122 @@
+package com.viridial.referentiel.services;
+
+import com.viridial.common.form.SearchForm;
+import com.viridial.common.forms.PaginatedResponse;
+import com.viridial.referentiel.forms.FormSearch;
+import com.viridial.referentiel.forms.ReferentialForm;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReferentialSearchServiceTests {
+
+	@Autowired
+	private ReferentialSearchService referentialSearchService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void enableStatistics() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+	}
+
+	@AfterEach
+	void disableStatistics() {
+		statistics.setStatisticsEnabled(false);
+	}
+
+	@Test
+	void searchRunsConstantStatementsWhateverThePageSize() {
+		// Loads the referential cache used by the mapper
+		referentialSearchService.search(new FormSearch());
+
+		assertEquals(2, statementsForPageOf(5));
+		assertEquals(2, statementsForPageOf(100));
+	}
+
+	@Test
+	void repeatedSearchIsServedFromQueryCache() {
+		FormSearch search = new FormSearch();
+		search.setSize(20);
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+		PaginatedResponse<ReferentialForm> fromDatabase = referentialSearchService.search(search);
+
+		statistics.clear();
+		PaginatedResponse<ReferentialForm> fromCache = referentialSearchService.search(search);
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertTrue(statistics.getQueryCacheHitCount() >= 2);
+		assertEquals(fromDatabase.getTotal(), fromCache.getTotal());
+		assertEquals(ids(fromDatabase), ids(fromCache));
+	}
+
+	@Test
+	void activeSearchIsServedFromCache() {
+		FormSearch search = new FormSearch();
+		search.setActive(true);
+		search.setSize(100);
+		// An explicit sort is never served from memory
+		search.setSorts(List.of(new SearchForm.SortCriteria("displayOrder", "ASC")));
+		PaginatedResponse<ReferentialForm> fromDatabase = referentialSearchService.search(search);
+		search.setSorts(List.of());
+
+		statistics.clear();
+		PaginatedResponse<ReferentialForm> fromCache = referentialSearchService.search(search);
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(fromDatabase.getTotal(), fromCache.getTotal());
+		assertEquals(ids(fromDatabase), ids(fromCache));
+	}
+
+	@Test
+	void searchServedFromCacheReportsAnExactTotal() {
+		FormSearch search = new FormSearch();
+		search.setActive(true);
+		search.setSize(1);
+		search.setCountMode(SearchForm.CountMode.ESTIMATED);
+		// Loads the snapshot
+		referentialSearchService.search(search);
+
+		statistics.clear();
+		PaginatedResponse<ReferentialForm> fromCache = referentialSearchService.search(search);
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(SearchForm.CountMode.EXACT, fromCache.getCountMode());
+		assertTrue(fromCache.isHasNext());
+		assertEquals(1, fromCache.getItems().size());
+	}
+
+	private static List<Long> ids(PaginatedResponse<ReferentialForm> response) {
+		return response.getItems().stream().map(ReferentialForm::getId).toList();
+	}
+
+	private long statementsForPageOf(int size) {
+		FormSearch search = new FormSearch();
+		search.setSize(size);
+		// Cold query cache: the count of the previous page would be reused
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+		statistics.clear();
+
+		PaginatedResponse<ReferentialForm> response = referentialSearchService.search(search);
+
+		assertTrue(response.getItems().stream().anyMatch(form -> form.getTypeLabel() != null));
+		// count + data, type/subType/parent come with the data rows
+		return statistics.getPrepareStatementCount();
+	}
+
+}